@@ -26,7 +26,7 @@ public class GlobalCorsConfig {
         config.setAllowedHeaders(Collections.singletonList("*"));
         config.setAllowCredentials(false);
         config.setMaxAge(3600L);
-        config.setExposedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        config.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Next-Cursor", "Idempotent-Replayed"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
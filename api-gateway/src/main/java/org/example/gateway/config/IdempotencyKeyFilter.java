@@ -0,0 +1,41 @@
+package org.example.gateway.config;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.UUID;
+
+// Runs before the Retry filter, so every retry of a write carries the same
+// Idempotency-Key and the downstream service answers it from its store.
+@Component
+public class IdempotencyKeyFilter implements GlobalFilter, Ordered {
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final Set<HttpMethod> MUTATING_METHODS =
+            Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!MUTATING_METHODS.contains(request.getMethod())
+                || request.getHeaders().containsKey(IDEMPOTENCY_KEY_HEADER)) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest withKey = request.mutate()
+                .header(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .build();
+        return chain.filter(exchange.mutate().request(withKey).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
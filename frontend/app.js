@@ -120,6 +120,29 @@ async function apiCall(endpoint, method = 'GET', body = null) {
     return null;
 }
 
+// List endpoints return one keyset page per call; the X-Next-Cursor
+// header carries the id to pass as `after` for the next page.
+async function apiCallAll(endpoint, limit = 500) {
+    const items = [];
+    let after = null;
+    do {
+        const separator = endpoint.includes('?') ? '&' : '?';
+        const cursor = after !== null ? `&after=${after}` : '';
+        const response = await fetch(`${API_BASE_URL}${endpoint}${separator}limit=${limit}${cursor}`, {
+            headers: { 'Authorization': `Bearer ${currentToken}` }
+        });
+        if (!response.ok) {
+            if (response.status === 403) {
+                throw new Error('Недостаточно прав доступа');
+            }
+            throw new Error(`HTTP ${response.status}: ${response.statusText}`);
+        }
+        items.push(...await response.json());
+        after = response.headers.get('X-Next-Cursor');
+    } while (after !== null);
+    return items;
+}
+
 // Load Data
 async function loadAllData() {
     await loadParkingSpots();
@@ -129,7 +152,7 @@ async function loadAllData() {
 
 async function loadParkingSpots() {
     try {
-        parkingSpots = await apiCall('/spots');
+        parkingSpots = await apiCallAll('/spots');
         renderParkingSpots();
     } catch (error) {
         console.error('Error loading parking spots:', error);
@@ -139,7 +162,7 @@ async function loadParkingSpots() {
 
 async function loadVehicles() {
     try {
-        vehicles = await apiCall('/vehicles');
+        vehicles = await apiCallAll('/vehicles');
         renderVehicles();
     } catch (error) {
         console.error('Error loading vehicles:', error);
@@ -149,7 +172,7 @@ async function loadVehicles() {
 
 async function loadReservations() {
     try {
-        reservations = await apiCall('/reservations');
+        reservations = await apiCallAll('/reservations');
         renderReservations();
     } catch (error) {
         console.error('Error loading reservations:', error);
@@ -0,0 +1,28 @@
+package org.example.parking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class SpotEventConfig {
+
+    // Writes queued events to subscribers. Idle subscribers hold no thread;
+    // one is only borrowed while a subscriber has something to send.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService spotEventExecutor(@Value("${parking.events.sender-threads:4}") int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("spot-events-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -1,48 +1,173 @@
 package org.example.parking.controller;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.example.parking.dto.ChangeSet;
+import org.example.parking.dto.CursorPage;
+import org.example.parking.dto.FloorOccupancy;
+import org.example.parking.dto.NearbySpot;
+import org.example.parking.dto.SensorIngestResult;
+import org.example.parking.dto.SensorReading;
+import org.example.parking.dto.SpotImportReport;
+import org.example.parking.dto.SpotLayout;
+import org.example.parking.dto.StatusUpdateResult;
 import org.example.parking.entity.ParkingSpot;
+import org.example.parking.service.IndexNotLoadedException;
+import org.example.parking.service.InvalidRequestException;
+import org.example.parking.service.ParkingSpotConflictException;
 import org.example.parking.service.ParkingSpotService;
+import org.example.parking.service.SensorReadingBuffer;
+import org.example.parking.service.SpotCsvReader;
+import org.example.parking.service.SpotEventBroadcaster;
+import org.example.parking.service.SpotImportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/spots")
 @RequiredArgsConstructor
 public class ParkingSpotController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_BATCH_SIZE = 200;
+
     private final ParkingSpotService parkingSpotService;
+    private final SpotEventBroadcaster spotEventBroadcaster;
+    private final SensorReadingBuffer sensorReadingBuffer;
+    private final SpotImportService spotImportService;
+    private final ObjectMapper objectMapper;
 
+    // The ETag is read before the rows, so it is never newer than the page
+    // it labels; at worst a client refetches a page that had not changed.
     @GetMapping
-    public List<ParkingSpot> getAllSpots() {
-        return parkingSpotService.getAllSpots();
+    public ResponseEntity<List<ParkingSpot>> getAllSpots(@RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         WebRequest request) {
+        String etag = etag(parkingSpotService.getCollectionVersion());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return page(parkingSpotService.getAllSpots(after, limit), etag);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllSpots() {
+        return ndjson(parkingSpotService::streamAllSpots);
+    }
+
+    // Capped like the reservation details batch; larger batches are split by the caller
+    @GetMapping("/batch")
+    public List<ParkingSpot> getSpotsByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new InvalidRequestException("At most " + MAX_BATCH_SIZE + " ids per request");
+        }
+        return parkingSpotService.getSpotsByIds(ids);
+    }
+
+    // Served from the in-memory free spot pool, without a database query
+    @GetMapping("/free/any")
+    public ResponseEntity<ParkingSpot> findFreeSpot(@RequestParam(required = false) Integer floor) {
+        return parkingSpotService.findFreeSpot(floor)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Free spots closest to a position, e.g. the entrance a driver came in
+    // through; other floors fill up when the floor has fewer than k
+    @GetMapping("/nearest")
+    public List<NearbySpot> findNearestFreeSpots(@RequestParam double x, @RequestParam double y,
+                                                 @RequestParam Integer floor,
+                                                 @RequestParam(defaultValue = "5") int k) {
+        return parkingSpotService.findNearestFreeSpots(floor, x, y, k);
+    }
+
+    @GetMapping("/free/counts")
+    public Map<Integer, Integer> getFreeCounts() {
+        return parkingSpotService.getFreeCounts();
+    }
+
+    // Free, occupied, ... spots per floor, also kept in memory
+    @GetMapping("/occupancy")
+    public List<FloorOccupancy> getOccupancy() {
+        return parkingSpotService.getOccupancy();
     }
 
+    // Delta sync: pass the returned version as since on the next call
+    @GetMapping("/changes")
+    public ChangeSet<ParkingSpot> getChanges(@RequestParam(required = false) Long since,
+                                             @RequestParam(defaultValue = "1000") int limit) {
+        return parkingSpotService.getChanges(since, limit);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return spotEventBroadcaster.subscribe(lastEventId);
+    }
+
+    // A matching If-None-Match is answered from the version alone
     @GetMapping("/{id}")
-    public ResponseEntity<ParkingSpot> getSpotById(@PathVariable Long id) {
+    public ResponseEntity<ParkingSpot> getSpotById(@PathVariable Long id, WebRequest request) {
+        Optional<Long> version = parkingSpotService.getSpotVersion(id);
+        if (version.isPresent() && request.checkNotModified(etag(version.get()))) {
+            return null;
+        }
         return parkingSpotService.getSpotById(id)
-                .map(ResponseEntity::ok)
+                .map(spot -> ResponseEntity.ok().eTag(etag(spot.getChangeVersion())).body(spot))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/status/{status}")
-    public List<ParkingSpot> getSpotsByStatus(@PathVariable String status) {
-        return parkingSpotService.getSpotsByStatus(status);
+    public ResponseEntity<List<ParkingSpot>> getSpotsByStatus(@PathVariable String status,
+                                                              @RequestParam(required = false) Long after,
+                                                              @RequestParam(required = false) Integer limit) {
+        return page(parkingSpotService.getSpotsByStatus(status, after, limit));
+    }
+
+    @GetMapping(value = "/status/{status}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSpotsByStatus(@PathVariable String status) {
+        return ndjson(consumer -> parkingSpotService.streamSpotsByStatus(status, consumer));
     }
 
     @GetMapping("/floor/{floor}")
-    public List<ParkingSpot> getSpotsByFloor(@PathVariable Integer floor) {
-        return parkingSpotService.getSpotsByFloor(floor);
+    public ResponseEntity<List<ParkingSpot>> getSpotsByFloor(@PathVariable Integer floor,
+                                                             @RequestParam(required = false) Long after,
+                                                             @RequestParam(required = false) Integer limit) {
+        return page(parkingSpotService.getSpotsByFloor(floor, after, limit));
+    }
+
+    @GetMapping(value = "/floor/{floor}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSpotsByFloor(@PathVariable Integer floor) {
+        return ndjson(consumer -> parkingSpotService.streamSpotsByFloor(floor, consumer));
     }
 
     @PostMapping
@@ -50,19 +175,91 @@ public class ParkingSpotController {
         return parkingSpotService.createSpot(spot);
     }
 
+    // A CSV layout with a number,floor[,status,x,y] header, read line by
+    // line as the body streams in
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public SpotImportReport importSpotsCsv(InputStream body) {
+        return spotImportService.importSpots(
+                new SpotCsvReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))));
+    }
+
+    // NDJSON or a JSON array, read item by item
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public SpotImportReport importSpots(InputStream body) throws IOException {
+        try (MappingIterator<ParkingSpot> spots = objectMapper.readerFor(ParkingSpot.class).readValues(body)) {
+            return spotImportService.importSpots(spots);
+        }
+    }
+
+    // Creates a whole garage from floors x rows x spots per row
+    @PostMapping("/layout")
+    public SpotImportReport generateLayout(@RequestBody SpotLayout layout) {
+        return spotImportService.generateLayout(layout);
+    }
+
+    @PostMapping("/claim")
+    public ResponseEntity<ParkingSpot> claimSpot(@RequestParam(required = false) Integer floor) {
+        return parkingSpotService.claimSpot(floor)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    // Readings are buffered and written in batches, so 202 means accepted,
+    // not stored yet. When the buffer is full the rest is refused with 429.
+    @PostMapping("/sensor-readings")
+    public ResponseEntity<SensorIngestResult> ingestSensorReadings(@RequestBody List<SensorReading> readings) {
+        SensorIngestResult result = sensorReadingBuffer.offer(readings);
+        if (result.getRejected() > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(sensorReadingBuffer.retryAfterSeconds()))
+                    .body(result);
+        }
+        return ResponseEntity.accepted().body(result);
+    }
+
+    // A kiosk holds a spot during checkout; the hold runs out on its own
+    // unless it is confirmed
+    @PostMapping("/{id}/hold")
+    public ParkingSpot holdSpot(@PathVariable Long id, @RequestParam(required = false) Long ttlSeconds) {
+        return parkingSpotService.holdSpot(id, ttlSeconds != null ? Duration.ofSeconds(ttlSeconds) : null);
+    }
+
+    @PostMapping("/{id}/confirm")
+    public ParkingSpot confirmHold(@PathVariable Long id, @RequestParam(required = false) Long version) {
+        return parkingSpotService.confirmHold(id, version);
+    }
+
     @PutMapping("/{id}")
     public ParkingSpot updateSpot(@PathVariable Long id, @RequestBody ParkingSpot spot) {
         return parkingSpotService.updateSpot(id, spot);
     }
 
     @PatchMapping("/{id}/status")
-    public ParkingSpot updateStatus(@PathVariable Long id, @RequestParam String status) {
-        return parkingSpotService.updateStatus(id, status);
+    public ParkingSpot updateStatus(@PathVariable Long id, @RequestParam String status,
+                                    @RequestParam(required = false) String expected,
+                                    @RequestParam(required = false) Long version) {
+        return parkingSpotService.updateStatus(id, status, expected, version);
+    }
+
+    // Flips a whole floor, e.g. closed for cleaning, in one statement
+    @PatchMapping("/floor/{floor}/status")
+    public StatusUpdateResult updateFloorStatus(@PathVariable Integer floor, @RequestParam String status,
+                                                @RequestParam(required = false) String expected) {
+        return new StatusUpdateResult(parkingSpotService.updateFloorStatus(floor, status, expected));
+    }
+
+    // Body maps spot ids to their new status
+    @PatchMapping("/status")
+    public StatusUpdateResult updateStatuses(@RequestBody Map<Long, String> statuses,
+                                             @RequestParam(required = false) String expected) {
+        return new StatusUpdateResult(parkingSpotService.updateStatuses(statuses, expected));
     }
 
     @PutMapping("/{id}/status")
-    public ParkingSpot updateStatusPut(@PathVariable Long id, @RequestParam String status) {
-        return parkingSpotService.updateStatus(id, status);
+    public ParkingSpot updateStatusPut(@PathVariable Long id, @RequestParam String status,
+                                       @RequestParam(required = false) String expected,
+                                       @RequestParam(required = false) Long version) {
+        return parkingSpotService.updateStatus(id, status, expected, version);
     }
 
     @DeleteMapping("/{id}")
@@ -70,8 +267,60 @@ public class ParkingSpotController {
         parkingSpotService.deleteSpot(id);
         return ResponseEntity.noContent().build();
     }
-}
 
+    @ExceptionHandler(ParkingSpotConflictException.class)
+    public ResponseEntity<ParkingSpot> handleConflict(ParkingSpotConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getCurrent());
+    }
+
+    // Another writer committed between our read and our UPDATE
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ParkingSpot> handleLostUpdate(ObjectOptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(parkingSpotService.getSpotById((Long) e.getIdentifier()).orElse(null));
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<String> handleBadRequest(InvalidRequestException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    // The free spot pool has not finished loading yet
+    @ExceptionHandler(IndexNotLoadedException.class)
+    public ResponseEntity<String> handleUnavailable(IndexNotLoadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
 
+    private ResponseEntity<List<ParkingSpot>> page(CursorPage<ParkingSpot> page) {
+        return page(page, null);
+    }
 
+    private ResponseEntity<List<ParkingSpot>> page(CursorPage<ParkingSpot> page, String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext().toString());
+        }
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        return response.body(page.getItems());
+    }
 
+    private static String etag(long changeVersion) {
+        return "\"" + changeVersion + "\"";
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<ParkingSpot>> source) {
+        StreamingResponseBody body = out -> source.accept(spot -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(spot));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.APPLICATION_NDJSON, StandardCharsets.UTF_8))
+                .body(body);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.parking.controller;
+
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.example.parking.dto.NearbySpot;
+import org.example.parking.entity.PointOfInterest;
+import org.example.parking.service.IndexNotLoadedException;
+import org.example.parking.service.InvalidRequestException;
+import org.example.parking.service.PointOfInterestService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Entrances, elevators and other places on the floor plans, served under
+// /spots so the gateway routes them with the spots
+@RestController
+@RequestMapping("/spots/pois")
+@RequiredArgsConstructor
+public class PointOfInterestController {
+    private final PointOfInterestService pointOfInterestService;
+
+    @GetMapping
+    public List<PointOfInterest> getPointsOfInterest(@RequestParam(required = false) Integer floor) {
+        return pointOfInterestService.getPointsOfInterest(floor);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<PointOfInterest> getPointOfInterestById(@PathVariable Long id) {
+        return pointOfInterestService.getPointOfInterestById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/nearest")
+    public ResponseEntity<List<NearbySpot>> findNearestFreeSpots(@PathVariable Long id,
+                                                                 @RequestParam(defaultValue = "5") int k) {
+        return pointOfInterestService.getPointOfInterestById(id)
+                .map(pointOfInterest -> ResponseEntity.ok(pointOfInterestService.findNearestFreeSpots(pointOfInterest, k)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public PointOfInterest createPointOfInterest(@RequestBody PointOfInterest pointOfInterest) {
+        return pointOfInterestService.createPointOfInterest(pointOfInterest);
+    }
+
+    @PutMapping("/{id}")
+    public PointOfInterest updatePointOfInterest(@PathVariable Long id, @RequestBody PointOfInterest pointOfInterest) {
+        return pointOfInterestService.updatePointOfInterest(id, pointOfInterest);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deletePointOfInterest(@PathVariable Long id) {
+        pointOfInterestService.deletePointOfInterest(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<String> handleBadRequest(InvalidRequestException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    // The free spot pool has not finished loading yet
+    @ExceptionHandler(IndexNotLoadedException.class)
+    public ResponseEntity<String> handleUnavailable(IndexNotLoadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+}
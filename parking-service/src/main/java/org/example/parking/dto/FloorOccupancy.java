@@ -0,0 +1,16 @@
+package org.example.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FloorOccupancy {
+    private Integer floor;
+    private long total;
+    private Map<String, Long> statuses;
+}
@@ -0,0 +1,15 @@
+package org.example.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.parking.entity.ParkingSpot;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbySpot {
+    private ParkingSpot spot;
+    // Straight-line distance on the floor plan, in metres
+    private double distance;
+}
@@ -0,0 +1,13 @@
+package org.example.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorIngestResult {
+    private int accepted;
+    private int rejected;
+}
@@ -0,0 +1,17 @@
+package org.example.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.parking.entity.ParkingSpot;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpotEvent {
+    private long id;
+    private String type;
+    private Long spotId;
+    // Null for DELETED
+    private ParkingSpot spot;
+}
@@ -0,0 +1,14 @@
+package org.example.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpotImportError {
+    // Position of the row in the input, starting at 0
+    private int index;
+    private String error;
+}
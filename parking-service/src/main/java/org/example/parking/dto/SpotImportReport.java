@@ -0,0 +1,19 @@
+package org.example.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Summary of a spot import. Only the first rejected rows are listed, so
+// the report stays small however large the input was.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpotImportReport {
+    private int created;
+    private int rejected;
+    private long durationMs;
+    private List<SpotImportError> errors;
+}
@@ -0,0 +1,23 @@
+package org.example.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A garage described as floors x rows x spots per row. Numbers follow the
+// pattern, where {floor}, {row} (A, B, ..., Z, AA, ...) and {number}, or
+// {number:3} for zero padding, are filled in. Spots are laid out on the
+// floor plan spotWidth apart along a row and rowSpacing apart across rows.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpotLayout {
+    private int firstFloor = 1;
+    private int floors;
+    private int rows;
+    private int spotsPerRow;
+    private String pattern = "{floor}{row}-{number:3}";
+    private String status = "FREE";
+    private double spotWidth = 2.5;
+    private double rowSpacing = 6.0;
+}
@@ -0,0 +1,31 @@
+package org.example.parking.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Versions a writer has taken and not committed yet. Committed together with
+// the sequence step and deleted in the writer's own transaction, so it is
+// gone exactly when the writer's changes become visible.
+@Entity
+@Table(name = "change_leases", indexes = @Index(name = "idx_change_leases_sequence", columnList = "sequenceName, firstVersion"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeLease {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String sequenceName;
+    private long firstVersion;
+    private LocalDateTime expiresAt;
+}
@@ -1,16 +1,27 @@
 package org.example.parking.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "parking_spots")
+// Claims read the lowest free id, overall or per floor, straight off an index.
+@Table(name = "parking_spots", indexes = {
+        @Index(name = "idx_parking_spots_status_id", columnList = "status, id"),
+        @Index(name = "idx_parking_spots_status_floor_id", columnList = "status, floor, id"),
+        @Index(name = "idx_parking_spots_change_version", columnList = "changeVersion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,7 +32,39 @@ public class ParkingSpot {
     
     private String number;
     private Integer floor;
+
+    // Position on the floor plan in metres, shared by all floors; spots
+    // without one are never suggested by the nearest-spot search.
+    private Double x;
+    private Double y;
+
     private String status;
+
+    // Bumped on every update; rows that predate the column start at 0.
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    // Position in the delta-sync change log; rows that predate it start at 0.
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long changeVersion;
+
+    // Set while the spot is HELD; the hold is released once it passes.
+    private LocalDateTime heldUntil;
+
+    public ParkingSpot(Long id, String number, Integer floor, String status) {
+        this(id, number, floor, status, null);
+    }
+
+    public ParkingSpot(Long id, String number, Integer floor, String status, Long version) {
+        this(id, number, floor, status, version, 0L);
+    }
+
+    public ParkingSpot(Long id, String number, Integer floor, String status, Long version, long changeVersion) {
+        this(id, number, floor, null, null, status, version, changeVersion, null);
+    }
 }
 
 
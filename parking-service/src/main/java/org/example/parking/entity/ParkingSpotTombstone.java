@@ -0,0 +1,24 @@
+package org.example.parking.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Records a deleted spot so delta-sync clients learn about the delete.
+@Entity
+@Table(name = "parking_spot_tombstones", indexes = {
+        @Index(name = "idx_parking_spot_tombstones_change_version", columnList = "changeVersion")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkingSpotTombstone {
+    @Id
+    private Long spotId;
+
+    private long changeVersion;
+}
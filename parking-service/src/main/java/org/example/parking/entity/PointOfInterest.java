@@ -0,0 +1,34 @@
+package org.example.parking.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A place drivers are sent from or to, e.g. an entrance or an elevator,
+// on the same floor plan as the spots.
+@Entity
+@Table(name = "points_of_interest")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointOfInterest {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+    private String type;
+
+    @Column(nullable = false)
+    private Integer floor;
+    @Column(nullable = false)
+    private Double x;
+    @Column(nullable = false)
+    private Double y;
+}
@@ -0,0 +1,15 @@
+package org.example.parking.repository;
+
+import org.example.parking.entity.ChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ChangeSequenceRepository extends JpaRepository<ChangeSequence, String> {
+    // Read past the persistence context, which may hold an older copy
+    @Query("select s.lastVersion from ChangeSequence s where s.name = :name")
+    Optional<Long> findLastVersionByName(String name);
+}
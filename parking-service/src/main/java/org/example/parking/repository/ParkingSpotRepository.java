@@ -1,17 +1,97 @@
 package org.example.parking.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.example.parking.entity.ParkingSpot;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long> {
     List<ParkingSpot> findByStatus(String status);
     List<ParkingSpot> findByFloor(Integer floor);
-}
 
+    List<ParkingSpot> findByIdGreaterThan(Long after, Pageable pageable);
+    List<ParkingSpot> findByStatusAndIdGreaterThan(String status, Long after, Pageable pageable);
+    List<ParkingSpot> findByFloorAndIdGreaterThan(Integer floor, Long after, Pageable pageable);
+    List<ParkingSpot> findByChangeVersionBetween(long from, long to, Pageable pageable);
+
+    // Enough for a conditional GET, without loading the entity
+    @Query("select s.changeVersion from ParkingSpot s where s.id = :id")
+    Optional<Long> findChangeVersionById(Long id);
+
+    // FOR UPDATE SKIP LOCKED: a row another claimer holds is passed over
+    // instead of waited for, so concurrent claims take different free spots
+    // rather than queueing on the lowest one.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    Optional<ParkingSpot> findFirstByStatusOrderByIdAsc(String status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    Optional<ParkingSpot> findFirstByStatusAndFloorOrderByIdAsc(String status, Integer floor);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ParkingSpot> streamAllByOrderByIdAsc();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ParkingSpot> streamByStatusOrderByIdAsc(String status);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ParkingSpot> streamByFloorOrderByIdAsc(Integer floor);
 
+    // Bulk status updates: the ids of the rows a floor update will change,
+    // so a block of change versions can be reserved for them. Rows already
+    // in the target status are left alone.
+    @Query("select s.id from ParkingSpot s where s.floor = :floor "
+            + "and s.status <> :status and (:expected is null or s.status = :expected) order by s.id")
+    List<Long> findIdsForFloorStatus(Integer floor, String status, String expected);
 
+    // A row takes the version at its offset from minId in the block starting
+    // at firstVersion, so every row of the batch still gets a version of its
+    // own.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ParkingSpot s set s.status = :status, s.heldUntil = null, s.version = s.version + 1, "
+            + "s.changeVersion = :firstVersion + s.id - :minId "
+            + "where s.floor = :floor and s.id between :minId and :maxId "
+            + "and s.status <> :status and (:expected is null or s.status = :expected)")
+    int updateStatusByFloor(Integer floor, String status, String expected, long minId, long maxId, long firstVersion);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ParkingSpot s set s.status = :status, s.heldUntil = null, s.version = s.version + 1, "
+            + "s.changeVersion = :firstVersion + s.id - :minId "
+            + "where s.id in :ids and s.status <> :status and (:expected is null or s.status = :expected)")
+    int updateStatusByIds(Collection<Long> ids, String status, String expected, long minId, long firstVersion);
+
+    List<ParkingSpot> findByChangeVersionBetween(long from, long to);
+
+    // Rows that still carry the given change version, for the backfill
+    @Query("select s.id from ParkingSpot s where s.changeVersion = :changeVersion order by s.id")
+    List<Long> findIdsByChangeVersion(long changeVersion, Pageable pageable);
+
+    // Only rows still without a version, so a concurrent backfill is not undone
+    @Modifying
+    @Query("update ParkingSpot s set s.changeVersion = :changeVersion where s.id = :id and s.changeVersion = 0")
+    int updateChangeVersion(Long id, long changeVersion);
+}
@@ -0,0 +1,13 @@
+package org.example.parking.repository;
+
+import org.example.parking.entity.ParkingSpotTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ParkingSpotTombstoneRepository extends JpaRepository<ParkingSpotTombstone, Long> {
+    List<ParkingSpotTombstone> findByChangeVersionBetween(long from, long to, Pageable pageable);
+}
@@ -0,0 +1,12 @@
+package org.example.parking.repository;
+
+import org.example.parking.entity.PointOfInterest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PointOfInterestRepository extends JpaRepository<PointOfInterest, Long> {
+    List<PointOfInterest> findByFloor(Integer floor);
+}
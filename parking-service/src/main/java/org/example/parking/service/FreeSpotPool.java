@@ -0,0 +1,306 @@
+package org.example.parking.service;
+
+import org.example.parking.dto.FloorOccupancy;
+import org.example.parking.dto.NearbySpot;
+import org.example.parking.entity.ParkingSpot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// In-memory view of the FREE spots of every floor, so "any free spot on
+// floor N" and "free spots per floor" are answered without a query. Reads
+// never lock; writes of one spot are serialized by its map entry, and an
+// older version never replaces a newer one. The database stays the source
+// of truth: reconcile() compares against it and repairs what drifted.
+// Every floor also counts its spots per status on striped adders, so the
+// occupancy summary is served without a query as well, and keeps its free
+// spots with a position on a grid for the nearest-spot search.
+@Component
+public class FreeSpotPool {
+    private static final String FREE = "FREE";
+
+    private final Map<Long, ParkingSpot> spots = new ConcurrentHashMap<>();
+    private final Map<Integer, Floor> floors = new ConcurrentHashMap<>();
+    // Deleted ids, so an update committed just before the delete cannot
+    // bring the spot back when its after-commit runs late. Ids are never
+    // reused; the set is cleared by each consistency check.
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    @Value("${parking.spatial.cell-size:10}")
+    private double cellSize = 10;
+
+    public Optional<ParkingSpot> anyFree(Integer floor) {
+        requireLoaded();
+        if (floor != null) {
+            return first(floors.get(floor));
+        }
+        return new TreeMap<>(floors).values().stream()
+                .map(this::first)
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    // The k free spots closest to (x, y) on the floor, nearest first. When
+    // the floor has fewer, the floors closest to it fill up the rest, at the
+    // same position one floor up or down.
+    public List<NearbySpot> nearestFree(Integer floor, double x, double y, int k) {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new InvalidRequestException("Position must be finite");
+        }
+        requireLoaded();
+        List<NearbySpot> nearest = new ArrayList<>(k);
+        List<Integer> order = floors.keySet().stream()
+                .sorted(Comparator.comparingInt((Integer other) -> Math.abs(other - floor)).thenComparingInt(other -> other))
+                .toList();
+        for (Integer other : order) {
+            if (nearest.size() == k) {
+                break;
+            }
+            for (SpotGrid.Candidate candidate : floors.get(other).grid.nearest(x, y, k - nearest.size(), this::isFree)) {
+                ParkingSpot spot = spots.get(candidate.spotId());
+                // taken since the grid was read
+                if (spot != null && FREE.equals(spot.getStatus())) {
+                    nearest.add(new NearbySpot(copyOf(spot), candidate.distance()));
+                }
+            }
+        }
+        return nearest;
+    }
+
+    public int freeCount(Integer floor) {
+        requireLoaded();
+        Floor free = floors.get(floor);
+        return free != null ? (int) free.count(FREE) : 0;
+    }
+
+    public Map<Integer, Integer> freeCounts() {
+        requireLoaded();
+        Map<Integer, Integer> counts = new TreeMap<>();
+        floors.forEach((floor, free) -> counts.put(floor, (int) free.count(FREE)));
+        return counts;
+    }
+
+    public List<FloorOccupancy> occupancy() {
+        requireLoaded();
+        return new TreeMap<>(floors).entrySet().stream()
+                .map(floor -> {
+                    Map<String, Long> statuses = new TreeMap<>();
+                    floor.getValue().statuses.forEach((status, count) -> statuses.put(status, count.sum()));
+                    statuses.values().removeIf(count -> count == 0);
+                    long total = statuses.values().stream().mapToLong(Long::longValue).sum();
+                    return new FloorOccupancy(floor.getKey(), total, statuses);
+                })
+                .filter(floor -> floor.getTotal() > 0)
+                .toList();
+    }
+
+    // Last committed status of a spot, or null while loading or if unknown
+    public String statusOf(Long spotId) {
+        ParkingSpot spot = loaded ? spots.get(spotId) : null;
+        return spot != null ? spot.getStatus() : null;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Applied once the surrounding transaction commits, so the snapshot
+    // carries the version the flush assigned and a rollback changes nothing.
+    public void apply(ParkingSpot spot) {
+        afterCommit(() -> put(copyOf(spot)));
+    }
+
+    // A batch of rows read after its writes, so they already carry their
+    // final versions; all of them are applied by one after-commit step.
+    public void applyAll(List<ParkingSpot> batch) {
+        List<ParkingSpot> snapshots = batch.stream().map(FreeSpotPool::copyOf).toList();
+        afterCommit(() -> snapshots.forEach(this::put));
+    }
+
+    public void remove(Long spotId) {
+        afterCommit(() -> evict(spotId));
+    }
+
+    // Changes committed while rows are loading are kept: a row read before
+    // them carries an older version and does not replace them.
+    public int load(Stream<ParkingSpot> rows) {
+        try (rows) {
+            rows.forEach(row -> put(copyOf(row)));
+        }
+        loaded = true;
+        return spots.size();
+    }
+
+    // Returns the number of spots that had to be repaired. A row read before
+    // a concurrent commit is older than what that commit applied, so it is
+    // not mistaken for drift. Spots missing from the rows are only evicted
+    // once the database confirms they are gone.
+    public int reconcile(Stream<ParkingSpot> rows, Predicate<Long> exists) {
+        AtomicInteger repaired = new AtomicInteger();
+        Set<Long> seen = new HashSet<>();
+        try (rows) {
+            rows.forEach(row -> {
+                seen.add(row.getId());
+                ParkingSpot current = spots.get(row.getId());
+                if (current == null || (version(current) <= version(row) && !same(current, row))) {
+                    if (put(copyOf(row))) {
+                        repaired.incrementAndGet();
+                    }
+                }
+            });
+        }
+        deleted.clear();
+        for (Long spotId : Set.copyOf(spots.keySet())) {
+            if (!seen.contains(spotId) && !exists.test(spotId)) {
+                evict(spotId);
+                repaired.incrementAndGet();
+            }
+        }
+        return repaired.get();
+    }
+
+    private boolean put(ParkingSpot snapshot) {
+        boolean[] applied = {false};
+        spots.compute(snapshot.getId(), (id, current) -> {
+            if (deleted.contains(id) || (current != null && version(current) > version(snapshot))) {
+                return current;
+            }
+            unlink(current);
+            link(snapshot);
+            applied[0] = true;
+            return snapshot;
+        });
+        return applied[0];
+    }
+
+    private void evict(Long spotId) {
+        deleted.add(spotId);
+        spots.computeIfPresent(spotId, (id, current) -> {
+            unlink(current);
+            return null;
+        });
+    }
+
+    private void link(ParkingSpot spot) {
+        if (spot.getFloor() == null) {
+            return;
+        }
+        Floor floor = floors.computeIfAbsent(spot.getFloor(), key -> new Floor(cellSize));
+        if (FREE.equals(spot.getStatus())) {
+            floor.ids.add(spot.getId());
+            if (positioned(spot)) {
+                floor.grid.add(spot.getId(), spot.getX(), spot.getY());
+            }
+        }
+        if (spot.getStatus() != null) {
+            floor.statuses.computeIfAbsent(spot.getStatus(), key -> new LongAdder()).increment();
+        }
+    }
+
+    private void unlink(ParkingSpot spot) {
+        if (spot == null || spot.getFloor() == null) {
+            return;
+        }
+        Floor floor = floors.get(spot.getFloor());
+        if (floor.ids.remove(spot.getId()) && positioned(spot)) {
+            floor.grid.remove(spot.getId(), spot.getX(), spot.getY());
+        }
+        if (spot.getStatus() != null) {
+            floor.statuses.get(spot.getStatus()).decrement();
+        }
+    }
+
+    private Optional<ParkingSpot> first(Floor floor) {
+        if (floor == null) {
+            return Optional.empty();
+        }
+        // an id can be taken between reading the set and the map, so skip it
+        for (Long spotId : floor.ids) {
+            ParkingSpot spot = spots.get(spotId);
+            if (spot != null && FREE.equals(spot.getStatus())) {
+                return Optional.of(copyOf(spot));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean isFree(long spotId) {
+        ParkingSpot spot = spots.get(spotId);
+        return spot != null && FREE.equals(spot.getStatus());
+    }
+
+    private void requireLoaded() {
+        if (!loaded) {
+            throw new IndexNotLoadedException("Free spot pool is still loading");
+        }
+    }
+
+    private static boolean positioned(ParkingSpot spot) {
+        return spot.getX() != null && spot.getY() != null;
+    }
+
+    private static boolean same(ParkingSpot a, ParkingSpot b) {
+        return Objects.equals(a.getNumber(), b.getNumber())
+                && Objects.equals(a.getFloor(), b.getFloor())
+                && Objects.equals(a.getX(), b.getX())
+                && Objects.equals(a.getY(), b.getY())
+                && Objects.equals(a.getStatus(), b.getStatus());
+    }
+
+    private static long version(ParkingSpot spot) {
+        return spot.getVersion() != null ? spot.getVersion() : -1L;
+    }
+
+    private static ParkingSpot copyOf(ParkingSpot spot) {
+        return new ParkingSpot(spot.getId(), spot.getNumber(), spot.getFloor(), spot.getX(), spot.getY(),
+                spot.getStatus(), spot.getVersion(), spot.getChangeVersion(), spot.getHeldUntil());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // link() and unlink() of one spot never run concurrently, so each
+    // adder is exact once the writers in flight have finished.
+    private static final class Floor {
+        private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+        private final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final SpotGrid grid;
+
+        Floor(double cellSize) {
+            this.grid = new SpotGrid(cellSize);
+        }
+
+        long count(String status) {
+            LongAdder count = statuses.get(status);
+            return count != null ? count.sum() : 0;
+        }
+    }
+}
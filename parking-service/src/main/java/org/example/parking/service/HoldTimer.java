@@ -0,0 +1,105 @@
+package org.example.parking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Hashed timing wheel for hold expiry: a hold lands in the slot of its
+// deadline tick, and each tick only looks at one slot, so expiring holds
+// costs nothing per tick beyond the holds that are actually due. A hold due
+// more than one turn ahead waits in its slot until its tick comes around.
+// Entries are never removed on confirm; whoever expires them re-checks the
+// spot, so a stale entry is simply dropped. Holds are rare next to reads,
+// so one lock guards the whole wheel.
+@Component
+public class HoldTimer {
+    private final long tickMs;
+    private final Set<Entry>[] slots;
+    private long lastTick = -1;
+
+    @SuppressWarnings("unchecked")
+    public HoldTimer(@Value("${parking.holds.tick-ms:1000}") long tickMs,
+                     @Value("${parking.holds.wheel-size:512}") int wheelSize) {
+        this.tickMs = tickMs;
+        this.slots = new Set[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new HashSet<>();
+        }
+    }
+
+    // Added once the surrounding transaction commits, so an expiry never
+    // looks for a hold it cannot see yet. Scheduling the same spot and
+    // deadline twice keeps a single entry. The deadline rounds up to a tick
+    // so nothing comes due early; one already passed goes to the next tick.
+    public void schedule(Long spotId, LocalDateTime deadline) {
+        afterCommit(() -> add(spotId, deadline));
+    }
+
+    private synchronized void add(Long spotId, LocalDateTime deadline) {
+        long tick = Math.max(Math.floorDiv(millis(deadline.plusNanos(999_999)) + tickMs - 1, tickMs), lastTick + 1);
+        slots[slot(tick)].add(new Entry(spotId, tick));
+    }
+
+    // Returns the spots whose deadline has passed, walking every tick since
+    // the last call so a late tick misses nothing.
+    public synchronized List<Long> expire(LocalDateTime now) {
+        long current = tick(now);
+        List<Long> due = new ArrayList<>();
+        long from = Math.max(lastTick + 1, current - slots.length + 1);
+        for (long tick = from; tick <= current; tick++) {
+            slots[slot(tick)].removeIf(entry -> {
+                if (entry.tick() > current) {
+                    return false;
+                }
+                due.add(entry.spotId());
+                return true;
+            });
+        }
+        lastTick = Math.max(lastTick, current);
+        return due;
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (Set<Entry> slot : slots) {
+            size += slot.size();
+        }
+        return size;
+    }
+
+    private long tick(LocalDateTime time) {
+        return Math.floorDiv(millis(time), tickMs);
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private int slot(long tick) {
+        return (int) (tick % slots.length);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record Entry(Long spotId, long tick) {
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.parking.service;
+
+import lombok.Getter;
+import org.example.parking.entity.ParkingSpot;
+
+@Getter
+public class ParkingSpotConflictException extends RuntimeException {
+    private final ParkingSpot current;
+
+    public ParkingSpotConflictException(ParkingSpot current) {
+        super("Parking spot " + current.getId() + " is " + current.getStatus() + " at version " + current.getVersion());
+        this.current = current;
+    }
+}
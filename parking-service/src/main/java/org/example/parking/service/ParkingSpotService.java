@@ -1,59 +1,486 @@
 package org.example.parking.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parking.dto.ChangeSet;
+import org.example.parking.dto.CursorPage;
+import org.example.parking.dto.FloorOccupancy;
+import org.example.parking.dto.NearbySpot;
 import org.example.parking.entity.ParkingSpot;
+import org.example.parking.entity.ParkingSpotTombstone;
 import org.example.parking.repository.ParkingSpotRepository;
+import org.example.parking.repository.ParkingSpotTombstoneRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ParkingSpotService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_NEAREST = 100;
+    private static final int MAX_RUN_GAP = 16;
+    private static final Set<String> SENSOR_STATUSES = Set.of("FREE", "OCCUPIED");
+    static final String HELD = "HELD";
+
     private final ParkingSpotRepository parkingSpotRepository;
+    private final ParkingSpotTombstoneRepository parkingSpotTombstoneRepository;
+    private final ChangeLog changeLog;
+    private final EntityManager entityManager;
+    private final FreeSpotPool freeSpotPool;
+    private final SpotEventBroadcaster spotEventBroadcaster;
+    private final HoldTimer holdTimer;
+
+    @Value("${parking.holds.ttl:60s}")
+    private Duration holdTtl = Duration.ofSeconds(60);
+
+    @Value("${parking.holds.max-ttl:15m}")
+    private Duration maxHoldTtl = Duration.ofMinutes(15);
+
+    // Without a cursor or a limit the lists answer with every row, as they
+    // did before paging; existing callers rely on it
+    public CursorPage<ParkingSpot> getAllSpots(Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(parkingSpotRepository.findAll(), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(parkingSpotRepository.findByIdGreaterThan(cursor(after), keyset(size)),
+                size, ParkingSpot::getId);
+    }
 
-    public List<ParkingSpot> getAllSpots() {
-        return parkingSpotRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllSpots(Consumer<ParkingSpot> consumer) {
+        stream(parkingSpotRepository.streamAllByOrderByIdAsc(), consumer);
     }
 
     public Optional<ParkingSpot> getSpotById(Long id) {
         return parkingSpotRepository.findById(id);
     }
 
-    public List<ParkingSpot> getSpotsByStatus(String status) {
-        return parkingSpotRepository.findByStatus(status);
+    // ETag sources: a spot's change version, and the committed version of
+    // the whole table for collections
+    public Optional<Long> getSpotVersion(Long id) {
+        return parkingSpotRepository.findChangeVersionById(id);
+    }
+
+    public long getCollectionVersion() {
+        return changeLog.committedVersion();
+    }
+
+    public List<ParkingSpot> getSpotsByIds(Collection<Long> ids) {
+        return parkingSpotRepository.findAllById(ids);
+    }
+
+    public CursorPage<ParkingSpot> getSpotsByStatus(String status, Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(parkingSpotRepository.findByStatus(status), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(parkingSpotRepository.findByStatusAndIdGreaterThan(status, cursor(after), keyset(size)),
+                size, ParkingSpot::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamSpotsByStatus(String status, Consumer<ParkingSpot> consumer) {
+        stream(parkingSpotRepository.streamByStatusOrderByIdAsc(status), consumer);
+    }
+
+    public CursorPage<ParkingSpot> getSpotsByFloor(Integer floor, Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(parkingSpotRepository.findByFloor(floor), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(parkingSpotRepository.findByFloorAndIdGreaterThan(floor, cursor(after), keyset(size)),
+                size, ParkingSpot::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamSpotsByFloor(Integer floor, Consumer<ParkingSpot> consumer) {
+        stream(parkingSpotRepository.streamByFloorOrderByIdAsc(floor), consumer);
+    }
+
+    public Optional<ParkingSpot> findFreeSpot(Integer floor) {
+        return freeSpotPool.anyFree(floor);
     }
 
-    public List<ParkingSpot> getSpotsByFloor(Integer floor) {
-        return parkingSpotRepository.findByFloor(floor);
+    // Served from the grid the free spot pool keeps per floor
+    public List<NearbySpot> findNearestFreeSpots(Integer floor, double x, double y, int k) {
+        return freeSpotPool.nearestFree(floor, x, y, Math.max(1, Math.min(k, MAX_NEAREST)));
     }
 
+    public Map<Integer, Integer> getFreeCounts() {
+        return freeSpotPool.freeCounts();
+    }
+
+    public List<FloorOccupancy> getOccupancy() {
+        return freeSpotPool.occupancy();
+    }
+
+    // Only versions every writer has committed are read, so no change below
+    // the returned version can still appear later. Without since, the sync
+    // starts from the beginning.
+    @Transactional(readOnly = true)
+    public ChangeSet<ParkingSpot> getChanges(Long since, int limit) {
+        int size = pageSize(limit);
+        long from = since != null ? since : -1L;
+        long to = changeLog.committedVersion();
+        Pageable page = PageRequest.of(0, size + 1, Sort.by("changeVersion"));
+        return ChangeSet.of(parkingSpotRepository.findByChangeVersionBetween(from + 1, to, page),
+                ParkingSpot::getChangeVersion,
+                parkingSpotTombstoneRepository.findByChangeVersionBetween(from + 1, to, page),
+                ParkingSpotTombstone::getChangeVersion, ParkingSpotTombstone::getSpotId,
+                size, from);
+    }
+
+    @Transactional
     public ParkingSpot createSpot(ParkingSpot spot) {
-        return parkingSpotRepository.save(spot);
+        spot.setChangeVersion(changeLog.reserve(1));
+        ParkingSpot saved = parkingSpotRepository.save(spot);
+        freeSpotPool.apply(saved);
+        spotEventBroadcaster.publish(SpotEventBroadcaster.CREATED, saved);
+        return saved;
     }
 
+    @Transactional
     public ParkingSpot updateSpot(Long id, ParkingSpot spotDetails) {
         ParkingSpot spot = parkingSpotRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Parking spot not found"));
+        expect(spot, null, spotDetails.getVersion());
+        spot.setChangeVersion(changeLog.reserve(1));
         spot.setNumber(spotDetails.getNumber());
         spot.setFloor(spotDetails.getFloor());
+        spot.setX(spotDetails.getX());
+        spot.setY(spotDetails.getY());
         spot.setStatus(spotDetails.getStatus());
-        return parkingSpotRepository.save(spot);
+        spot.setHeldUntil(null);
+        ParkingSpot saved = parkingSpotRepository.save(spot);
+        freeSpotPool.apply(saved);
+        spotEventBroadcaster.publish(SpotEventBroadcaster.UPDATED, saved);
+        return saved;
     }
 
+    @Transactional
     public void deleteSpot(Long id) {
+        if (parkingSpotRepository.existsById(id)) {
+            parkingSpotTombstoneRepository.save(new ParkingSpotTombstone(id, changeLog.reserve(1)));
+        }
         parkingSpotRepository.deleteById(id);
+        freeSpotPool.remove(id);
+        spotEventBroadcaster.publishDeleted(id);
     }
 
     public ParkingSpot updateStatus(Long id, String status) {
+        return updateStatus(id, status, null, null);
+    }
+
+    // Compare-and-set: applies only while the spot still has the expected
+    // status and/or version. A writer that commits in between is caught by
+    // the version check of the UPDATE itself, so no row lock is taken.
+    @Transactional
+    public ParkingSpot updateStatus(Long id, String status, String expectedStatus, Long expectedVersion) {
         ParkingSpot spot = parkingSpotRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Parking spot not found"));
+        expect(spot, expectedStatus, expectedVersion);
+        spot.setChangeVersion(changeLog.reserve(1));
         spot.setStatus(status);
-        return parkingSpotRepository.save(spot);
+        spot.setHeldUntil(null);
+        ParkingSpot saved = parkingSpotRepository.save(spot);
+        freeSpotPool.apply(saved);
+        spotEventBroadcaster.publish(SpotEventBroadcaster.STATUS, saved);
+        return saved;
     }
-}
 
+    // Sets the status of every spot of a floor that is not in it yet (and
+    // has the expected status, if given) with one UPDATE per run of ids,
+    // e.g. to close the floor. Rows that start to match after the ids were
+    // read are left alone unless they fall inside a run.
+    @Transactional
+    public int updateFloorStatus(Integer floor, String status, String expectedStatus) {
+        List<IdRun> runs = runs(parkingSpotRepository.findIdsForFloorStatus(floor, status, expectedStatus));
+        if (runs.isEmpty()) {
+            return 0;
+        }
+        int span = span(runs);
+        long firstVersion = changeLog.reserve(span);
+        long version = firstVersion;
+        int updated = 0;
+        for (IdRun run : runs) {
+            updated += parkingSpotRepository.updateStatusByFloor(floor, status, expectedStatus,
+                    run.minId(), run.maxId(), version);
+            version += run.span();
+        }
+        refreshBulkUpdate(firstVersion, span);
+        return updated;
+    }
 
+    // Applies an id-to-status map with one UPDATE per distinct status and
+    // run of ids, all in one transaction. Unknown ids and spots already in
+    // their status are skipped.
+    @Transactional
+    public int updateStatuses(Map<Long, String> statuses, String expectedStatus) {
+        if (statuses.entrySet().stream().anyMatch(entry -> entry.getKey() == null || entry.getValue() == null)) {
+            throw new InvalidRequestException("Every entry needs a spot id and a status");
+        }
+        if (statuses.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<IdRun>> runsByStatus = statuses.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.collectingAndThen(
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList()),
+                        ids -> runs(ids.stream().sorted().toList()))));
+        int span = span(runsByStatus.values().stream().flatMap(List::stream).toList());
+        long firstVersion = changeLog.reserve(span);
+        long version = firstVersion;
+        int updated = 0;
+        for (Map.Entry<String, List<IdRun>> group : runsByStatus.entrySet()) {
+            for (IdRun run : group.getValue()) {
+                updated += parkingSpotRepository.updateStatusByIds(run.ids(), group.getKey(), expectedStatus,
+                        run.minId(), version);
+                version += run.span();
+            }
+        }
+        refreshBulkUpdate(firstVersion, span);
+        return updated;
+    }
 
+    // Picks and occupies the lowest free spot in one transaction; an empty
+    // result means nothing was free.
+    @Transactional
+    public Optional<ParkingSpot> claimSpot(Integer floor) {
+        Optional<ParkingSpot> spot = floor != null
+                ? parkingSpotRepository.findFirstByStatusAndFloorOrderByIdAsc("FREE", floor)
+                : parkingSpotRepository.findFirstByStatusOrderByIdAsc("FREE");
+        spot.ifPresent(claimed -> {
+            claimed.setStatus("OCCUPIED");
+            claimed.setChangeVersion(changeLog.reserve(1));
+            freeSpotPool.apply(claimed);
+            spotEventBroadcaster.publish(SpotEventBroadcaster.STATUS, claimed);
+        });
+        return spot;
+    }
 
+    // Holds a free spot for ttl (the configured default when null, capped at
+    // the configured maximum). The hold ends with confirmHold() or expires.
+    @Transactional
+    public ParkingSpot holdSpot(Long id, Duration ttl) {
+        ParkingSpot spot = parkingSpotRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Parking spot not found"));
+        expect(spot, "FREE", null);
+        Duration hold = ttl == null || ttl.isNegative() || ttl.isZero() ? holdTtl
+                : ttl.compareTo(maxHoldTtl) > 0 ? maxHoldTtl : ttl;
+        spot.setChangeVersion(changeLog.reserve(1));
+        spot.setStatus(HELD);
+        spot.setHeldUntil(LocalDateTime.now().plus(hold));
+        ParkingSpot saved = parkingSpotRepository.save(spot);
+        holdTimer.schedule(saved.getId(), saved.getHeldUntil());
+        freeSpotPool.apply(saved);
+        spotEventBroadcaster.publish(SpotEventBroadcaster.STATUS, saved);
+        return saved;
+    }
+
+    // Turns a hold into an occupation. A hold that has run out is refused
+    // even before the expiry has released it.
+    @Transactional
+    public ParkingSpot confirmHold(Long id, Long expectedVersion) {
+        ParkingSpot spot = parkingSpotRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Parking spot not found"));
+        expect(spot, HELD, expectedVersion);
+        if (expired(spot, LocalDateTime.now())) {
+            throw new ParkingSpotConflictException(spot);
+        }
+        spot.setChangeVersion(changeLog.reserve(1));
+        spot.setStatus("OCCUPIED");
+        spot.setHeldUntil(null);
+        ParkingSpot saved = parkingSpotRepository.save(spot);
+        freeSpotPool.apply(saved);
+        spotEventBroadcaster.publish(SpotEventBroadcaster.STATUS, saved);
+        return saved;
+    }
+
+    // Frees the given spots that are still held past their deadline, in one
+    // transaction; spots confirmed or changed since are skipped.
+    @Transactional
+    public List<ParkingSpot> releaseExpiredHolds(Collection<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ParkingSpot> expired = parkingSpotRepository.findAllById(ids).stream()
+                .filter(spot -> HELD.equals(spot.getStatus()) && expired(spot, now))
+                .toList();
+        if (expired.isEmpty()) {
+            return expired;
+        }
+        long changeVersion = changeLog.reserve(expired.size());
+        for (ParkingSpot spot : expired) {
+            spot.setStatus("FREE");
+            spot.setHeldUntil(null);
+            spot.setChangeVersion(changeVersion++);
+            freeSpotPool.apply(spot);
+            spotEventBroadcaster.publish(SpotEventBroadcaster.STATUS, spot);
+        }
+        return expired;
+    }
+
+    // Puts every hold in the database back on the timer, e.g. after a restart
+    @Transactional(readOnly = true)
+    public int scheduleHolds() {
+        List<ParkingSpot> held = parkingSpotRepository.findByStatus(HELD);
+        held.forEach(this::scheduleHold);
+        return held.size();
+    }
+
+    // Writes a batch of coalesced sensor readings in one transaction: one
+    // select for the batch, and an update only for spots whose status really
+    // changes. Sensors only move spots between FREE and OCCUPIED; any other
+    // status is left to the endpoints that set it.
+    @Transactional
+    public List<ParkingSpot> applySensorReadings(Map<Long, String> statuses) {
+        List<ParkingSpot> changed = parkingSpotRepository.findAllById(statuses.keySet()).stream()
+                .filter(spot -> SENSOR_STATUSES.contains(spot.getStatus()))
+                .filter(spot -> !spot.getStatus().equals(statuses.get(spot.getId())))
+                .toList();
+        if (changed.isEmpty()) {
+            return changed;
+        }
+        long changeVersion = changeLog.reserve(changed.size());
+        for (ParkingSpot spot : changed) {
+            spot.setStatus(statuses.get(spot.getId()));
+            spot.setChangeVersion(changeVersion++);
+            freeSpotPool.apply(spot);
+            spotEventBroadcaster.publish(SpotEventBroadcaster.STATUS, spot);
+        }
+        return changed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadFreeSpotPool() {
+        long started = System.nanoTime();
+        int spots = freeSpotPool.load(parkingSpotRepository.streamAllByOrderByIdAsc().peek(entityManager::detach));
+        log.info("Free spot pool loaded with {} spots in {} ms", spots, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Catches changes the pool missed, e.g. rows written by another instance
+    // or straight to the database.
+    @Scheduled(fixedDelayString = "${parking.free-pool.check-interval-ms:60000}",
+            initialDelayString = "${parking.free-pool.check-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void checkFreeSpotPool() {
+        if (!freeSpotPool.isLoaded()) {
+            return;
+        }
+        // holds another instance took are put on this timer as well
+        int repaired = freeSpotPool.reconcile(parkingSpotRepository.streamAllByOrderByIdAsc()
+                        .peek(entityManager::detach)
+                        .peek(this::scheduleHold),
+                parkingSpotRepository::existsById);
+        if (repaired > 0) {
+            log.warn("Free spot pool drifted from the database, {} spots repaired", repaired);
+        }
+    }
+
+    // The rows a bulk update changed are exactly those in its version block;
+    // they are read once and handed to the pool and the event stream as one
+    // batch. Held spots it changed stay on the hold timer until they are due
+    // and are then skipped.
+    private void refreshBulkUpdate(long firstVersion, int span) {
+        List<ParkingSpot> updated = parkingSpotRepository.findByChangeVersionBetween(firstVersion, firstVersion + span - 1);
+        freeSpotPool.applyAll(updated);
+        spotEventBroadcaster.publishAll(SpotEventBroadcaster.STATUS, updated);
+    }
+
+    // Splits sorted ids into runs that each take one UPDATE. A run reserves
+    // one version per id in its range, so ids further apart than
+    // MAX_RUN_GAP start a new run: the block reserved for a batch grows with
+    // its size, never with how far apart its ids are. The ids skipped inside
+    // a run leave gaps; sync clients never rely on versions being dense.
+    private static List<IdRun> runs(List<Long> sortedIds) {
+        List<IdRun> runs = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= sortedIds.size(); i++) {
+            if (i == sortedIds.size() || sortedIds.get(i) - sortedIds.get(i - 1) > MAX_RUN_GAP) {
+                runs.add(new IdRun(sortedIds.subList(start, i)));
+                start = i;
+            }
+        }
+        return runs;
+    }
+
+    private static int span(List<IdRun> runs) {
+        return Math.toIntExact(runs.stream().mapToLong(IdRun::span).sum());
+    }
+
+    private record IdRun(List<Long> ids) {
+        long minId() {
+            return ids.get(0);
+        }
+
+        long maxId() {
+            return ids.get(ids.size() - 1);
+        }
+
+        long span() {
+            return maxId() - minId() + 1;
+        }
+    }
+
+    private void scheduleHold(ParkingSpot spot) {
+        if (HELD.equals(spot.getStatus()) && spot.getHeldUntil() != null) {
+            holdTimer.schedule(spot.getId(), spot.getHeldUntil());
+        }
+    }
+
+    private static boolean expired(ParkingSpot spot, LocalDateTime now) {
+        return spot.getHeldUntil() != null && !spot.getHeldUntil().isAfter(now);
+    }
+
+    private static void expect(ParkingSpot spot, String expectedStatus, Long expectedVersion) {
+        if ((expectedStatus != null && !expectedStatus.equals(spot.getStatus()))
+                || (expectedVersion != null && !expectedVersion.equals(spot.getVersion()))) {
+            throw new ParkingSpotConflictException(spot);
+        }
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit != null ? Math.max(1, Math.min(limit, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+    }
+
+    private static Long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    // One extra row tells CursorPage whether a next page exists.
+    private static Pageable keyset(int size) {
+        return PageRequest.of(0, size + 1, Sort.by("id"));
+    }
+
+    // Detach each row once written so the persistence context stays empty
+    // and memory does not grow with the result size.
+    private void stream(Stream<ParkingSpot> spots, Consumer<ParkingSpot> consumer) {
+        try (spots) {
+            spots.forEach(spot -> {
+                consumer.accept(spot);
+                entityManager.detach(spot);
+            });
+        }
+    }
+}
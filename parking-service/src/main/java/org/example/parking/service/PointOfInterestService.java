@@ -0,0 +1,57 @@
+package org.example.parking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.parking.dto.NearbySpot;
+import org.example.parking.entity.PointOfInterest;
+import org.example.parking.repository.PointOfInterestRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class PointOfInterestService {
+    private final PointOfInterestRepository pointOfInterestRepository;
+    private final ParkingSpotService parkingSpotService;
+
+    public List<PointOfInterest> getPointsOfInterest(Integer floor) {
+        return floor != null ? pointOfInterestRepository.findByFloor(floor) : pointOfInterestRepository.findAll();
+    }
+
+    public Optional<PointOfInterest> getPointOfInterestById(Long id) {
+        return pointOfInterestRepository.findById(id);
+    }
+
+    public PointOfInterest createPointOfInterest(PointOfInterest pointOfInterest) {
+        requirePosition(pointOfInterest);
+        return pointOfInterestRepository.save(pointOfInterest);
+    }
+
+    public PointOfInterest updatePointOfInterest(Long id, PointOfInterest details) {
+        PointOfInterest pointOfInterest = pointOfInterestRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Point of interest not found"));
+        requirePosition(details);
+        pointOfInterest.setName(details.getName());
+        pointOfInterest.setType(details.getType());
+        pointOfInterest.setFloor(details.getFloor());
+        pointOfInterest.setX(details.getX());
+        pointOfInterest.setY(details.getY());
+        return pointOfInterestRepository.save(pointOfInterest);
+    }
+
+    public void deletePointOfInterest(Long id) {
+        pointOfInterestRepository.deleteById(id);
+    }
+
+    public List<NearbySpot> findNearestFreeSpots(PointOfInterest pointOfInterest, int k) {
+        return parkingSpotService.findNearestFreeSpots(pointOfInterest.getFloor(),
+                pointOfInterest.getX(), pointOfInterest.getY(), k);
+    }
+
+    private static void requirePosition(PointOfInterest pointOfInterest) {
+        if (pointOfInterest.getFloor() == null || pointOfInterest.getX() == null || pointOfInterest.getY() == null) {
+            throw new InvalidRequestException("Point of interest needs a floor, x and y");
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.parking.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parking.dto.SensorIngestResult;
+import org.example.parking.dto.SensorReading;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Takes presence sensor readings far faster than they could be saved one by
+// one. Readings are coalesced per spot, so the buffer holds at most one
+// pending status per spot however often its sensor reports, and a periodic
+// flush writes only the spots whose status actually changed, in batches.
+// Once capacity spots are pending, readings for further spots are rejected
+// until a flush makes room; sensors report again anyway.
+@Slf4j
+@Component
+public class SensorReadingBuffer implements MeterBinder {
+    private final ParkingSpotService parkingSpotService;
+    private final FreeSpotPool freeSpotPool;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    private final Map<Long, String> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+
+    public SensorReadingBuffer(ParkingSpotService parkingSpotService,
+                               FreeSpotPool freeSpotPool,
+                               @Value("${parking.sensors.buffer-capacity:50000}") int capacity,
+                               @Value("${parking.sensors.flush-batch-size:1000}") int batchSize,
+                               @Value("${parking.sensors.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.parkingSpotService = parkingSpotService;
+        this.freeSpotPool = freeSpotPool;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    // A later reading for a pending spot replaces the earlier one and never
+    // needs room; only a spot not pending yet can be turned away. A batch
+    // with an unusable reading is refused as a whole.
+    public SensorIngestResult offer(List<SensorReading> readings) {
+        if (readings.stream().anyMatch(reading -> reading == null || reading.getSpotId() == null)) {
+            throw new InvalidRequestException("Sensor reading without spotId");
+        }
+        int taken = 0;
+        for (SensorReading reading : readings) {
+            if (offer(reading.getSpotId(), reading.isOccupied() ? "OCCUPIED" : "FREE")) {
+                taken++;
+            }
+        }
+        accepted.add(taken);
+        rejected.add(readings.size() - taken);
+        return new SensorIngestResult(taken, readings.size() - taken);
+    }
+
+    // Hint for clients turned away: by then the next flush has made room
+    public long retryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(flushIntervalMs + 999));
+    }
+
+    public int pendingCount() {
+        return size.get();
+    }
+
+    @Scheduled(fixedDelayString = "${parking.sensors.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        long started = System.nanoTime();
+        Map<Long, String> batch = new HashMap<>();
+        for (Map.Entry<Long, String> entry : pending.entrySet()) {
+            Long spotId = entry.getKey();
+            String status = entry.getValue();
+            // a reading that arrives meanwhile stays for the next flush
+            if (!pending.remove(spotId, status)) {
+                continue;
+            }
+            size.decrementAndGet();
+            // most readings repeat what the spot already is; those never
+            // reach the database
+            if (status.equals(freeSpotPool.statusOf(spotId))) {
+                unchanged.incrementAndGet();
+                continue;
+            }
+            batch.put(spotId, status);
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new HashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        flushes.incrementAndGet();
+        flushNanos.addAndGet(System.nanoTime() - started);
+    }
+
+    // Readings still buffered at shutdown are written rather than lost
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("parking.sensors.readings", accepted, LongAdder::sum)
+                .description("Sensor readings accepted into the buffer")
+                .register(registry);
+        FunctionCounter.builder("parking.sensors.rejected", rejected, LongAdder::sum)
+                .description("Sensor readings rejected because the buffer was full")
+                .register(registry);
+        FunctionCounter.builder("parking.sensors.coalesced", coalesced, LongAdder::sum)
+                .description("Sensor readings that replaced a pending reading for the same spot")
+                .register(registry);
+        FunctionCounter.builder("parking.sensors.unchanged", unchanged, AtomicLong::get)
+                .description("Flushed spots skipped because their status did not change")
+                .register(registry);
+        FunctionCounter.builder("parking.sensors.written", written, AtomicLong::get)
+                .description("Spot status changes written to the database")
+                .register(registry);
+        Gauge.builder("parking.sensors.coalescing.ratio", this, SensorReadingBuffer::coalescingRatio)
+                .description("Accepted sensor readings per spot status written")
+                .register(registry);
+        Gauge.builder("parking.sensors.pending", size, AtomicInteger::get)
+                .description("Spots with a reading waiting for the next flush")
+                .register(registry);
+        FunctionTimer.builder("parking.sensors.flush", this, buffer -> buffer.flushes.get(),
+                        buffer -> buffer.flushNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Time to flush the sensor reading buffer")
+                .register(registry);
+    }
+
+    private boolean offer(Long spotId, String status) {
+        boolean[] taken = {true};
+        pending.compute(spotId, (id, current) -> {
+            if (current != null) {
+                coalesced.increment();
+                return status;
+            }
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                taken[0] = false;
+                return null;
+            }
+            return status;
+        });
+        return taken[0];
+    }
+
+    private void write(Map<Long, String> batch) {
+        try {
+            written.addAndGet(parkingSpotService.applySensorReadings(batch).size());
+        } catch (RuntimeException e) {
+            // put the batch back for the next flush, unless newer readings
+            // arrived meanwhile; this may briefly exceed capacity
+            batch.forEach((spotId, status) -> pending.compute(spotId, (id, current) -> {
+                if (current != null) {
+                    return current;
+                }
+                size.incrementAndGet();
+                return status;
+            }));
+            log.warn("Flushing {} sensor readings failed, retrying with the next flush: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private double coalescingRatio() {
+        long spots = written.get();
+        return spots > 0 ? (double) accepted.sum() / spots : 0;
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.parking.service;
+
+import org.example.parking.entity.ParkingSpot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// Reads spots from a CSV layout one line at a time. The header names the
+// columns, in any order: number and floor are required, status, x and y
+// are optional. Quoted fields may contain commas and doubled quotes, but
+// not line breaks. A line that cannot be read throws from next().
+public class SpotCsvReader implements Iterator<ParkingSpot> {
+    private static final List<String> COLUMNS = List.of("number", "floor", "status", "x", "y");
+
+    private final BufferedReader reader;
+    private final int[] positions = new int[COLUMNS.size()];
+    private int line;
+    private String next;
+
+    public SpotCsvReader(BufferedReader reader) {
+        this.reader = reader;
+        String header = readLine();
+        if (header == null) {
+            throw new InvalidRequestException("CSV layout has no header");
+        }
+        List<String> names = split(header.startsWith("\uFEFF") ? header.substring(1) : header).stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            positions[i] = names.indexOf(COLUMNS.get(i));
+        }
+        if (positions[0] < 0 || positions[1] < 0) {
+            throw new InvalidRequestException("CSV layout needs number and floor columns");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            String candidate = readLine();
+            if (candidate == null) {
+                return false;
+            }
+            if (!candidate.isBlank()) {
+                next = candidate;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ParkingSpot next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> fields = split(next);
+        next = null;
+        try {
+            String floor = field(fields, 1);
+            String x = field(fields, 3);
+            String y = field(fields, 4);
+            ParkingSpot spot = new ParkingSpot(null, field(fields, 0), floor != null ? Integer.valueOf(floor) : null, field(fields, 2));
+            spot.setX(x != null ? Double.valueOf(x) : null);
+            spot.setY(y != null ? Double.valueOf(y) : null);
+            return spot;
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Line " + line + ": " + e.getMessage());
+        }
+    }
+
+    private String field(List<String> fields, int column) {
+        int position = positions[column];
+        if (position < 0 || position >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private String readLine() {
+        try {
+            line++;
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.parking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.parking.dto.SpotEvent;
+import org.example.parking.entity.ParkingSpot;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pushes spot changes to Server-Sent Event subscribers. Every subscriber has
+// a bounded buffer; one that falls a full buffer behind is disconnected
+// rather than slowing down the others, and resumes with Last-Event-ID. The
+// latest events are kept for that replay. Event ids are "<epoch>-<sequence>":
+// the sequence restarts with the process and each instance only sees changes
+// it committed itself, so an id from another epoch is answered with a reset
+// instead of being compared with this one's sequence.
+@Slf4j
+@Component
+public class SpotEventBroadcaster {
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String STATUS = "STATUS";
+    public static final String DELETED = "DELETED";
+    // Sent instead of a replay the history can no longer serve; the client
+    // has to reload the spots it tracks.
+    public static final String RESET = "reset";
+
+    private static final SpotEvent HEARTBEAT = new SpotEvent();
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final int historySize;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Deque<SpotEvent> history = new ArrayDeque<>();
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+    private long sequence;
+
+    public SpotEventBroadcaster(@Qualifier("spotEventExecutor") Executor executor,
+                                @Value("${parking.events.buffer-size:256}") int bufferSize,
+                                @Value("${parking.events.history-size:1024}") int historySize) {
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+    }
+
+    // Events after lastEventId are replayed first. Registration and replay
+    // share the publish lock, so no event is missed or sent twice.
+    public SseEmitter subscribe(String lastEventId) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(0L), new ArrayBlockingQueue<>(bufferSize));
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+        synchronized (this) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        drain(subscriber);
+        return subscriber.emitter;
+    }
+
+    public void publish(String type, ParkingSpot spot) {
+        afterCommit(() -> broadcast(type, spot.getId(), copyOf(spot)));
+    }
+
+    public void publishAll(String type, List<ParkingSpot> spots) {
+        List<ParkingSpot> snapshots = spots.stream().map(SpotEventBroadcaster::copyOf).toList();
+        afterCommit(() -> broadcastAll(type, snapshots));
+    }
+
+    public void publishDeleted(Long spotId) {
+        afterCommit(() -> broadcast(DELETED, spotId, null));
+    }
+
+    // Keeps idle connections open through proxies and finds the dead ones,
+    // which are only noticed when a write fails.
+    @Scheduled(fixedDelayString = "${parking.events.heartbeat-ms:30000}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> offer(subscriber, HEARTBEAT));
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private synchronized void broadcastAll(String type, List<ParkingSpot> spots) {
+        spots.forEach(spot -> broadcast(type, spot.getId(), spot));
+    }
+
+    private synchronized void broadcast(String type, Long spotId, ParkingSpot spot) {
+        SpotEvent event = new SpotEvent(++sequence, type, spotId, spot);
+        history.addLast(event);
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+        subscribers.forEach(subscriber -> offer(subscriber, event));
+    }
+
+    private void replay(Subscriber subscriber, String lastEventIdHeader) {
+        long lastEventId = sequenceOf(lastEventIdHeader);
+        long oldest = history.isEmpty() ? sequence + 1 : history.getFirst().getId();
+        long missed = sequence - lastEventId;
+        if (lastEventId < 0 || lastEventId > sequence || lastEventId < oldest - 1 || missed > bufferSize) {
+            subscriber.queue.add(new SpotEvent(sequence, RESET, null, null));
+            return;
+        }
+        history.stream()
+                .filter(event -> event.getId() > lastEventId)
+                .forEach(subscriber.queue::add);
+    }
+
+    // The sequence of an id this process handed out, or -1 for any other id
+    private long sequenceOf(String eventId) {
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void offer(Subscriber subscriber, SpotEvent event) {
+        if (!subscriber.queue.offer(event)) {
+            log.info("Dropping spot event subscriber {} events behind", bufferSize);
+            drop(subscriber);
+            return;
+        }
+        drain(subscriber);
+    }
+
+    // At most one send task per subscriber is queued or running at a time.
+    private void drain(Subscriber subscriber) {
+        if (subscriber.queue.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                SpotEvent event;
+                while ((event = subscriber.queue.poll()) != null) {
+                    subscriber.emitter.send(event == HEARTBEAT
+                            ? SseEmitter.event().comment("heartbeat")
+                            : SseEmitter.event()
+                                    .id(epoch + "-" + event.getId())
+                                    .name(event.getType())
+                                    .data(event, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber);
+                return;
+            } finally {
+                subscriber.draining.set(false);
+            }
+            drain(subscriber);
+        });
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.queue.clear();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static ParkingSpot copyOf(ParkingSpot spot) {
+        return new ParkingSpot(spot.getId(), spot.getNumber(), spot.getFloor(), spot.getX(), spot.getY(),
+                spot.getStatus(), spot.getVersion(), spot.getChangeVersion(), spot.getHeldUntil());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record Subscriber(SseEmitter emitter, BlockingQueue<SpotEvent> queue, AtomicBoolean draining) {
+        Subscriber(SseEmitter emitter, BlockingQueue<SpotEvent> queue) {
+            this(emitter, queue, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.parking.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+// Uniform grid over the spots of one floor: each spot sits in the square
+// cell its position falls into. A nearest search visits the cells ring by
+// ring around the query point and stops as soon as the next ring cannot
+// hold anything closer than the k best found, so it only looks at the
+// neighbourhood of the answer. Reads never lock; add() and remove() of one
+// spot are serialized by the caller.
+final class SpotGrid {
+    private final double cellSize;
+    private final Map<Long, Map<Long, Point>> cells = new ConcurrentHashMap<>();
+    // Cells ever used; the bounds only grow, they just end a search early
+    private final AtomicInteger minX = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicInteger maxX = new AtomicInteger(Integer.MIN_VALUE);
+    private final AtomicInteger minY = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicInteger maxY = new AtomicInteger(Integer.MIN_VALUE);
+
+    SpotGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    void add(Long spotId, double x, double y) {
+        int cx = cell(x);
+        int cy = cell(y);
+        minX.accumulateAndGet(cx, Math::min);
+        maxX.accumulateAndGet(cx, Math::max);
+        minY.accumulateAndGet(cy, Math::min);
+        maxY.accumulateAndGet(cy, Math::max);
+        cells.computeIfAbsent(key(cx, cy), key -> new ConcurrentHashMap<>()).put(spotId, new Point(x, y));
+    }
+
+    void remove(Long spotId, double x, double y) {
+        cells.computeIfPresent(key(cell(x), cell(y)), (key, spots) -> {
+            spots.remove(spotId);
+            return spots.isEmpty() ? null : spots;
+        });
+    }
+
+    // Up to k spots accepted by the filter, nearest first. The search starts
+    // from the cell of the bounds closest to the query point: however far
+    // away the point is, only the rings that hold cells in use are walked.
+    // Any cell in ring r around that start is still at least (r - 1) cells
+    // from the point, since nothing lies beyond the bounds.
+    List<Candidate> nearest(double x, double y, int k, LongPredicate accept) {
+        List<Candidate> nearest = new ArrayList<>();
+        int left = minX.get();
+        int right = maxX.get();
+        int bottom = minY.get();
+        int top = maxY.get();
+        if (left > right || bottom > top) {
+            return nearest;
+        }
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+        long cx = clamp(Math.floor(x / cellSize), left, right);
+        long cy = clamp(Math.floor(y / cellSize), bottom, top);
+        long rings = Math.max(Math.max(cx - left, right - cx), Math.max(cy - bottom, top - cy));
+        for (long ring = 0; ring <= rings; ring++) {
+            // anything in this ring is at least (ring - 1) cells away
+            if (best.size() == k && (ring - 1) * cellSize > best.peek().distance()) {
+                break;
+            }
+            for (long dx = -ring; dx <= ring; dx++) {
+                long gx = cx + dx;
+                if (gx < left || gx > right) {
+                    continue;
+                }
+                boolean edge = dx == -ring || dx == ring;
+                for (long dy = -ring; dy <= ring; dy += edge ? 1 : 2 * ring) {
+                    long gy = cy + dy;
+                    if (gy >= bottom && gy <= top) {
+                        visit(cells.get(key((int) gx, (int) gy)), x, y, k, accept, best);
+                    }
+                }
+            }
+        }
+        nearest.addAll(best);
+        nearest.sort(Comparator.comparingDouble(Candidate::distance));
+        return nearest;
+    }
+
+    private static void visit(Map<Long, Point> spots, double x, double y, int k, LongPredicate accept,
+                              PriorityQueue<Candidate> best) {
+        if (spots == null) {
+            return;
+        }
+        spots.forEach((spotId, point) -> {
+            double distance = Math.hypot(point.x() - x, point.y() - y);
+            if (best.size() == k && distance >= best.peek().distance()) {
+                return;
+            }
+            if (!accept.test(spotId)) {
+                return;
+            }
+            best.add(new Candidate(spotId, distance));
+            if (best.size() > k) {
+                best.poll();
+            }
+        });
+    }
+
+    private int cell(double coordinate) {
+        return (int) clamp(Math.floor(coordinate / cellSize), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static long clamp(double cell, long min, long max) {
+        return (long) Math.max(min, Math.min(max, cell));
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    record Candidate(Long spotId, double distance) {
+    }
+
+    private record Point(double x, double y) {
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.parking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Releases holds as they run out. Every tick takes the due spots off the
+// hold timer and frees them in batches, one transaction per batch; a batch
+// that fails goes back on the timer for the next tick. The timer lives in
+// memory, so it is rebuilt from the HELD rows at startup.
+@Slf4j
+@Component
+public class SpotHoldExpiry {
+    private final ParkingSpotService parkingSpotService;
+    private final HoldTimer holdTimer;
+    private final int batchSize;
+
+    public SpotHoldExpiry(ParkingSpotService parkingSpotService,
+                          HoldTimer holdTimer,
+                          @Value("${parking.holds.release-batch-size:500}") int batchSize) {
+        this.parkingSpotService = parkingSpotService;
+        this.holdTimer = holdTimer;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int holds = parkingSpotService.scheduleHolds();
+        log.info("Hold timer rebuilt with {} holds", holds);
+    }
+
+    @Scheduled(fixedRateString = "${parking.holds.tick-ms:1000}")
+    public synchronized int releaseExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> due = holdTimer.expire(now);
+        int released = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                released += parkingSpotService.releaseExpiredHolds(batch).size();
+            } catch (RuntimeException e) {
+                batch.forEach(spotId -> holdTimer.schedule(spotId, now));
+                log.warn("Releasing {} expired holds failed, retrying with the next tick: {}", batch.size(), e.getMessage());
+            }
+        }
+        if (released > 0) {
+            log.debug("Released {} expired holds", released);
+        }
+        return released;
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.parking.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.parking.dto.SpotImportError;
+import org.example.parking.dto.SpotImportReport;
+import org.example.parking.dto.SpotLayout;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Imports spots in chunks, each written in one transaction as one JDBC
+// batch insert. Spot ids come from an identity column, which keeps
+// Hibernate from batching inserts, so the rows go in through plain JDBC
+// and are read back by their change versions to refresh the free spot pool
+// and the event stream. Only the current chunk and a bounded error list
+// are held in memory.
+@Service
+public class SpotImportService {
+    static final int MAX_REPORTED_ERRORS = 100;
+    private static final String INSERT = "insert into parking_spots (number, floor, x, y, status, version, change_version) "
+            + "values (?, ?, ?, ?, ?, 0, ?)";
+
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final ChangeLog changeLog;
+    private final FreeSpotPool freeSpotPool;
+    private final SpotEventBroadcaster spotEventBroadcaster;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public SpotImportService(ParkingSpotRepository parkingSpotRepository,
+                             ChangeLog changeLog,
+                             FreeSpotPool freeSpotPool,
+                             SpotEventBroadcaster spotEventBroadcaster,
+                             JdbcTemplate jdbcTemplate,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${parking.import.chunk-size:1000}") int chunkSize) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.changeLog = changeLog;
+        this.freeSpotPool = freeSpotPool;
+        this.spotEventBroadcaster = spotEventBroadcaster;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public SpotImportReport generateLayout(SpotLayout layout) {
+        return importSpots(new SpotLayoutGenerator(layout));
+    }
+
+    // Reads lazily, so a streamed request body is never held in memory as a
+    // whole. Input that cannot be parsed ends the import at that row; the
+    // chunks before it stay imported.
+    public SpotImportReport importSpots(Iterator<ParkingSpot> spots) {
+        long started = System.nanoTime();
+        Progress progress = new Progress();
+        List<ParkingSpot> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (true) {
+            ParkingSpot spot;
+            try {
+                if (!spots.hasNext()) {
+                    break;
+                }
+                spot = spots.next();
+            } catch (RuntimeException e) {
+                importChunk(index - chunk.size(), chunk, progress);
+                progress.reject(index, "Malformed input: " + e.getMessage());
+                return progress.report(started);
+            }
+            chunk.add(spot);
+            index++;
+            if (chunk.size() == chunkSize) {
+                importChunk(index - chunk.size(), chunk, progress);
+                chunk.clear();
+            }
+        }
+        importChunk(index - chunk.size(), chunk, progress);
+        return progress.report(started);
+    }
+
+    private void importChunk(int offset, List<ParkingSpot> chunk, Progress progress) {
+        List<ParkingSpot> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = validate(chunk.get(i));
+            if (error != null) {
+                progress.reject(offset + i, error);
+            } else {
+                valid.add(chunk.get(i));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeChunk(valid));
+            progress.created += valid.size();
+        } catch (RuntimeException e) {
+            progress.reject(offset, valid.size(), "Chunk failed: " + e.getMessage());
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    private void writeChunk(List<ParkingSpot> valid) {
+        long firstVersion = changeLog.reserve(valid.size());
+        List<Object[]> rows = new ArrayList<>(valid.size());
+        long version = firstVersion;
+        for (ParkingSpot spot : valid) {
+            rows.add(new Object[]{spot.getNumber(), spot.getFloor(), spot.getX(), spot.getY(),
+                    spot.getStatus() != null ? spot.getStatus() : "FREE", version++});
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+        List<ParkingSpot> created = parkingSpotRepository.findByChangeVersionBetween(firstVersion, version - 1);
+        freeSpotPool.applyAll(created);
+        spotEventBroadcaster.publishAll(SpotEventBroadcaster.CREATED, created);
+    }
+
+    private static String validate(ParkingSpot spot) {
+        if (spot == null) {
+            return "Spot is missing";
+        }
+        if (spot.getNumber() == null || spot.getNumber().isBlank()) {
+            return "Number is required";
+        }
+        if (spot.getFloor() == null) {
+            return "Floor is required";
+        }
+        if ((spot.getX() == null) != (spot.getY() == null)) {
+            return "Position needs both x and y";
+        }
+        return null;
+    }
+
+    private static final class Progress {
+        private final List<SpotImportError> errors = new ArrayList<>();
+        private int created;
+        private int rejected;
+
+        void reject(int index, String error) {
+            reject(index, 1, error);
+        }
+
+        void reject(int index, int count, String error) {
+            rejected += count;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new SpotImportError(index, error));
+            }
+        }
+
+        SpotImportReport report(long started) {
+            return new SpotImportReport(created, rejected, (System.nanoTime() - started) / 1_000_000, errors);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.parking.service;
+
+import org.example.parking.dto.SpotLayout;
+import org.example.parking.entity.ParkingSpot;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Produces the spots of a layout one at a time, floor by floor and row by
+// row, so a garage of any size is generated without being held in memory.
+final class SpotLayoutGenerator implements Iterator<ParkingSpot> {
+    static final long MAX_SPOTS = 1_000_000;
+    private static final Pattern NUMBER = Pattern.compile("\\{number(?::(\\d+))?}");
+
+    private final SpotLayout layout;
+    private final long total;
+    private long produced;
+
+    SpotLayoutGenerator(SpotLayout layout) {
+        if (layout.getFloors() < 1 || layout.getRows() < 1 || layout.getSpotsPerRow() < 1) {
+            throw new InvalidRequestException("Layout needs at least one floor, row and spot per row");
+        }
+        if (layout.getPattern() == null || !layout.getPattern().contains("{number")) {
+            throw new InvalidRequestException("Layout pattern needs a {number} placeholder");
+        }
+        this.layout = layout;
+        this.total = (long) layout.getFloors() * layout.getRows() * layout.getSpotsPerRow();
+        if (total > MAX_SPOTS) {
+            throw new InvalidRequestException("Layout has " + total + " spots, at most " + MAX_SPOTS + " are allowed");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return produced < total;
+    }
+
+    @Override
+    public ParkingSpot next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int number = (int) (produced % layout.getSpotsPerRow()) + 1;
+        int row = (int) (produced / layout.getSpotsPerRow() % layout.getRows());
+        int floor = layout.getFirstFloor() + (int) (produced / ((long) layout.getSpotsPerRow() * layout.getRows()));
+        produced++;
+        ParkingSpot spot = new ParkingSpot(null, number(floor, row, number), floor, layout.getStatus());
+        spot.setX((number - 1) * layout.getSpotWidth());
+        spot.setY(row * layout.getRowSpacing());
+        return spot;
+    }
+
+    private String number(int floor, int row, int number) {
+        String text = layout.getPattern()
+                .replace("{floor}", Integer.toString(floor))
+                .replace("{row}", rowName(row));
+        Matcher matcher = NUMBER.matcher(text);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String width = matcher.group(1);
+            String value = width != null ? String.format("%0" + width + "d", number) : Integer.toString(number);
+            matcher.appendReplacement(result, value);
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    // 0 -> A, 25 -> Z, 26 -> AA, like spreadsheet columns
+    static String rowName(int row) {
+        StringBuilder name = new StringBuilder();
+        for (int n = row + 1; n > 0; n = (n - 1) / 26) {
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return name.toString();
+    }
+}
@@ -1,31 +1,64 @@
 package org.example.parking.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.dto.ChangeSet;
+import org.example.parking.dto.CursorPage;
+import org.example.parking.dto.FloorOccupancy;
+import org.example.parking.dto.NearbySpot;
+import org.example.parking.dto.SensorIngestResult;
+import org.example.parking.dto.SpotImportReport;
+import org.example.parking.dto.SpotLayout;
 import org.example.parking.entity.ParkingSpot;
+import org.example.parking.service.IndexNotLoadedException;
+import org.example.parking.service.InvalidRequestException;
+import org.example.parking.service.ParkingSpotConflictException;
 import org.example.parking.service.ParkingSpotService;
+import org.example.parking.service.SensorReadingBuffer;
+import org.example.parking.service.SpotEventBroadcaster;
+import org.example.parking.service.SpotImportService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+// The result printer reads the response headers after every request, while
+// an event stream may still be writing them from the sender thread
 @WebMvcTest(ParkingSpotController.class)
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
+@Import({SpotEventBroadcaster.class, SpotEventConfig.class})
 @ActiveProfiles("test")
 class ParkingSpotControllerTest {
 
@@ -38,6 +71,15 @@ class ParkingSpotControllerTest {
     @MockBean
     private ParkingSpotService parkingSpotService;
 
+    @MockBean
+    private SensorReadingBuffer sensorReadingBuffer;
+
+    @MockBean
+    private SpotImportService spotImportService;
+
+    @Autowired
+    private SpotEventBroadcaster spotEventBroadcaster;
+
     private ParkingSpot parkingSpot1;
     private ParkingSpot parkingSpot2;
 
@@ -51,16 +93,17 @@ class ParkingSpotControllerTest {
     @WithMockUser
     void getAllSpots_ShouldReturnListOfSpots() throws Exception {
         List<ParkingSpot> spots = Arrays.asList(parkingSpot1, parkingSpot2);
-        when(parkingSpotService.getAllSpots()).thenReturn(spots);
+        when(parkingSpotService.getAllSpots(null, null)).thenReturn(new CursorPage<>(spots, null));
 
-        mockMvc.perform(get("/spots"))
+        mockMvc.perform(get("/spots").accept(MediaType.ALL))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].number").value("A-101"))
                 .andExpect(jsonPath("$[1].number").value("A-102"));
 
-        verify(parkingSpotService, times(1)).getAllSpots();
+        verify(parkingSpotService, times(1)).getAllSpots(null, null);
     }
 
     @Test
@@ -94,28 +137,28 @@ class ParkingSpotControllerTest {
     @WithMockUser
     void getSpotsByStatus_ShouldReturnFilteredSpots() throws Exception {
         List<ParkingSpot> freeSpots = Arrays.asList(parkingSpot1);
-        when(parkingSpotService.getSpotsByStatus("FREE")).thenReturn(freeSpots);
+        when(parkingSpotService.getSpotsByStatus("FREE", null, null)).thenReturn(new CursorPage<>(freeSpots, null));
 
         mockMvc.perform(get("/spots/status/FREE"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].status").value("FREE"));
 
-        verify(parkingSpotService, times(1)).getSpotsByStatus("FREE");
+        verify(parkingSpotService, times(1)).getSpotsByStatus("FREE", null, null);
     }
 
     @Test
     @WithMockUser
     void getSpotsByFloor_ShouldReturnFilteredSpots() throws Exception {
         List<ParkingSpot> floor1Spots = Arrays.asList(parkingSpot1, parkingSpot2);
-        when(parkingSpotService.getSpotsByFloor(1)).thenReturn(floor1Spots);
+        when(parkingSpotService.getSpotsByFloor(1, null, null)).thenReturn(new CursorPage<>(floor1Spots, null));
 
         mockMvc.perform(get("/spots/floor/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].floor").value(1));
 
-        verify(parkingSpotService, times(1)).getSpotsByFloor(1);
+        verify(parkingSpotService, times(1)).getSpotsByFloor(1, null, null);
     }
 
     @Test
@@ -162,7 +205,7 @@ class ParkingSpotControllerTest {
     void updateStatus_ShouldReturnSpotWithNewStatus() throws Exception {
         ParkingSpot updatedSpot = new ParkingSpot(1L, "A-101", 1, "OCCUPIED");
         
-        when(parkingSpotService.updateStatus(1L, "OCCUPIED")).thenReturn(updatedSpot);
+        when(parkingSpotService.updateStatus(1L, "OCCUPIED", null, null)).thenReturn(updatedSpot);
 
         mockMvc.perform(patch("/spots/1/status")
                         .with(csrf())
@@ -170,7 +213,7 @@ class ParkingSpotControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("OCCUPIED"));
 
-        verify(parkingSpotService, times(1)).updateStatus(1L, "OCCUPIED");
+        verify(parkingSpotService, times(1)).updateStatus(1L, "OCCUPIED", null, null);
     }
 
     @Test
@@ -184,5 +227,475 @@ class ParkingSpotControllerTest {
 
         verify(parkingSpotService, times(1)).deleteSpot(1L);
     }
-}
 
+    @Test
+    @WithMockUser
+    void getSpotsByIds_ShouldReturnRequestedSpots() throws Exception {
+        when(parkingSpotService.getSpotsByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(parkingSpot1, parkingSpot2));
+
+        mockMvc.perform(get("/spots/batch").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2));
+
+        verify(parkingSpotService, times(1)).getSpotsByIds(Arrays.asList(1L, 2L));
+        verify(parkingSpotService, never()).getSpotById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getSpotsByIds_WithMoreThan200Ids_ShouldReturnBadRequest() throws Exception {
+        String ids = LongStream.rangeClosed(1, 201).mapToObj(Long::toString).collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/spots/batch").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        verify(parkingSpotService, never()).getSpotsByIds(anyList());
+    }
+
+    @Test
+    @WithMockUser
+    void getAllSpots_WhenMorePagesExist_ShouldReturnNextCursorHeader() throws Exception {
+        when(parkingSpotService.getAllSpots(1L, 1)).thenReturn(new CursorPage<>(List.of(parkingSpot2), 2L));
+
+        mockMvc.perform(get("/spots").param("after", "1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    void streamSpotsByStatus_ShouldWriteNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ParkingSpot> consumer = invocation.getArgument(1);
+            consumer.accept(parkingSpot1);
+            consumer.accept(parkingSpot2);
+            return null;
+        }).when(parkingSpotService).streamSpotsByStatus(eq("FREE"), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/spots/status/FREE").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        objectMapper.writeValueAsString(parkingSpot1) + "\n"
+                                + objectMapper.writeValueAsString(parkingSpot2) + "\n"));
+
+        verify(parkingSpotService, never()).getSpotsByStatus(any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void claimSpot_ShouldReturnClaimedSpot() throws Exception {
+        ParkingSpot claimed = new ParkingSpot(1L, "A-101", 1, "OCCUPIED");
+        when(parkingSpotService.claimSpot(1)).thenReturn(Optional.of(claimed));
+
+        mockMvc.perform(post("/spots/claim")
+                        .with(csrf())
+                        .param("floor", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.status").value("OCCUPIED"));
+    }
+
+    @Test
+    @WithMockUser
+    void claimSpot_WhenNothingFree_ShouldReturnConflict() throws Exception {
+        when(parkingSpotService.claimSpot(null)).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/spots/claim")
+                        .with(csrf()))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithMockUser
+    void updateStatus_WhenExpectedStatusNoLongerMatches_ShouldReturnConflictWithCurrentSpot() throws Exception {
+        ParkingSpot current = new ParkingSpot(1L, "A-101", 1, "OCCUPIED", 4L);
+        when(parkingSpotService.updateStatus(1L, "OCCUPIED", "FREE", null))
+                .thenThrow(new ParkingSpotConflictException(current));
+
+        mockMvc.perform(put("/spots/1/status")
+                        .with(csrf())
+                        .param("status", "OCCUPIED")
+                        .param("expected", "FREE"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value("OCCUPIED"))
+                .andExpect(jsonPath("$.version").value(4));
+    }
+
+    @Test
+    @WithMockUser
+    void updateStatus_WhenConcurrentWriterWins_ShouldReturnConflict() throws Exception {
+        when(parkingSpotService.updateStatus(1L, "FREE", null, 2L))
+                .thenThrow(new ObjectOptimisticLockingFailureException(ParkingSpot.class, 1L));
+        when(parkingSpotService.getSpotById(1L)).thenReturn(Optional.of(new ParkingSpot(1L, "A-101", 1, "RESERVED", 3L)));
+
+        mockMvc.perform(patch("/spots/1/status")
+                        .with(csrf())
+                        .param("status", "FREE")
+                        .param("version", "2"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    @WithMockUser
+    void findFreeSpot_ShouldReturnSpotFromPool() throws Exception {
+        when(parkingSpotService.findFreeSpot(2)).thenReturn(Optional.of(new ParkingSpot(7L, "B-201", 2, "FREE")));
+
+        mockMvc.perform(get("/spots/free/any").param("floor", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7));
+    }
+
+    @Test
+    @WithMockUser
+    void getFreeCounts_WhilePoolLoading_ShouldReturnServiceUnavailable() throws Exception {
+        when(parkingSpotService.getFreeCounts()).thenThrow(new IndexNotLoadedException("Free spot pool is still loading"));
+
+        mockMvc.perform(get("/spots/free/counts"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @WithMockUser
+    void getFreeCounts_WhenStateIsBroken_ShouldNotReportServiceUnavailable() {
+        when(parkingSpotService.getFreeCounts()).thenThrow(new IllegalStateException("Change sequence missing"));
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/spots/free/counts")))
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @WithMockUser
+    void getFreeCounts_ShouldReturnCountPerFloor() throws Exception {
+        when(parkingSpotService.getFreeCounts()).thenReturn(Map.of(1, 3, 2, 0));
+
+        mockMvc.perform(get("/spots/free/counts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1").value(3))
+                .andExpect(jsonPath("$.2").value(0));
+    }
+
+    @Test
+    @WithMockUser
+    void getOccupancy_ShouldReturnCountsPerFloorAndStatus() throws Exception {
+        when(parkingSpotService.getOccupancy()).thenReturn(List.of(
+                new FloorOccupancy(1, 3, Map.of("FREE", 1L, "OCCUPIED", 2L))));
+
+        mockMvc.perform(get("/spots/occupancy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].floor").value(1))
+                .andExpect(jsonPath("$[0].total").value(3))
+                .andExpect(jsonPath("$[0].statuses.OCCUPIED").value(2));
+    }
+
+    @Test
+    @WithMockUser
+    void streamEvents_ShouldPushCommittedChanges() throws Exception {
+        MvcResult result = mockMvc.perform(get("/spots/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        spotEventBroadcaster.publish(SpotEventBroadcaster.STATUS, new ParkingSpot(1L, "A-101", 1, "OCCUPIED", 2L));
+
+        // wait for the end of the event, it may be read while still being written
+        String body = awaitBody(result, "\"status\":\"OCCUPIED\"");
+        assertThat(body).contains("event:STATUS").contains("\"spotId\":1");
+        spotEventBroadcaster.publishDeleted(1L);
+        assertThat(awaitBody(result, "\"spot\":null")).contains("event:DELETED");
+    }
+
+    @Test
+    @WithMockUser
+    void streamEvents_WithLastEventId_ShouldReplayOnlyLaterEvents() throws Exception {
+        spotEventBroadcaster.publish(SpotEventBroadcaster.CREATED, new ParkingSpot(11L, "C-1", 3, "FREE", 0L));
+        MvcResult first = mockMvc.perform(get("/spots/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andReturn();
+        spotEventBroadcaster.publish(SpotEventBroadcaster.CREATED, new ParkingSpot(12L, "C-2", 3, "FREE", 0L));
+        String seen = awaitBody(first, "\"spotId\":12");
+        String lastId = seen.substring(seen.lastIndexOf("id:") + 3, seen.indexOf('\n', seen.lastIndexOf("id:")));
+        spotEventBroadcaster.publish(SpotEventBroadcaster.CREATED, new ParkingSpot(13L, "C-3", 3, "FREE", 0L));
+
+        MvcResult resumed = mockMvc.perform(get("/spots/events")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", lastId))
+                .andReturn();
+
+        String body = awaitBody(resumed, "\"spotId\":13");
+        assertThat(body).doesNotContain("\"spotId\":12").doesNotContain("\"spotId\":11");
+    }
+
+    @Test
+    @WithMockUser
+    void streamEvents_WhenLastEventIdIsUnknown_ShouldSendReset() throws Exception {
+        MvcResult result = mockMvc.perform(get("/spots/events")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "999999"))
+                .andReturn();
+
+        awaitBody(result, "event:" + SpotEventBroadcaster.RESET);
+    }
+
+    @Test
+    @WithMockUser
+    void streamEvents_WithLastEventIdFromAnotherInstance_ShouldSendResetInsteadOfReplay() throws Exception {
+        spotEventBroadcaster.publish(SpotEventBroadcaster.CREATED, new ParkingSpot(21L, "D-1", 4, "FREE", 0L));
+        spotEventBroadcaster.publish(SpotEventBroadcaster.CREATED, new ParkingSpot(22L, "D-2", 4, "FREE", 0L));
+
+        // a sequence this instance has handed out too, but from another epoch
+        MvcResult result = mockMvc.perform(get("/spots/events")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "0-1"))
+                .andReturn();
+
+        String body = awaitBody(result, "event:" + SpotEventBroadcaster.RESET);
+        assertThat(body).doesNotContain("\"spotId\":22");
+    }
+
+    private static String awaitBody(MvcResult result, String expected) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            String body = result.getResponse().getContentAsString();
+            if (body.contains(expected)) {
+                return body;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Stream never contained " + expected + ": " + result.getResponse().getContentAsString());
+    }
+
+    @Test
+    @WithMockUser
+    void getChanges_ShouldReturnChangedAndDeletedSinceVersion() throws Exception {
+        when(parkingSpotService.getChanges(41L, 1000))
+                .thenReturn(new ChangeSet<>(List.of(parkingSpot1), List.of(9L), 43L, false));
+
+        mockMvc.perform(get("/spots/changes").param("since", "41"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed", hasSize(1)))
+                .andExpect(jsonPath("$.deleted[0]").value(9))
+                .andExpect(jsonPath("$.version").value(43))
+                .andExpect(jsonPath("$.more").value(false));
+    }
+
+    @Test
+    @WithMockUser
+    void getSpotById_ShouldReturnETagFromChangeVersion() throws Exception {
+        parkingSpot1.setChangeVersion(7L);
+        when(parkingSpotService.getSpotVersion(1L)).thenReturn(Optional.of(7L));
+        when(parkingSpotService.getSpotById(1L)).thenReturn(Optional.of(parkingSpot1));
+
+        mockMvc.perform(get("/spots/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
+    }
+
+    @Test
+    @WithMockUser
+    void getSpotById_WhenETagMatches_ShouldReturn304WithoutLoadingTheSpot() throws Exception {
+        when(parkingSpotService.getSpotVersion(1L)).thenReturn(Optional.of(7L));
+
+        mockMvc.perform(get("/spots/1").header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(content().string(""));
+
+        verify(parkingSpotService, never()).getSpotById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getSpotById_WhenETagIsStale_ShouldReturnSpot() throws Exception {
+        parkingSpot1.setChangeVersion(8L);
+        when(parkingSpotService.getSpotVersion(1L)).thenReturn(Optional.of(8L));
+        when(parkingSpotService.getSpotById(1L)).thenReturn(Optional.of(parkingSpot1));
+
+        mockMvc.perform(get("/spots/1").header("If-None-Match", "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"8\""))
+                .andExpect(jsonPath("$.number").value("A-101"));
+    }
+
+    @Test
+    @WithMockUser
+    void getAllSpots_WhenCollectionETagMatches_ShouldReturn304WithoutQueryingSpots() throws Exception {
+        when(parkingSpotService.getCollectionVersion()).thenReturn(42L);
+
+        mockMvc.perform(get("/spots").header("If-None-Match", "\"42\""))
+                .andExpect(status().isNotModified());
+
+        verify(parkingSpotService, never()).getAllSpots(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void getAllSpots_ShouldReturnCollectionETag() throws Exception {
+        when(parkingSpotService.getCollectionVersion()).thenReturn(42L);
+        when(parkingSpotService.getAllSpots(null, null)).thenReturn(new CursorPage<>(List.of(parkingSpot1), null));
+
+        mockMvc.perform(get("/spots").header("If-None-Match", "\"41\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"42\""))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @WithMockUser
+    void ingestSensorReadings_ShouldAcceptIntoBuffer() throws Exception {
+        when(sensorReadingBuffer.offer(any())).thenReturn(new SensorIngestResult(2, 0));
+
+        mockMvc.perform(post("/spots/sensor-readings")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"spotId\":1,\"occupied\":true},{\"spotId\":2,\"occupied\":false}]"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(0));
+
+        verify(parkingSpotService, never()).updateStatus(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void ingestSensorReadings_WhenBufferIsFull_ShouldReturn429WithRetryAfter() throws Exception {
+        when(sensorReadingBuffer.offer(any())).thenReturn(new SensorIngestResult(1, 1));
+        when(sensorReadingBuffer.retryAfterSeconds()).thenReturn(2L);
+
+        mockMvc.perform(post("/spots/sensor-readings")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"spotId\":1,\"occupied\":true},{\"spotId\":2,\"occupied\":true}]"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.rejected").value(1));
+    }
+
+    @Test
+    @WithMockUser
+    void ingestSensorReadings_WithoutSpotId_ShouldReturnBadRequest() throws Exception {
+        when(sensorReadingBuffer.offer(any())).thenThrow(new InvalidRequestException("Sensor reading without spotId"));
+
+        mockMvc.perform(post("/spots/sensor-readings")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"spotId\":1,\"occupied\":true},{\"occupied\":true}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void getFreeCounts_WhenArgumentIsBroken_ShouldNotReportBadRequest() {
+        when(parkingSpotService.getFreeCounts()).thenThrow(new IllegalArgumentException("The given id must not be null"));
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/spots/free/counts")))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @WithMockUser
+    void holdSpot_ShouldPassTtlAndReturnHeldSpot() throws Exception {
+        ParkingSpot held = new ParkingSpot(1L, "A-101", 1, "HELD", 1L);
+        when(parkingSpotService.holdSpot(1L, Duration.ofSeconds(90))).thenReturn(held);
+
+        mockMvc.perform(post("/spots/1/hold")
+                        .with(csrf())
+                        .param("ttlSeconds", "90"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("HELD"));
+    }
+
+    @Test
+    @WithMockUser
+    void confirmHold_WhenHoldExpired_ShouldReturnConflict() throws Exception {
+        when(parkingSpotService.confirmHold(1L, null))
+                .thenThrow(new ParkingSpotConflictException(new ParkingSpot(1L, "A-101", 1, "FREE", 2L)));
+
+        mockMvc.perform(post("/spots/1/confirm")
+                        .with(csrf()))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value("FREE"));
+    }
+
+    @Test
+    @WithMockUser
+    void findNearestFreeSpots_ShouldReturnSpotsWithDistances() throws Exception {
+        ParkingSpot nearby = new ParkingSpot(3L, "B-7", 2, 12.5, 4.0, "FREE", 0L, 0L, null);
+        when(parkingSpotService.findNearestFreeSpots(2, 10.0, 4.0, 1)).thenReturn(List.of(new NearbySpot(nearby, 2.5)));
+
+        mockMvc.perform(get("/spots/nearest")
+                        .param("x", "10")
+                        .param("y", "4")
+                        .param("floor", "2")
+                        .param("k", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].spot.number").value("B-7"))
+                .andExpect(jsonPath("$[0].spot.x").value(12.5))
+                .andExpect(jsonPath("$[0].distance").value(2.5));
+    }
+
+    @Test
+    @WithMockUser
+    void updateFloorStatus_ShouldReturnUpdatedCount() throws Exception {
+        when(parkingSpotService.updateFloorStatus(3, "CLOSED", "FREE")).thenReturn(120);
+
+        mockMvc.perform(patch("/spots/floor/3/status")
+                        .with(csrf())
+                        .param("status", "CLOSED")
+                        .param("expected", "FREE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(120));
+    }
+
+    @Test
+    @WithMockUser
+    void updateStatuses_ShouldPassIdToStatusMap() throws Exception {
+        when(parkingSpotService.updateStatuses(Map.of(1L, "CLOSED", 2L, "FREE"), null)).thenReturn(2);
+
+        mockMvc.perform(patch("/spots/status")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"1\":\"CLOSED\",\"2\":\"FREE\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(2));
+    }
+
+    @Test
+    @WithMockUser
+    void importSpotsCsv_ShouldStreamRowsIntoImport() throws Exception {
+        when(spotImportService.importSpots(any())).thenAnswer(invocation -> {
+            Iterator<ParkingSpot> spots = invocation.getArgument(0);
+            List<ParkingSpot> read = new ArrayList<>();
+            spots.forEachRemaining(read::add);
+            return new SpotImportReport(read.size(), 0, 1, List.of());
+        });
+
+        mockMvc.perform(post("/spots/import")
+                        .with(csrf())
+                        .contentType("text/csv")
+                        .content("number,floor\nA-1,1\nA-2,1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2));
+    }
+
+    @Test
+    @WithMockUser
+    void generateLayout_WhenLayoutInvalid_ShouldReturnBadRequest() throws Exception {
+        when(spotImportService.generateLayout(any(SpotLayout.class)))
+                .thenThrow(new InvalidRequestException("Layout needs at least one floor, row and spot per row"));
+
+        mockMvc.perform(post("/spots/layout")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"floors\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.parking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.parking.dto.NearbySpot;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.entity.PointOfInterest;
+import org.example.parking.service.InvalidRequestException;
+import org.example.parking.service.PointOfInterestService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PointOfInterestController.class)
+@ActiveProfiles("test")
+class PointOfInterestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private PointOfInterestService pointOfInterestService;
+
+    @Test
+    @WithMockUser
+    void findNearestFreeSpots_ShouldSearchFromThePointOfInterest() throws Exception {
+        PointOfInterest entrance = new PointOfInterest(1L, "North entrance", "ENTRANCE", 0, 0.0, 0.0);
+        when(pointOfInterestService.getPointOfInterestById(1L)).thenReturn(Optional.of(entrance));
+        when(pointOfInterestService.findNearestFreeSpots(entrance, 5)).thenReturn(
+                List.of(new NearbySpot(new ParkingSpot(7L, "G-7", 0, 3.0, 4.0, "FREE", 0L, 0L, null), 5.0)));
+
+        mockMvc.perform(get("/spots/pois/1/nearest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].spot.id").value(7))
+                .andExpect(jsonPath("$[0].distance").value(5.0));
+    }
+
+    @Test
+    @WithMockUser
+    void findNearestFreeSpots_WhenPointOfInterestMissing_ShouldReturnNotFound() throws Exception {
+        when(pointOfInterestService.getPointOfInterestById(9L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/spots/pois/9/nearest"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void createPointOfInterest_WithoutPosition_ShouldReturnBadRequest() throws Exception {
+        when(pointOfInterestService.createPointOfInterest(any(PointOfInterest.class)))
+                .thenThrow(new InvalidRequestException("Point of interest needs a floor, x and y"));
+
+        mockMvc.perform(post("/spots/pois")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PointOfInterest(null, "Lift", "ELEVATOR", 1, null, null))))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -5,12 +5,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -122,5 +127,42 @@ class ParkingSpotRepositoryTest {
         assertThat(parkingSpotRepository.findById(spotId)).isEmpty();
         assertThat(parkingSpotRepository.findAll()).hasSize(2);
     }
-}
 
+    @Test
+    void findByStatusAndIdGreaterThan_ShouldReturnRowsAfterCursorInIdOrder() {
+        // When
+        List<ParkingSpot> firstPage = parkingSpotRepository.findByStatusAndIdGreaterThan(
+                "FREE", 0L, PageRequest.of(0, 1, Sort.by("id")));
+        List<ParkingSpot> secondPage = parkingSpotRepository.findByStatusAndIdGreaterThan(
+                "FREE", firstPage.get(0).getId(), PageRequest.of(0, 1, Sort.by("id")));
+
+        // Then
+        assertThat(firstPage).extracting(ParkingSpot::getNumber).containsExactly("A-101");
+        assertThat(secondPage).extracting(ParkingSpot::getNumber).containsExactly("B-201");
+    }
+
+    @Test
+    void streamByFloorOrderByIdAsc_ShouldStreamMatchingRowsInIdOrder() {
+        // When
+        List<String> numbers;
+        try (Stream<ParkingSpot> spots = parkingSpotRepository.streamByFloorOrderByIdAsc(1)) {
+            numbers = spots.map(ParkingSpot::getNumber).toList();
+        }
+
+        // Then
+        assertThat(numbers).containsExactly("A-101", "A-102");
+    }
+
+    @Test
+    void saveAndFlush_WithStaleVersion_ShouldRejectLostUpdate() {
+        // Given
+        ParkingSpot stale = new ParkingSpot(spot1.getId(), spot1.getNumber(), spot1.getFloor(), "RESERVED", spot1.getVersion());
+        spot1.setStatus("OCCUPIED");
+        parkingSpotRepository.saveAndFlush(spot1);
+
+        // When & Then
+        assertThat(spot1.getVersion()).isEqualTo(stale.getVersion() + 1);
+        assertThatThrownBy(() -> parkingSpotRepository.saveAndFlush(stale))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+}
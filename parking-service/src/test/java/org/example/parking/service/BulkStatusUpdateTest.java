@@ -0,0 +1,168 @@
+package org.example.parking.service;
+
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.dto.ChangeSet;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:bulk-status")
+@Import({ParkingSpotService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class, ChangeLog.class,
+        HoldTimer.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkStatusUpdateTest {
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private FreeSpotPool freeSpotPool;
+
+    private List<ParkingSpot> spots;
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotRepository.deleteAll();
+        List<ParkingSpot> rows = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            rows.add(new ParkingSpot(null, "B-" + i, i % 2, i % 3 == 0 ? "OCCUPIED" : "FREE"));
+        }
+        spots = parkingSpotRepository.saveAll(rows);
+        parkingSpotService.loadFreeSpotPool();
+        // drops the rows earlier tests left in the pool
+        parkingSpotService.checkFreeSpotPool();
+    }
+
+    @Test
+    void updateFloorStatus_ShouldUpdateMatchingSpotsEachWithItsOwnVersion() {
+        // Given
+        long since = parkingSpotService.getCollectionVersion();
+
+        // When
+        int updated = parkingSpotService.updateFloorStatus(0, "CLOSED", "FREE");
+
+        // Then
+        assertThat(updated).isEqualTo(4);
+        assertThat(parkingSpotRepository.findByFloor(0)).extracting(ParkingSpot::getStatus)
+                .containsOnly("CLOSED", "OCCUPIED");
+        assertThat(parkingSpotRepository.findByFloor(1)).extracting(ParkingSpot::getStatus)
+                .containsOnly("FREE", "OCCUPIED");
+        assertThat(freeSpotPool.freeCount(0)).isZero();
+        assertThat(freeSpotPool.freeCount(1)).isEqualTo(4);
+        // small pages walk the whole batch without skipping a row
+        Set<Long> synced = new HashSet<>();
+        ChangeSet<ParkingSpot> page;
+        do {
+            page = parkingSpotService.getChanges(since, 3);
+            page.getChanged().forEach(spot -> synced.add(spot.getId()));
+            since = page.getVersion();
+        } while (page.isMore());
+        assertThat(synced).hasSize(4);
+    }
+
+    @Test
+    void updateStatuses_ShouldApplyTheMapAndSkipUnchangedAndUnknownSpots() {
+        // Given
+        Map<Long, String> statuses = new LinkedHashMap<>();
+        statuses.put(spots.get(1).getId(), "OCCUPIED");
+        statuses.put(spots.get(2).getId(), "RESERVED");
+        statuses.put(spots.get(3).getId(), "OCCUPIED");
+        statuses.put(999_999L, "FREE");
+
+        // When
+        int updated = parkingSpotService.updateStatuses(statuses, null);
+
+        // Then
+        assertThat(updated).isEqualTo(2);
+        assertThat(parkingSpotRepository.findById(spots.get(2).getId()))
+                .hasValueSatisfying(spot -> assertThat(spot.getStatus()).isEqualTo("RESERVED"));
+        assertThat(parkingSpotRepository.findById(spots.get(3).getId()))
+                .hasValueSatisfying(spot -> assertThat(spot.getVersion()).isZero());
+        assertThat(freeSpotPool.freeCount(1) + freeSpotPool.freeCount(0)).isEqualTo(6);
+    }
+
+    @Test
+    void updateStatuses_WhenExpectedStatusGiven_ShouldOnlyTouchSpotsInIt() {
+        // Given
+        Map<Long, String> statuses = Map.of(spots.get(0).getId(), "CLOSED", spots.get(1).getId(), "CLOSED");
+
+        // When
+        int updated = parkingSpotService.updateStatuses(statuses, "FREE");
+
+        // Then
+        assertThat(updated).isEqualTo(1);
+        assertThat(parkingSpotRepository.findById(spots.get(0).getId()))
+                .hasValueSatisfying(spot -> assertThat(spot.getStatus()).isEqualTo("OCCUPIED"));
+    }
+
+    @Test
+    void updateStatuses_WhenStatusMissing_ShouldRejectTheBatch() {
+        // Given
+        Map<Long, String> statuses = new HashMap<>();
+        statuses.put(spots.get(1).getId(), "CLOSED");
+        statuses.put(spots.get(2).getId(), null);
+
+        // When & Then
+        assertThatThrownBy(() -> parkingSpotService.updateStatuses(statuses, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(freeSpotPool.freeCount(1)).isEqualTo(4);
+    }
+
+    @Test
+    void updateFloorStatus_ShouldEndHoldsOnTheFloor() {
+        // Given
+        parkingSpotService.holdSpot(spots.get(2).getId(), Duration.ofMinutes(5));
+
+        // When
+        parkingSpotService.updateFloorStatus(0, "CLOSED", null);
+
+        // Then
+        assertThat(parkingSpotRepository.findById(spots.get(2).getId())).hasValueSatisfying(spot -> {
+            assertThat(spot.getStatus()).isEqualTo("CLOSED");
+            assertThat(spot.getHeldUntil()).isNull();
+        });
+    }
+
+    @Test
+    void updateStatuses_WithFarApartIds_ShouldReserveVersionsByRowCount() {
+        // Given
+        Map<Long, String> statuses = Map.of(spots.get(1).getId(), "CLOSED", 2_000_000_000L, "CLOSED");
+        long before = parkingSpotService.getCollectionVersion();
+
+        // When
+        int updated = parkingSpotService.updateStatuses(statuses, null);
+
+        // Then
+        assertThat(updated).isEqualTo(1);
+        assertThat(parkingSpotService.getCollectionVersion() - before).isEqualTo(2);
+        assertThat(parkingSpotService.getChanges(before, 10).getChanged())
+                .extracting(ParkingSpot::getId).containsExactly(spots.get(1).getId());
+    }
+}
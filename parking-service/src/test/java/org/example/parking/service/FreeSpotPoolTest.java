@@ -0,0 +1,279 @@
+package org.example.parking.service;
+
+import org.example.parking.dto.FloorOccupancy;
+import org.example.parking.dto.NearbySpot;
+import org.example.parking.entity.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FreeSpotPoolTest {
+
+    private FreeSpotPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new FreeSpotPool();
+    }
+
+    @Test
+    void anyFree_BeforeLoad_ShouldThrow() {
+        // When & Then
+        assertThatThrownBy(() -> pool.anyFree(1))
+                .isInstanceOf(IndexNotLoadedException.class);
+    }
+
+    @Test
+    void load_ShouldIndexFreeSpotsPerFloor() {
+        // When
+        pool.load(Stream.of(spot(1L, 1, "FREE", 0L), spot(2L, 1, "OCCUPIED", 0L),
+                spot(3L, 2, "FREE", 0L), spot(4L, 2, "FREE", 0L)));
+
+        // Then
+        assertThat(pool.freeCounts()).containsEntry(1, 1).containsEntry(2, 2);
+        assertThat(pool.freeCount(3)).isZero();
+        assertThat(pool.anyFree(2)).hasValueSatisfying(spot -> assertThat(spot.getId()).isEqualTo(3L));
+        assertThat(pool.anyFree(null)).hasValueSatisfying(spot -> assertThat(spot.getId()).isEqualTo(1L));
+    }
+
+    @Test
+    void apply_ShouldMoveSpotBetweenFloorsAndIgnoreOlderVersions() {
+        // Given
+        pool.load(Stream.of(spot(1L, 1, "FREE", 3L)));
+
+        // When
+        pool.apply(spot(1L, 2, "FREE", 4L));
+        pool.apply(spot(1L, 1, "OCCUPIED", 2L));
+
+        // Then
+        assertThat(pool.freeCount(1)).isZero();
+        assertThat(pool.freeCount(2)).isEqualTo(1);
+    }
+
+    @Test
+    void reconcile_ShouldRepairDriftAndEvictDeletedSpots() {
+        // Given
+        pool.load(Stream.of(spot(1L, 1, "FREE", 0L), spot(2L, 1, "FREE", 0L), spot(3L, 1, "OCCUPIED", 0L)));
+
+        // When
+        int repaired = pool.reconcile(Stream.of(spot(1L, 1, "OCCUPIED", 0L), spot(3L, 1, "OCCUPIED", 0L),
+                spot(4L, 1, "FREE", 0L)), id -> false);
+
+        // Then
+        assertThat(repaired).isEqualTo(3);
+        assertThat(pool.freeCount(1)).isEqualTo(1);
+        assertThat(pool.anyFree(1)).hasValueSatisfying(spot -> assertThat(spot.getId()).isEqualTo(4L));
+    }
+
+    @Test
+    void reconcile_WhenRowIsOlderThanPool_ShouldKeepPool() {
+        // Given
+        pool.load(Stream.of(spot(1L, 1, "FREE", 0L)));
+        pool.apply(spot(1L, 1, "OCCUPIED", 1L));
+
+        // When
+        int repaired = pool.reconcile(Stream.of(spot(1L, 1, "FREE", 0L)), id -> true);
+
+        // Then
+        assertThat(repaired).isZero();
+        assertThat(pool.freeCount(1)).isZero();
+    }
+
+    @Test
+    void concurrentUpdates_ShouldKeepCountsConsistent() throws Exception {
+        // Given
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            spots.add(spot(id, (int) (id % 4), "FREE", 0L));
+        }
+        pool.load(spots.stream());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When
+        List<Future<?>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            writers.add(executor.submit(() -> {
+                for (long version = 1; version <= 50; version++) {
+                    for (ParkingSpot spot : spots) {
+                        pool.apply(spot(spot.getId(), spot.getFloor(), version % 2 == 0 ? "FREE" : "OCCUPIED", version));
+                    }
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(pool.freeCounts().values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(200);
+        assertThat(pool.reconcile(spots.stream().map(spot -> spot(spot.getId(), spot.getFloor(), "FREE", 50L)),
+                id -> true)).isZero();
+    }
+
+    private static ParkingSpot spot(Long id, Integer floor, String status, Long version) {
+        return new ParkingSpot(id, "S-" + id, floor, status, version);
+    }
+
+    @Test
+    void occupancy_ShouldCountSpotsPerFloorAndStatus() {
+        // Given
+        pool.load(Stream.of(spot(1L, 1, "FREE", 0L), spot(2L, 1, "OCCUPIED", 0L), spot(3L, 2, "RESERVED", 0L)));
+
+        // When
+        pool.apply(spot(1L, 1, "OCCUPIED", 1L));
+        pool.apply(spot(3L, 1, "RESERVED", 1L));
+        pool.remove(2L);
+
+        // Then
+        assertThat(pool.occupancy()).containsExactly(
+                new FloorOccupancy(1, 2, Map.of("OCCUPIED", 1L, "RESERVED", 1L)));
+    }
+
+    @Test
+    void nearestFree_ShouldReturnClosestFreeSpotsNearestFirst() {
+        // Given
+        pool.load(Stream.of(positioned(1L, 1, 0, 0, "FREE"), positioned(2L, 1, 5, 0, "FREE"),
+                positioned(3L, 1, 30, 0, "FREE"), positioned(4L, 1, 4, 1, "OCCUPIED"), spot(5L, 1, "FREE", 0L)));
+
+        // When
+        List<NearbySpot> nearest = pool.nearestFree(1, 4, 0, 2);
+
+        // Then
+        assertThat(nearest).extracting(nearby -> nearby.getSpot().getId()).containsExactly(2L, 1L);
+        assertThat(nearest).extracting(NearbySpot::getDistance).containsExactly(1.0, 4.0);
+    }
+
+    @Test
+    void nearestFree_WhenFloorHasTooFew_ShouldFillUpFromClosestFloors() {
+        // Given
+        pool.load(Stream.of(positioned(1L, 1, 50, 50, "FREE"), positioned(2L, 2, 0, 0, "FREE"),
+                positioned(3L, 0, 90, 90, "FREE"), positioned(4L, 4, 0, 0, "FREE")));
+
+        // When
+        List<NearbySpot> nearest = pool.nearestFree(1, 0, 0, 3);
+
+        // Then
+        assertThat(nearest).extracting(nearby -> nearby.getSpot().getId()).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void nearestFree_ShouldFollowStatusAndPositionChanges() {
+        // Given
+        pool.load(Stream.of(positioned(1L, 1, 0, 0, "FREE"), positioned(2L, 1, 40, 0, "FREE")));
+
+        // When
+        pool.apply(new ParkingSpot(1L, "S-1", 1, 0.0, 0.0, "OCCUPIED", 1L, 0L, null));
+        pool.apply(new ParkingSpot(2L, "S-2", 1, 2.0, 0.0, "FREE", 1L, 0L, null));
+
+        // Then
+        assertThat(pool.nearestFree(1, 0, 0, 5)).singleElement()
+                .satisfies(nearby -> assertThat(nearby.getDistance()).isEqualTo(2.0));
+    }
+
+    @Test
+    void nearestFree_FromFarAway_ShouldOnlyWalkTheCellsInUse() {
+        // Given
+        pool.load(Stream.of(positioned(1L, 1, 0, 0, "FREE"), positioned(2L, 1, 10, 0, "FREE")));
+
+        // When
+        List<NearbySpot> nearest = pool.nearestFree(1, 1e9, 0, 1);
+        List<NearbySpot> farthest = pool.nearestFree(1, -Double.MAX_VALUE, Double.MAX_VALUE, 2);
+
+        // Then
+        assertThat(nearest).extracting(nearby -> nearby.getSpot().getId()).containsExactly(2L);
+        assertThat(farthest).hasSize(2);
+    }
+
+    @Test
+    void nearestFree_WithNonFinitePosition_ShouldBeRejected() {
+        // Given
+        pool.load(Stream.of(positioned(1L, 1, 0, 0, "FREE")));
+
+        // When & Then
+        assertThatThrownBy(() -> pool.nearestFree(1, Double.NaN, 0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> pool.nearestFree(1, 0, Double.POSITIVE_INFINITY, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void nearestFree_ShouldMatchABruteForceSearch() {
+        // Given
+        Random random = new Random(42);
+        List<ParkingSpot> spots = garage(5_000, random);
+        pool.load(spots.stream());
+
+        for (int i = 0; i < 200; i++) {
+            double[] query = query(random);
+
+            // When
+            List<NearbySpot> nearest = pool.nearestFree((int) query[0], query[1], query[2], 5);
+
+            // Then
+            List<Double> expected = spots.stream()
+                    .filter(spot -> spot.getFloor() == (int) query[0] && "FREE".equals(spot.getStatus()))
+                    .map(spot -> Math.hypot(spot.getX() - query[1], spot.getY() - query[2]))
+                    .sorted()
+                    .limit(5)
+                    .toList();
+            assertThat(nearest).extracting(NearbySpot::getDistance).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void nearestFree_ShouldAnswerWithinAMillisecondAt50kSpots() {
+        // Given
+        Random random = new Random(42);
+        List<ParkingSpot> spots = garage(50_000, random);
+        pool.load(spots.stream());
+        double[][] queries = new double[20_000][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = query(random);
+        }
+
+        // When
+        long startedAt = System.nanoTime();
+        for (double[] query : queries) {
+            pool.nearestFree((int) query[0], query[1], query[2], 5);
+        }
+        double micros = (System.nanoTime() - startedAt) / 1e3 / queries.length;
+
+        // Then
+        System.out.printf("Nearest free spot: %d spots, %.1f us per query%n", spots.size(), micros);
+        assertThat(micros).isLessThan(1000);
+    }
+
+    // Five floors of a 100 x 100 grid, filled in id order; a third is free
+    private static List<ParkingSpot> garage(int count, Random random) {
+        List<ParkingSpot> spots = new ArrayList<>();
+        int perFloor = count / 5;
+        for (long id = 1; id <= count; id++) {
+            int index = (int) (id - 1) % perFloor;
+            spots.add(positioned(id, (int) (id - 1) / perFloor, index % 100 * 2.5, index / 100 * 5.0,
+                    random.nextInt(3) == 0 ? "FREE" : "OCCUPIED"));
+        }
+        return spots;
+    }
+
+    private static double[] query(Random random) {
+        return new double[]{random.nextInt(5), random.nextDouble() * 250, random.nextDouble() * 500};
+    }
+
+    private static ParkingSpot positioned(Long id, Integer floor, double x, double y, String status) {
+        return new ParkingSpot(id, "S-" + id, floor, x, y, status, 0L, 0L, null);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.parking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HoldTimerTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void expire_ShouldReturnHoldOnlyOnceItsDeadlinePassed() {
+        // Given
+        HoldTimer holdTimer = new HoldTimer(1000, 8);
+        holdTimer.schedule(1L, start.plusSeconds(3).plusNanos(500_000_000));
+
+        // When & Then
+        assertThat(holdTimer.expire(start.plusSeconds(3))).isEmpty();
+        assertThat(holdTimer.expire(start.plusSeconds(4))).containsExactly(1L);
+        assertThat(holdTimer.size()).isZero();
+    }
+
+    @Test
+    void expire_WhenDeadlineIsMoreThanOneTurnAhead_ShouldWaitForItsTurn() {
+        // Given
+        HoldTimer holdTimer = new HoldTimer(1000, 8);
+        holdTimer.expire(start);
+        holdTimer.schedule(1L, start.plusSeconds(10));
+
+        // When & Then
+        assertThat(holdTimer.expire(start.plusSeconds(2))).isEmpty();
+        assertThat(holdTimer.expire(start.plusSeconds(9))).isEmpty();
+        assertThat(holdTimer.expire(start.plusSeconds(10))).containsExactly(1L);
+    }
+
+    @Test
+    void expire_WhenTicksWereMissed_ShouldCatchUp() {
+        // Given
+        HoldTimer holdTimer = new HoldTimer(1000, 8);
+        holdTimer.expire(start);
+        holdTimer.schedule(1L, start.plusSeconds(1));
+        holdTimer.schedule(2L, start.plusSeconds(2));
+        holdTimer.schedule(3L, start.plusSeconds(30));
+
+        // When
+        var due = holdTimer.expire(start.plusSeconds(5));
+
+        // Then
+        assertThat(due).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(holdTimer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void schedule_WhenDeadlinePassedOrRepeated_ShouldExpireOnceOnNextTick() {
+        // Given
+        HoldTimer holdTimer = new HoldTimer(1000, 8);
+        holdTimer.expire(start.plusSeconds(5));
+
+        // When
+        holdTimer.schedule(1L, start);
+        holdTimer.schedule(1L, start);
+
+        // Then
+        assertThat(holdTimer.size()).isEqualTo(1);
+        assertThat(holdTimer.expire(start.plusSeconds(6))).containsExactly(1L);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.parking.service;
+
+import org.example.parking.dto.FloorOccupancy;
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:occupancy;LOCK_TIMEOUT=10000")
+@Import({ParkingSpotService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class, ChangeLog.class,
+        HoldTimer.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OccupancyReconciliationTest {
+
+    private static final int THREADS = 4;
+    private static final int SPOTS = 200;
+    private static final int OPERATIONS = 150;
+    private static final List<String> STATUSES = List.of("FREE", "OCCUPIED", "RESERVED");
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Test
+    void concurrentChanges_ShouldLeaveCountersEqualToFullCount() throws Exception {
+        // Given
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int i = 0; i < SPOTS; i++) {
+            spots.add(new ParkingSpot(null, "S-" + i, i % 3, "FREE"));
+        }
+        List<Long> ids = parkingSpotRepository.saveAll(spots).stream().map(ParkingSpot::getId).toList();
+        parkingSpotService.loadFreeSpotPool();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    Long id = ids.get(random.nextInt(ids.size()));
+                    String status = STATUSES.get(random.nextInt(STATUSES.size()));
+                    try {
+                        switch (random.nextInt(10)) {
+                            case 0 -> parkingSpotService.createSpot(
+                                    new ParkingSpot(null, "N-" + random.nextInt(), random.nextInt(4), status));
+                            case 1 -> parkingSpotService.deleteSpot(id);
+                            case 2 -> parkingSpotService.updateSpot(id,
+                                    new ParkingSpot(null, "M-" + id, random.nextInt(4), status));
+                            case 3 -> parkingSpotService.claimSpot(random.nextInt(4));
+                            default -> parkingSpotService.updateStatus(id, status);
+                        }
+                    } catch (PessimisticLockingFailureException e) {
+                        // deadlocks and lock timeouts are bugs, not lost races
+                        throw e;
+                    } catch (RuntimeException e) {
+                        // lost a race on the same spot, or the spot was deleted
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        Map<Integer, Map<String, Long>> expected = new TreeMap<>();
+        parkingSpotRepository.findAll().forEach(spot -> expected
+                .computeIfAbsent(spot.getFloor(), floor -> new TreeMap<>())
+                .merge(spot.getStatus(), 1L, Long::sum));
+        Map<Integer, Map<String, Long>> counted = new TreeMap<>();
+        parkingSpotService.getOccupancy().forEach(floor -> counted.put(floor.getFloor(), floor.getStatuses()));
+        assertThat(counted).isEqualTo(expected);
+        assertThat(parkingSpotService.getOccupancy().stream().mapToLong(FloorOccupancy::getTotal).sum())
+                .isEqualTo(parkingSpotRepository.count());
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.parking.service;
+
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.dto.ChangeSet;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ParkingSpotService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class, ChangeLog.class,
+        HoldTimer.class})
+class ParkingSpotChangesTest {
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void getChanges_ShouldReturnOnlyChangesAfterSince() {
+        // Given
+        ParkingSpot first = parkingSpotService.createSpot(new ParkingSpot(null, "A-1", 1, "FREE"));
+        ParkingSpot second = parkingSpotService.createSpot(new ParkingSpot(null, "A-2", 1, "FREE"));
+        ParkingSpot third = parkingSpotService.createSpot(new ParkingSpot(null, "A-3", 1, "FREE"));
+        long since = parkingSpotService.getChanges(null, 100).getVersion();
+
+        // When
+        parkingSpotService.updateStatus(second.getId(), "OCCUPIED");
+        parkingSpotService.deleteSpot(first.getId());
+        ChangeSet<ParkingSpot> changes = parkingSpotService.getChanges(since, 100);
+
+        // Then
+        assertThat(changes.getChanged()).extracting(ParkingSpot::getId).containsExactly(second.getId());
+        assertThat(changes.getDeleted()).containsExactly(first.getId());
+        assertThat(changes.getVersion()).isEqualTo(since + 2);
+        assertThat(changes.isMore()).isFalse();
+        assertThat(parkingSpotService.getChanges(changes.getVersion(), 100).getChanged()).isEmpty();
+        assertThat(third.getChangeVersion()).isEqualTo(since);
+    }
+
+    @Test
+    void getChanges_WithLimit_ShouldPageInVersionOrderAcrossDeletes() {
+        // Given
+        long since = parkingSpotService.getChanges(null, 1000).getVersion();
+        ParkingSpot first = parkingSpotService.createSpot(new ParkingSpot(null, "B-1", 2, "FREE"));
+        parkingSpotService.deleteSpot(first.getId());
+        ParkingSpot second = parkingSpotService.createSpot(new ParkingSpot(null, "B-2", 2, "FREE"));
+
+        // When
+        ChangeSet<ParkingSpot> page1 = parkingSpotService.getChanges(since, 1);
+        ChangeSet<ParkingSpot> page2 = parkingSpotService.getChanges(page1.getVersion(), 1);
+        ChangeSet<ParkingSpot> page3 = parkingSpotService.getChanges(page2.getVersion(), 1);
+
+        // Then
+        assertThat(page1.getChanged()).isEmpty();
+        assertThat(page1.getDeleted()).containsExactly(first.getId());
+        assertThat(page1.isMore()).isTrue();
+        assertThat(page2.getChanged()).extracting(ParkingSpot::getId).containsExactly(second.getId());
+        assertThat(page2.isMore()).isFalse();
+        assertThat(page3.getChanged()).isEmpty();
+        assertThat(page3.getDeleted()).isEmpty();
+        assertThat(page3.getVersion()).isEqualTo(page2.getVersion());
+    }
+
+    @Test
+    void getCollectionVersion_ShouldMoveOnEveryWriteIncludingDeletes() {
+        // Given
+        ParkingSpot spot = parkingSpotService.createSpot(new ParkingSpot(null, "D-1", 2, "FREE"));
+        long spotVersion = spot.getChangeVersion();
+        long created = parkingSpotService.getCollectionVersion();
+
+        // When
+        parkingSpotService.updateStatus(spot.getId(), "OCCUPIED");
+        long updated = parkingSpotService.getCollectionVersion();
+        parkingSpotService.deleteSpot(spot.getId());
+
+        // Then
+        assertThat(created).isEqualTo(spotVersion);
+        assertThat(updated).isEqualTo(created + 1);
+        assertThat(parkingSpotService.getSpotVersion(spot.getId())).isEmpty();
+        assertThat(parkingSpotService.getCollectionVersion()).isEqualTo(created + 2);
+    }
+
+    @Test
+    void getChanges_AfterBackfill_ShouldPageThroughRowsWrittenWithoutVersions() {
+        // Given
+        List<Long> ids = parkingSpotRepository.saveAll(IntStream.range(0, 5)
+                .mapToObj(i -> new ParkingSpot(null, "E-" + i, 3, "FREE")).toList())
+                .stream().map(ParkingSpot::getId).toList();
+        changeLog.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<Long> synced = new ArrayList<>();
+        ChangeSet<ParkingSpot> page = parkingSpotService.getChanges(null, 2);
+        synced.addAll(page.getChanged().stream().map(ParkingSpot::getId).toList());
+        while (page.isMore()) {
+            page = parkingSpotService.getChanges(page.getVersion(), 2);
+            synced.addAll(page.getChanged().stream().map(ParkingSpot::getId).toList());
+        }
+
+        // Then
+        assertThat(synced).containsAll(ids);
+        assertThat(parkingSpotRepository.findIdsByChangeVersion(0, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void getChanges_WhileAnEarlierVersionIsUncommitted_ShouldStopBelowIt() throws Exception {
+        // Given
+        long since = parkingSpotService.getChanges(null, 1000).getVersion();
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        TransactionTemplate writer = new TransactionTemplate(transactionManager);
+        writer.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        CompletableFuture<Long> inFlight = CompletableFuture.supplyAsync(() -> writer.execute(status -> {
+            long version = changeLog.reserve(1);
+            taken.countDown();
+            await(finish);
+            status.setRollbackOnly();
+            return version;
+        }));
+        taken.await(10, TimeUnit.SECONDS);
+        ParkingSpot later = parkingSpotService.createSpot(new ParkingSpot(null, "F-1", 4, "FREE"));
+
+        // When
+        ChangeSet<ParkingSpot> during = parkingSpotService.getChanges(since, 100);
+        finish.countDown();
+        long version = inFlight.get(10, TimeUnit.SECONDS);
+        ChangeSet<ParkingSpot> after = parkingSpotService.getChanges(since, 100);
+
+        // Then
+        assertThat(later.getChangeVersion()).isGreaterThan(version);
+        assertThat(during.getChanged()).isEmpty();
+        assertThat(during.getVersion()).isLessThan(version);
+        assertThat(after.getChanged()).extracting(ParkingSpot::getId).containsExactly(later.getId());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.parking.service;
+
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:claim-benchmark;LOCK_TIMEOUT=10000")
+@Import({ParkingSpotService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class, ChangeLog.class,
+        HoldTimer.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ParkingSpotClaimBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int SPOTS = 2000;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotRepository.deleteAll();
+    }
+
+    // Small enough for every build; the full lot runs with -Pbenchmark
+    @Test
+    void concurrentClaims_ShouldHandOutEveryFreeSpotExactlyOnce() throws Exception {
+        // Given
+        seed(200);
+
+        // When
+        List<Long> claimed = claimUntilFull(4);
+
+        // Then
+        assertThat(claimed).hasSize(200).doesNotHaveDuplicates();
+        assertThat(parkingSpotRepository.findByStatus("FREE")).isEmpty();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void concurrentClaims_ShouldSustainThroughput() throws Exception {
+        // Given
+        seed(SPOTS);
+
+        // When
+        long startedAt = System.nanoTime();
+        List<Long> claimed = claimUntilFull(THREADS);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        // Then
+        double claimsPerSecond = SPOTS / seconds;
+        System.out.printf("Spot claims: %d spots, %d threads in %.2fs (%.0f claims/s)%n",
+                SPOTS, THREADS, seconds, claimsPerSecond);
+        assertThat(claimed).hasSize(SPOTS).doesNotHaveDuplicates();
+        // H2 has no SKIP LOCKED, so here claimers queue on the row lock instead
+        // of passing each other as they do on Postgres; the floor is set for that
+        assertThat(claimsPerSecond).isGreaterThan(100);
+    }
+
+    @Test
+    void claimSpot_WithFloor_ShouldOnlyClaimSpotsOfThatFloor() {
+        // Given
+        seed(8);
+
+        // When
+        Optional<ParkingSpot> spot = parkingSpotService.claimSpot(3);
+
+        // Then
+        assertThat(spot).hasValueSatisfying(claimed -> {
+            assertThat(claimed.getFloor()).isEqualTo(3);
+            assertThat(parkingSpotRepository.findById(claimed.getId()))
+                    .hasValueSatisfying(stored -> assertThat(stored.getStatus()).isEqualTo("OCCUPIED"));
+        });
+    }
+
+    private void seed(int count) {
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            spots.add(new ParkingSpot(null, "S-" + i, i % 4, "FREE"));
+        }
+        parkingSpotRepository.saveAll(spots);
+    }
+
+    // Every thread keeps claiming until the lot reports full
+    private List<Long> claimUntilFull(int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Long> claimed = new ConcurrentLinkedQueue<>();
+        AtomicInteger empty = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                while (true) {
+                    Optional<ParkingSpot> spot = parkingSpotService.claimSpot(null);
+                    if (spot.isEmpty()) {
+                        empty.incrementAndGet();
+                        return null;
+                    }
+                    claimed.add(spot.get().getId());
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertThat(empty).hasValue(threads);
+        return new ArrayList<>(claimed);
+    }
+}
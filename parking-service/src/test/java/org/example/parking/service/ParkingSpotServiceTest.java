@@ -1,21 +1,31 @@
 package org.example.parking.service;
 
+import jakarta.persistence.EntityManager;
+import org.example.parking.dto.CursorPage;
 import org.example.parking.entity.ParkingSpot;
 import org.example.parking.repository.ParkingSpotRepository;
+import org.example.parking.repository.ParkingSpotTombstoneRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +34,24 @@ class ParkingSpotServiceTest {
     @Mock
     private ParkingSpotRepository parkingSpotRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ParkingSpotTombstoneRepository parkingSpotTombstoneRepository;
+
+    @Mock
+    private ChangeLog changeLog;
+
+    @Spy
+    private FreeSpotPool freeSpotPool = new FreeSpotPool();
+
+    @Mock
+    private SpotEventBroadcaster spotEventBroadcaster;
+
+    @Mock
+    private HoldTimer holdTimer;
+
     @InjectMocks
     private ParkingSpotService parkingSpotService;
 
@@ -36,19 +64,35 @@ class ParkingSpotServiceTest {
         parkingSpot2 = new ParkingSpot(2L, "A-102", 1, "OCCUPIED");
     }
 
+    @Test
+    void getAllSpots_WithoutCursorOrLimit_ShouldReturnEverySpot() {
+        // Given
+        when(parkingSpotRepository.findAll()).thenReturn(Arrays.asList(parkingSpot1, parkingSpot2));
+
+        // When
+        CursorPage<ParkingSpot> result = parkingSpotService.getAllSpots(null, null);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(parkingSpot1, parkingSpot2);
+        assertThat(result.getNext()).isNull();
+        verify(parkingSpotRepository, never()).findByIdGreaterThan(any(), any());
+    }
+
     @Test
     void getAllSpots_ShouldReturnAllSpots() {
         // Given
         List<ParkingSpot> spots = Arrays.asList(parkingSpot1, parkingSpot2);
-        when(parkingSpotRepository.findAll()).thenReturn(spots);
+        when(parkingSpotRepository.findByIdGreaterThan(0L, PageRequest.of(0, 101, Sort.by("id")))).thenReturn(spots);
 
         // When
-        List<ParkingSpot> result = parkingSpotService.getAllSpots();
+        CursorPage<ParkingSpot> result = parkingSpotService.getAllSpots(null, 100);
 
         // Then
-        assertThat(result).hasSize(2);
-        assertThat(result).containsExactly(parkingSpot1, parkingSpot2);
-        verify(parkingSpotRepository, times(1)).findAll();
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getItems()).containsExactly(parkingSpot1, parkingSpot2);
+        assertThat(result.getNext()).isNull();
+        verify(parkingSpotRepository, times(1)).findByIdGreaterThan(0L, PageRequest.of(0, 101, Sort.by("id")));
+        verify(parkingSpotRepository, never()).findAll();
     }
 
     @Test
@@ -82,30 +126,30 @@ class ParkingSpotServiceTest {
     void getSpotsByStatus_ShouldReturnFilteredSpots() {
         // Given
         List<ParkingSpot> freeSpots = Arrays.asList(parkingSpot1);
-        when(parkingSpotRepository.findByStatus("FREE")).thenReturn(freeSpots);
+        when(parkingSpotRepository.findByStatusAndIdGreaterThan(eq("FREE"), eq(0L), any(Pageable.class))).thenReturn(freeSpots);
 
         // When
-        List<ParkingSpot> result = parkingSpotService.getSpotsByStatus("FREE");
+        CursorPage<ParkingSpot> result = parkingSpotService.getSpotsByStatus("FREE", null, 100);
 
         // Then
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getStatus()).isEqualTo("FREE");
-        verify(parkingSpotRepository, times(1)).findByStatus("FREE");
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getItems().get(0).getStatus()).isEqualTo("FREE");
+        verify(parkingSpotRepository, times(1)).findByStatusAndIdGreaterThan(eq("FREE"), eq(0L), any(Pageable.class));
     }
 
     @Test
     void getSpotsByFloor_ShouldReturnFilteredSpots() {
         // Given
         List<ParkingSpot> floor1Spots = Arrays.asList(parkingSpot1, parkingSpot2);
-        when(parkingSpotRepository.findByFloor(1)).thenReturn(floor1Spots);
+        when(parkingSpotRepository.findByFloorAndIdGreaterThan(eq(1), eq(0L), any(Pageable.class))).thenReturn(floor1Spots);
 
         // When
-        List<ParkingSpot> result = parkingSpotService.getSpotsByFloor(1);
+        CursorPage<ParkingSpot> result = parkingSpotService.getSpotsByFloor(1, null, 100);
 
         // Then
-        assertThat(result).hasSize(2);
-        assertThat(result).allMatch(spot -> spot.getFloor() == 1);
-        verify(parkingSpotRepository, times(1)).findByFloor(1);
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getItems()).allMatch(spot -> spot.getFloor() == 1);
+        verify(parkingSpotRepository, times(1)).findByFloorAndIdGreaterThan(eq(1), eq(0L), any(Pageable.class));
     }
 
     @Test
@@ -196,5 +240,162 @@ class ParkingSpotServiceTest {
         // Then
         verify(parkingSpotRepository, times(1)).deleteById(1L);
     }
-}
 
+    @Test
+    void getSpotsByIds_ShouldUseSingleBatchLookup() {
+        // Given
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(parkingSpotRepository.findAllById(ids)).thenReturn(Arrays.asList(parkingSpot1, parkingSpot2));
+
+        // When
+        List<ParkingSpot> result = parkingSpotService.getSpotsByIds(ids);
+
+        // Then
+        assertThat(result).containsExactly(parkingSpot1, parkingSpot2);
+        verify(parkingSpotRepository, times(1)).findAllById(ids);
+        verify(parkingSpotRepository, never()).findById(any());
+    }
+
+    @Test
+    void getAllSpots_WhenMoreRowsThanLimit_ShouldReturnNextCursor() {
+        // Given
+        ParkingSpot parkingSpot3 = new ParkingSpot(3L, "A-103", 1, "FREE");
+        when(parkingSpotRepository.findByIdGreaterThan(1L, PageRequest.of(0, 3, Sort.by("id"))))
+                .thenReturn(Arrays.asList(parkingSpot2, parkingSpot3, new ParkingSpot(4L, "A-104", 1, "FREE")));
+
+        // When
+        CursorPage<ParkingSpot> result = parkingSpotService.getAllSpots(1L, 2);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(parkingSpot2, parkingSpot3);
+        assertThat(result.getNext()).isEqualTo(3L);
+    }
+
+    @Test
+    void streamSpotsByFloor_ShouldPassEachRowAndDetachIt() {
+        // Given
+        when(parkingSpotRepository.streamByFloorOrderByIdAsc(1)).thenReturn(Stream.of(parkingSpot1, parkingSpot2));
+        List<ParkingSpot> written = new ArrayList<>();
+
+        // When
+        parkingSpotService.streamSpotsByFloor(1, written::add);
+
+        // Then
+        assertThat(written).containsExactly(parkingSpot1, parkingSpot2);
+        verify(entityManager).detach(parkingSpot1);
+        verify(entityManager).detach(parkingSpot2);
+    }
+
+    @Test
+    void claimSpot_WithFloor_ShouldOccupyFirstFreeSpotOfFloor() {
+        // Given
+        when(parkingSpotRepository.findFirstByStatusAndFloorOrderByIdAsc("FREE", 1)).thenReturn(Optional.of(parkingSpot1));
+
+        // When
+        Optional<ParkingSpot> result = parkingSpotService.claimSpot(1);
+
+        // Then
+        assertThat(result).hasValueSatisfying(spot -> assertThat(spot.getStatus()).isEqualTo("OCCUPIED"));
+        verify(parkingSpotRepository, never()).findFirstByStatusOrderByIdAsc(any());
+    }
+
+    @Test
+    void claimSpot_WhenNothingFree_ShouldReturnEmpty() {
+        // Given
+        when(parkingSpotRepository.findFirstByStatusOrderByIdAsc("FREE")).thenReturn(Optional.empty());
+
+        // When
+        Optional<ParkingSpot> result = parkingSpotService.claimSpot(null);
+
+        // Then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void updateStatus_WhenExpectedStatusMatches_ShouldApply() {
+        // Given
+        when(parkingSpotRepository.findById(1L)).thenReturn(Optional.of(parkingSpot1));
+        when(parkingSpotRepository.save(parkingSpot1)).thenReturn(parkingSpot1);
+
+        // When
+        ParkingSpot result = parkingSpotService.updateStatus(1L, "OCCUPIED", "FREE", null);
+
+        // Then
+        assertThat(result.getStatus()).isEqualTo("OCCUPIED");
+    }
+
+    @Test
+    void updateStatus_WhenExpectedStatusOrVersionDiffers_ShouldThrowConflict() {
+        // Given
+        parkingSpot2.setVersion(5L);
+        when(parkingSpotRepository.findById(2L)).thenReturn(Optional.of(parkingSpot2));
+
+        // When & Then
+        assertThatThrownBy(() -> parkingSpotService.updateStatus(2L, "FREE", "FREE", null))
+                .isInstanceOf(ParkingSpotConflictException.class);
+        assertThatThrownBy(() -> parkingSpotService.updateStatus(2L, "FREE", null, 4L))
+                .isInstanceOf(ParkingSpotConflictException.class);
+        assertThat(parkingSpot2.getStatus()).isEqualTo("OCCUPIED");
+        verify(parkingSpotRepository, never()).save(any(ParkingSpot.class));
+    }
+
+    @Test
+    void updateSpot_WhenVersionIsStale_ShouldThrowConflict() {
+        // Given
+        parkingSpot1.setVersion(2L);
+        when(parkingSpotRepository.findById(1L)).thenReturn(Optional.of(parkingSpot1));
+
+        // When & Then
+        assertThatThrownBy(() -> parkingSpotService.updateSpot(1L, new ParkingSpot(1L, "A-101-VIP", 1, "FREE", 1L)))
+                .isInstanceOf(ParkingSpotConflictException.class);
+        verify(parkingSpotRepository, never()).save(any(ParkingSpot.class));
+    }
+
+    @Test
+    void statusChanges_ShouldKeepFreeSpotPoolInSync() {
+        // Given
+        when(parkingSpotRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(parkingSpot1, parkingSpot2));
+        parkingSpotService.loadFreeSpotPool();
+        when(parkingSpotRepository.findById(2L)).thenReturn(Optional.of(parkingSpot2));
+        when(parkingSpotRepository.save(parkingSpot2)).thenReturn(parkingSpot2);
+
+        // When
+        parkingSpotService.updateStatus(2L, "FREE");
+        parkingSpotService.deleteSpot(1L);
+
+        // Then
+        assertThat(parkingSpotService.getFreeCounts()).containsEntry(1, 1);
+        assertThat(parkingSpotService.findFreeSpot(1)).hasValueSatisfying(spot -> assertThat(spot.getId()).isEqualTo(2L));
+    }
+
+    @Test
+    void checkFreeSpotPool_ShouldRepairDriftFromDatabase() {
+        // Given
+        when(parkingSpotRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(parkingSpot1, parkingSpot2));
+        parkingSpotService.loadFreeSpotPool();
+        ParkingSpot occupiedElsewhere = new ParkingSpot(1L, "A-101", 1, "OCCUPIED");
+        when(parkingSpotRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(occupiedElsewhere, parkingSpot2));
+
+        // When
+        parkingSpotService.checkFreeSpotPool();
+
+        // Then
+        assertThat(parkingSpotService.getFreeCounts()).containsEntry(1, 0);
+        assertThat(parkingSpotService.findFreeSpot(1)).isEmpty();
+    }
+
+    @Test
+    void updateStatus_ShouldPublishStatusEvent() {
+        // Given
+        when(parkingSpotRepository.findById(1L)).thenReturn(Optional.of(parkingSpot1));
+        when(parkingSpotRepository.save(parkingSpot1)).thenReturn(parkingSpot1);
+
+        // When
+        parkingSpotService.updateStatus(1L, "OCCUPIED");
+        parkingSpotService.deleteSpot(2L);
+
+        // Then
+        verify(spotEventBroadcaster).publish(SpotEventBroadcaster.STATUS, parkingSpot1);
+        verify(spotEventBroadcaster).publishDeleted(2L);
+    }
+}
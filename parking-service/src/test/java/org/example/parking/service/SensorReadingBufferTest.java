@@ -0,0 +1,230 @@
+package org.example.parking.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.dto.SensorIngestResult;
+import org.example.parking.dto.SensorReading;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ChangeSequenceRepository;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sensor-readings",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        // tests flush by hand; a scheduled flush would race them
+        "parking.sensors.flush-interval-ms=3600000"})
+@Import({ParkingSpotService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class,
+        ChangeLog.class, HoldTimer.class, SensorReadingBuffer.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SensorReadingBufferTest {
+
+    private static final int THROUGHPUT_SPOTS = 2000;
+    private static final int THROUGHPUT_ROUNDS = 50;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private ChangeSequenceRepository changeSequenceRepository;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private FreeSpotPool freeSpotPool;
+
+    @Autowired
+    private SensorReadingBuffer sensorReadingBuffer;
+
+    private List<ParkingSpot> spots;
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotRepository.deleteAll();
+        List<ParkingSpot> rows = new ArrayList<>();
+        for (int i = 0; i < THROUGHPUT_SPOTS; i++) {
+            rows.add(new ParkingSpot(null, "S-" + i, i % 4, i == 0 ? "RESERVED" : "FREE"));
+        }
+        spots = parkingSpotRepository.saveAll(rows);
+        parkingSpotService.loadFreeSpotPool();
+    }
+
+    @Test
+    void flush_ShouldWriteOnlyTheLatestReadingOfSpotsWhoseStatusChanged() {
+        // Given
+        long versionBefore = parkingSpotService.getCollectionVersion();
+        sensorReadingBuffer.offer(List.of(reading(1, true), reading(1, false), reading(1, true),
+                reading(2, false), reading(0, true)));
+
+        // When
+        sensorReadingBuffer.flush();
+
+        // Then
+        assertThat(status(1)).isEqualTo("OCCUPIED");
+        assertThat(status(2)).isEqualTo("FREE");
+        // the reserved spot is not the sensors' to change
+        assertThat(status(0)).isEqualTo("RESERVED");
+        assertThat(parkingSpotService.getCollectionVersion()).isEqualTo(versionBefore + 1);
+        assertThat(sensorReadingBuffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void offer_WhenFull_ShouldRejectNewSpotsButStillCoalescePendingOnes() {
+        // Given
+        SensorReadingBuffer buffer = new SensorReadingBuffer(parkingSpotService, freeSpotPool, 2, 1000, 1500);
+
+        // When
+        SensorIngestResult result = buffer.offer(List.of(reading(1, true), reading(2, true),
+                reading(3, true), reading(2, false)));
+
+        // Then
+        assertThat(result.getAccepted()).isEqualTo(3);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(buffer.pendingCount()).isEqualTo(2);
+        assertThat(buffer.retryAfterSeconds()).isEqualTo(2);
+    }
+
+    @Test
+    void offer_WithoutSpotId_ShouldThrow() {
+        // When & Then
+        assertThatThrownBy(() -> sensorReadingBuffer.offer(List.of(new SensorReading(null, true))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void offer_WithAReadingWithoutSpotId_ShouldBufferNoneOfTheBatch() {
+        // When & Then
+        assertThatThrownBy(() -> sensorReadingBuffer.offer(List.of(reading(1, true), new SensorReading(null, true))))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(sensorReadingBuffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldKeepReadingsForTheNextFlush() {
+        // Given
+        sensorReadingBuffer.offer(List.of(reading(1, true)));
+        changeSequenceRepository.deleteAll();
+
+        // When
+        sensorReadingBuffer.flush();
+        int pendingAfterFailure = sensorReadingBuffer.pendingCount();
+        changeLog.afterSingletonsInstantiated();
+        sensorReadingBuffer.flush();
+
+        // Then
+        assertThat(pendingAfterFailure).isEqualTo(1);
+        assertThat(sensorReadingBuffer.pendingCount()).isZero();
+        assertThat(status(1)).isEqualTo("OCCUPIED");
+    }
+
+    @Test
+    void bindTo_ShouldExposeIngestCoalescingAndFlushMetrics() {
+        // Given
+        SensorReadingBuffer buffer = new SensorReadingBuffer(parkingSpotService, freeSpotPool, 100, 1000, 1000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        buffer.bindTo(registry);
+        buffer.offer(List.of(reading(1, true), reading(1, true), reading(1, true), reading(2, true),
+                reading(3, false)));
+
+        // When
+        buffer.flush();
+
+        // Then
+        assertThat(registry.get("parking.sensors.readings").functionCounter().count()).isEqualTo(5);
+        assertThat(registry.get("parking.sensors.coalesced").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("parking.sensors.unchanged").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("parking.sensors.written").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("parking.sensors.coalescing.ratio").gauge().value()).isEqualTo(2.5);
+        assertThat(registry.get("parking.sensors.flush").functionTimer().count()).isEqualTo(1);
+    }
+
+    // Small enough for every build; the full load runs with -Pbenchmark
+    @Test
+    void ingest_ShouldWriteOnlyStatusChangesAcrossRounds() {
+        // Given
+        long versionBefore = parkingSpotService.getCollectionVersion();
+
+        // When
+        ingest(200, 20);
+
+        // Then
+        assertThat(sensorReadingBuffer.pendingCount()).isZero();
+        assertThat(parkingSpotRepository.findByStatus("OCCUPIED")).hasSize(100)
+                .allSatisfy(spot -> assertThat(spot.getNumber()).matches("S-\\d*[13579]"));
+        // one change version per spot that changed, none for the repeats
+        assertThat(parkingSpotService.getCollectionVersion()).isEqualTo(versionBefore + 100);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void ingest_ShouldSustainThroughputAndWriteOnlyStatusChanges() {
+        // Given
+        long versionBefore = parkingSpotService.getCollectionVersion();
+
+        // When
+        double seconds = ingest(THROUGHPUT_SPOTS, THROUGHPUT_ROUNDS);
+
+        // Then
+        int total = THROUGHPUT_SPOTS * THROUGHPUT_ROUNDS;
+        double readingsPerSecond = total / seconds;
+        System.out.printf("Sensor ingestion: %d readings in %.2fs (%.0f readings/s)%n", total, seconds, readingsPerSecond);
+        assertThat(sensorReadingBuffer.pendingCount()).isZero();
+        assertThat(parkingSpotRepository.findByStatus("OCCUPIED")).hasSize(THROUGHPUT_SPOTS / 2);
+        assertThat(parkingSpotService.getCollectionVersion()).isEqualTo(versionBefore + THROUGHPUT_SPOTS / 2);
+        assertThat(readingsPerSecond).isGreaterThan(20_000);
+    }
+
+    // The first count sensors report every round, odd spots are taken
+    // halfway; returns the seconds spent offering and flushing.
+    private double ingest(int count, int rounds) {
+        List<List<SensorReading>> requests = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            List<SensorReading> readings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                readings.add(reading(i, round >= rounds / 2 && i % 2 == 1));
+            }
+            requests.add(readings);
+        }
+        long startedAt = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            sensorReadingBuffer.offer(requests.get(round));
+            if (round % 10 == 9) {
+                sensorReadingBuffer.flush();
+            }
+        }
+        sensorReadingBuffer.flush();
+        return (System.nanoTime() - startedAt) / 1e9;
+    }
+
+    private SensorReading reading(int spot, boolean occupied) {
+        return new SensorReading(spots.get(spot).getId(), occupied);
+    }
+
+    private String status(int spot) {
+        return parkingSpotRepository.findById(spots.get(spot).getId()).orElseThrow().getStatus();
+    }
+}
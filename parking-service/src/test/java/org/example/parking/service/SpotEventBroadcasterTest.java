@@ -0,0 +1,48 @@
+package org.example.parking.service;
+
+import org.example.parking.entity.ParkingSpot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpotEventBroadcasterTest {
+
+    // Collects send tasks without running them, like a subscriber that stopped reading
+    private final List<Runnable> stalled = new ArrayList<>();
+    private final SpotEventBroadcaster broadcaster = new SpotEventBroadcaster(stalled::add, 4, 16);
+
+    @Test
+    void publish_WhenSubscriberBufferIsFull_ShouldDropSubscriber() {
+        // Given
+        broadcaster.subscribe(null);
+        broadcaster.subscribe(null);
+        for (int i = 0; i < 4; i++) {
+            broadcaster.publish(SpotEventBroadcaster.STATUS, new ParkingSpot((long) i, "S-" + i, 1, "FREE", 0L));
+        }
+
+        // When
+        broadcaster.publish(SpotEventBroadcaster.STATUS, new ParkingSpot(9L, "S-9", 1, "FREE", 0L));
+
+        // Then
+        assertThat(broadcaster.subscriberCount()).isZero();
+        assertThat(stalled).hasSize(2);
+    }
+
+    @Test
+    void subscribe_ShouldQueueOneSendTaskPerSubscriber() {
+        // Given
+        broadcaster.subscribe(null);
+
+        // When
+        broadcaster.publish(SpotEventBroadcaster.CREATED, new ParkingSpot(1L, "S-1", 1, "FREE", 0L));
+        broadcaster.publishDeleted(1L);
+        broadcaster.heartbeat();
+
+        // Then
+        assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+        assertThat(stalled).hasSize(1);
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.parking.service;
+
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:spot-holds",
+        "parking.holds.tick-ms=10"})
+@Import({ParkingSpotService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class, ChangeLog.class,
+        HoldTimer.class, SpotHoldExpiry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpotHoldTest {
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private SpotHoldExpiry spotHoldExpiry;
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotRepository.deleteAll();
+    }
+
+    @Test
+    void confirmHold_ShouldOccupyHeldSpot() {
+        // Given
+        ParkingSpot spot = parkingSpotService.createSpot(new ParkingSpot(null, "H-1", 1, "FREE"));
+        ParkingSpot held = parkingSpotService.holdSpot(spot.getId(), null);
+        long heldVersion = held.getChangeVersion();
+        LocalDateTime heldUntil = held.getHeldUntil();
+
+        // When
+        ParkingSpot confirmed = parkingSpotService.confirmHold(spot.getId(), held.getVersion());
+
+        // Then
+        assertThat(heldUntil).isBetween(LocalDateTime.now().plusSeconds(50), LocalDateTime.now().plusSeconds(61));
+        assertThat(confirmed.getStatus()).isEqualTo("OCCUPIED");
+        assertThat(confirmed.getHeldUntil()).isNull();
+        assertThat(confirmed.getChangeVersion()).isEqualTo(heldVersion + 1);
+    }
+
+    @Test
+    void holdSpot_WhenSpotIsNotFree_ShouldThrowConflict() {
+        // Given
+        ParkingSpot spot = parkingSpotService.createSpot(new ParkingSpot(null, "H-2", 1, "OCCUPIED"));
+
+        // When & Then
+        assertThatThrownBy(() -> parkingSpotService.holdSpot(spot.getId(), null))
+                .isInstanceOf(ParkingSpotConflictException.class);
+        assertThatThrownBy(() -> parkingSpotService.confirmHold(spot.getId(), null))
+                .isInstanceOf(ParkingSpotConflictException.class);
+    }
+
+    @Test
+    void releaseExpired_ShouldFreeRunOutHoldsAndRefuseTheirConfirmation() throws InterruptedException {
+        // Given
+        ParkingSpot running = parkingSpotService.createSpot(new ParkingSpot(null, "H-3", 1, "FREE"));
+        ParkingSpot kept = parkingSpotService.createSpot(new ParkingSpot(null, "H-4", 1, "FREE"));
+        parkingSpotService.holdSpot(running.getId(), Duration.ofMillis(20));
+        parkingSpotService.holdSpot(kept.getId(), Duration.ofMinutes(5));
+        Thread.sleep(50);
+
+        // When & Then
+        assertThatThrownBy(() -> parkingSpotService.confirmHold(running.getId(), null))
+                .isInstanceOf(ParkingSpotConflictException.class);
+        spotHoldExpiry.releaseExpired();
+        assertThat(parkingSpotRepository.findById(running.getId())).hasValueSatisfying(spot -> {
+            assertThat(spot.getStatus()).isEqualTo("FREE");
+            assertThat(spot.getHeldUntil()).isNull();
+        });
+        assertThat(parkingSpotRepository.findById(kept.getId()))
+                .hasValueSatisfying(spot -> assertThat(spot.getStatus()).isEqualTo("HELD"));
+    }
+
+    @Test
+    void rebuild_ShouldPutHoldsFromTheDatabaseBackOnTheTimer() throws InterruptedException {
+        // Given
+        ParkingSpot held = new ParkingSpot(null, "H-5", 1, "HELD");
+        held.setHeldUntil(LocalDateTime.now().minusSeconds(1));
+        held = parkingSpotRepository.save(held);
+
+        // When
+        spotHoldExpiry.rebuild();
+        // a hold scheduled within a tick that already ran is due on the next one
+        Thread.sleep(30);
+        spotHoldExpiry.releaseExpired();
+
+        // Then
+        assertThat(parkingSpotRepository.findById(held.getId()))
+                .hasValueSatisfying(spot -> assertThat(spot.getStatus()).isEqualTo("FREE"));
+    }
+}
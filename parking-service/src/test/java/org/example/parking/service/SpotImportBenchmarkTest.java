@@ -0,0 +1,55 @@
+package org.example.parking.service;
+
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.dto.SpotImportReport;
+import org.example.parking.dto.SpotLayout;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:spot-import-benchmark",
+        "spring.jpa.show-sql=false"})
+@Import({SpotImportService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class, ChangeLog.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Tag("benchmark")
+class SpotImportBenchmarkTest {
+
+    @Autowired
+    private SpotImportService spotImportService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Test
+    void generateLayout_ShouldLoadA50kSpotGarageInSeconds() {
+        // Given
+        SpotLayout layout = new SpotLayout();
+        layout.setFloors(5);
+        layout.setRows(100);
+        layout.setSpotsPerRow(100);
+
+        // When
+        SpotImportReport report = spotImportService.generateLayout(layout);
+
+        // Then
+        double spotsPerSecond = report.getCreated() * 1000.0 / Math.max(1, report.getDurationMs());
+        assertThat(report.getCreated()).isEqualTo(50_000);
+        assertThat(parkingSpotRepository.count()).isEqualTo(50_000);
+        // in-memory H2 on a shared runner; only guards against losing the batching
+        assertThat(spotsPerSecond).isGreaterThan(2_000);
+    }
+}
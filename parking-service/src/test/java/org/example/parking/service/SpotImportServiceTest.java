@@ -0,0 +1,163 @@
+package org.example.parking.service;
+
+import org.example.parking.config.SpotEventConfig;
+import org.example.parking.dto.SpotImportError;
+import org.example.parking.dto.SpotImportReport;
+import org.example.parking.dto.SpotLayout;
+import org.example.parking.entity.ParkingSpot;
+import org.example.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:spot-import",
+        "parking.import.chunk-size=2"})
+@Import({SpotImportService.class, FreeSpotPool.class, SpotEventBroadcaster.class, SpotEventConfig.class,
+        ChangeLog.class, ParkingSpotService.class, HoldTimer.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpotImportServiceTest {
+
+    @Autowired
+    private SpotImportService spotImportService;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private FreeSpotPool freeSpotPool;
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotRepository.deleteAll();
+        parkingSpotService.loadFreeSpotPool();
+        parkingSpotService.checkFreeSpotPool();
+    }
+
+    @Test
+    void importSpots_FromCsv_ShouldCreateValidRowsAndReportTheOthers() {
+        // Given
+        String csv = """
+                floor,number,x,y,status
+                1,A-1,0,0,
+                1,"A-2, corner",2.5,0,OCCUPIED
+
+                1,,5,0,
+                2,B-1,,3,
+                2,B-2,,,FREE
+                """;
+
+        // When
+        SpotImportReport report = spotImportService.importSpots(csv(csv));
+
+        // Then
+        assertThat(report.getCreated()).isEqualTo(3);
+        assertThat(report.getRejected()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(SpotImportError::getIndex).containsExactly(2, 3);
+        assertThat(report.getErrors()).extracting(SpotImportError::getError)
+                .containsExactly("Number is required", "Position needs both x and y");
+        assertThat(parkingSpotRepository.findByFloor(1)).extracting(ParkingSpot::getNumber)
+                .containsExactlyInAnyOrder("A-1", "A-2, corner");
+        assertThat(freeSpotPool.freeCount(1)).isEqualTo(1);
+        assertThat(freeSpotPool.freeCount(2)).isEqualTo(1);
+        assertThat(freeSpotPool.nearestFree(1, 0, 0, 1)).singleElement()
+                .satisfies(nearby -> assertThat(nearby.getSpot().getNumber()).isEqualTo("A-1"));
+    }
+
+    @Test
+    void importSpots_WhenLineIsMalformed_ShouldKeepEarlierRowsAndStop() {
+        // Given
+        String csv = """
+                number,floor
+                A-1,1
+                A-2,1
+                A-3,one
+                A-4,1
+                """;
+
+        // When
+        SpotImportReport report = spotImportService.importSpots(csv(csv));
+
+        // Then
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getError()).startsWith("Malformed input: Line 4"));
+        assertThat(parkingSpotRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void importSpots_ShouldGiveEveryRowItsOwnChangeVersion() {
+        // Given
+        long since = parkingSpotService.getCollectionVersion();
+
+        // When
+        spotImportService.importSpots(csv("number,floor\nA-1,1\nA-2,1\nA-3,1\n"));
+
+        // Then
+        assertThat(parkingSpotService.getChanges(since, 10).getChanged())
+                .extracting(ParkingSpot::getChangeVersion).containsExactly(since + 1, since + 2, since + 3);
+    }
+
+    @Test
+    void generateLayout_ShouldNumberAndPlaceSpotsByPattern() {
+        // Given
+        SpotLayout layout = new SpotLayout();
+        layout.setFirstFloor(-1);
+        layout.setFloors(2);
+        layout.setRows(28);
+        layout.setSpotsPerRow(3);
+        layout.setPattern("P{floor}/{row}{number:2}");
+
+        // When
+        SpotImportReport report = spotImportService.generateLayout(layout);
+
+        // Then
+        assertThat(report.getCreated()).isEqualTo(168);
+        List<ParkingSpot> basement = parkingSpotRepository.findByFloor(-1);
+        assertThat(basement).hasSize(84);
+        assertThat(basement).filteredOn(spot -> spot.getNumber().equals("P-1/AB03")).singleElement()
+                .satisfies(spot -> {
+                    assertThat(spot.getX()).isEqualTo(5.0);
+                    assertThat(spot.getY()).isEqualTo(27 * 6.0);
+                });
+        assertThat(freeSpotPool.freeCounts()).containsEntry(-1, 84).containsEntry(0, 84);
+    }
+
+    @Test
+    void generateLayout_WhenLayoutIsEmptyOrTooLarge_ShouldReject() {
+        // Given
+        SpotLayout empty = new SpotLayout();
+        SpotLayout huge = new SpotLayout();
+        huge.setFloors(100);
+        huge.setRows(1000);
+        huge.setSpotsPerRow(1000);
+
+        // When & Then
+        assertThatThrownBy(() -> spotImportService.generateLayout(empty)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> spotImportService.generateLayout(huge)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SpotCsvReader csv(String csv) {
+        return new SpotCsvReader(new BufferedReader(new StringReader(csv)));
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.reservation.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.dto.VehicleDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Local near-cache for parking-service and vehicle-service responses.
+// Cache.get(key, loader) is atomic per key, so concurrent misses for the same
+// id result in a single downstream call.
+@Component
+public class DownstreamCache implements MeterBinder {
+
+    private final Cache<Long, ParkingSpotDTO> parkingSpots;
+    private final Cache<Long, VehicleDTO> vehicles;
+
+    public DownstreamCache(@Value("${reservation.cache.parking-spots.max-size:10000}") long parkingSpotsMaxSize,
+                           @Value("${reservation.cache.parking-spots.ttl:30s}") Duration parkingSpotsTtl,
+                           @Value("${reservation.cache.vehicles.max-size:50000}") long vehiclesMaxSize,
+                           @Value("${reservation.cache.vehicles.ttl:10m}") Duration vehiclesTtl) {
+        this.parkingSpots = Caffeine.newBuilder()
+                .maximumSize(parkingSpotsMaxSize)
+                .expireAfterWrite(parkingSpotsTtl)
+                .recordStats()
+                .build();
+        this.vehicles = Caffeine.newBuilder()
+                .maximumSize(vehiclesMaxSize)
+                .expireAfterWrite(vehiclesTtl)
+                .recordStats()
+                .build();
+    }
+
+    public ParkingSpotDTO getParkingSpot(Long id, Function<Long, ParkingSpotDTO> loader) {
+        return parkingSpots.get(id, loader);
+    }
+
+    public Map<Long, ParkingSpotDTO> getParkingSpots(Collection<Long> ids,
+                                                     Function<Set<Long>, List<ParkingSpotDTO>> loader) {
+        return parkingSpots.getAll(ids, missing -> loader.apply(Set.copyOf(missing)).stream()
+                .collect(Collectors.toMap(ParkingSpotDTO::getId, Function.identity(), (a, b) -> a)));
+    }
+
+    public VehicleDTO getVehicle(Long id, Function<Long, VehicleDTO> loader) {
+        return vehicles.get(id, loader);
+    }
+
+    public Map<Long, VehicleDTO> getVehicles(Collection<Long> ids, Function<Set<Long>, List<VehicleDTO>> loader) {
+        return vehicles.getAll(ids, missing -> loader.apply(Set.copyOf(missing)).stream()
+                .collect(Collectors.toMap(VehicleDTO::getId, Function.identity(), (a, b) -> a)));
+    }
+
+    // Write-through after a status change made by this service. Prefers the
+    // response from parking-service; otherwise patches the cached copy, if any.
+    public void putParkingSpotStatus(Long id, String status, ParkingSpotDTO updated) {
+        if (updated != null && id.equals(updated.getId())) {
+            parkingSpots.put(id, updated);
+            return;
+        }
+        parkingSpots.asMap().computeIfPresent(id, (key, cached) ->
+                new ParkingSpotDTO(cached.getId(), cached.getNumber(), cached.getFloor(), status));
+    }
+
+    public void evictParkingSpot(Long id) {
+        parkingSpots.invalidate(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, parkingSpots, "parkingSpots");
+        CaffeineCacheMetrics.monitor(registry, vehicles, "vehicles");
+    }
+}
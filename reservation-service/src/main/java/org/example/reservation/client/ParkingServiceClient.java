@@ -2,19 +2,32 @@ package org.example.reservation.client;
 
 import org.example.reservation.dto.ParkingSpotDTO;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.Collection;
+import java.util.List;
+
 @FeignClient(name = "parking-service")
 public interface ParkingServiceClient {
     
     @GetMapping("/spots/{id}")
     ParkingSpotDTO getParkingSpot(@PathVariable Long id);
     
+    @GetMapping("/spots")
+    ResponseEntity<List<ParkingSpotDTO>> listParkingSpots(@RequestParam(value = "after", required = false) Long after,
+                                                          @RequestParam("limit") int limit);
+    
+    @GetMapping("/spots/batch")
+    List<ParkingSpotDTO> getParkingSpots(@RequestParam("ids") Collection<Long> ids);
+    
+    // Applied only while the spot still has the expected status; 409 otherwise.
     @PutMapping("/spots/{id}/status")
-    ParkingSpotDTO updateParkingSpotStatus(@PathVariable Long id, @RequestParam String status);
+    ParkingSpotDTO updateParkingSpotStatus(@PathVariable Long id, @RequestParam("status") String status,
+                                           @RequestParam(value = "expected", required = false) String expected);
 }
 
 
@@ -4,12 +4,19 @@ import org.example.reservation.dto.VehicleDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.List;
 
 @FeignClient(name = "vehicle-service")
 public interface VehicleServiceClient {
     
     @GetMapping("/vehicles/{id}")
     VehicleDTO getVehicle(@PathVariable Long id);
+    
+    @GetMapping("/vehicles/batch")
+    List<VehicleDTO> getVehicles(@RequestParam("ids") Collection<Long> ids);
 }
 
 
@@ -0,0 +1,33 @@
+package org.example.reservation.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class DownstreamConfig {
+
+    // Bounded pool for Feign calls to parking-service and vehicle-service.
+    // The SecurityContext of the submitting thread is copied onto the worker,
+    // so FeignConfig.requestInterceptor still finds the caller's JWT.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService downstreamExecutor(
+            @Value("${reservation.downstream.pool-size:32}") int poolSize,
+            @Value("${reservation.downstream.queue-capacity:256}") int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("downstream-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return new DelegatingSecurityContextExecutorService(executor);
+    }
+}
@@ -3,10 +3,14 @@ package org.example.reservation.config;
 import feign.RequestInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 
 @Configuration
@@ -15,7 +19,7 @@ public class FeignConfig {
     private static final Logger log = LoggerFactory.getLogger(FeignConfig.class);
 
     @Bean
-    public RequestInterceptor requestInterceptor() {
+    public RequestInterceptor requestInterceptor(ObjectProvider<OAuth2AuthorizedClientManager> serviceClients) {
         return requestTemplate -> {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             
@@ -25,6 +29,16 @@ public class FeignConfig {
                 String token = jwtAuth.getToken().getTokenValue();
                 requestTemplate.header("Authorization", "Bearer " + token);
                 log.debug("Feign Interceptor: Added Bearer token (length: {})", token.length());
+            } else if (serviceClients.getIfAvailable() != null) {
+                // Background work such as the outbox relay calls with the service's own token
+                OAuth2AuthorizedClient client = serviceClients.getObject().authorize(OAuth2AuthorizeRequest
+                        .withClientRegistrationId(ServiceClientConfig.REGISTRATION_ID)
+                        .principal(ServiceClientConfig.REGISTRATION_ID)
+                        .build());
+                if (client != null) {
+                    requestTemplate.header("Authorization", "Bearer " + client.getAccessToken().getTokenValue());
+                    log.debug("Feign Interceptor: Added service token");
+                }
             } else {
                 log.warn("Feign Interceptor: No JWT token found in SecurityContext! Auth type: {}", 
                     authentication != null ? authentication.getClass().getSimpleName() : "null");
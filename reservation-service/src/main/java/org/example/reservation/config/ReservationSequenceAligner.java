@@ -0,0 +1,52 @@
+package org.example.reservation.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.example.reservation.entity.Reservation;
+import org.example.reservation.entity.SpotStatusChange;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Rows created before ids moved from IDENTITY to pooled sequences keep their
+// ids; a new sequence starts at 1 and would collide with them. Moves each
+// sequence past the highest existing id once on startup, before
+// the web server starts taking requests.
+@Component
+@RequiredArgsConstructor
+public class ReservationSequenceAligner implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(ReservationSequenceAligner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        align();
+    }
+
+    public void align() {
+        align("reservations", Reservation.ID_SEQUENCE, Reservation.ID_ALLOCATION_SIZE);
+        align("spot_status_outbox", SpotStatusChange.ID_SEQUENCE, SpotStatusChange.ID_ALLOCATION_SIZE);
+    }
+
+    private void align(String table, String sequence, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        if (maxId == null) {
+            return;
+        }
+        String nextValue = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport()
+                .getSequenceNextValString(sequence);
+        Long next = jdbcTemplate.queryForObject(nextValue, Long.class);
+        // the pooled optimizer hands out the block just below each sequence value
+        if (next != null && next - allocationSize < maxId) {
+            long restart = maxId + allocationSize + 1;
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + restart);
+            log.warn("Sequence {} was behind max(id) {} of {}, restarted at {}", sequence, maxId, table, restart);
+        }
+    }
+}
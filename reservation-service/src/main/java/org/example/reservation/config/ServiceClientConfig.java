@@ -0,0 +1,28 @@
+package org.example.reservation.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+
+// Client-credentials token for calls made outside a user request.
+@Configuration
+@ConditionalOnProperty("spring.security.oauth2.client.registration." + ServiceClientConfig.REGISTRATION_ID + ".client-id")
+public class ServiceClientConfig {
+    static final String REGISTRATION_ID = "reservation-service";
+
+    @Bean
+    public OAuth2AuthorizedClientManager serviceClientManager(ClientRegistrationRepository clientRegistrations,
+                                                              OAuth2AuthorizedClientService authorizedClients) {
+        AuthorizedClientServiceOAuth2AuthorizedClientManager manager =
+                new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrations, authorizedClients);
+        manager.setAuthorizedClientProvider(OAuth2AuthorizedClientProviderBuilder.builder()
+                .clientCredentials()
+                .build());
+        return manager;
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.reservation.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.reservation.entity.IdempotencyRecord;
+import org.example.reservation.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Remembers responses of mutating requests by Idempotency-Key, so a retried
+// request gets the first response back instead of running again, whichever
+// instance it reaches. Keys live in the database: the first request with a
+// key inserts it, runs the action in the same transaction and stores the
+// response there too, so the write and its response commit or roll back
+// together. A duplicate arriving meanwhile blocks on the uncommitted key
+// and then replays the stored response. Failed requests leave no key, so a
+// retry can run again.
+@Component
+public class IdempotencyStore implements MeterBinder {
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 200;
+    private static final long POLL_MILLIS = 50;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration claimTimeout;
+    private final AtomicLong replayed = new AtomicLong();
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${reservation.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${reservation.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                            @Value("${reservation.idempotency.claim-timeout:10m}") Duration claimTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.claimTimeout = claimTimeout;
+    }
+
+    // The fingerprint identifies the request a key was first used for;
+    // reusing the key for anything else is rejected. The action joins the
+    // transaction the key is inserted in.
+    public <T> ResponseEntity<T> execute(String key, String fingerprint, Class<T> bodyType,
+                                         Supplier<ResponseEntity<T>> action) {
+        return execute(key, fingerprint, bodyType, action, false);
+    }
+
+    // For an action that commits in transactions of its own, like the bulk
+    // import. The key is committed first as a claim and the response stored
+    // once the action is done; duplicates wait for it as long as the wait
+    // timeout allows. A claim older than the claim timeout was left by a
+    // crashed instance and is taken over.
+    public <T> ResponseEntity<T> executeSelfCommitting(String key, String fingerprint, Class<T> bodyType,
+                                                       Supplier<ResponseEntity<T>> action) {
+        return execute(key, fingerprint, bodyType, action, true);
+    }
+
+    private <T> ResponseEntity<T> execute(String key, String fingerprint, Class<T> bodyType,
+                                          Supplier<ResponseEntity<T>> action, boolean selfCommitting) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = principal() + ":" + key;
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByIdempotencyKey(scopedKey);
+            if (existing.isEmpty()) {
+                try {
+                    return selfCommitting
+                            ? runSelfCommitting(scopedKey, fingerprint, action)
+                            : runInTransaction(scopedKey, fingerprint, action);
+                } catch (KeyTakenException e) {
+                    // another request inserted the key first; its outcome is read next
+                }
+            } else {
+                IdempotencyRecord record = existing.get();
+                if (!record.getFingerprint().equals(fingerprint)) {
+                    throw new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                            "Idempotency-Key " + key + " was already used for a different request");
+                }
+                if (record.getStatus() != null) {
+                    return replay(record, bodyType);
+                }
+                if (idempotencyRecordRepository.deleteAbandoned(record.getId(),
+                        LocalDateTime.now().minus(claimTimeout)) > 0) {
+                    continue;
+                }
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                        "Request with Idempotency-Key " + key + " is still in progress");
+            }
+            pause();
+        }
+    }
+
+    private <T> ResponseEntity<T> runInTransaction(String scopedKey, String fingerprint,
+                                                   Supplier<ResponseEntity<T>> action) {
+        return transactionTemplate.execute(status -> {
+            IdempotencyRecord record = claim(scopedKey, fingerprint);
+            ResponseEntity<T> response = action.get();
+            complete(record, response);
+            return response;
+        });
+    }
+
+    private <T> ResponseEntity<T> runSelfCommitting(String scopedKey, String fingerprint,
+                                                    Supplier<ResponseEntity<T>> action) {
+        IdempotencyRecord record = transactionTemplate.execute(status -> claim(scopedKey, fingerprint));
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.deleteById(record.getId());
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status -> complete(record, response));
+        return response;
+    }
+
+    // Waits for a concurrent uncommitted insert of the same key instead of
+    // failing, and fails once that one commits
+    private IdempotencyRecord claim(String scopedKey, String fingerprint) {
+        try {
+            return idempotencyRecordRepository.saveAndFlush(
+                    new IdempotencyRecord(null, scopedKey, fingerprint, null, null, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            throw new KeyTakenException();
+        }
+    }
+
+    private void complete(IdempotencyRecord record, ResponseEntity<?> response) {
+        record.setStatus(response.getStatusCode().value());
+        try {
+            record.setBody(response.getBody() != null ? objectMapper.writeValueAsString(response.getBody()) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        idempotencyRecordRepository.save(record);
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, Class<T> bodyType) {
+        T body;
+        try {
+            body = record.getBody() != null ? objectMapper.readValue(record.getBody(), bodyType) : null;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        replayed.incrementAndGet();
+        return ResponseEntity.status(record.getStatus())
+                .header(REPLAYED_HEADER, "true")
+                .body(body);
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.idempotency.cleanup-interval-ms:600000}")
+    public void expire() {
+        idempotencyRecordRepository.deleteExpired(LocalDateTime.now().minus(ttl));
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String principal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("reservation.idempotency.replayed", replayed, AtomicLong::get)
+                .description("Requests answered with the stored response of an earlier one")
+                .register(registry);
+    }
+
+    private static final class KeyTakenException extends RuntimeException {
+        private KeyTakenException() {
+            super(null, null, false, false);
+        }
+    }
+}
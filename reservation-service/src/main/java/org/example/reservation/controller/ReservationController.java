@@ -1,37 +1,139 @@
 package org.example.reservation.controller;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.example.reservation.dto.BulkImportReport;
+import org.example.reservation.dto.ChangeSet;
+import org.example.reservation.dto.CursorPage;
+import org.example.reservation.dto.ParkingSpotDTO;
 import org.example.reservation.dto.ReservationDetailsDTO;
+import org.example.reservation.dto.ReservationSearchCriteria;
 import org.example.reservation.entity.Reservation;
+import org.example.reservation.service.AvailabilityService;
+import org.example.reservation.service.InvalidRequestException;
+import org.example.reservation.service.ReservationConflictException;
+import org.example.reservation.service.ReservationImportService;
 import org.example.reservation.service.ReservationService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/reservations")
 @RequiredArgsConstructor
 public class ReservationController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_DETAILS_PAGE_SIZE = 200;
+
     private final ReservationService reservationService;
+    private final AvailabilityService availabilityService;
+    private final ReservationImportService reservationImportService;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<Reservation> getAllReservations() {
-        return reservationService.getAllReservations();
+    public ResponseEntity<List<Reservation>> getAllReservations(@RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) Integer limit) {
+        return page(reservationService.getAllReservations(after, limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllReservations() {
+        return ndjson(reservationService::streamAllReservations);
+    }
+
+    // Capped like /details/page; larger batches are split by the caller
+    @GetMapping("/details")
+    public List<ReservationDetailsDTO> getReservationDetailsBatch(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_DETAILS_PAGE_SIZE) {
+            throw new InvalidRequestException("At most " + MAX_DETAILS_PAGE_SIZE + " ids per request");
+        }
+        return reservationService.getReservationDetails(ids);
+    }
+
+    @GetMapping("/details/page")
+    public Page<ReservationDetailsDTO> getReservationDetailsPage(@RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        return reservationService.getReservationDetails(PageRequest.of(page, Math.min(size, MAX_DETAILS_PAGE_SIZE), Sort.by("id")));
+    }
+
+    @GetMapping("/availability")
+    public List<ParkingSpotDTO> getAvailableSpots(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer floor) {
+        return availabilityService.findFreeSpots(from, to, floor);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<Reservation>> searchReservations(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long parkingSpotId,
+            @RequestParam(required = false) Long vehicleId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        return page(reservationService.searchReservations(
+                new ReservationSearchCriteria(status, parkingSpotId, vehicleId, from, to), after, limit));
+    }
+
+    // Delta sync: pass the returned version as since on the next call
+    @GetMapping("/changes")
+    public ChangeSet<Reservation> getChanges(@RequestParam(required = false) Long since,
+                                             @RequestParam(defaultValue = "1000") int limit) {
+        return reservationService.getChanges(since, limit);
     }
 
+    // A matching If-None-Match is answered from the version alone
     @GetMapping("/{id}")
-    public ResponseEntity<Reservation> getReservationById(@PathVariable Long id) {
+    public ResponseEntity<Reservation> getReservationById(@PathVariable Long id, WebRequest request) {
+        Optional<Long> version = reservationService.getReservationVersion(id);
+        if (version.isPresent() && request.checkNotModified(etag(version.get()))) {
+            return null;
+        }
         return reservationService.getReservationById(id)
-                .map(ResponseEntity::ok)
+                .map(reservation -> ResponseEntity.ok().eTag(etag(reservation.getChangeVersion())).body(reservation))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -41,47 +143,220 @@ public class ReservationController {
     }
 
     @GetMapping("/parking-spot/{parkingSpotId}")
-    public List<Reservation> getReservationsByParkingSpot(@PathVariable Long parkingSpotId) {
-        return reservationService.getReservationsByParkingSpot(parkingSpotId);
+    public ResponseEntity<List<Reservation>> getReservationsByParkingSpot(@PathVariable Long parkingSpotId,
+                                                                          @RequestParam(required = false) Long after,
+                                                                          @RequestParam(required = false) Integer limit) {
+        return page(reservationService.getReservationsByParkingSpot(parkingSpotId, after, limit));
+    }
+
+    @GetMapping(value = "/parking-spot/{parkingSpotId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReservationsByParkingSpot(@PathVariable Long parkingSpotId) {
+        return ndjson(consumer -> reservationService.streamReservationsByParkingSpot(parkingSpotId, consumer));
     }
 
     @GetMapping("/vehicle/{vehicleId}")
-    public List<Reservation> getReservationsByVehicle(@PathVariable Long vehicleId) {
-        return reservationService.getReservationsByVehicle(vehicleId);
+    public ResponseEntity<List<Reservation>> getReservationsByVehicle(@PathVariable Long vehicleId,
+                                                                      @RequestParam(required = false) Long after,
+                                                                      @RequestParam(required = false) Integer limit) {
+        return page(reservationService.getReservationsByVehicle(vehicleId, after, limit));
+    }
+
+    @GetMapping(value = "/vehicle/{vehicleId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReservationsByVehicle(@PathVariable Long vehicleId) {
+        return ndjson(consumer -> reservationService.streamReservationsByVehicle(vehicleId, consumer));
     }
 
     @GetMapping("/status/{status}")
-    public List<Reservation> getReservationsByStatus(@PathVariable String status) {
-        return reservationService.getReservationsByStatus(status);
+    public ResponseEntity<List<Reservation>> getReservationsByStatus(@PathVariable String status,
+                                                                     @RequestParam(required = false) Long after,
+                                                                     @RequestParam(required = false) Integer limit) {
+        return page(reservationService.getReservationsByStatus(status, after, limit));
+    }
+
+    @GetMapping(value = "/status/{status}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReservationsByStatus(@PathVariable String status) {
+        return ndjson(consumer -> reservationService.streamReservationsByStatus(status, consumer));
     }
 
     @PostMapping
-    public Reservation createReservation(@RequestBody Reservation reservation) {
-        return reservationService.createReservation(reservation);
+    public ResponseEntity<Reservation> createReservation(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody Reservation reservation) {
+        return idempotencyStore.execute(idempotencyKey, fingerprint("POST /reservations", reservation),
+                Reservation.class, () -> ResponseEntity.ok(reservationService.createReservation(reservation)));
+    }
+
+    // Accepts a JSON array or NDJSON; both are read item by item, so the
+    // body is never materialized. With an idempotency key the items are
+    // first spooled to a temporary file as canonical NDJSON, so the whole
+    // body can be fingerprinted before anything is imported. Input that
+    // cannot be parsed ends the spool; the import then fails at the same
+    // item with the same error, as it would without a key.
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportReport> importReservations(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            InputStream body) throws IOException {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return importFrom(body);
+        }
+        Path spool = Files.createTempFile("reservations-bulk", ".ndjson");
+        try {
+            MessageDigest digest = sha256();
+            RuntimeException malformed = null;
+            try (MappingIterator<Reservation> reservations = objectMapper.readerFor(Reservation.class).readValues(body);
+                 OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(spool)), digest)) {
+                while (true) {
+                    Reservation reservation;
+                    try {
+                        if (!reservations.hasNext()) {
+                            break;
+                        }
+                        reservation = reservations.next();
+                    } catch (RuntimeException e) {
+                        malformed = e;
+                        break;
+                    }
+                    out.write(objectMapper.writeValueAsBytes(reservation));
+                    out.write('\n');
+                }
+            }
+            if (malformed != null) {
+                digest.update(String.valueOf(malformed.getMessage()).getBytes(StandardCharsets.UTF_8));
+            }
+            RuntimeException failure = malformed;
+            // the import commits chunk by chunk, so it cannot share the key's transaction
+            return idempotencyStore.executeSelfCommitting(idempotencyKey,
+                    "POST /reservations/bulk " + HexFormat.of().formatHex(digest.digest()), BulkImportReport.class,
+                    () -> {
+                        try (InputStream spooled = new BufferedInputStream(Files.newInputStream(spool))) {
+                            return importFrom(spooled, failure);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } finally {
+            Files.deleteIfExists(spool);
+        }
     }
 
     @PutMapping("/{id}")
-    public Reservation updateReservation(@PathVariable Long id, @RequestBody Reservation reservation) {
-        return reservationService.updateReservation(id, reservation);
+    public ResponseEntity<Reservation> updateReservation(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id, @RequestBody Reservation reservation) {
+        return idempotencyStore.execute(idempotencyKey, fingerprint("PUT /reservations/" + id, reservation),
+                Reservation.class, () -> ResponseEntity.ok(reservationService.updateReservation(id, reservation)));
     }
 
     @PatchMapping("/{id}/complete")
-    public Reservation completeReservation(@PathVariable Long id) {
-        return reservationService.completeReservation(id);
+    public ResponseEntity<Reservation> completeReservation(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id) {
+        return idempotencyStore.execute(idempotencyKey, "PATCH /reservations/" + id + "/complete", Reservation.class,
+                () -> ResponseEntity.ok(reservationService.completeReservation(id)));
     }
 
     @PatchMapping("/{id}/cancel")
-    public Reservation cancelReservation(@PathVariable Long id) {
-        return reservationService.cancelReservation(id);
+    public ResponseEntity<Reservation> cancelReservation(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id) {
+        return idempotencyStore.execute(idempotencyKey, "PATCH /reservations/" + id + "/cancel", Reservation.class,
+                () -> ResponseEntity.ok(reservationService.cancelReservation(id)));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteReservation(@PathVariable Long id) {
-        reservationService.deleteReservation(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Void> deleteReservation(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id) {
+        return idempotencyStore.execute(idempotencyKey, "DELETE /reservations/" + id, Void.class, () -> {
+            reservationService.deleteReservation(id);
+            return ResponseEntity.noContent().<Void>build();
+        });
+    }
+
+    @ExceptionHandler(ReservationConflictException.class)
+    public ResponseEntity<Reservation> handleConflict(ReservationConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getConflictingReservation());
+    }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<String> handleIdempotencyKey(IdempotencyKeyException e) {
+        return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<String> handleBadRequest(InvalidRequestException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private ResponseEntity<BulkImportReport> importFrom(InputStream body) {
+        return importFrom(body, null);
     }
-}
 
+    // A spooled body ends where its original failed to parse; malformed is
+    // rethrown there so the import reports it at the same item.
+    private ResponseEntity<BulkImportReport> importFrom(InputStream body, RuntimeException malformed) {
+        try (MappingIterator<Reservation> reservations = objectMapper.readerFor(Reservation.class).readValues(body)) {
+            Iterator<Reservation> items = malformed == null ? reservations : new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    if (!reservations.hasNext()) {
+                        throw malformed;
+                    }
+                    return true;
+                }
 
+                @Override
+                public Reservation next() {
+                    return reservations.next();
+                }
+            };
+            return ResponseEntity.ok(reservationImportService.importReservations(items));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The request line plus a SHA-256 of the body as Jackson writes it, so
+    // equal bodies match whatever their original formatting was
+    private String fingerprint(String request, Object body) {
+        try {
+            return request + " " + HexFormat.of().formatHex(sha256().digest(objectMapper.writeValueAsBytes(body)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
+    private ResponseEntity<List<Reservation>> page(CursorPage<Reservation> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext().toString());
+        }
+        return response.body(page.getItems());
+    }
+
+    private static String etag(long changeVersion) {
+        return "\"" + changeVersion + "\"";
+    }
 
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<Reservation>> source) {
+        StreamingResponseBody body = out -> source.accept(reservation -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(reservation));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.APPLICATION_NDJSON, StandardCharsets.UTF_8))
+                .body(body);
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportItem {
+    private int index;
+    private Long id;
+    private String result;
+    private String error;
+}
@@ -0,0 +1,16 @@
+package org.example.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportReport {
+    private int created;
+    private int rejected;
+    private List<BulkImportItem> items;
+}
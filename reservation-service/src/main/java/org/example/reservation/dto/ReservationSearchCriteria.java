@@ -0,0 +1,19 @@
+package org.example.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Every field is optional; from/to bound the reservation start time as [from, to).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationSearchCriteria {
+    private String status;
+    private Long parkingSpotId;
+    private Long vehicleId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
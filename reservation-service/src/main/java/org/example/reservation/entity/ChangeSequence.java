@@ -0,0 +1,22 @@
+package org.example.reservation.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Last change version handed out. The row is only locked for the short
+// transaction that steps it; see ChangeLog.
+@Entity
+@Table(name = "change_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeSequence {
+    @Id
+    private String name;
+
+    private long lastVersion;
+}
@@ -0,0 +1,53 @@
+package org.example.reservation.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+// An Idempotency-Key and the response its request got, shared by every
+// instance. A row without a status belongs to a request that is still
+// running.
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_key", columnNames = "idempotencyKey"),
+        indexes = @Index(name = "idx_idempotency_keys_created", columnList = "createdAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    public static final String ID_SEQUENCE = "idempotency_keys_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
+    // Principal and key, so two callers never share a key
+    @Column(nullable = false, length = 512)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 512)
+    private String fingerprint;
+
+    private Integer status;
+
+    // Response body as JSON
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String body;
+
+    private LocalDateTime createdAt;
+}
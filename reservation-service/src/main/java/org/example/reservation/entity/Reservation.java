@@ -2,23 +2,41 @@ package org.example.reservation.entity;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
-@Table(name = "reservations")
+// Each index leads with one equality filter of /reservations/search and ends
+// with its keyset (startTime, id), so a filtered page is a single range scan.
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_spot_start", columnList = "parkingSpotId, startTime, id"),
+        @Index(name = "idx_reservations_vehicle_start", columnList = "vehicleId, startTime, id"),
+        @Index(name = "idx_reservations_status_start", columnList = "status, startTime, id"),
+        @Index(name = "idx_reservations_start", columnList = "startTime, id"),
+        @Index(name = "idx_reservations_change_version", columnList = "changeVersion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Reservation {
+    public static final String ID_SEQUENCE = "reservations_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // A pooled sequence hands out ids in blocks, which keeps JDBC insert
+    // batching enabled (IDENTITY would force one round trip per row).
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     private Long parkingSpotId;
@@ -26,6 +44,16 @@ public class Reservation {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private String status;
+
+    // Position in the delta-sync change log; rows that predate it start at 0.
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long changeVersion;
+
+    public Reservation(Long id, Long parkingSpotId, Long vehicleId, LocalDateTime startTime, LocalDateTime endTime,
+                       String status) {
+        this(id, parkingSpotId, vehicleId, startTime, endTime, status, 0L);
+    }
 }
 
 
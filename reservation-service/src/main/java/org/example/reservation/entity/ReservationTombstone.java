@@ -0,0 +1,24 @@
+package org.example.reservation.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Records a deleted reservation so delta-sync clients learn about the delete.
+@Entity
+@Table(name = "reservation_tombstones", indexes = {
+        @Index(name = "idx_reservation_tombstones_change_version", columnList = "changeVersion")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationTombstone {
+    @Id
+    private Long reservationId;
+
+    private long changeVersion;
+}
@@ -0,0 +1,20 @@
+package org.example.reservation.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One row per parking spot; locked FOR UPDATE while a booking for that spot
+// is checked for overlaps and saved.
+@Entity
+@Table(name = "reservation_spot_locks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpotLock {
+    @Id
+    private Long parkingSpotId;
+}
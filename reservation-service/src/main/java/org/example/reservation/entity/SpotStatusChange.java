@@ -0,0 +1,42 @@
+package org.example.reservation.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outbox row: a parking spot status change written in the same transaction
+// as the reservation and delivered to parking-service by SpotStatusRelay.
+@Entity
+@Table(name = "spot_status_outbox", indexes = {
+        @Index(name = "idx_spot_status_outbox_next_attempt", columnList = "nextAttemptAt, id"),
+        @Index(name = "idx_spot_status_outbox_spot", columnList = "parkingSpotId, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpotStatusChange {
+    public static final String ID_SEQUENCE = "spot_status_outbox_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
+    private Long parkingSpotId;
+    private String status;
+    private LocalDateTime createdAt;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    // Lease of the relay delivering the row; null when no relay holds it
+    private LocalDateTime claimedUntil;
+}
@@ -1,18 +1,75 @@
 package org.example.reservation.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.reservation.entity.Reservation;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+public interface ReservationRepository extends JpaRepository<Reservation, Long>, ReservationSearchRepository {
     List<Reservation> findByParkingSpotId(Long parkingSpotId);
     List<Reservation> findByVehicleId(Long vehicleId);
     List<Reservation> findByStatus(String status);
-}
 
+    @Query("select r from Reservation r where r.parkingSpotId = :parkingSpotId and r.status = 'ACTIVE' "
+            + "and r.startTime < :endTime and r.endTime > :startTime and r.id <> :excludedId order by r.startTime")
+    List<Reservation> findOverlapping(Long parkingSpotId, LocalDateTime startTime, LocalDateTime endTime, Long excludedId);
+
+    @Query("select r from Reservation r where r.parkingSpotId in :parkingSpotIds and r.status = 'ACTIVE' "
+            + "and r.startTime < :endTime and r.endTime > :startTime")
+    List<Reservation> findOverlappingAny(Collection<Long> parkingSpotIds, LocalDateTime startTime, LocalDateTime endTime);
+
+    List<Reservation> findByIdGreaterThan(Long after, Pageable pageable);
+    List<Reservation> findByParkingSpotIdAndIdGreaterThan(Long parkingSpotId, Long after, Pageable pageable);
+    List<Reservation> findByVehicleIdAndIdGreaterThan(Long vehicleId, Long after, Pageable pageable);
+    List<Reservation> findByStatusAndIdGreaterThan(String status, Long after, Pageable pageable);
+    List<Reservation> findByChangeVersionBetween(long from, long to, Pageable pageable);
+
+    // Enough for a conditional GET, without loading the entity
+    @Query("select r.changeVersion from Reservation r where r.id = :id")
+    Optional<Long> findChangeVersionById(Long id);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Reservation> streamAllByOrderByIdAsc();
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Reservation> streamByParkingSpotIdOrderByIdAsc(Long parkingSpotId);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Reservation> streamByVehicleIdOrderByIdAsc(Long vehicleId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Reservation> streamByStatusOrderByIdAsc(String status);
+
+    // Rows that still carry the given change version, for the backfill
+    @Query("select r.id from Reservation r where r.changeVersion = :changeVersion order by r.id")
+    List<Long> findIdsByChangeVersion(long changeVersion, Pageable pageable);
+
+    // Only rows still without a version, so a concurrent backfill is not undone
+    @Modifying
+    @Query("update Reservation r set r.changeVersion = :changeVersion where r.id = :id and r.changeVersion = 0")
+    int updateChangeVersion(Long id, long changeVersion);
+}
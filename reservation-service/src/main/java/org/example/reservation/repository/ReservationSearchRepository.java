@@ -0,0 +1,12 @@
+package org.example.reservation.repository;
+
+import org.example.reservation.dto.ReservationSearchCriteria;
+import org.example.reservation.entity.Reservation;
+
+import java.util.List;
+
+public interface ReservationSearchRepository {
+    // Returns up to limit rows ordered by (startTime, id), strictly after the
+    // given keyset position when one is passed.
+    List<Reservation> search(ReservationSearchCriteria criteria, Reservation after, int limit);
+}
@@ -0,0 +1,61 @@
+package org.example.reservation.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.example.reservation.dto.ReservationSearchCriteria;
+import org.example.reservation.entity.Reservation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only the filters that are set end up in the SQL. Catch-all predicates like
+// "(:status is null or status = :status)" would keep the planner from using
+// the composite indexes on the reservations table.
+@RequiredArgsConstructor
+public class ReservationSearchRepositoryImpl implements ReservationSearchRepository {
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Reservation> search(ReservationSearchCriteria criteria, Reservation after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Reservation> query = cb.createQuery(Reservation.class);
+        Root<Reservation> reservation = query.from(Reservation.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getStatus() != null) {
+            predicates.add(cb.equal(reservation.get("status"), criteria.getStatus()));
+        }
+        if (criteria.getParkingSpotId() != null) {
+            predicates.add(cb.equal(reservation.get("parkingSpotId"), criteria.getParkingSpotId()));
+        }
+        if (criteria.getVehicleId() != null) {
+            predicates.add(cb.equal(reservation.get("vehicleId"), criteria.getVehicleId()));
+        }
+        if (criteria.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(reservation.<LocalDateTime>get("startTime"), criteria.getFrom()));
+        }
+        if (criteria.getTo() != null) {
+            predicates.add(cb.lessThan(reservation.<LocalDateTime>get("startTime"), criteria.getTo()));
+        }
+        if (after != null) {
+            // (startTime, id) > (after.startTime, after.id), spelled out so the
+            // leading startTime bound stays usable as an index range
+            predicates.add(cb.greaterThanOrEqualTo(reservation.<LocalDateTime>get("startTime"), after.getStartTime()));
+            predicates.add(cb.or(
+                    cb.greaterThan(reservation.<LocalDateTime>get("startTime"), after.getStartTime()),
+                    cb.greaterThan(reservation.<Long>get("id"), after.getId())));
+        }
+
+        query.select(reservation)
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.asc(reservation.get("startTime")), cb.asc(reservation.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
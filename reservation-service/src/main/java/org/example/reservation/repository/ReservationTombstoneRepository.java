@@ -0,0 +1,13 @@
+package org.example.reservation.repository;
+
+import org.example.reservation.entity.ReservationTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReservationTombstoneRepository extends JpaRepository<ReservationTombstone, Long> {
+    List<ReservationTombstone> findByChangeVersionBetween(long from, long to, Pageable pageable);
+}
@@ -0,0 +1,30 @@
+package org.example.reservation.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.reservation.entity.SpotLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SpotLockRepository extends JpaRepository<SpotLock, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from SpotLock l where l.parkingSpotId = :parkingSpotId")
+    Optional<SpotLock> lockByParkingSpotId(Long parkingSpotId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from SpotLock l where l.parkingSpotId in :parkingSpotIds order by l.parkingSpotId")
+    List<SpotLock> lockAllByParkingSpotIdIn(Collection<Long> parkingSpotIds);
+
+    // Waits for a concurrent uncommitted insert of the same spot instead of failing
+    @Modifying
+    @Query(value = "insert into reservation_spot_locks (parking_spot_id) values (:parkingSpotId) on conflict do nothing",
+            nativeQuery = true)
+    void insertIfAbsent(Long parkingSpotId);
+}
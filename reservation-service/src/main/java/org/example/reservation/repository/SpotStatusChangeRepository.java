@@ -0,0 +1,48 @@
+package org.example.reservation.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.example.reservation.entity.SpotStatusChange;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SpotStatusChangeRepository extends JpaRepository<SpotStatusChange, Long> {
+    // The oldest row of every spot that has a due change and no lease. A
+    // spot is claimed through this one row: a relay claiming it right now
+    // holds its row lock, so FOR UPDATE SKIP LOCKED passes the spot over
+    // even before the lease is committed, and newer rows of the spot are
+    // never claimed on their own.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    @Query("select c from SpotStatusChange c "
+            + "where c.id in (select min(h.id) from SpotStatusChange h group by h.parkingSpotId) "
+            + "and exists (select d.id from SpotStatusChange d "
+            + "where d.parkingSpotId = c.parkingSpotId and d.nextAttemptAt <= :now) "
+            + "and not exists (select l.id from SpotStatusChange l "
+            + "where l.parkingSpotId = c.parkingSpotId and l.claimedUntil > :now) "
+            + "order by c.id")
+    List<SpotStatusChange> findClaimable(LocalDateTime now, Pageable pageable);
+
+    List<SpotStatusChange> findByParkingSpotIdInOrderByIdAsc(Collection<Long> parkingSpotIds);
+
+    Optional<SpotStatusChange> findFirstByOrderByIdAsc();
+
+    // Older changes of the spot are superseded by the one just delivered
+    @Transactional
+    @Modifying
+    @Query("delete from SpotStatusChange c where c.parkingSpotId = :parkingSpotId and c.id <= :id")
+    int deleteDelivered(Long parkingSpotId, Long id);
+}
@@ -0,0 +1,344 @@
+package org.example.reservation.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.entity.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// In-memory index of ACTIVE reservations for "which spots are free between
+// T1 and T2" queries. Every spot gets a dense bit position; each time slot
+// keeps a BitSet of the spots that have a booking touching it. A query ORs
+// the slots of the window: fully covered slots mark spots busy outright,
+// only spots seen in the two partially covered edge slots are checked
+// against their exact bookings. Bookings longer than maxIndexedSlots are
+// kept as intervals only, so their size does not grow with their length;
+// spots holding one are checked exactly like the edge slots.
+@Component
+public class AvailabilityIndex implements MeterBinder {
+
+    private final long slotSeconds;
+    private final int maxIndexedSlots;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private State state = new State();
+    private Map<Long, ParkingSpotDTO> spots = Map.of();
+    private Map<Integer, BitSet> floors = Map.of();
+    private BitSet allSpots = new BitSet();
+
+    // Changes applied while a rebuild is loading rows; replayed onto the new state.
+    private List<Consumer<State>> pending;
+
+    public AvailabilityIndex(@Value("${reservation.availability.slot:15m}") Duration slot,
+                             @Value("${reservation.availability.max-indexed-slots:96}") int maxIndexedSlots) {
+        this.slotSeconds = slot.toSeconds();
+        this.maxIndexedSlots = maxIndexedSlots;
+    }
+
+    public List<ParkingSpotDTO> findFreeSpots(LocalDateTime from, LocalDateTime to, Integer floor) {
+        if (!to.isAfter(from)) {
+            throw new InvalidRequestException("Availability window end must be after its start");
+        }
+        lock.readLock().lock();
+        try {
+            BitSet candidates = (BitSet) (floor != null ? floors.getOrDefault(floor, new BitSet()) : allSpots).clone();
+            BitSet edge = new BitSet();
+            long first = slotOf(from);
+            long last = slotOf(to.minusNanos(1));
+            for (Map.Entry<Long, BitSet> slot : state.slots.subMap(first, true, last, true).entrySet()) {
+                long index = slot.getKey();
+                if (!slotStart(index).isBefore(from) && !slotStart(index + 1).isAfter(to)) {
+                    candidates.andNot(slot.getValue());
+                } else {
+                    edge.or(slot.getValue());
+                }
+            }
+            edge.or(state.longSpots);
+            edge.and(candidates);
+            for (int i = edge.nextSetBit(0); i >= 0; i = edge.nextSetBit(i + 1)) {
+                if (state.overlaps(state.spotIds.get(i), from, to)) {
+                    candidates.clear(i);
+                }
+            }
+            List<ParkingSpotDTO> free = new ArrayList<>(candidates.cardinality());
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                free.add(spots.get(state.spotIds.get(i)));
+            }
+            free.sort(Comparator.comparing(ParkingSpotDTO::getId));
+            return free;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Applied once the surrounding transaction commits, so a rolled back
+    // booking never shows up as taken.
+    public void apply(Reservation reservation) {
+        if (!"ACTIVE".equals(reservation.getStatus())) {
+            remove(reservation.getId());
+            return;
+        }
+        Booking booking = Booking.of(reservation);
+        afterCommit(() -> change(state -> state.put(booking)));
+    }
+
+    public void applyAll(Collection<Reservation> reservations) {
+        List<Reservation> snapshot = List.copyOf(reservations);
+        List<Booking> active = snapshot.stream()
+                .filter(reservation -> "ACTIVE".equals(reservation.getStatus()))
+                .map(Booking::of)
+                .toList();
+        List<Long> inactive = snapshot.stream()
+                .filter(reservation -> !"ACTIVE".equals(reservation.getStatus()))
+                .map(Reservation::getId)
+                .toList();
+        afterCommit(() -> change(state -> {
+            inactive.forEach(state::remove);
+            active.forEach(state::put);
+        }));
+    }
+
+    public void remove(Long reservationId) {
+        afterCommit(() -> change(state -> state.remove(reservationId)));
+    }
+
+    public void replaceSpots(List<ParkingSpotDTO> catalog) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, ParkingSpotDTO> byId = new HashMap<>();
+            Map<Integer, BitSet> byFloor = new HashMap<>();
+            BitSet all = new BitSet();
+            for (ParkingSpotDTO spot : catalog) {
+                int index = state.indexOf(spot.getId());
+                byId.put(spot.getId(), spot);
+                byFloor.computeIfAbsent(spot.getFloor(), floor -> new BitSet()).set(index);
+                all.set(index);
+            }
+            spots = byId;
+            floors = byFloor;
+            allSpots = all;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Loads bookings into a fresh state without blocking queries, then swaps
+    // it in together with any changes that happened meanwhile.
+    public int rebuild(Stream<Reservation> activeReservations) {
+        setPending(new ArrayList<>());
+        State fresh = new State();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            activeReservations.map(Booking::of)
+                    .filter(booking -> booking.active() && booking.end().isAfter(now))
+                    .forEach(fresh::put);
+        } catch (RuntimeException e) {
+            setPending(null);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            pending.forEach(change -> change.accept(fresh));
+            pending = null;
+            state = fresh;
+            // bit positions belong to the old state, so the spot masks are rebuilt
+            replaceSpots(List.copyOf(spots.values()));
+            return fresh.bookings.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean hasSpots() {
+        lock.readLock().lock();
+        try {
+            return !spots.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int bookingCount() {
+        lock.readLock().lock();
+        try {
+            return state.bookings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("reservation.availability.bookings", this, AvailabilityIndex::bookingCount)
+                .description("ACTIVE reservations held in the availability index")
+                .register(registry);
+        Gauge.builder("reservation.availability.spots", this, AvailabilityIndex::spotCount)
+                .description("Parking spots known to the availability index")
+                .register(registry);
+    }
+
+    private int spotCount() {
+        lock.readLock().lock();
+        try {
+            return spots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void change(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(state);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setPending(List<Consumer<State>> changes) {
+        lock.writeLock().lock();
+        try {
+            pending = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private long slotOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), slotSeconds);
+    }
+
+    private LocalDateTime slotStart(long slot) {
+        return LocalDateTime.ofEpochSecond(slot * slotSeconds, 0, ZoneOffset.UTC);
+    }
+
+    private record Booking(Long reservationId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        static Booking of(Reservation reservation) {
+            return new Booking(reservation.getId(), reservation.getParkingSpotId(),
+                    reservation.getStartTime(), reservation.getEndTime());
+        }
+
+        boolean active() {
+            return start != null && end != null && end.isAfter(start);
+        }
+    }
+
+    private class State {
+        private final Map<Long, Booking> bookings = new HashMap<>();
+        private final Map<Long, NavigableSet<Booking>> timelines = new HashMap<>();
+        private final TreeMap<Long, BitSet> slots = new TreeMap<>();
+        private final Map<Long, Integer> spotIndexes = new HashMap<>();
+        private final List<Long> spotIds = new ArrayList<>();
+        // Spots holding a booking too long for the slots, by number of such bookings
+        private final Map<Long, Integer> longBookings = new HashMap<>();
+        private final BitSet longSpots = new BitSet();
+
+        int indexOf(Long spotId) {
+            return spotIndexes.computeIfAbsent(spotId, id -> {
+                spotIds.add(id);
+                return spotIds.size() - 1;
+            });
+        }
+
+        void put(Booking booking) {
+            remove(booking.reservationId());
+            if (!booking.active()) {
+                return;
+            }
+            bookings.put(booking.reservationId(), booking);
+            timelines.computeIfAbsent(booking.spotId(), id -> new TreeSet<>(
+                    Comparator.comparing(Booking::start).thenComparing(Booking::reservationId))).add(booking);
+            int index = indexOf(booking.spotId());
+            if (isLong(booking)) {
+                longBookings.merge(booking.spotId(), 1, Integer::sum);
+                longSpots.set(index);
+                return;
+            }
+            for (long slot = slotOf(booking.start()); slot <= slotOf(booking.end().minusNanos(1)); slot++) {
+                slots.computeIfAbsent(slot, key -> new BitSet()).set(index);
+            }
+        }
+
+        void remove(Long reservationId) {
+            Booking booking = bookings.remove(reservationId);
+            if (booking == null) {
+                return;
+            }
+            NavigableSet<Booking> timeline = timelines.get(booking.spotId());
+            timeline.remove(booking);
+            if (timeline.isEmpty()) {
+                timelines.remove(booking.spotId());
+            }
+            int index = indexOf(booking.spotId());
+            if (isLong(booking)) {
+                if (longBookings.merge(booking.spotId(), -1, Integer::sum) == 0) {
+                    longBookings.remove(booking.spotId());
+                    longSpots.clear(index);
+                }
+                return;
+            }
+            for (long slot = slotOf(booking.start()); slot <= slotOf(booking.end().minusNanos(1)); slot++) {
+                // another booking of the same spot may share an edge slot
+                if (!overlaps(booking.spotId(), slotStart(slot), slotStart(slot + 1))) {
+                    BitSet bits = slots.get(slot);
+                    bits.clear(index);
+                    if (bits.isEmpty()) {
+                        slots.remove(slot);
+                    }
+                }
+            }
+        }
+
+        private boolean isLong(Booking booking) {
+            return slotOf(booking.end().minusNanos(1)) - slotOf(booking.start()) >= maxIndexedSlots;
+        }
+
+        // ACTIVE bookings of one spot never overlap, so the latest booking
+        // starting before the window end is the only one that can reach into it.
+        boolean overlaps(Long spotId, LocalDateTime from, LocalDateTime to) {
+            NavigableSet<Booking> timeline = timelines.get(spotId);
+            if (timeline == null) {
+                return false;
+            }
+            Booking latest = timeline.lower(new Booking(Long.MIN_VALUE, spotId, to, to));
+            return latest != null && latest.end().isAfter(from);
+        }
+    }
+}
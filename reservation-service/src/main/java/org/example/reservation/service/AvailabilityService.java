@@ -0,0 +1,74 @@
+package org.example.reservation.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.example.reservation.client.ParkingServiceClient;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class AvailabilityService {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityService.class);
+    private static final int CATALOG_PAGE_SIZE = 1000;
+
+    private final AvailabilityIndex availabilityIndex;
+    private final ReservationRepository reservationRepository;
+    private final ParkingServiceClient parkingServiceClient;
+    private final EntityManager entityManager;
+
+    @Value("${reservation.availability.catalog-ttl:5m}")
+    private Duration catalogTtl = Duration.ofMinutes(5);
+
+    private volatile long catalogLoadedAt;
+
+    public List<ParkingSpotDTO> findFreeSpots(LocalDateTime from, LocalDateTime to, Integer floor) {
+        if (!availabilityIndex.hasSpots() || System.nanoTime() - catalogLoadedAt > catalogTtl.toNanos()) {
+            refreshCatalog();
+        }
+        return availabilityIndex.findFreeSpots(from, to, floor);
+    }
+
+    // Spot numbers and floors come from parking-service and change rarely;
+    // the call runs on a request thread so the caller's JWT is forwarded.
+    public synchronized void refreshCatalog() {
+        if (availabilityIndex.hasSpots() && System.nanoTime() - catalogLoadedAt <= catalogTtl.toNanos()) {
+            return;
+        }
+        List<ParkingSpotDTO> catalog = new ArrayList<>();
+        Long after = null;
+        do {
+            ResponseEntity<List<ParkingSpotDTO>> page = parkingServiceClient.listParkingSpots(after, CATALOG_PAGE_SIZE);
+            if (page.getBody() != null) {
+                catalog.addAll(page.getBody());
+            }
+            String next = page.getHeaders().getFirst(NEXT_CURSOR_HEADER);
+            after = next != null ? Long.valueOf(next) : null;
+        } while (after != null);
+        availabilityIndex.replaceSpots(catalog);
+        catalogLoadedAt = System.nanoTime();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long started = System.nanoTime();
+        int bookings = availabilityIndex.rebuild(reservationRepository.streamByStatusOrderByIdAsc("ACTIVE")
+                .peek(entityManager::detach));
+        log.info("Availability index rebuilt with {} bookings in {} ms", bookings, (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.reservation.service;
+
+// Input a caller sent that cannot be used as it is; answered with 400
+public class InvalidRequestException extends IllegalArgumentException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.reservation.service;
+
+import lombok.Getter;
+import org.example.reservation.entity.Reservation;
+
+@Getter
+public class ReservationConflictException extends RuntimeException {
+    private final Reservation conflictingReservation;
+
+    public ReservationConflictException(Reservation conflictingReservation) {
+        super("Parking spot " + conflictingReservation.getParkingSpotId()
+                + " is already reserved by reservation " + conflictingReservation.getId());
+        this.conflictingReservation = conflictingReservation;
+    }
+}
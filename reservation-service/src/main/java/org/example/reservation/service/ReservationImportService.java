@@ -0,0 +1,211 @@
+package org.example.reservation.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.reservation.dto.BulkImportItem;
+import org.example.reservation.dto.BulkImportReport;
+import org.example.reservation.entity.Reservation;
+import org.example.reservation.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Imports reservations in chunks. Each chunk is validated against the
+// database and against itself, then written in one transaction so Hibernate
+// can send the inserts as JDBC batches. A failed item is reported and
+// skipped; it never rolls back the rest of its chunk.
+@Service
+public class ReservationImportService {
+    static final String CREATED = "CREATED";
+    static final String REJECTED = "REJECTED";
+
+    private final ReservationRepository reservationRepository;
+    private final SpotLockService spotLockService;
+    private final SpotStatusOutbox spotStatusOutbox;
+    private final AvailabilityIndex availabilityIndex;
+    private final ChangeLog changeLog;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public ReservationImportService(ReservationRepository reservationRepository,
+                                    SpotLockService spotLockService,
+                                    SpotStatusOutbox spotStatusOutbox,
+                                    AvailabilityIndex availabilityIndex,
+                                    ChangeLog changeLog,
+                                    EntityManager entityManager,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${reservation.bulk.chunk-size:500}") int chunkSize) {
+        this.reservationRepository = reservationRepository;
+        this.spotLockService = spotLockService;
+        this.spotStatusOutbox = spotStatusOutbox;
+        this.availabilityIndex = availabilityIndex;
+        this.changeLog = changeLog;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    // Reads lazily, so a streamed request body is never held in memory as a
+    // whole. Input that cannot be parsed ends the import at that item.
+    public BulkImportReport importReservations(Iterator<Reservation> reservations) {
+        List<BulkImportItem> items = new ArrayList<>();
+        List<Reservation> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (true) {
+            Reservation reservation;
+            try {
+                if (!reservations.hasNext()) {
+                    break;
+                }
+                reservation = reservations.next();
+            } catch (RuntimeException e) {
+                importChunk(index - chunk.size(), chunk, items);
+                items.add(new BulkImportItem(index, null, REJECTED, "Malformed input: " + e.getMessage()));
+                return report(items);
+            }
+            chunk.add(reservation);
+            index++;
+            if (chunk.size() == chunkSize) {
+                importChunk(index - chunk.size(), chunk, items);
+                chunk.clear();
+            }
+        }
+        importChunk(index - chunk.size(), chunk, items);
+        return report(items);
+    }
+
+    private void importChunk(int offset, List<Reservation> chunk, List<BulkImportItem> items) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BulkImportItem[] results = new BulkImportItem[chunk.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeChunk(offset, chunk, results));
+        } catch (RuntimeException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                if (results[i] == null || CREATED.equals(results[i].getResult())) {
+                    results[i] = new BulkImportItem(offset + i, null, REJECTED, e.getMessage());
+                }
+            }
+        } finally {
+            entityManager.clear();
+        }
+        items.addAll(List.of(results));
+    }
+
+    private void writeChunk(int offset, List<Reservation> chunk, BulkImportItem[] results) {
+        List<Reservation> valid = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = validate(chunk.get(i));
+            if (error != null) {
+                results[i] = new BulkImportItem(offset + i, null, REJECTED, error);
+            } else {
+                valid.add(chunk.get(i));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        TreeSet<Long> spotIds = new TreeSet<>();
+        valid.forEach(reservation -> spotIds.add(reservation.getParkingSpotId()));
+        spotLockService.lockAll(spotIds);
+
+        LocalDateTime from = valid.stream().map(Reservation::getStartTime).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime to = valid.stream().map(Reservation::getEndTime).max(Comparator.naturalOrder()).orElseThrow();
+        Map<Long, TreeMap<LocalDateTime, Booked>> timelines = new HashMap<>();
+        reservationRepository.findOverlappingAny(spotIds, from, to)
+                .forEach(existing -> timeline(timelines, existing).put(existing.getStartTime(),
+                        new Booked(existing.getEndTime(), "reservation " + existing.getId())));
+
+        List<Reservation> accepted = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            Reservation reservation = chunk.get(i);
+            TreeMap<LocalDateTime, Booked> timeline = timeline(timelines, reservation);
+            Booked conflict = conflict(timeline, reservation);
+            if (conflict != null) {
+                results[i] = new BulkImportItem(offset + i, null, REJECTED, "Overlaps " + conflict.owner());
+                continue;
+            }
+            timeline.put(reservation.getStartTime(), new Booked(reservation.getEndTime(), "item " + (offset + i)));
+            reservation.setId(null);
+            reservation.setStatus("ACTIVE");
+            accepted.add(reservation);
+            positions.add(i);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        long version = changeLog.reserve(accepted.size());
+        for (Reservation reservation : accepted) {
+            reservation.setChangeVersion(version++);
+        }
+        reservationRepository.saveAll(accepted);
+        entityManager.flush();
+        spotStatusOutbox.enqueueAll(accepted.stream().map(Reservation::getParkingSpotId).distinct().toList(), "OCCUPIED");
+        availabilityIndex.applyAll(accepted);
+        for (int i = 0; i < accepted.size(); i++) {
+            int position = positions.get(i);
+            results[position] = new BulkImportItem(offset + position, accepted.get(i).getId(), CREATED, null);
+        }
+    }
+
+    private static String validate(Reservation reservation) {
+        if (reservation == null) {
+            return "Reservation is missing";
+        }
+        if (reservation.getParkingSpotId() == null) {
+            return "Parking spot is required";
+        }
+        if (reservation.getVehicleId() == null) {
+            return "Vehicle is required";
+        }
+        if (reservation.getStartTime() == null || reservation.getEndTime() == null
+                || !reservation.getEndTime().isAfter(reservation.getStartTime())) {
+            return "Reservation end time must be after start time";
+        }
+        if (reservation.getEndTime().isAfter(reservation.getStartTime().plus(ReservationService.MAX_RESERVATION_LENGTH))) {
+            return "Reservation cannot be longer than 30 days";
+        }
+        return null;
+    }
+
+    private static TreeMap<LocalDateTime, Booked> timeline(Map<Long, TreeMap<LocalDateTime, Booked>> timelines,
+                                                                Reservation reservation) {
+        return timelines.computeIfAbsent(reservation.getParkingSpotId(), id -> new TreeMap<>());
+    }
+
+    // Bookings on one timeline never overlap each other, so only the latest
+    // one starting before the candidate ends can reach into it.
+    private static Booked conflict(TreeMap<LocalDateTime, Booked> timeline, Reservation candidate) {
+        Entry<LocalDateTime, Booked> latest = timeline.lowerEntry(candidate.getEndTime());
+        return latest != null && latest.getValue().end().isAfter(candidate.getStartTime())
+                ? latest.getValue()
+                : null;
+    }
+
+    private static BulkImportReport report(List<BulkImportItem> items) {
+        int created = (int) items.stream().filter(item -> CREATED.equals(item.getResult())).count();
+        return new BulkImportReport(created, items.size() - created, items);
+    }
+
+    private record Booked(LocalDateTime end, String owner) {
+    }
+}
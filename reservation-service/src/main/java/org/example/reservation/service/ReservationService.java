@@ -1,61 +1,229 @@
 package org.example.reservation.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.example.reservation.client.DownstreamCache;
+import org.example.reservation.client.DownstreamCalls;
 import org.example.reservation.client.ParkingServiceClient;
 import org.example.reservation.client.VehicleServiceClient;
+import org.example.reservation.dto.ChangeSet;
+import org.example.reservation.dto.CursorPage;
 import org.example.reservation.dto.ParkingSpotDTO;
 import org.example.reservation.dto.ReservationDetailsDTO;
+import org.example.reservation.dto.ReservationSearchCriteria;
 import org.example.reservation.dto.VehicleDTO;
 import org.example.reservation.entity.Reservation;
+import org.example.reservation.entity.ReservationTombstone;
 import org.example.reservation.repository.ReservationRepository;
+import org.example.reservation.repository.ReservationTombstoneRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ReservationService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    static final Duration MAX_RESERVATION_LENGTH = Duration.ofDays(30);
+
     private final ReservationRepository reservationRepository;
     private final ParkingServiceClient parkingServiceClient;
     private final VehicleServiceClient vehicleServiceClient;
+    private final DownstreamCalls downstreamCalls;
+    private final DownstreamCache downstreamCache;
+    private final EntityManager entityManager;
+    private final SpotLockService spotLockService;
+    private final AvailabilityIndex availabilityIndex;
+    private final SpotStatusOutbox spotStatusOutbox;
+    private final ReservationTombstoneRepository reservationTombstoneRepository;
+    private final ChangeLog changeLog;
+
+    // Without a cursor or a limit the lists answer with every row, as they
+    // did before paging; existing callers rely on it
+    public CursorPage<Reservation> getAllReservations(Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(reservationRepository.findAll(), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(reservationRepository.findByIdGreaterThan(cursor(after), keyset(size)),
+                size, Reservation::getId);
+    }
 
-    public List<Reservation> getAllReservations() {
-        return reservationRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllReservations(Consumer<Reservation> consumer) {
+        stream(reservationRepository.streamAllByOrderByIdAsc(), consumer);
     }
 
     public Optional<Reservation> getReservationById(Long id) {
         return reservationRepository.findById(id);
     }
 
+    // ETag source for a single reservation
+    public Optional<Long> getReservationVersion(Long id) {
+        return reservationRepository.findChangeVersionById(id);
+    }
+
     public ReservationDetailsDTO getReservationDetails(Long id) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reservation not found"));
         
-        ParkingSpotDTO parkingSpot = parkingServiceClient.getParkingSpot(reservation.getParkingSpotId());
-        VehicleDTO vehicle = vehicleServiceClient.getVehicle(reservation.getVehicleId());
+        CompletableFuture<ParkingSpotDTO> parkingSpot = downstreamCalls.submit(
+                () -> downstreamCache.getParkingSpot(reservation.getParkingSpotId(), parkingServiceClient::getParkingSpot));
+        CompletableFuture<VehicleDTO> vehicle = downstreamCalls.submit(
+                () -> downstreamCache.getVehicle(reservation.getVehicleId(), vehicleServiceClient::getVehicle));
         
-        return new ReservationDetailsDTO(reservation, parkingSpot, vehicle);
+        return new ReservationDetailsDTO(reservation, downstreamCalls.await(parkingSpot), downstreamCalls.await(vehicle));
+    }
+
+    public List<ReservationDetailsDTO> getReservationDetails(Collection<Long> ids) {
+        Map<Long, Reservation> reservationsById = reservationRepository.findAllById(new LinkedHashSet<>(ids)).stream()
+                .collect(Collectors.toMap(Reservation::getId, Function.identity()));
+        List<Reservation> reservations = ids.stream()
+                .distinct()
+                .map(reservationsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return toDetails(reservations);
+    }
+
+    public Page<ReservationDetailsDTO> getReservationDetails(Pageable pageable) {
+        Page<Reservation> page = reservationRepository.findAll(pageable);
+        return new PageImpl<>(toDetails(page.getContent()), pageable, page.getTotalElements());
+    }
+
+    private List<ReservationDetailsDTO> toDetails(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> parkingSpotIds = reservations.stream()
+                .map(Reservation::getParkingSpotId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<Long> vehicleIds = reservations.stream()
+                .map(Reservation::getVehicleId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        CompletableFuture<Map<Long, ParkingSpotDTO>> parkingSpots = downstreamCalls.submit(
+                () -> downstreamCache.getParkingSpots(parkingSpotIds, parkingServiceClient::getParkingSpots));
+        CompletableFuture<Map<Long, VehicleDTO>> vehicles = downstreamCalls.submit(
+                () -> downstreamCache.getVehicles(vehicleIds, vehicleServiceClient::getVehicles));
+
+        Map<Long, ParkingSpotDTO> parkingSpotsById = downstreamCalls.await(parkingSpots);
+        Map<Long, VehicleDTO> vehiclesById = downstreamCalls.await(vehicles);
+
+        return reservations.stream()
+                .map(reservation -> new ReservationDetailsDTO(reservation,
+                        parkingSpotsById.get(reservation.getParkingSpotId()),
+                        vehiclesById.get(reservation.getVehicleId())))
+                .toList();
+    }
+
+    public CursorPage<Reservation> getReservationsByParkingSpot(Long parkingSpotId, Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(reservationRepository.findByParkingSpotId(parkingSpotId), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(reservationRepository.findByParkingSpotIdAndIdGreaterThan(parkingSpotId, cursor(after), keyset(size)),
+                size, Reservation::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamReservationsByParkingSpot(Long parkingSpotId, Consumer<Reservation> consumer) {
+        stream(reservationRepository.streamByParkingSpotIdOrderByIdAsc(parkingSpotId), consumer);
+    }
+
+    public CursorPage<Reservation> getReservationsByVehicle(Long vehicleId, Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(reservationRepository.findByVehicleId(vehicleId), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(reservationRepository.findByVehicleIdAndIdGreaterThan(vehicleId, cursor(after), keyset(size)),
+                size, Reservation::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamReservationsByVehicle(Long vehicleId, Consumer<Reservation> consumer) {
+        stream(reservationRepository.streamByVehicleIdOrderByIdAsc(vehicleId), consumer);
     }
 
-    public List<Reservation> getReservationsByParkingSpot(Long parkingSpotId) {
-        return reservationRepository.findByParkingSpotId(parkingSpotId);
+    public CursorPage<Reservation> getReservationsByStatus(String status, Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(reservationRepository.findByStatus(status), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(reservationRepository.findByStatusAndIdGreaterThan(status, cursor(after), keyset(size)),
+                size, Reservation::getId);
     }
 
-    public List<Reservation> getReservationsByVehicle(Long vehicleId) {
-        return reservationRepository.findByVehicleId(vehicleId);
+    @Transactional(readOnly = true)
+    public void streamReservationsByStatus(String status, Consumer<Reservation> consumer) {
+        stream(reservationRepository.streamByStatusOrderByIdAsc(status), consumer);
     }
 
-    public List<Reservation> getReservationsByStatus(String status) {
-        return reservationRepository.findByStatus(status);
+    // The cursor is the id of the last row of the previous page; its
+    // startTime is looked up to continue the (startTime, id) keyset.
+    public CursorPage<Reservation> searchReservations(ReservationSearchCriteria criteria, Long after, int limit) {
+        if (criteria.getFrom() != null && criteria.getTo() != null && !criteria.getTo().isAfter(criteria.getFrom())) {
+            throw new InvalidRequestException("Search range end must be after its start");
+        }
+        Reservation position = after != null
+                ? reservationRepository.findById(after)
+                        .orElseThrow(() -> new InvalidRequestException("Unknown search cursor " + after))
+                : null;
+        int size = pageSize(limit);
+        return CursorPage.of(reservationRepository.search(criteria, position, size + 1), size, Reservation::getId);
     }
 
+    // Only versions every writer has committed are read, so no change below
+    // the returned version can still appear later. Without since, the sync
+    // starts from the beginning.
+    @Transactional(readOnly = true)
+    public ChangeSet<Reservation> getChanges(Long since, int limit) {
+        int size = pageSize(limit);
+        long from = since != null ? since : -1L;
+        long to = changeLog.committedVersion();
+        Pageable page = PageRequest.of(0, size + 1, Sort.by("changeVersion"));
+        return ChangeSet.of(reservationRepository.findByChangeVersionBetween(from + 1, to, page),
+                Reservation::getChangeVersion,
+                reservationTombstoneRepository.findByChangeVersionBetween(from + 1, to, page),
+                ReservationTombstone::getChangeVersion, ReservationTombstone::getReservationId,
+                size, from);
+    }
+
+    @Transactional
     public Reservation createReservation(Reservation reservation) {
-        parkingServiceClient.updateParkingSpotStatus(reservation.getParkingSpotId(), "OCCUPIED");
         reservation.setStatus("ACTIVE");
-        return reservationRepository.save(reservation);
+        Reservation saved = book(reservation);
+        saved.setChangeVersion(changeLog.reserve(1));
+        spotStatusOutbox.enqueue(saved.getParkingSpotId(), "OCCUPIED");
+        writeThrough(saved.getParkingSpotId(), "OCCUPIED");
+        availabilityIndex.apply(saved);
+        return saved;
     }
 
+    @Transactional
     public Reservation updateReservation(Long id, Reservation reservationDetails) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reservation not found"));
@@ -64,29 +232,114 @@ public class ReservationService {
         reservation.setStartTime(reservationDetails.getStartTime());
         reservation.setEndTime(reservationDetails.getEndTime());
         reservation.setStatus(reservationDetails.getStatus());
-        return reservationRepository.save(reservation);
+        Reservation saved = "ACTIVE".equals(reservation.getStatus())
+                ? book(reservation)
+                : reservationRepository.save(reservation);
+        saved.setChangeVersion(changeLog.reserve(1));
+        availabilityIndex.apply(saved);
+        return saved;
     }
 
+    @Transactional
     public Reservation completeReservation(Long id) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reservation not found"));
         
-        parkingServiceClient.updateParkingSpotStatus(reservation.getParkingSpotId(), "FREE");
         reservation.setStatus("COMPLETED");
-        return reservationRepository.save(reservation);
+        Reservation saved = reservationRepository.save(reservation);
+        saved.setChangeVersion(changeLog.reserve(1));
+        spotStatusOutbox.enqueue(saved.getParkingSpotId(), "FREE");
+        writeThrough(saved.getParkingSpotId(), "FREE");
+        availabilityIndex.apply(saved);
+        return saved;
     }
 
+    @Transactional
     public Reservation cancelReservation(Long id) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reservation not found"));
         
-        parkingServiceClient.updateParkingSpotStatus(reservation.getParkingSpotId(), "FREE");
         reservation.setStatus("CANCELLED");
-        return reservationRepository.save(reservation);
+        Reservation saved = reservationRepository.save(reservation);
+        saved.setChangeVersion(changeLog.reserve(1));
+        spotStatusOutbox.enqueue(saved.getParkingSpotId(), "FREE");
+        writeThrough(saved.getParkingSpotId(), "FREE");
+        availabilityIndex.apply(saved);
+        return saved;
     }
 
+    @Transactional
     public void deleteReservation(Long id) {
+        if (reservationRepository.existsById(id)) {
+            reservationTombstoneRepository.save(new ReservationTombstone(id, changeLog.reserve(1)));
+        }
         reservationRepository.deleteById(id);
+        availabilityIndex.remove(id);
+    }
+
+    // Overlap check and save run under the spot's row lock, so two bookings
+    // for the same spot cannot both pass the check.
+    private Reservation book(Reservation reservation) {
+        if (reservation.getStartTime() == null || reservation.getEndTime() == null
+                || !reservation.getEndTime().isAfter(reservation.getStartTime())) {
+            throw new InvalidRequestException("Reservation end time must be after start time");
+        }
+        if (reservation.getEndTime().isAfter(reservation.getStartTime().plus(MAX_RESERVATION_LENGTH))) {
+            throw new InvalidRequestException("Reservation cannot be longer than 30 days");
+        }
+        spotLockService.lock(reservation.getParkingSpotId());
+        Long excludedId = reservation.getId() != null ? reservation.getId() : 0L;
+        reservationRepository.findOverlapping(reservation.getParkingSpotId(),
+                        reservation.getStartTime(), reservation.getEndTime(), excludedId)
+                .stream()
+                .findFirst()
+                .ifPresent(conflict -> {
+                    throw new ReservationConflictException(conflict);
+                });
+        return reservationRepository.save(reservation);
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit != null ? Math.max(1, Math.min(limit, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+    }
+
+    private static Long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    // One extra row tells CursorPage whether a next page exists.
+    private static Pageable keyset(int size) {
+        return PageRequest.of(0, size + 1, Sort.by("id"));
+    }
+
+    // Detach each row once written so the persistence context stays empty
+    // and memory does not grow with the result size.
+    private void stream(Stream<Reservation> reservations, Consumer<Reservation> consumer) {
+        try (reservations) {
+            reservations.forEach(reservation -> {
+                consumer.accept(reservation);
+                entityManager.detach(reservation);
+            });
+        }
+    }
+
+    // The relay tells parking-service later; until then the cached spot
+    // already shows the status this reservation committed.
+    private void writeThrough(Long parkingSpotId, String status) {
+        afterCommit(() -> downstreamCache.putParkingSpotStatus(parkingSpotId, status, null));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
 
@@ -0,0 +1,33 @@
+package org.example.reservation.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.reservation.entity.SpotStatusChange;
+import org.example.reservation.repository.SpotStatusChangeRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Service
+@RequiredArgsConstructor
+public class SpotStatusOutbox {
+    private final SpotStatusChangeRepository spotStatusChangeRepository;
+
+    // Written in the caller's transaction, so the change exists if and only
+    // if the reservation change that caused it was committed.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Long parkingSpotId, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        spotStatusChangeRepository.save(new SpotStatusChange(null, parkingSpotId, status, now, 0, now, null));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(Collection<Long> parkingSpotIds, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        spotStatusChangeRepository.saveAll(parkingSpotIds.stream()
+                .map(parkingSpotId -> new SpotStatusChange(null, parkingSpotId, status, now, 0, now, null))
+                .toList());
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.reservation.service;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.reservation.client.DownstreamCache;
+import org.example.reservation.client.DownstreamCalls;
+import org.example.reservation.client.ParkingServiceClient;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.entity.SpotStatusChange;
+import org.example.reservation.repository.SpotStatusChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Delivers outbox rows to parking-service. Each poll takes the oldest due
+// rows, keeps only the newest change per spot (a status update is absolute,
+// so older ones are superseded) and sends those concurrently. A failed spot
+// is retried with exponential backoff; any newer change for it that gets
+// delivered first also removes the failed one, so a spot never goes back
+// to an older status.
+//
+// Each update is sent as a compare-and-set against the status the spot must
+// have for the change to make sense (FREE before OCCUPIED and vice versa).
+// A 409 means someone else moved the spot first; the change is superseded,
+// so it is dropped rather than retried.
+//
+// Several instances relay from the same table. A poll first claims whole
+// spots in a short transaction: it locks the oldest row of each spot and
+// leases all of the spot's rows until the deliveries are done, so no other
+// instance sends anything for those spots meanwhile.
+// A lease left behind by a crashed instance simply runs out.
+@Component
+public class SpotStatusRelay implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(SpotStatusRelay.class);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final SpotStatusChangeRepository spotStatusChangeRepository;
+    private final ParkingServiceClient parkingServiceClient;
+    private final DownstreamCalls downstreamCalls;
+    private final DownstreamCache downstreamCache;
+    private final int batchSize;
+    private final Duration retryBackoff;
+    private final Duration lease;
+    private final boolean pollingEnabled;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public SpotStatusRelay(SpotStatusChangeRepository spotStatusChangeRepository,
+                           ParkingServiceClient parkingServiceClient,
+                           DownstreamCalls downstreamCalls,
+                           DownstreamCache downstreamCache,
+                           @Value("${reservation.outbox.batch-size:200}") int batchSize,
+                           @Value("${reservation.outbox.retry-backoff:1s}") Duration retryBackoff,
+                           @Value("${reservation.outbox.lease:30s}") Duration lease,
+                           @Value("${reservation.outbox.polling-enabled:true}") boolean pollingEnabled,
+                           PlatformTransactionManager transactionManager) {
+        this.spotStatusChangeRepository = spotStatusChangeRepository;
+        this.parkingServiceClient = parkingServiceClient;
+        this.downstreamCalls = downstreamCalls;
+        this.downstreamCache = downstreamCache;
+        this.batchSize = batchSize;
+        this.retryBackoff = retryBackoff;
+        this.lease = lease;
+        this.pollingEnabled = pollingEnabled;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.outbox.poll-interval-ms:500}")
+    public void poll() {
+        if (pollingEnabled) {
+            drain();
+        }
+    }
+
+    // Relays until nothing is due; rows waiting for a retry are left alone.
+    // Tests disable polling and call this directly to relay synchronously.
+    public int drain() {
+        int total = 0;
+        int relayed;
+        do {
+            relayed = relayOnce();
+            total += relayed;
+        } while (relayed > 0);
+        return total;
+    }
+
+    public synchronized int relayOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        lagMillis.set(spotStatusChangeRepository.findFirstByOrderByIdAsc()
+                .map(oldest -> Math.max(0, Duration.between(oldest.getCreatedAt(), now).toMillis()))
+                .orElse(0L));
+
+        List<SpotStatusChange> batch = claim(now);
+        Map<Long, SpotStatusChange> latest = new LinkedHashMap<>();
+        batch.forEach(change -> latest.put(change.getParkingSpotId(), change));
+
+        Map<SpotStatusChange, CompletableFuture<ParkingSpotDTO>> deliveries = new LinkedHashMap<>();
+        latest.values().forEach(change -> deliveries.put(change, downstreamCalls.submit(
+                () -> parkingServiceClient.updateParkingSpotStatus(change.getParkingSpotId(), change.getStatus(),
+                        expectedBefore(change.getStatus())))));
+
+        int relayed = 0;
+        for (Map.Entry<SpotStatusChange, CompletableFuture<ParkingSpotDTO>> delivery : deliveries.entrySet()) {
+            SpotStatusChange change = delivery.getKey();
+            try {
+                ParkingSpotDTO updated = downstreamCalls.await(delivery.getValue());
+                downstreamCache.putParkingSpotStatus(change.getParkingSpotId(), change.getStatus(), updated);
+                spotStatusChangeRepository.deleteDelivered(change.getParkingSpotId(), change.getId());
+                delivered.incrementAndGet();
+                relayed++;
+            } catch (FeignException.Conflict e) {
+                downstreamCache.evictParkingSpot(change.getParkingSpotId());
+                spotStatusChangeRepository.deleteDelivered(change.getParkingSpotId(), change.getId());
+                conflicts.incrementAndGet();
+                relayed++;
+                log.info("Parking spot {} was no longer {}, status {} dropped",
+                        change.getParkingSpotId(), expectedBefore(change.getStatus()), change.getStatus());
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                retryLater(change, batch, now, e);
+            }
+        }
+        return relayed;
+    }
+
+    // Locks the oldest row of each spot, then leases every row of those
+    // spots, so a spot is only ever delivered to by one relay at a time
+    private List<SpotStatusChange> claim(LocalDateTime now) {
+        return transactionTemplate.execute(status -> {
+            List<Long> spots = spotStatusChangeRepository.findClaimable(now, PageRequest.of(0, batchSize)).stream()
+                    .map(SpotStatusChange::getParkingSpotId)
+                    .toList();
+            if (spots.isEmpty()) {
+                return List.of();
+            }
+            List<SpotStatusChange> claimed = spotStatusChangeRepository.findByParkingSpotIdInOrderByIdAsc(spots);
+            claimed.forEach(change -> change.setClaimedUntil(now.plus(lease)));
+            return claimed;
+        });
+    }
+
+    private static String expectedBefore(String status) {
+        return switch (status) {
+            case "OCCUPIED" -> "FREE";
+            case "FREE" -> "OCCUPIED";
+            default -> null;
+        };
+    }
+
+    // Backs off every row of the spot claimed with it and releases them, so
+    // only a newer change brings the spot back before the backoff is over
+    private void retryLater(SpotStatusChange change, List<SpotStatusChange> batch, LocalDateTime now,
+                            RuntimeException e) {
+        int attempts = change.getAttempts() + 1;
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(MAX_BACKOFF) > 0) {
+            backoff = MAX_BACKOFF;
+        }
+        change.setAttempts(attempts);
+        LocalDateTime nextAttemptAt = now.plus(backoff);
+        List<SpotStatusChange> claimed = batch.stream()
+                .filter(row -> row.getParkingSpotId().equals(change.getParkingSpotId()))
+                .toList();
+        claimed.forEach(row -> {
+            row.setNextAttemptAt(nextAttemptAt);
+            row.setClaimedUntil(null);
+        });
+        spotStatusChangeRepository.saveAll(claimed);
+        log.warn("Parking spot {} status {} not delivered (attempt {}), retrying in {}: {}",
+                change.getParkingSpotId(), change.getStatus(), attempts, backoff, e.getMessage());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("reservation.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest undelivered spot status change")
+                .register(registry);
+        FunctionCounter.builder("reservation.outbox.delivered", delivered, AtomicLong::get)
+                .description("Spot status changes delivered to parking-service")
+                .register(registry);
+        FunctionCounter.builder("reservation.outbox.failed", failed, AtomicLong::get)
+                .description("Failed spot status delivery attempts")
+                .register(registry);
+        FunctionCounter.builder("reservation.outbox.conflicts", conflicts, AtomicLong::get)
+                .description("Spot status changes dropped because the spot was changed by someone else")
+                .register(registry);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.reservation.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.dto.VehicleDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownstreamCacheTest {
+
+    private DownstreamCache downstreamCache;
+
+    @BeforeEach
+    void setUp() {
+        downstreamCache = new DownstreamCache(2, Duration.ofMinutes(1), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void getParkingSpot_WhenConcurrentMisses_ShouldLoadOnce() throws Exception {
+        // Given
+        int threads = 16;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When
+        List<Future<ParkingSpotDTO>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return downstreamCache.getParkingSpot(1L, id -> {
+                    loads.incrementAndGet();
+                    sleep(50);
+                    return new ParkingSpotDTO(id, "A-101", 1, "FREE");
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<ParkingSpotDTO> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getNumber()).isEqualTo("A-101");
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void getVehicles_ShouldOnlyLoadMissingIds() {
+        // Given
+        downstreamCache.getVehicle(1L, id -> new VehicleDTO(id, "А123БВ", "Toyota Camry", "Black", 1L));
+        AtomicInteger requested = new AtomicInteger();
+
+        // When
+        Map<Long, VehicleDTO> result = downstreamCache.getVehicles(List.of(1L, 2L), missing -> {
+            assertThat(missing).containsExactly(2L);
+            requested.addAndGet(missing.size());
+            return List.of(new VehicleDTO(2L, "В456ГД", "BMW X5", "White", 2L));
+        });
+
+        // Then
+        assertThat(result).containsOnlyKeys(1L, 2L);
+        assertThat(requested).hasValue(1);
+    }
+
+    @Test
+    void putParkingSpotStatus_WithoutResponse_ShouldPatchCachedCopy() {
+        // Given
+        downstreamCache.getParkingSpot(1L, id -> new ParkingSpotDTO(id, "A-101", 1, "FREE"));
+
+        // When
+        downstreamCache.putParkingSpotStatus(1L, "OCCUPIED", null);
+
+        // Then
+        ParkingSpotDTO cached = downstreamCache.getParkingSpot(1L, id -> {
+            throw new AssertionError("should be served from cache");
+        });
+        assertThat(cached.getStatus()).isEqualTo("OCCUPIED");
+    }
+
+    @Test
+    void bindTo_ShouldExposeHitMissAndEvictionCounters() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        downstreamCache.bindTo(registry);
+
+        // When
+        downstreamCache.getParkingSpots(Set.of(1L, 2L, 3L), ids -> ids.stream()
+                .map(id -> new ParkingSpotDTO(id, "A-" + id, 1, "FREE"))
+                .toList());
+        downstreamCache.getParkingSpot(3L, id -> new ParkingSpotDTO(id, "A-3", 1, "FREE"));
+
+        // Then
+        assertThat(registry.get("cache.gets").tag("cache", "parkingSpots").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("cache.gets").tag("cache", "parkingSpots").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(registry.find("cache.evictions").tag("cache", "parkingSpots").functionCounter()).isNotNull();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
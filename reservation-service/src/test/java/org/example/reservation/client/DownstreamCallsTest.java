@@ -0,0 +1,89 @@
+package org.example.reservation.client;
+
+import org.example.reservation.config.DownstreamConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownstreamCallsTest {
+
+    private ExecutorService executor;
+    private DownstreamCalls downstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        executor = new DownstreamConfig().downstreamExecutor(4, 16);
+        downstreamCalls = new DownstreamCalls(executor, Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void submit_ShouldCarryJwtOntoWorkerThread() {
+        // Given
+        Jwt jwt = Jwt.withTokenValue("token-value").header("alg", "none").claim("sub", "user").build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+        String callerThread = Thread.currentThread().getName();
+
+        // When
+        CompletableFuture<String> workerThread = downstreamCalls.submit(() -> Thread.currentThread().getName());
+        CompletableFuture<Authentication> workerAuth = downstreamCalls.submit(
+                () -> SecurityContextHolder.getContext().getAuthentication());
+
+        // Then
+        assertThat(downstreamCalls.await(workerThread)).isNotEqualTo(callerThread).startsWith("downstream-");
+        assertThat(downstreamCalls.await(workerAuth)).isInstanceOf(JwtAuthenticationToken.class);
+        assertThat(((JwtAuthenticationToken) downstreamCalls.await(workerAuth)).getToken().getTokenValue())
+                .isEqualTo("token-value");
+    }
+
+    @Test
+    void await_WhenCallExceedsTimeout_ShouldThrow() {
+        // When
+        CompletableFuture<String> slow = downstreamCalls.submit(() -> {
+            sleep(1000);
+            return "late";
+        });
+
+        // Then
+        assertThatThrownBy(() -> downstreamCalls.await(slow))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("timed out");
+    }
+
+    @Test
+    void await_WhenCallFails_ShouldRethrowOriginalException() {
+        // When
+        CompletableFuture<String> failing = downstreamCalls.submit(() -> {
+            throw new IllegalStateException("parking-service unavailable");
+        });
+
+        // Then
+        assertThatThrownBy(() -> downstreamCalls.await(failing))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("parking-service unavailable");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.reservation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.reservation.entity.IdempotencyRecord;
+import org.example.reservation.entity.SpotStatusChange;
+import org.example.reservation.repository.IdempotencyRecordRepository;
+import org.example.reservation.repository.SpotStatusChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({IdempotencyStore.class, IdempotencyStoreTest.Config.class})
+@TestPropertySource(properties = "reservation.idempotency.wait-timeout=5s")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyStoreTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private SpotStatusChangeRepository spotStatusChangeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyRecordRepository.deleteAll();
+        spotStatusChangeRepository.deleteAll();
+    }
+
+    @Test
+    void execute_WhenKeyRepeated_ShouldReplayWithoutRunningAgain() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        ResponseEntity<String> first = idempotencyStore.execute("key-1", "POST /reservations", String.class,
+                () -> ResponseEntity.ok("created-" + runs.incrementAndGet()));
+        ResponseEntity<String> second = idempotencyStore.execute("key-1", "POST /reservations", String.class,
+                () -> ResponseEntity.ok("created-" + runs.incrementAndGet()));
+
+        // Then
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(second.getBody()).isEqualTo(first.getBody());
+        assertThat(second.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void execute_WithoutKey_ShouldAlwaysRun() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        idempotencyStore.execute(null, "POST /reservations", Integer.class, () -> ResponseEntity.ok(runs.incrementAndGet()));
+        idempotencyStore.execute(" ", "POST /reservations", Integer.class, () -> ResponseEntity.ok(runs.incrementAndGet()));
+
+        // Then
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    @Test
+    void execute_WhenDuplicateArrivesWhileFirstRuns_ShouldWaitForFirstResult() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<ResponseEntity<Integer>> first = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.execute("key-2", "POST /reservations", Integer.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return ResponseEntity.ok(runs.incrementAndGet());
+                }));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        CompletableFuture<ResponseEntity<Integer>> duplicate = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.execute("key-2", "POST /reservations", Integer.class,
+                        () -> ResponseEntity.ok(runs.incrementAndGet())));
+        Thread.sleep(100);
+        assertThat(duplicate).isNotDone();
+        release.countDown();
+
+        // Then
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+        assertThat(first.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_WhenFirstFails_ShouldForgetKeySoRetryRunsAgain() {
+        // Given
+        assertThatThrownBy(() -> idempotencyStore.execute("key-3", "PATCH /reservations/1/cancel", String.class, () -> {
+            throw new RuntimeException("Reservation not found");
+        })).hasMessage("Reservation not found");
+
+        // When
+        ResponseEntity<String> retried = idempotencyStore.execute("key-3", "PATCH /reservations/1/cancel", String.class,
+                () -> ResponseEntity.ok("cancelled"));
+
+        // Then
+        assertThat(retried.getBody()).isEqualTo("cancelled");
+        assertThat(retried.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void execute_WhenKeyReusedForDifferentRequest_ShouldReject() {
+        // Given
+        idempotencyStore.execute("key-4", "PATCH /reservations/1/cancel", String.class,
+                () -> ResponseEntity.ok("cancelled"));
+
+        // When & Then
+        assertThatThrownBy(() -> idempotencyStore.execute("key-4", "PATCH /reservations/2/cancel", String.class,
+                () -> ResponseEntity.ok("cancelled")))
+                .isInstanceOf(IdempotencyKeyException.class)
+                .extracting("status").isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void execute_WhenKeyWasStoredByAnotherInstance_ShouldReplayIt() {
+        // Given
+        IdempotencyStore otherInstance = new IdempotencyStore(idempotencyRecordRepository, objectMapper,
+                transactionManager, Duration.ofHours(1), Duration.ofSeconds(5), Duration.ofMinutes(10));
+        otherInstance.execute("key-5", "POST /reservations", String.class, () -> ResponseEntity.ok("created"));
+
+        // When
+        ResponseEntity<String> retried = idempotencyStore.execute("key-5", "POST /reservations", String.class,
+                () -> ResponseEntity.ok("created again"));
+
+        // Then
+        assertThat(retried.getBody()).isEqualTo("created");
+        assertThat(retried.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void execute_WhenActionFailsAfterWriting_ShouldRollBackTheWriteWithTheKey() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+
+        // When
+        assertThatThrownBy(() -> idempotencyStore.execute("key-6", "POST /reservations", String.class, () -> {
+            spotStatusChangeRepository.save(new SpotStatusChange(null, 1L, "OCCUPIED", now, 0, now, null));
+            throw new RuntimeException("Parking spot not found");
+        })).hasMessage("Parking spot not found");
+
+        // Then
+        assertThat(spotStatusChangeRepository.count()).isZero();
+        assertThat(idempotencyRecordRepository.findByIdempotencyKey(":key-6")).isEmpty();
+    }
+
+    @Test
+    void executeSelfCommitting_WhenClaimWasAbandoned_ShouldTakeItOver() {
+        // Given
+        idempotencyRecordRepository.save(new IdempotencyRecord(null, ":key-7", "POST /reservations/bulk",
+                null, null, LocalDateTime.now().minusHours(1)));
+
+        // When
+        ResponseEntity<String> response = idempotencyStore.executeSelfCommitting("key-7", "POST /reservations/bulk",
+                String.class, () -> ResponseEntity.ok("imported"));
+
+        // Then
+        assertThat(response.getBody()).isEqualTo("imported");
+        assertThat(response.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+        assertThat(idempotencyRecordRepository.findByIdempotencyKey(":key-7"))
+                .hasValueSatisfying(record -> assertThat(record.getStatus()).isEqualTo(200));
+    }
+
+    @Test
+    void executeSelfCommitting_WhileClaimIsFresh_ShouldReportItInProgress() {
+        // Given
+        IdempotencyStore impatient = new IdempotencyStore(idempotencyRecordRepository, objectMapper,
+                transactionManager, Duration.ofHours(1), Duration.ZERO, Duration.ofMinutes(10));
+        idempotencyRecordRepository.save(new IdempotencyRecord(null, ":key-8", "POST /reservations/bulk",
+                null, null, LocalDateTime.now()));
+
+        // When & Then
+        assertThatThrownBy(() -> impatient.executeSelfCommitting("key-8", "POST /reservations/bulk", String.class,
+                () -> ResponseEntity.ok("imported")))
+                .isInstanceOf(IdempotencyKeyException.class)
+                .extracting("status").isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
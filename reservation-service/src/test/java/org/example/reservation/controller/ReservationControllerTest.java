@@ -2,28 +2,53 @@ package org.example.reservation.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.reservation.dto.BulkImportItem;
+import org.example.reservation.dto.BulkImportReport;
+import org.example.reservation.dto.ChangeSet;
+import org.example.reservation.dto.CursorPage;
 import org.example.reservation.dto.ParkingSpotDTO;
 import org.example.reservation.dto.ReservationDetailsDTO;
+import org.example.reservation.dto.ReservationSearchCriteria;
 import org.example.reservation.dto.VehicleDTO;
 import org.example.reservation.entity.Reservation;
+import org.example.reservation.service.AvailabilityService;
+import org.example.reservation.service.InvalidRequestException;
+import org.example.reservation.service.ReservationConflictException;
+import org.example.reservation.service.ReservationImportService;
 import org.example.reservation.service.ReservationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -31,6 +56,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ReservationController.class)
+@AutoConfigureDataJpa
+@AutoConfigureTestDatabase
+@Import(IdempotencyStore.class)
 @ActiveProfiles("test")
 class ReservationControllerTest {
 
@@ -42,6 +70,12 @@ class ReservationControllerTest {
     @MockBean
     private ReservationService reservationService;
 
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private ReservationImportService reservationImportService;
+
     private Reservation reservation1;
     private Reservation reservation2;
     private ReservationDetailsDTO reservationDetails;
@@ -64,14 +98,14 @@ class ReservationControllerTest {
     @WithMockUser
     void getAllReservations_ShouldReturnListOfReservations() throws Exception {
         List<Reservation> reservations = Arrays.asList(reservation1, reservation2);
-        when(reservationService.getAllReservations()).thenReturn(reservations);
+        when(reservationService.getAllReservations(null, null)).thenReturn(new CursorPage<>(reservations, null));
 
-        mockMvc.perform(get("/reservations"))
+        mockMvc.perform(get("/reservations").accept(MediaType.ALL))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(2)));
 
-        verify(reservationService, times(1)).getAllReservations();
+        verify(reservationService, times(1)).getAllReservations(null, null);
     }
 
     @Test
@@ -117,40 +151,40 @@ class ReservationControllerTest {
     @WithMockUser
     void getReservationsByParkingSpot_ShouldReturnFilteredReservations() throws Exception {
         List<Reservation> reservations = Arrays.asList(reservation1);
-        when(reservationService.getReservationsByParkingSpot(1L)).thenReturn(reservations);
+        when(reservationService.getReservationsByParkingSpot(1L, null, null)).thenReturn(new CursorPage<>(reservations, null));
 
         mockMvc.perform(get("/reservations/parking-spot/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)));
 
-        verify(reservationService, times(1)).getReservationsByParkingSpot(1L);
+        verify(reservationService, times(1)).getReservationsByParkingSpot(1L, null, null);
     }
 
     @Test
     @WithMockUser
     void getReservationsByVehicle_ShouldReturnFilteredReservations() throws Exception {
         List<Reservation> reservations = Arrays.asList(reservation1);
-        when(reservationService.getReservationsByVehicle(1L)).thenReturn(reservations);
+        when(reservationService.getReservationsByVehicle(1L, null, null)).thenReturn(new CursorPage<>(reservations, null));
 
         mockMvc.perform(get("/reservations/vehicle/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)));
 
-        verify(reservationService, times(1)).getReservationsByVehicle(1L);
+        verify(reservationService, times(1)).getReservationsByVehicle(1L, null, null);
     }
 
     @Test
     @WithMockUser
     void getReservationsByStatus_ShouldReturnFilteredReservations() throws Exception {
         List<Reservation> activeReservations = Arrays.asList(reservation1);
-        when(reservationService.getReservationsByStatus("ACTIVE")).thenReturn(activeReservations);
+        when(reservationService.getReservationsByStatus("ACTIVE", null, null)).thenReturn(new CursorPage<>(activeReservations, null));
 
         mockMvc.perform(get("/reservations/status/ACTIVE"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].status").value("ACTIVE"));
 
-        verify(reservationService, times(1)).getReservationsByStatus("ACTIVE");
+        verify(reservationService, times(1)).getReservationsByStatus("ACTIVE", null, null);
     }
 
     @Test
@@ -225,5 +259,389 @@ class ReservationControllerTest {
 
         verify(reservationService, times(1)).deleteReservation(1L);
     }
-}
 
+    @Test
+    @WithMockUser
+    void getReservationDetailsBatch_ShouldReturnDetailsForAllIds() throws Exception {
+        when(reservationService.getReservationDetails(Arrays.asList(1L, 2L))).thenReturn(List.of(reservationDetails));
+
+        mockMvc.perform(get("/reservations/details").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].parkingSpot.number").value("A-101"));
+
+        verify(reservationService, times(1)).getReservationDetails(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    @WithMockUser
+    void getReservationDetailsBatch_WithMoreThan200Ids_ShouldReturnBadRequest() throws Exception {
+        String ids = LongStream.rangeClosed(1, 201).mapToObj(Long::toString).collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/reservations/details").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        verify(reservationService, never()).getReservationDetails(anyList());
+    }
+
+    @Test
+    @WithMockUser
+    void getReservationDetailsPage_ShouldCapPageSize() throws Exception {
+        when(reservationService.getReservationDetails(any(Pageable.class)))
+                .thenAnswer(invocation -> new PageImpl<>(List.of(reservationDetails), invocation.getArgument(0), 1));
+
+        mockMvc.perform(get("/reservations/details/page").param("page", "0").param("size", "10000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].reservation.id").value(1));
+
+        verify(reservationService, times(1)).getReservationDetails(PageRequest.of(0, 200, Sort.by("id")));
+    }
+
+    @Test
+    @WithMockUser
+    void getReservationsByStatus_WhenMorePagesExist_ShouldReturnNextCursorHeader() throws Exception {
+        when(reservationService.getReservationsByStatus("ACTIVE", 5L, 1)).thenReturn(new CursorPage<>(List.of(reservation1), 1L));
+
+        mockMvc.perform(get("/reservations/status/ACTIVE").param("after", "5").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    void streamReservationsByVehicle_ShouldWriteNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Reservation> consumer = invocation.getArgument(1);
+            consumer.accept(reservation1);
+            consumer.accept(reservation2);
+            return null;
+        }).when(reservationService).streamReservationsByVehicle(eq(1L), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/reservations/vehicle/1").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"id\":1");
+        assertThat(lines[1]).contains("\"id\":2");
+    }
+
+    @Test
+    @WithMockUser
+    void createReservation_WhenSlotTaken_ShouldReturnConflict() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Reservation newReservation = new Reservation(null, 1L, 2L, now, now.plusHours(1), "ACTIVE");
+
+        when(reservationService.createReservation(any(Reservation.class)))
+                .thenThrow(new ReservationConflictException(reservation1));
+
+        mockMvc.perform(post("/reservations")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newReservation)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.parkingSpotId").value(1));
+    }
+
+    @Test
+    @WithMockUser
+    void getAvailableSpots_ShouldReturnFreeSpotsForWindow() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 9, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 1, 1, 11, 30);
+        when(availabilityService.findFreeSpots(from, to, 2)).thenReturn(List.of(new ParkingSpotDTO(5L, "B-201", 2, "FREE")));
+
+        mockMvc.perform(get("/reservations/availability")
+                        .param("from", "2030-01-01T09:00:00")
+                        .param("to", "2030-01-01T11:30:00")
+                        .param("floor", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[0].number").value("B-201"));
+
+        verify(reservationService, never()).getReservationById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getAvailableSpots_WhenWindowEmpty_ShouldReturnBadRequest() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 9, 0);
+        when(availabilityService.findFreeSpots(from, from, null))
+                .thenThrow(new InvalidRequestException("Availability window end must be after its start"));
+
+        mockMvc.perform(get("/reservations/availability")
+                        .param("from", "2030-01-01T09:00:00")
+                        .param("to", "2030-01-01T09:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void createReservation_WhenRetriedWithSameIdempotencyKey_ShouldReplayFirstResponse() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Reservation newReservation = new Reservation(null, 1L, 1L, now, now.plusHours(8), "ACTIVE");
+        Reservation savedReservation = new Reservation(3L, 1L, 1L, now, now.plusHours(8), "ACTIVE");
+        String body = objectMapper.writeValueAsString(newReservation);
+
+        when(reservationService.createReservation(any(Reservation.class))).thenReturn(savedReservation);
+
+        mockMvc.perform(post("/reservations")
+                        .with(csrf())
+                        .header("Idempotency-Key", "create-3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andExpect(jsonPath("$.id").value(3));
+
+        mockMvc.perform(post("/reservations")
+                        .with(csrf())
+                        .header("Idempotency-Key", "create-3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(3));
+
+        verify(reservationService, times(1)).createReservation(any(Reservation.class));
+    }
+
+    @Test
+    @WithMockUser
+    void cancelReservation_WhenIdempotencyKeyReusedForOtherRequest_ShouldReturnUnprocessableEntity() throws Exception {
+        Reservation cancelled = new Reservation(1L, 1L, 1L, reservation1.getStartTime(), reservation1.getEndTime(), "CANCELLED");
+        when(reservationService.cancelReservation(1L)).thenReturn(cancelled);
+
+        mockMvc.perform(patch("/reservations/1/cancel")
+                        .with(csrf())
+                        .header("Idempotency-Key", "cancel-1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/reservations/2/cancel")
+                        .with(csrf())
+                        .header("Idempotency-Key", "cancel-1"))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(reservationService, never()).cancelReservation(2L);
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    void importReservations_WithJsonArray_ShouldPassEachItemAndReturnReport() throws Exception {
+        List<Reservation> received = new ArrayList<>();
+        when(reservationImportService.importReservations(any(Iterator.class))).thenAnswer(invocation -> {
+            Iterator<Reservation> items = invocation.getArgument(0);
+            items.forEachRemaining(received::add);
+            return new BulkImportReport(1, 1, List.of(
+                    new BulkImportItem(0, 10L, "CREATED", null),
+                    new BulkImportItem(1, null, "REJECTED", "Overlaps reservation 1")));
+        });
+
+        mockMvc.perform(post("/reservations/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(reservation1, reservation2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(10))
+                .andExpect(jsonPath("$.items[1].error").value("Overlaps reservation 1"));
+
+        assertThat(received).extracting(Reservation::getParkingSpotId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    void importReservations_WithNdjson_ShouldPassEachLineAsItem() throws Exception {
+        List<Reservation> received = new ArrayList<>();
+        when(reservationImportService.importReservations(any(Iterator.class))).thenAnswer(invocation -> {
+            Iterator<Reservation> items = invocation.getArgument(0);
+            items.forEachRemaining(received::add);
+            return new BulkImportReport(received.size(), 0, List.of());
+        });
+
+        mockMvc.perform(post("/reservations/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(reservation1) + "\n"
+                                + objectMapper.writeValueAsString(reservation2) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2));
+
+        assertThat(received).extracting(Reservation::getVehicleId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @WithMockUser
+    void createReservation_WhenIdempotencyKeyReusedForOtherBody_ShouldReturnUnprocessableEntity() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Reservation first = new Reservation(null, 1L, 1L, now, now.plusHours(8), "ACTIVE");
+        Reservation second = new Reservation(null, 1L, 1L, now, now.plusHours(9), "ACTIVE");
+        when(reservationService.createReservation(any(Reservation.class))).thenReturn(reservation1);
+
+        mockMvc.perform(post("/reservations")
+                        .with(csrf())
+                        .header("Idempotency-Key", "create-4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(first)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/reservations")
+                        .with(csrf())
+                        .header("Idempotency-Key", "create-4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(second)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(reservationService, times(1)).createReservation(any(Reservation.class));
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    void importReservations_WhenRetriedWithSameIdempotencyKey_ShouldFingerprintTheItems() throws Exception {
+        List<Reservation> received = new ArrayList<>();
+        when(reservationImportService.importReservations(any(Iterator.class))).thenAnswer(invocation -> {
+            Iterator<Reservation> items = invocation.getArgument(0);
+            items.forEachRemaining(received::add);
+            return new BulkImportReport(received.size(), 0, List.of());
+        });
+
+        mockMvc.perform(post("/reservations/bulk")
+                        .with(csrf())
+                        .header("Idempotency-Key", "bulk-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(reservation1, reservation2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2));
+
+        // the same items sent as NDJSON are the same request
+        mockMvc.perform(post("/reservations/bulk")
+                        .with(csrf())
+                        .header("Idempotency-Key", "bulk-1")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(reservation1) + "\n"
+                                + objectMapper.writeValueAsString(reservation2) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        mockMvc.perform(post("/reservations/bulk")
+                        .with(csrf())
+                        .header("Idempotency-Key", "bulk-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(reservation1))))
+                .andExpect(status().isUnprocessableEntity());
+
+        assertThat(received).extracting(Reservation::getId).containsExactly(1L, 2L);
+        verify(reservationImportService, times(1)).importReservations(any(Iterator.class));
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    void importReservations_WithIdempotencyKeyAndMalformedItem_ShouldLetTheImportReportIt() throws Exception {
+        List<Reservation> received = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        when(reservationImportService.importReservations(any(Iterator.class))).thenAnswer(invocation -> {
+            Iterator<Reservation> items = invocation.getArgument(0);
+            try {
+                items.forEachRemaining(received::add);
+            } catch (RuntimeException e) {
+                errors.add(e.getMessage());
+            }
+            return new BulkImportReport(received.size(), errors.size(), List.of());
+        });
+
+        mockMvc.perform(post("/reservations/bulk")
+                        .with(csrf())
+                        .header("Idempotency-Key", "bulk-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + objectMapper.writeValueAsString(reservation1) + ", {\"parkingSpotId\": ]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").value(1));
+
+        assertThat(received).extracting(Reservation::getId).containsExactly(1L);
+        assertThat(errors).hasSize(1);
+    }
+
+    @Test
+    @WithMockUser
+    void searchReservations_ShouldPassFiltersAndReturnNextCursor() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 2, 1, 0, 0);
+        ReservationSearchCriteria criteria = new ReservationSearchCriteria("ACTIVE", 1L, null, from, to);
+        when(reservationService.searchReservations(criteria, null, 1))
+                .thenReturn(new CursorPage<>(List.of(reservation1), 1L));
+
+        mockMvc.perform(get("/reservations/search")
+                        .param("status", "ACTIVE")
+                        .param("parkingSpotId", "1")
+                        .param("from", "2030-01-01T00:00:00")
+                        .param("to", "2030-02-01T00:00:00")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    @WithMockUser
+    void getChanges_ShouldReturnChangedAndDeletedSinceVersion() throws Exception {
+        when(reservationService.getChanges(3L, 1000))
+                .thenReturn(new ChangeSet<>(List.of(reservation1), List.of(8L), 9L, false));
+
+        mockMvc.perform(get("/reservations/changes").param("since", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed[0].id").value(1))
+                .andExpect(jsonPath("$.deleted[0]").value(8))
+                .andExpect(jsonPath("$.version").value(9));
+    }
+
+    @Test
+    @WithMockUser
+    void getReservationById_WhenETagMatches_ShouldReturn304WithoutLoadingTheReservation() throws Exception {
+        when(reservationService.getReservationVersion(1L)).thenReturn(Optional.of(5L));
+
+        mockMvc.perform(get("/reservations/1").header("If-None-Match", "\"5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"5\""));
+
+        verify(reservationService, never()).getReservationById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getReservationById_WhenETagIsStale_ShouldReturnReservationWithNewETag() throws Exception {
+        reservation1.setChangeVersion(6L);
+        when(reservationService.getReservationVersion(1L)).thenReturn(Optional.of(6L));
+        when(reservationService.getReservationById(1L)).thenReturn(Optional.of(reservation1));
+
+        mockMvc.perform(get("/reservations/1").header("If-None-Match", "\"5\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"6\""))
+                .andExpect(jsonPath("$.status").value("ACTIVE"));
+    }
+
+    @Test
+    @WithMockUser
+    void getAllReservations_WhenArgumentIsBroken_ShouldNotReportBadRequest() {
+        when(reservationService.getAllReservations(null, null)).thenThrow(new IllegalArgumentException("The given id must not be null"));
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/reservations")))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,15 +1,19 @@
 package org.example.reservation.repository;
 
+import org.example.reservation.dto.ReservationSearchCriteria;
 import org.example.reservation.entity.Reservation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -29,7 +33,7 @@ class ReservationRepositoryTest {
     void setUp() {
         reservationRepository.deleteAll();
         
-        now = LocalDateTime.now();
+        now = LocalDateTime.now().withNano(0);
         reservation1 = new Reservation(null, 1L, 1L, now, now.plusHours(8), "ACTIVE");
         reservation2 = new Reservation(null, 2L, 2L, now, now.plusHours(4), "COMPLETED");
         reservation3 = new Reservation(null, 1L, 3L, now.plusDays(1), now.plusDays(1).plusHours(8), "ACTIVE");
@@ -169,5 +173,64 @@ class ReservationRepositoryTest {
         assertThat(reservationRepository.findById(reservationId)).isEmpty();
         assertThat(reservationRepository.findAll()).hasSize(2);
     }
-}
 
+    @Test
+    void findByParkingSpotIdAndIdGreaterThan_ShouldReturnRowsAfterCursorInIdOrder() {
+        // When
+        List<Reservation> firstPage = reservationRepository.findByParkingSpotIdAndIdGreaterThan(
+                1L, 0L, PageRequest.of(0, 1, Sort.by("id")));
+        List<Reservation> secondPage = reservationRepository.findByParkingSpotIdAndIdGreaterThan(
+                1L, firstPage.get(0).getId(), PageRequest.of(0, 1, Sort.by("id")));
+
+        // Then
+        assertThat(firstPage).extracting(Reservation::getId).containsExactly(reservation1.getId());
+        assertThat(secondPage).extracting(Reservation::getId).containsExactly(reservation3.getId());
+    }
+
+    @Test
+    void streamByStatusOrderByIdAsc_ShouldStreamMatchingRowsInIdOrder() {
+        // When
+        List<Long> ids;
+        try (Stream<Reservation> reservations = reservationRepository.streamByStatusOrderByIdAsc("ACTIVE")) {
+            ids = reservations.map(Reservation::getId).toList();
+        }
+
+        // Then
+        assertThat(ids).containsExactly(reservation1.getId(), reservation3.getId());
+    }
+
+    @Test
+    void findOverlapping_ShouldReturnOnlyActiveIntersectingReservationsOfSpot() {
+        // When
+        List<Reservation> overlapping = reservationRepository.findOverlapping(1L, now.plusHours(7), now.plusHours(9), 0L);
+        List<Reservation> touching = reservationRepository.findOverlapping(1L, now.plusHours(8), now.plusHours(9), 0L);
+        List<Reservation> otherSpot = reservationRepository.findOverlapping(2L, now, now.plusHours(4), 0L);
+        List<Reservation> itself = reservationRepository.findOverlapping(1L, now, now.plusHours(8), reservation1.getId());
+
+        // Then
+        assertThat(overlapping).extracting(Reservation::getId).containsExactly(reservation1.getId());
+        assertThat(touching).isEmpty();
+        assertThat(otherSpot).isEmpty();
+        assertThat(itself).isEmpty();
+    }
+
+    @Test
+    void search_ShouldCombineFiltersAndPageByStartTimeThenId() {
+        // Given
+        Reservation sameStart = reservationRepository.save(
+                new Reservation(null, 1L, 4L, now, now.plusHours(2), "ACTIVE"));
+        ReservationSearchCriteria criteria = new ReservationSearchCriteria("ACTIVE", 1L, null, now, now.plusDays(2));
+
+        // When
+        List<Reservation> first = reservationRepository.search(criteria, null, 2);
+        List<Reservation> second = reservationRepository.search(criteria, first.get(1), 2);
+
+        // Then
+        assertThat(first).containsExactly(reservation1, sameStart);
+        assertThat(second).containsExactly(reservation3);
+        assertThat(reservationRepository.search(new ReservationSearchCriteria(null, null, 2L, null, null), null, 10))
+                .containsExactly(reservation2);
+        assertThat(reservationRepository.search(new ReservationSearchCriteria(null, null, null, now.plusHours(1), null), null, 10))
+                .containsExactly(reservation3);
+    }
+}
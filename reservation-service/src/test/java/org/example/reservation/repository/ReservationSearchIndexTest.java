@@ -0,0 +1,68 @@
+package org.example.reservation.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ReservationSearchIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // The search orders by (start_time, id) and filters on one equality
+    // column at most, so each filter needs an index leading with it and
+    // followed by the sort key, and the unfiltered search needs the sort key
+    // alone. Whether the planner picks them is checked with EXPLAIN on
+    // Postgres; H2's plans say nothing about that.
+    @Test
+    void search_EveryFilter_ShouldHaveAnIndexLeadingWithItAndTheSortKey() {
+        // When
+        Map<String, List<String>> indexes = indexesOf("reservations");
+
+        // Then
+        assertThat(indexes.values()).contains(
+                List.of("parking_spot_id", "start_time", "id"),
+                List.of("vehicle_id", "start_time", "id"),
+                List.of("status", "start_time", "id"),
+                List.of("start_time", "id"));
+    }
+
+    // Column names per index, in index order
+    private Map<String, List<String>> indexesOf(String table) {
+        return jdbcTemplate.execute((ConnectionCallback<Map<String, List<String>>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, List<String>> indexes = new TreeMap<>();
+            for (String name : List.of(table, table.toUpperCase())) {
+                try (ResultSet columns = metaData.getIndexInfo(null, null, name, false, false)) {
+                    while (columns.next()) {
+                        if (columns.getString("COLUMN_NAME") == null) {
+                            continue;
+                        }
+                        List<String> index = indexes.computeIfAbsent(columns.getString("INDEX_NAME").toLowerCase(),
+                                key -> new ArrayList<>());
+                        int position = columns.getShort("ORDINAL_POSITION") - 1;
+                        while (index.size() <= position) {
+                            index.add(null);
+                        }
+                        index.set(position, columns.getString("COLUMN_NAME").toLowerCase());
+                    }
+                }
+            }
+            return indexes;
+        });
+    }
+}
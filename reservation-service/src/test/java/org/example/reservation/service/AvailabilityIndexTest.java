@@ -0,0 +1,238 @@
+package org.example.reservation.service;
+
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.entity.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AvailabilityIndexTest {
+
+    private AvailabilityIndex availabilityIndex;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        availabilityIndex = new AvailabilityIndex(Duration.ofMinutes(15), 96);
+        availabilityIndex.replaceSpots(List.of(
+                new ParkingSpotDTO(1L, "A-101", 1, "FREE"),
+                new ParkingSpotDTO(2L, "A-102", 1, "FREE"),
+                new ParkingSpotDTO(3L, "B-201", 2, "FREE")));
+        base = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+    }
+
+    @Test
+    void findFreeSpots_ShouldExcludeSpotsWithOverlappingBookings() {
+        // Given
+        availabilityIndex.apply(new Reservation(10L, 1L, 1L, base, base.plusHours(2), "ACTIVE"));
+        availabilityIndex.apply(new Reservation(11L, 3L, 2L, base.plusHours(5), base.plusHours(6), "ACTIVE"));
+
+        // When
+        List<ParkingSpotDTO> all = availabilityIndex.findFreeSpots(base.plusHours(1), base.plusHours(3), null);
+        List<ParkingSpotDTO> floor1 = availabilityIndex.findFreeSpots(base.plusHours(1), base.plusHours(3), 1);
+        List<ParkingSpotDTO> unknownFloor = availabilityIndex.findFreeSpots(base, base.plusHours(1), 9);
+
+        // Then
+        assertThat(all).extracting(ParkingSpotDTO::getId).containsExactly(2L, 3L);
+        assertThat(floor1).extracting(ParkingSpotDTO::getId).containsExactly(2L);
+        assertThat(unknownFloor).isEmpty();
+    }
+
+    @Test
+    void findFreeSpots_ShouldCheckPartiallyCoveredSlotsExactly() {
+        // Given
+        availabilityIndex.apply(new Reservation(10L, 1L, 1L, base.plusMinutes(5), base.plusMinutes(10), "ACTIVE"));
+
+        // When
+        List<ParkingSpotDTO> before = availabilityIndex.findFreeSpots(base, base.plusMinutes(5), 1);
+        List<ParkingSpotDTO> after = availabilityIndex.findFreeSpots(base.plusMinutes(10), base.plusMinutes(40), 1);
+        List<ParkingSpotDTO> during = availabilityIndex.findFreeSpots(base.plusMinutes(9), base.plusMinutes(11), 1);
+
+        // Then
+        assertThat(before).extracting(ParkingSpotDTO::getId).containsExactly(1L, 2L);
+        assertThat(after).extracting(ParkingSpotDTO::getId).containsExactly(1L, 2L);
+        assertThat(during).extracting(ParkingSpotDTO::getId).containsExactly(2L);
+    }
+
+    @Test
+    void apply_WhenRescheduledOrFinished_ShouldMoveOrDropBooking() {
+        // Given
+        availabilityIndex.apply(new Reservation(10L, 1L, 1L, base, base.plusHours(1), "ACTIVE"));
+        availabilityIndex.apply(new Reservation(11L, 1L, 2L, base.plusHours(1), base.plusHours(2), "ACTIVE"));
+
+        // When
+        availabilityIndex.apply(new Reservation(10L, 2L, 1L, base, base.plusHours(1), "ACTIVE"));
+        availabilityIndex.apply(new Reservation(11L, 1L, 2L, base.plusHours(1), base.plusHours(2), "COMPLETED"));
+
+        // Then
+        assertThat(availabilityIndex.findFreeSpots(base, base.plusHours(2), 1))
+                .extracting(ParkingSpotDTO::getId).containsExactly(1L);
+        assertThat(availabilityIndex.bookingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void remove_WhenNeighbourSharesSlot_ShouldKeepNeighbourBusy() {
+        // Given
+        availabilityIndex.apply(new Reservation(10L, 1L, 1L, base, base.plusMinutes(20), "ACTIVE"));
+        availabilityIndex.apply(new Reservation(11L, 1L, 2L, base.plusMinutes(20), base.plusMinutes(40), "ACTIVE"));
+
+        // When
+        availabilityIndex.remove(10L);
+
+        // Then
+        assertThat(availabilityIndex.findFreeSpots(base, base.plusMinutes(20), 1))
+                .extracting(ParkingSpotDTO::getId).containsExactly(1L, 2L);
+        assertThat(availabilityIndex.findFreeSpots(base.plusMinutes(15), base.plusMinutes(30), 1))
+                .extracting(ParkingSpotDTO::getId).containsExactly(2L);
+    }
+
+    @Test
+    void apply_InsideTransaction_ShouldWaitForCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            availabilityIndex.apply(new Reservation(10L, 1L, 1L, base, base.plusHours(1), "ACTIVE"));
+            assertThat(availabilityIndex.bookingCount()).isZero();
+
+            // When
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        assertThat(availabilityIndex.bookingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rebuild_ShouldLoadBookingsAndKeepChangesMadeWhileLoading() {
+        // Given
+        availabilityIndex.apply(new Reservation(99L, 3L, 1L, base, base.plusHours(1), "ACTIVE"));
+        Stream<Reservation> rows = Stream.of(
+                        new Reservation(10L, 1L, 1L, base, base.plusHours(1), "ACTIVE"),
+                        new Reservation(11L, 2L, 1L, base.minusDays(3), base.minusDays(2), "ACTIVE"))
+                .peek(row -> {
+                    if (row.getId() == 11L) {
+                        availabilityIndex.apply(new Reservation(12L, 2L, 2L, base, base.plusHours(1), "ACTIVE"));
+                    }
+                });
+
+        // When
+        int loaded = availabilityIndex.rebuild(rows);
+
+        // Then
+        assertThat(loaded).isEqualTo(2);
+        assertThat(availabilityIndex.findFreeSpots(base, base.plusHours(1), null))
+                .extracting(ParkingSpotDTO::getId).containsExactly(3L);
+    }
+
+    @Test
+    void apply_WhenLongerThanIndexedSlots_ShouldKeepBookingAsInterval() {
+        // Given
+        AvailabilityIndex index = new AvailabilityIndex(Duration.ofMinutes(15), 4);
+        index.replaceSpots(List.of(new ParkingSpotDTO(1L, "A-101", 1, "FREE"), new ParkingSpotDTO(2L, "A-102", 1, "FREE")));
+        index.apply(new Reservation(10L, 1L, 1L, base, base.plusDays(20), "ACTIVE"));
+
+        // When
+        List<ParkingSpotDTO> during = index.findFreeSpots(base.plusDays(10), base.plusDays(10).plusHours(1), null);
+        List<ParkingSpotDTO> after = index.findFreeSpots(base.plusDays(20), base.plusDays(21), null);
+        index.remove(10L);
+
+        // Then
+        assertThat(during).extracting(ParkingSpotDTO::getId).containsExactly(2L);
+        assertThat(after).extracting(ParkingSpotDTO::getId).containsExactly(1L, 2L);
+        assertThat(index.findFreeSpots(base, base.plusDays(20), null)).extracting(ParkingSpotDTO::getId)
+                .containsExactly(1L, 2L);
+    }
+
+    @Test
+    void findFreeSpots_WhenWindowEmpty_ShouldThrowException() {
+        assertThatThrownBy(() -> availabilityIndex.findFreeSpots(base, base, null))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void findFreeSpots_ShouldMatchBruteForceOnRandomBookings() {
+        // Given
+        Random random = new Random(42);
+        List<ParkingSpotDTO> catalog = LongStream.rangeClosed(1, 200)
+                .mapToObj(id -> new ParkingSpotDTO(id, "S-" + id, (int) (id % 4), "FREE"))
+                .toList();
+        availabilityIndex.replaceSpots(catalog);
+        List<Reservation> bookings = new ArrayList<>();
+        long reservationId = 1;
+        for (ParkingSpotDTO spot : catalog) {
+            LocalDateTime cursor = base.plusMinutes(random.nextInt(120));
+            for (int i = 0; i < 5; i++) {
+                LocalDateTime end = cursor.plusMinutes(1 + random.nextInt(300));
+                bookings.add(new Reservation(reservationId++, spot.getId(), 1L, cursor, end, "ACTIVE"));
+                cursor = end.plusMinutes(random.nextInt(90));
+            }
+        }
+        bookings.forEach(availabilityIndex::apply);
+
+        for (int query = 0; query < 500; query++) {
+            // When
+            LocalDateTime from = base.plusMinutes(random.nextInt(24 * 60)).plusSeconds(random.nextInt(60));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(600));
+            Integer floor = random.nextBoolean() ? random.nextInt(4) : null;
+            List<Long> free = availabilityIndex.findFreeSpots(from, to, floor).stream().map(ParkingSpotDTO::getId).toList();
+
+            // Then
+            List<Long> expected = catalog.stream()
+                    .filter(spot -> floor == null || spot.getFloor().equals(floor))
+                    .filter(spot -> bookings.stream().noneMatch(booking -> booking.getParkingSpotId().equals(spot.getId())
+                            && booking.getStartTime().isBefore(to) && booking.getEndTime().isAfter(from)))
+                    .map(ParkingSpotDTO::getId)
+                    .toList();
+            assertThat(free).as("free spots between %s and %s on floor %s", from, to, floor).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void findFreeSpots_ShouldAnswerQuicklyForTensOfThousandsOfSpots() {
+        // Given
+        int spots = 20_000;
+        List<ParkingSpotDTO> catalog = LongStream.rangeClosed(1, spots)
+                .mapToObj(id -> new ParkingSpotDTO(id, "S-" + id, (int) (id % 10), "FREE"))
+                .toList();
+        availabilityIndex.replaceSpots(catalog);
+        Random random = new Random(7);
+        long reservationId = 1;
+        for (long spot = 1; spot <= spots; spot++) {
+            LocalDateTime start = base.plusMinutes(random.nextInt(8 * 60));
+            availabilityIndex.apply(new Reservation(reservationId++, spot, 1L, start, start.plusMinutes(30 + random.nextInt(180)), "ACTIVE"));
+        }
+
+        // When
+        int queries = 2_000;
+        long[] micros = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            LocalDateTime from = base.plusMinutes(random.nextInt(10 * 60));
+            long started = System.nanoTime();
+            availabilityIndex.findFreeSpots(from, from.plusHours(2), random.nextInt(10));
+            micros[i] = (System.nanoTime() - started) / 1_000;
+        }
+
+        // Then
+        Arrays.sort(micros);
+        System.out.printf("Availability over %d spots: p50=%d us, p99=%d us%n",
+                spots, micros[queries / 2], micros[queries * 99 / 100]);
+        assertThat(micros[queries / 2]).isLessThan(50_000);
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.reservation.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.reservation.client.ParkingServiceClient;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.entity.Reservation;
+import org.example.reservation.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityServiceTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private ParkingServiceClient parkingServiceClient;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private AvailabilityIndex availabilityIndex = new AvailabilityIndex(Duration.ofMinutes(15), 96);
+
+    @InjectMocks
+    private AvailabilityService availabilityService;
+
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        base = LocalDateTime.now().plusDays(1).withNano(0);
+    }
+
+    @Test
+    void findFreeSpots_ShouldLoadSpotCatalogPageByPageOnce() {
+        // Given
+        when(parkingServiceClient.listParkingSpots(null, 1000)).thenReturn(ResponseEntity.ok()
+                .header("X-Next-Cursor", "1")
+                .body(List.of(new ParkingSpotDTO(1L, "A-101", 1, "FREE"))));
+        when(parkingServiceClient.listParkingSpots(1L, 1000)).thenReturn(ResponseEntity.ok(
+                List.of(new ParkingSpotDTO(2L, "A-102", 1, "OCCUPIED"))));
+
+        // When
+        List<ParkingSpotDTO> first = availabilityService.findFreeSpots(base, base.plusHours(1), 1);
+        List<ParkingSpotDTO> second = availabilityService.findFreeSpots(base, base.plusHours(1), 1);
+
+        // Then
+        assertThat(first).extracting(ParkingSpotDTO::getId).containsExactly(1L, 2L);
+        assertThat(second).isEqualTo(first);
+        verify(parkingServiceClient, times(1)).listParkingSpots(null, 1000);
+        verify(parkingServiceClient, times(1)).listParkingSpots(1L, 1000);
+    }
+
+    @Test
+    void rebuild_ShouldLoadActiveReservationsAndDetachThem() {
+        // Given
+        Reservation reservation = new Reservation(1L, 1L, 1L, base, base.plusHours(1), "ACTIVE");
+        when(reservationRepository.streamByStatusOrderByIdAsc("ACTIVE")).thenReturn(Stream.of(reservation));
+
+        // When
+        availabilityService.rebuild();
+
+        // Then
+        assertThat(availabilityIndex.bookingCount()).isEqualTo(1);
+        verify(entityManager).detach(reservation);
+    }
+}
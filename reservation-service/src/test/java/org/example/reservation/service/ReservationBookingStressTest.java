@@ -0,0 +1,185 @@
+package org.example.reservation.service;
+
+import org.example.reservation.client.DownstreamCache;
+import org.example.reservation.client.DownstreamCalls;
+import org.example.reservation.client.ParkingServiceClient;
+import org.example.reservation.client.VehicleServiceClient;
+import org.example.reservation.entity.Reservation;
+import org.example.reservation.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:booking-stress;MODE=PostgreSQL;LOCK_TIMEOUT=10000")
+@Import({ReservationService.class, SpotLockService.class, AvailabilityIndex.class,
+        SpotStatusOutbox.class, SpotStatusRelay.class, ChangeLog.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationBookingStressTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+    private static final long SPOTS = 4;
+
+    private final AtomicInteger booked = new AtomicInteger();
+    private final AtomicInteger conflicts = new AtomicInteger();
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @MockBean
+    private ParkingServiceClient parkingServiceClient;
+
+    @MockBean
+    private VehicleServiceClient vehicleServiceClient;
+
+    @MockBean
+    private DownstreamCalls downstreamCalls;
+
+    @MockBean
+    private DownstreamCache downstreamCache;
+
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        base = LocalDateTime.now().withNano(0).plusDays(1);
+    }
+
+    // Small enough for every build; the full load runs with -Pbenchmark
+    @Test
+    void concurrentBookings_ShouldNeverProduceOverlappingActiveReservations() throws Exception {
+        // When
+        bookConcurrently(4, 12);
+
+        // Then
+        assertThat(booked.get() + conflicts.get()).isEqualTo(4 * 12);
+        assertThat(booked.get()).isPositive();
+        assertThat(conflicts.get()).isPositive();
+        assertNoOverlaps();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void concurrentBookings_ShouldStayOverlapFreeUnderLoad() throws Exception {
+        // When
+        long started = System.nanoTime();
+        bookConcurrently(THREADS, ATTEMPTS_PER_THREAD);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        // Then
+        System.out.printf("Booking stress: %d booked, %d conflicts, %d attempts in %d ms (%.0f attempts/s)%n",
+                booked.get(), conflicts.get(), THREADS * ATTEMPTS_PER_THREAD, elapsedMs,
+                THREADS * ATTEMPTS_PER_THREAD * 1000.0 / Math.max(elapsedMs, 1));
+        assertThat(booked.get() + conflicts.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD);
+        assertNoOverlaps();
+    }
+
+    @Test
+    void concurrentBookingsOfSameSlot_ShouldHaveExactlyOneWinner() throws Exception {
+        // Given
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < THREADS; t++) {
+            long vehicle = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    reservationService.createReservation(new Reservation(null, 42L, vehicle, base, base.plusHours(2), null));
+                    booked.incrementAndGet();
+                } catch (ReservationConflictException e) {
+                    // expected for every thread but one
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        // Then
+        assertThat(booked.get()).isEqualTo(1);
+        assertThat(reservationRepository.findByParkingSpotId(42L)).hasSize(1);
+    }
+
+    // Each thread books attempts slots over SPOTS spots; the 1-3 hour slots
+    // start on the hour inside a 24 hour window, so they overlap often.
+    private void bookConcurrently(int threads, int attempts) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attempts; i++) {
+                    long spot = (thread + i) % SPOTS + 1;
+                    LocalDateTime from = base.plusHours((thread * 7L + i * 3L) % 24);
+                    LocalDateTime to = from.plusHours(1 + (thread + i) % 3);
+                    try {
+                        reservationService.createReservation(new Reservation(null, spot, (long) thread, from, to, null));
+                        booked.incrementAndGet();
+                    } catch (ReservationConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+
+    private void assertNoOverlaps() {
+        Map<Long, List<Reservation>> bySpot = reservationRepository.findByStatus("ACTIVE").stream()
+                .collect(Collectors.groupingBy(Reservation::getParkingSpotId));
+        assertThat(bySpot.values().stream().mapToInt(List::size).sum()).isEqualTo(booked.get());
+        bySpot.values().forEach(reservations -> {
+            for (int i = 0; i < reservations.size(); i++) {
+                for (int j = i + 1; j < reservations.size(); j++) {
+                    Reservation a = reservations.get(i);
+                    Reservation b = reservations.get(j);
+                    assertThat(a.getStartTime().isBefore(b.getEndTime()) && b.getStartTime().isBefore(a.getEndTime()))
+                            .as("reservations %d and %d overlap", a.getId(), b.getId())
+                            .isFalse();
+                }
+            }
+        });
+    }
+}
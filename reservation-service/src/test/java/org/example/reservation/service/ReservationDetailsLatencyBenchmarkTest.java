@@ -0,0 +1,118 @@
+package org.example.reservation.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.reservation.client.DownstreamCache;
+import org.example.reservation.client.DownstreamCalls;
+import org.example.reservation.client.ParkingServiceClient;
+import org.example.reservation.client.VehicleServiceClient;
+import org.example.reservation.config.DownstreamConfig;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.dto.VehicleDTO;
+import org.example.reservation.entity.Reservation;
+import org.example.reservation.repository.ReservationRepository;
+import org.example.reservation.repository.ReservationTombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares /reservations/{id}/details latency with sequential and concurrent
+ * downstream calls against stubbed clients that sleep to simulate network hops.
+ */
+@Tag("benchmark")
+class ReservationDetailsLatencyBenchmarkTest {
+
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 40;
+    private static final long PARKING_LATENCY_MS = 20;
+    private static final long VEHICLE_LATENCY_MS = 30;
+
+    private ExecutorService executor;
+    private ReservationRepository reservationRepository;
+    private ParkingServiceClient parkingServiceClient;
+    private VehicleServiceClient vehicleServiceClient;
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        reservationRepository = mock(ReservationRepository.class);
+        when(reservationRepository.findById(anyLong()))
+                .thenReturn(Optional.of(new Reservation(1L, 1L, 1L, now, now.plusHours(2), "ACTIVE")));
+
+        parkingServiceClient = mock(ParkingServiceClient.class);
+        when(parkingServiceClient.getParkingSpot(anyLong())).thenAnswer(invocation -> {
+            Thread.sleep(PARKING_LATENCY_MS);
+            return new ParkingSpotDTO(1L, "A-101", 1, "OCCUPIED");
+        });
+
+        vehicleServiceClient = mock(VehicleServiceClient.class);
+        when(vehicleServiceClient.getVehicle(anyLong())).thenAnswer(invocation -> {
+            Thread.sleep(VEHICLE_LATENCY_MS);
+            return new VehicleDTO(1L, "А123БВ", "Toyota Camry", "Black", 1L);
+        });
+
+        executor = new DownstreamConfig().downstreamExecutor(8, 64);
+        // A zero-sized near-cache keeps every iteration on the network path.
+        reservationService = new ReservationService(reservationRepository, parkingServiceClient,
+                vehicleServiceClient, new DownstreamCalls(executor, Duration.ofSeconds(1)),
+                new DownstreamCache(0, Duration.ofMinutes(1), 0, Duration.ofMinutes(1)),
+                mock(EntityManager.class), mock(SpotLockService.class),
+                mock(AvailabilityIndex.class), mock(SpotStatusOutbox.class),
+                mock(ReservationTombstoneRepository.class), mock(ChangeLog.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getReservationDetails_ConcurrentFanOut_ShouldBeBoundedBySlowestHop() {
+        long[] sequential = measure(() -> {
+            Reservation reservation = reservationRepository.findById(1L).orElseThrow();
+            parkingServiceClient.getParkingSpot(reservation.getParkingSpotId());
+            vehicleServiceClient.getVehicle(reservation.getVehicleId());
+        });
+        long[] concurrent = measure(() -> reservationService.getReservationDetails(1L));
+
+        System.out.printf("details latency, sequential: p50=%.1f ms p99=%.1f ms%n",
+                percentile(sequential, 50) / 1e6, percentile(sequential, 99) / 1e6);
+        System.out.printf("details latency, concurrent: p50=%.1f ms p99=%.1f ms%n",
+                percentile(concurrent, 50) / 1e6, percentile(concurrent, 99) / 1e6);
+
+        assertThat(percentile(sequential, 50)).isGreaterThanOrEqualTo((PARKING_LATENCY_MS + VEHICLE_LATENCY_MS) * 1_000_000);
+        assertThat(percentile(concurrent, 50)).isLessThan((PARKING_LATENCY_MS + VEHICLE_LATENCY_MS) * 1_000_000);
+    }
+
+    private long[] measure(Runnable call) {
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.reservation.service;
+
+import org.example.reservation.config.ReservationSequenceAligner;
+import org.example.reservation.dto.BulkImportItem;
+import org.example.reservation.dto.BulkImportReport;
+import org.example.reservation.entity.Reservation;
+import org.example.reservation.repository.ReservationRepository;
+import org.example.reservation.repository.SpotStatusChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk-import;MODE=PostgreSQL",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=500",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "reservation.bulk.chunk-size=500"})
+@Import({ReservationImportService.class, SpotLockService.class, SpotStatusOutbox.class,
+        AvailabilityIndex.class, ReservationSequenceAligner.class, ChangeLog.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationImportServiceTest {
+
+    private static final int THROUGHPUT_ROWS = 20_000;
+    private static final long THROUGHPUT_SPOTS = 200;
+
+    @Autowired
+    private ReservationImportService reservationImportService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private SpotStatusChangeRepository spotStatusChangeRepository;
+
+    @Autowired
+    private ReservationSequenceAligner reservationSequenceAligner;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        spotStatusChangeRepository.deleteAll();
+        base = LocalDateTime.now().withNano(0).plusDays(1);
+    }
+
+    @Test
+    void importReservations_ShouldReportEachItemAndRejectOverlapsAndInvalidRows() {
+        // Given
+        Reservation existing = reservationRepository.save(
+                new Reservation(null, 1L, 1L, base, base.plusHours(2), "ACTIVE"));
+        List<Reservation> items = List.of(
+                new Reservation(null, 1L, 2L, base.plusHours(1), base.plusHours(3), null),
+                new Reservation(null, 2L, 3L, base, base.plusHours(2), null),
+                new Reservation(null, 2L, 4L, base.plusHours(1), base.plusHours(3), null),
+                new Reservation(null, 3L, 5L, base.plusHours(2), base.plusHours(1), null),
+                new Reservation(null, 1L, 6L, base.plusHours(2), base.plusHours(4), "CANCELLED"));
+
+        // When
+        BulkImportReport report = reservationImportService.importReservations(items.iterator());
+
+        // Then
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getItems()).extracting(BulkImportItem::getResult)
+                .containsExactly("REJECTED", "CREATED", "REJECTED", "REJECTED", "CREATED");
+        assertThat(report.getItems().get(0).getError()).isEqualTo("Overlaps reservation " + existing.getId());
+        assertThat(report.getItems().get(2).getError()).isEqualTo("Overlaps item 1");
+        assertThat(report.getItems().get(3).getError()).isEqualTo("Reservation end time must be after start time");
+        assertThat(reservationRepository.findById(report.getItems().get(4).getId()))
+                .hasValueSatisfying(saved -> assertThat(saved.getStatus()).isEqualTo("ACTIVE"));
+        assertThat(spotStatusChangeRepository.findAll())
+                .extracting(change -> change.getParkingSpotId())
+                .containsExactlyInAnyOrder(1L, 2L);
+        // one change version per imported row, handed out as a block
+        long first = reservationRepository.findById(report.getItems().get(1).getId()).orElseThrow().getChangeVersion();
+        assertThat(reservationRepository.findById(report.getItems().get(4).getId()))
+                .hasValueSatisfying(saved -> assertThat(saved.getChangeVersion()).isEqualTo(first + 1));
+    }
+
+    @Test
+    void importReservations_WhenInputBreaksOff_ShouldKeepEarlierItemsAndReportTheBrokenOne() {
+        // Given
+        Iterator<Reservation> items = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Reservation next() {
+                if (next == 2) {
+                    throw new NoSuchElementException("Unexpected token");
+                }
+                long spot = ++next;
+                return new Reservation(null, spot, spot, base, base.plusHours(1), null);
+            }
+        };
+
+        // When
+        BulkImportReport report = reservationImportService.importReservations(items);
+
+        // Then
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getItems()).hasSize(3);
+        assertThat(report.getItems().get(2).getIndex()).isEqualTo(2);
+        assertThat(report.getItems().get(2).getError()).startsWith("Malformed input");
+        assertThat(reservationRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void align_WhenRowsExistAboveSequence_ShouldMoveSequencePastThem() {
+        // Given
+        jdbcTemplate.update("insert into reservations (id, parking_spot_id, vehicle_id, start_time, end_time, status) "
+                + "values (100000, 1, 1, ?, ?, 'COMPLETED')", base, base.plusHours(1));
+
+        // When
+        reservationSequenceAligner.align();
+
+        // Then
+        Long next = jdbcTemplate.queryForObject("select next value for " + Reservation.ID_SEQUENCE, Long.class);
+        assertThat(next - Reservation.ID_ALLOCATION_SIZE).isGreaterThan(100000L);
+    }
+
+    @Test
+    void importReservations_OverSeveralChunks_ShouldCreateEveryRow() {
+        // Given
+        List<Reservation> items = backToBack(1_700);
+
+        // When
+        BulkImportReport report = reservationImportService.importReservations(items.iterator());
+
+        // Then
+        assertThat(report.getCreated()).isEqualTo(1_700);
+        assertThat(report.getRejected()).isZero();
+        assertThat(report.getItems()).hasSize(1_700)
+                .extracting(BulkImportItem::getResult).containsOnly("CREATED");
+        assertThat(reservationRepository.count()).isEqualTo(1_700);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void importReservations_ShouldSustainBatchedThroughput() {
+        // Given
+        List<Reservation> items = backToBack(THROUGHPUT_ROWS);
+
+        // When
+        long startedAt = System.nanoTime();
+        BulkImportReport report = reservationImportService.importReservations(items.iterator());
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        // Then
+        double rowsPerSecond = THROUGHPUT_ROWS / seconds;
+        System.out.printf("Bulk import: %d rows in %.2fs (%.0f rows/s)%n", THROUGHPUT_ROWS, seconds, rowsPerSecond);
+        assertThat(report.getCreated()).isEqualTo(THROUGHPUT_ROWS);
+        assertThat(reservationRepository.count()).isEqualTo(THROUGHPUT_ROWS);
+        // the 10k rows/s target is for a local Postgres; in-memory H2 on a shared runner only guards against regressions
+        assertThat(rowsPerSecond).isGreaterThan(500);
+    }
+
+    // Hour-long bookings that follow each other on THROUGHPUT_SPOTS spots
+    private List<Reservation> backToBack(int count) {
+        List<Reservation> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime start = base.plusHours(i / THROUGHPUT_SPOTS);
+            items.add(new Reservation(null, i % THROUGHPUT_SPOTS + 1, (long) i, start, start.plusMinutes(59), null));
+        }
+        return items;
+    }
+}
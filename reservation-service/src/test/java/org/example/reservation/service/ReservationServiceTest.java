@@ -1,28 +1,48 @@
 package org.example.reservation.service;
 
+import jakarta.persistence.EntityManager;
+import org.example.reservation.client.DownstreamCache;
+import org.example.reservation.client.DownstreamCalls;
 import org.example.reservation.client.ParkingServiceClient;
 import org.example.reservation.client.VehicleServiceClient;
+import org.example.reservation.dto.ChangeSet;
+import org.example.reservation.dto.CursorPage;
 import org.example.reservation.dto.ParkingSpotDTO;
 import org.example.reservation.dto.ReservationDetailsDTO;
+import org.example.reservation.dto.ReservationSearchCriteria;
 import org.example.reservation.dto.VehicleDTO;
 import org.example.reservation.entity.Reservation;
+import org.example.reservation.entity.ReservationTombstone;
 import org.example.reservation.repository.ReservationRepository;
+import org.example.reservation.repository.ReservationTombstoneRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 
 @ExtendWith(MockitoExtension.class)
 class ReservationServiceTest {
@@ -36,6 +56,30 @@ class ReservationServiceTest {
     @Mock
     private VehicleServiceClient vehicleServiceClient;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private SpotLockService spotLockService;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private SpotStatusOutbox spotStatusOutbox;
+
+    @Mock
+    private ReservationTombstoneRepository reservationTombstoneRepository;
+
+    @Mock
+    private ChangeLog changeLog;
+
+    @Spy
+    private DownstreamCalls downstreamCalls = new DownstreamCalls(Runnable::run, Duration.ofSeconds(1));
+
+    @Spy
+    private DownstreamCache downstreamCache = new DownstreamCache(100, Duration.ofMinutes(1), 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private ReservationService reservationService;
 
@@ -54,15 +98,17 @@ class ReservationServiceTest {
     void getAllReservations_ShouldReturnAllReservations() {
         // Given
         List<Reservation> reservations = Arrays.asList(reservation1, reservation2);
-        when(reservationRepository.findAll()).thenReturn(reservations);
+        when(reservationRepository.findByIdGreaterThan(0L, PageRequest.of(0, 101, Sort.by("id")))).thenReturn(reservations);
 
         // When
-        List<Reservation> result = reservationService.getAllReservations();
+        CursorPage<Reservation> result = reservationService.getAllReservations(null, 100);
 
         // Then
-        assertThat(result).hasSize(2);
-        assertThat(result).containsExactly(reservation1, reservation2);
-        verify(reservationRepository, times(1)).findAll();
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getItems()).containsExactly(reservation1, reservation2);
+        assertThat(result.getNext()).isNull();
+        verify(reservationRepository, times(1)).findByIdGreaterThan(0L, PageRequest.of(0, 101, Sort.by("id")));
+        verify(reservationRepository, never()).findAll();
     }
 
     @Test
@@ -108,45 +154,59 @@ class ReservationServiceTest {
     void getReservationsByParkingSpot_ShouldReturnFilteredReservations() {
         // Given
         List<Reservation> reservations = Arrays.asList(reservation1);
-        when(reservationRepository.findByParkingSpotId(1L)).thenReturn(reservations);
+        when(reservationRepository.findByParkingSpotIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class))).thenReturn(reservations);
 
         // When
-        List<Reservation> result = reservationService.getReservationsByParkingSpot(1L);
+        CursorPage<Reservation> result = reservationService.getReservationsByParkingSpot(1L, null, 100);
 
         // Then
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getParkingSpotId()).isEqualTo(1L);
-        verify(reservationRepository, times(1)).findByParkingSpotId(1L);
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getItems().get(0).getParkingSpotId()).isEqualTo(1L);
+        verify(reservationRepository, times(1)).findByParkingSpotIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class));
     }
 
     @Test
     void getReservationsByVehicle_ShouldReturnFilteredReservations() {
         // Given
         List<Reservation> reservations = Arrays.asList(reservation1);
-        when(reservationRepository.findByVehicleId(1L)).thenReturn(reservations);
+        when(reservationRepository.findByVehicleIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class))).thenReturn(reservations);
 
         // When
-        List<Reservation> result = reservationService.getReservationsByVehicle(1L);
+        CursorPage<Reservation> result = reservationService.getReservationsByVehicle(1L, null, 100);
 
         // Then
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getVehicleId()).isEqualTo(1L);
-        verify(reservationRepository, times(1)).findByVehicleId(1L);
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getItems().get(0).getVehicleId()).isEqualTo(1L);
+        verify(reservationRepository, times(1)).findByVehicleIdAndIdGreaterThan(eq(1L), eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    void getReservationsByStatus_WithoutCursorOrLimit_ShouldReturnEveryReservation() {
+        // Given
+        when(reservationRepository.findByStatus("ACTIVE")).thenReturn(List.of(reservation1));
+
+        // When
+        CursorPage<Reservation> result = reservationService.getReservationsByStatus("ACTIVE", null, null);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(reservation1);
+        assertThat(result.getNext()).isNull();
+        verify(reservationRepository, never()).findByStatusAndIdGreaterThan(any(), any(), any());
     }
 
     @Test
     void getReservationsByStatus_ShouldReturnFilteredReservations() {
         // Given
         List<Reservation> activeReservations = Arrays.asList(reservation1);
-        when(reservationRepository.findByStatus("ACTIVE")).thenReturn(activeReservations);
+        when(reservationRepository.findByStatusAndIdGreaterThan(eq("ACTIVE"), eq(0L), any(Pageable.class))).thenReturn(activeReservations);
 
         // When
-        List<Reservation> result = reservationService.getReservationsByStatus("ACTIVE");
+        CursorPage<Reservation> result = reservationService.getReservationsByStatus("ACTIVE", null, 100);
 
         // Then
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getStatus()).isEqualTo("ACTIVE");
-        verify(reservationRepository, times(1)).findByStatus("ACTIVE");
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getItems().get(0).getStatus()).isEqualTo("ACTIVE");
+        verify(reservationRepository, times(1)).findByStatusAndIdGreaterThan(eq("ACTIVE"), eq(0L), any(Pageable.class));
     }
 
     @Test
@@ -154,10 +214,8 @@ class ReservationServiceTest {
         // Given
         Reservation newReservation = new Reservation(null, 1L, 1L, now, now.plusHours(8), "ACTIVE");
         Reservation savedReservation = new Reservation(3L, 1L, 1L, now, now.plusHours(8), "ACTIVE");
-        ParkingSpotDTO parkingSpot = new ParkingSpotDTO(1L, "A-101", 1, "RESERVED");
         
         when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
-        when(parkingServiceClient.updateParkingSpotStatus(1L, "RESERVED")).thenReturn(parkingSpot);
 
         // When
         Reservation result = reservationService.createReservation(newReservation);
@@ -166,7 +224,8 @@ class ReservationServiceTest {
         assertThat(result.getId()).isEqualTo(3L);
         assertThat(result.getStatus()).isEqualTo("ACTIVE");
         verify(reservationRepository, times(1)).save(any(Reservation.class));
-        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(1L, "RESERVED");
+        verify(spotStatusOutbox, times(1)).enqueue(1L, "OCCUPIED");
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(any(), any(), any());
     }
 
     @Test
@@ -188,10 +247,8 @@ class ReservationServiceTest {
     @Test
     void completeReservation_ShouldUpdateStatusAndFreeParkingSpot() {
         // Given
-        ParkingSpotDTO parkingSpot = new ParkingSpotDTO(1L, "A-101", 1, "FREE");
         when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation1));
         when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation1);
-        when(parkingServiceClient.updateParkingSpotStatus(1L, "FREE")).thenReturn(parkingSpot);
 
         // When
         Reservation result = reservationService.completeReservation(1L);
@@ -200,16 +257,15 @@ class ReservationServiceTest {
         assertThat(result.getStatus()).isEqualTo("COMPLETED");
         verify(reservationRepository, times(1)).findById(1L);
         verify(reservationRepository, times(1)).save(any(Reservation.class));
-        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(1L, "FREE");
+        verify(spotStatusOutbox, times(1)).enqueue(1L, "FREE");
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(any(), any(), any());
     }
 
     @Test
     void cancelReservation_ShouldUpdateStatusAndFreeParkingSpot() {
         // Given
-        ParkingSpotDTO parkingSpot = new ParkingSpotDTO(1L, "A-101", 1, "FREE");
         when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation1));
         when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation1);
-        when(parkingServiceClient.updateParkingSpotStatus(1L, "FREE")).thenReturn(parkingSpot);
 
         // When
         Reservation result = reservationService.cancelReservation(1L);
@@ -218,7 +274,8 @@ class ReservationServiceTest {
         assertThat(result.getStatus()).isEqualTo("CANCELLED");
         verify(reservationRepository, times(1)).findById(1L);
         verify(reservationRepository, times(1)).save(any(Reservation.class));
-        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(1L, "FREE");
+        verify(spotStatusOutbox, times(1)).enqueue(1L, "FREE");
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(any(), any(), any());
     }
 
     @Test
@@ -247,5 +304,234 @@ class ReservationServiceTest {
         verify(reservationRepository, times(1)).findById(999L);
         verify(reservationRepository, never()).save(any(Reservation.class));
     }
-}
 
+    @Test
+    void getReservationDetails_ForBatch_ShouldCallEachServiceOnce() {
+        // Given
+        Reservation reservation3 = new Reservation(3L, 1L, 2L, now, now.plusHours(2), "ACTIVE");
+        when(reservationRepository.findAllById(any())).thenReturn(Arrays.asList(reservation3, reservation1, reservation2));
+        when(parkingServiceClient.getParkingSpots(anyCollection())).thenReturn(Arrays.asList(
+                new ParkingSpotDTO(1L, "A-101", 1, "OCCUPIED"),
+                new ParkingSpotDTO(2L, "A-102", 1, "FREE")));
+        when(vehicleServiceClient.getVehicles(anyCollection())).thenReturn(Arrays.asList(
+                new VehicleDTO(1L, "А123БВ", "Toyota Camry", "Black", 1L),
+                new VehicleDTO(2L, "В456ГД", "BMW X5", "White", 2L)));
+
+        // When
+        List<ReservationDetailsDTO> result = reservationService.getReservationDetails(Arrays.asList(1L, 2L, 3L, 1L));
+
+        // Then
+        assertThat(result).extracting(details -> details.getReservation().getId()).containsExactly(1L, 2L, 3L);
+        assertThat(result.get(2).getParkingSpot().getNumber()).isEqualTo("A-101");
+        assertThat(result.get(2).getVehicle().getPlateNumber()).isEqualTo("В456ГД");
+        verify(parkingServiceClient, times(1)).getParkingSpots(Set.of(1L, 2L));
+        verify(vehicleServiceClient, times(1)).getVehicles(Set.of(1L, 2L));
+        verify(parkingServiceClient, never()).getParkingSpot(any());
+        verify(vehicleServiceClient, never()).getVehicle(any());
+    }
+
+    @Test
+    void getReservationDetails_ForEmptyPage_ShouldNotCallDownstream() {
+        // Given
+        PageRequest pageable = PageRequest.of(5, 20);
+        when(reservationRepository.findAll(pageable)).thenReturn(new PageImpl<>(List.of(), pageable, 2));
+
+        // When
+        Page<ReservationDetailsDTO> result = reservationService.getReservationDetails(pageable);
+
+        // Then
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        verifyNoInteractions(parkingServiceClient, vehicleServiceClient);
+    }
+
+    @Test
+    void getReservationDetails_WhenCached_ShouldNotCallDownstreamAgain() {
+        // Given
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation1));
+        when(parkingServiceClient.getParkingSpot(1L)).thenReturn(new ParkingSpotDTO(1L, "A-101", 1, "OCCUPIED"));
+        when(vehicleServiceClient.getVehicle(1L)).thenReturn(new VehicleDTO(1L, "А123БВ", "Toyota Camry", "Black", 1L));
+
+        // When
+        reservationService.getReservationDetails(1L);
+        ReservationDetailsDTO result = reservationService.getReservationDetails(1L);
+
+        // Then
+        assertThat(result.getParkingSpot().getNumber()).isEqualTo("A-101");
+        verify(parkingServiceClient, times(1)).getParkingSpot(1L);
+        verify(vehicleServiceClient, times(1)).getVehicle(1L);
+    }
+
+    @Test
+    void completeReservation_ShouldWriteNewSpotStatusThroughToCache() {
+        // Given
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation1));
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation1);
+        when(parkingServiceClient.getParkingSpot(1L)).thenReturn(new ParkingSpotDTO(1L, "A-101", 1, "OCCUPIED"));
+        when(vehicleServiceClient.getVehicle(1L)).thenReturn(new VehicleDTO(1L, "А123БВ", "Toyota Camry", "Black", 1L));
+        reservationService.getReservationDetails(1L);
+
+        // When
+        reservationService.completeReservation(1L);
+        ReservationDetailsDTO result = reservationService.getReservationDetails(1L);
+
+        // Then
+        assertThat(result.getParkingSpot().getStatus()).isEqualTo("FREE");
+        assertThat(result.getParkingSpot().getNumber()).isEqualTo("A-101");
+        verify(parkingServiceClient, times(1)).getParkingSpot(1L);
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(any(), any(), any());
+    }
+
+    @Test
+    void createReservation_ShouldWriteOccupiedStatusThroughToCache() {
+        // Given
+        Reservation newReservation = new Reservation(null, 1L, 1L, now, now.plusHours(8), "ACTIVE");
+        Reservation savedReservation = new Reservation(3L, 1L, 1L, now, now.plusHours(8), "ACTIVE");
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+        when(parkingServiceClient.getParkingSpot(1L)).thenReturn(new ParkingSpotDTO(1L, "A-101", 1, "FREE"));
+        downstreamCache.getParkingSpot(1L, parkingServiceClient::getParkingSpot);
+
+        // When
+        reservationService.createReservation(newReservation);
+
+        // Then
+        assertThat(downstreamCache.getParkingSpot(1L, parkingServiceClient::getParkingSpot).getStatus())
+                .isEqualTo("OCCUPIED");
+        verify(parkingServiceClient, times(1)).getParkingSpot(1L);
+    }
+
+    @Test
+    void streamReservationsByStatus_ShouldPassEachRowAndDetachIt() {
+        // Given
+        when(reservationRepository.streamByStatusOrderByIdAsc("ACTIVE")).thenReturn(Stream.of(reservation1, reservation2));
+        List<Reservation> written = new ArrayList<>();
+
+        // When
+        reservationService.streamReservationsByStatus("ACTIVE", written::add);
+
+        // Then
+        assertThat(written).containsExactly(reservation1, reservation2);
+        verify(entityManager).detach(reservation1);
+        verify(entityManager).detach(reservation2);
+    }
+
+    @Test
+    void createReservation_WhenSlotOverlaps_ShouldThrowConflictAndNotSave() {
+        // Given
+        Reservation newReservation = new Reservation(null, 1L, 2L, now.plusHours(2), now.plusHours(3), null);
+        when(reservationRepository.findOverlapping(1L, now.plusHours(2), now.plusHours(3), 0L))
+                .thenReturn(List.of(reservation1));
+
+        // When & Then
+        assertThatThrownBy(() -> reservationService.createReservation(newReservation))
+                .isInstanceOf(ReservationConflictException.class)
+                .hasMessage("Parking spot 1 is already reserved by reservation 1");
+
+        verify(spotLockService, times(1)).lock(1L);
+        verify(reservationRepository, never()).save(any(Reservation.class));
+        verify(spotStatusOutbox, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void createReservation_WhenEndNotAfterStart_ShouldThrowException() {
+        // Given
+        Reservation newReservation = new Reservation(null, 1L, 1L, now, now, null);
+
+        // When & Then
+        assertThatThrownBy(() -> reservationService.createReservation(newReservation))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(spotLockService, never()).lock(any());
+        verify(reservationRepository, never()).save(any(Reservation.class));
+    }
+
+    @Test
+    void createReservation_WhenLongerThanThirtyDays_ShouldThrowException() {
+        // Given
+        Reservation newReservation = new Reservation(null, 1L, 1L, now, now.plusDays(30).plusMinutes(1), null);
+
+        // When & Then
+        assertThatThrownBy(() -> reservationService.createReservation(newReservation))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Reservation cannot be longer than 30 days");
+
+        verify(reservationRepository, never()).save(any(Reservation.class));
+    }
+
+    @Test
+    void updateReservation_WhenActive_ShouldExcludeItselfFromOverlapCheck() {
+        // Given
+        Reservation updatedDetails = new Reservation(null, 1L, 1L, now, now.plusHours(10), "ACTIVE");
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation1));
+        when(reservationRepository.findOverlapping(1L, now, now.plusHours(10), 1L)).thenReturn(List.of());
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation1);
+
+        // When
+        reservationService.updateReservation(1L, updatedDetails);
+
+        // Then
+        verify(spotLockService, times(1)).lock(1L);
+        verify(reservationRepository, times(1)).findOverlapping(1L, now, now.plusHours(10), 1L);
+    }
+
+    @Test
+    void searchReservations_WithCursor_ShouldContinueAfterCursorRow() {
+        // Given
+        ReservationSearchCriteria criteria = new ReservationSearchCriteria("ACTIVE", 1L, null, null, null);
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation1));
+        when(reservationRepository.search(criteria, reservation1, 2)).thenReturn(Arrays.asList(reservation2));
+
+        // When
+        CursorPage<Reservation> result = reservationService.searchReservations(criteria, 1L, 1);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(reservation2);
+        assertThat(result.getNext()).isNull();
+    }
+
+    @Test
+    void searchReservations_WhenCursorUnknown_ShouldThrow() {
+        // Given
+        when(reservationRepository.findById(999L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> reservationService.searchReservations(new ReservationSearchCriteria(), 999L, 10))
+                .isInstanceOf(InvalidRequestException.class);
+        verify(reservationRepository, never()).search(any(), any(), anyInt());
+    }
+
+    @Test
+    void getChanges_ShouldMergeRowsAndTombstonesUpToCommittedVersion() {
+        // Given
+        reservation1.setChangeVersion(11L);
+        reservation2.setChangeVersion(13L);
+        Pageable page = PageRequest.of(0, 3, Sort.by("changeVersion"));
+        when(changeLog.committedVersion()).thenReturn(20L);
+        when(reservationRepository.findByChangeVersionBetween(11L, 20L, page)).thenReturn(List.of(reservation1, reservation2));
+        when(reservationTombstoneRepository.findByChangeVersionBetween(11L, 20L, page))
+                .thenReturn(List.of(new ReservationTombstone(5L, 12L)));
+
+        // When
+        ChangeSet<Reservation> result = reservationService.getChanges(10L, 2);
+
+        // Then
+        assertThat(result.getChanged()).containsExactly(reservation1);
+        assertThat(result.getDeleted()).containsExactly(5L);
+        assertThat(result.getVersion()).isEqualTo(12L);
+        assertThat(result.isMore()).isTrue();
+    }
+
+    @Test
+    void deleteReservation_WhenExists_ShouldLeaveTombstone() {
+        // Given
+        when(reservationRepository.existsById(1L)).thenReturn(true);
+        when(changeLog.reserve(1)).thenReturn(42L);
+
+        // When
+        reservationService.deleteReservation(1L);
+
+        // Then
+        verify(reservationTombstoneRepository).save(new ReservationTombstone(1L, 42L));
+        verify(reservationRepository).deleteById(1L);
+    }
+}
@@ -0,0 +1,219 @@
+package org.example.reservation.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.reservation.client.DownstreamCache;
+import org.example.reservation.client.DownstreamCalls;
+import org.example.reservation.client.ParkingServiceClient;
+import org.example.reservation.dto.ParkingSpotDTO;
+import org.example.reservation.entity.SpotStatusChange;
+import org.example.reservation.repository.SpotStatusChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import feign.FeignException;
+import feign.Request;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SpotStatusOutbox.class, SpotStatusRelay.class, SpotStatusRelayTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpotStatusRelayTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        DownstreamCalls downstreamCalls() {
+            return new DownstreamCalls(Runnable::run, Duration.ofSeconds(1));
+        }
+
+        @Bean
+        DownstreamCache downstreamCache() {
+            return new DownstreamCache(100, Duration.ofMinutes(1), 100, Duration.ofMinutes(1));
+        }
+    }
+
+    @Autowired
+    private SpotStatusOutbox spotStatusOutbox;
+
+    @Autowired
+    private SpotStatusRelay spotStatusRelay;
+
+    @Autowired
+    private SpotStatusChangeRepository spotStatusChangeRepository;
+
+    @Autowired
+    private DownstreamCache downstreamCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private ParkingServiceClient parkingServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        spotStatusChangeRepository.deleteAll();
+    }
+
+    @Test
+    void relayOnce_ShouldDeliverOnlyLatestChangePerSpotAndWriteThroughToCache() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        spotStatusChangeRepository.saveAll(List.of(
+                new SpotStatusChange(null, 1L, "OCCUPIED", now, 0, now, null),
+                new SpotStatusChange(null, 2L, "OCCUPIED", now, 0, now, null),
+                new SpotStatusChange(null, 1L, "FREE", now, 0, now, null)));
+        downstreamCache.getParkingSpot(1L, id -> new ParkingSpotDTO(1L, "A-101", 1, "OCCUPIED"));
+
+        // When
+        int relayed = spotStatusRelay.relayOnce();
+
+        // Then
+        assertThat(relayed).isEqualTo(2);
+        assertThat(spotStatusChangeRepository.count()).isZero();
+        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(1L, "FREE", "OCCUPIED");
+        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(2L, "OCCUPIED", "FREE");
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(1L, "OCCUPIED", "FREE");
+        assertThat(downstreamCache.getParkingSpot(1L, id -> null).getStatus()).isEqualTo("FREE");
+    }
+
+    @Test
+    void relayOnce_WhenDeliveryFails_ShouldBackOffAndLetNewerChangeSupersedeIt() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        spotStatusChangeRepository.save(new SpotStatusChange(null, 1L, "OCCUPIED", now.minusSeconds(5), 0, now, null));
+        when(parkingServiceClient.updateParkingSpotStatus(1L, "OCCUPIED", "FREE")).thenThrow(new RuntimeException("parking-service unavailable"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        spotStatusRelay.bindTo(registry);
+        double failedBefore = registry.get("reservation.outbox.failed").functionCounter().count();
+
+        // When
+        int failedRun = spotStatusRelay.relayOnce();
+        int beforeBackoff = spotStatusRelay.relayOnce();
+
+        // Then
+        assertThat(failedRun).isZero();
+        assertThat(beforeBackoff).isZero();
+        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(1L, "OCCUPIED", "FREE");
+        SpotStatusChange pending = spotStatusChangeRepository.findAll().get(0);
+        assertThat(pending.getAttempts()).isEqualTo(1);
+        assertThat(pending.getNextAttemptAt()).isAfter(now);
+        assertThat(registry.get("reservation.outbox.lag").timeGauge().value(TimeUnit.SECONDS)).isGreaterThanOrEqualTo(5);
+        assertThat(registry.get("reservation.outbox.failed").functionCounter().count()).isEqualTo(failedBefore + 1);
+
+        // When
+        spotStatusChangeRepository.save(new SpotStatusChange(null, 1L, "FREE", now, 0, now, null));
+        int relayed = spotStatusRelay.drain();
+
+        // Then
+        assertThat(relayed).isEqualTo(1);
+        assertThat(spotStatusChangeRepository.count()).isZero();
+        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(1L, "FREE", "OCCUPIED");
+    }
+
+    @Test
+    void enqueue_ShouldOnlyRelayChangesOfCommittedTransactions() {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            spotStatusOutbox.enqueue(7L, "OCCUPIED");
+            status.setRollbackOnly();
+        });
+        transaction.executeWithoutResult(status -> spotStatusOutbox.enqueue(8L, "OCCUPIED"));
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(any(), any(), any());
+
+        // When
+        int relayed = spotStatusRelay.drain();
+
+        // Then
+        assertThat(relayed).isEqualTo(1);
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(7L, "OCCUPIED", "FREE");
+        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(8L, "OCCUPIED", "FREE");
+        assertThat(spotStatusChangeRepository.count()).isZero();
+    }
+
+    @Test
+    void relayOnce_WhenSpotWasChangedBySomeoneElse_ShouldDropChangeAndEvictCache() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        spotStatusChangeRepository.save(new SpotStatusChange(null, 3L, "OCCUPIED", now, 0, now, null));
+        Request request = Request.create(Request.HttpMethod.PUT, "/spots/3/status", Map.of(), null, StandardCharsets.UTF_8, null);
+        when(parkingServiceClient.updateParkingSpotStatus(3L, "OCCUPIED", "FREE"))
+                .thenThrow(new FeignException.Conflict("Parking spot 3 is RESERVED", request, null, Map.of()));
+        downstreamCache.getParkingSpot(3L, id -> new ParkingSpotDTO(3L, "A-103", 1, "FREE"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        spotStatusRelay.bindTo(registry);
+        double conflictsBefore = registry.get("reservation.outbox.conflicts").functionCounter().count();
+
+        // When
+        int relayed = spotStatusRelay.relayOnce();
+
+        // Then
+        assertThat(relayed).isEqualTo(1);
+        assertThat(spotStatusChangeRepository.count()).isZero();
+        assertThat(registry.get("reservation.outbox.conflicts").functionCounter().count()).isEqualTo(conflictsBefore + 1);
+        assertThat(downstreamCache.getParkingSpot(3L, id -> new ParkingSpotDTO(3L, "A-103", 1, "RESERVED")).getStatus())
+                .isEqualTo("RESERVED");
+    }
+
+    @Test
+    void relayOnce_ShouldSkipSpotsAnotherInstanceHoldsALeaseOn() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        spotStatusChangeRepository.saveAll(List.of(
+                new SpotStatusChange(null, 4L, "OCCUPIED", now, 0, now, now.plusMinutes(1)),
+                new SpotStatusChange(null, 4L, "FREE", now, 0, now, null),
+                new SpotStatusChange(null, 5L, "OCCUPIED", now, 0, now, now.minusSeconds(1))));
+
+        // When
+        int relayed = spotStatusRelay.relayOnce();
+
+        // Then
+        assertThat(relayed).isEqualTo(1);
+        verify(parkingServiceClient, times(1)).updateParkingSpotStatus(5L, "OCCUPIED", "FREE");
+        verify(parkingServiceClient, never()).updateParkingSpotStatus(eq(4L), any(), any());
+        assertThat(spotStatusChangeRepository.findAll())
+                .extracting(SpotStatusChange::getParkingSpotId).containsOnly(4L);
+    }
+
+    @Test
+    void findClaimable_ShouldReturnOnlyTheOldestRowOfEachSpot() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        List<SpotStatusChange> saved = spotStatusChangeRepository.saveAll(List.of(
+                new SpotStatusChange(null, 6L, "OCCUPIED", now, 1, now.plusMinutes(1), null),
+                new SpotStatusChange(null, 6L, "FREE", now, 0, now, null),
+                new SpotStatusChange(null, 7L, "OCCUPIED", now, 0, now, null),
+                new SpotStatusChange(null, 8L, "OCCUPIED", now, 1, now.plusMinutes(1), null)));
+
+        // When
+        List<SpotStatusChange> claimable = new TransactionTemplate(transactionManager).execute(status ->
+                spotStatusChangeRepository.findClaimable(now.plusSeconds(1), PageRequest.of(0, 10)));
+
+        // Then
+        assertThat(claimable).extracting(SpotStatusChange::getId)
+                .containsExactly(saved.get(0).getId(), saved.get(2).getId());
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.vehicle.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class PlateFilterConfig {
+
+    // Builds the plate filter off the request threads. One build at a time
+    // is enough; the thread is released between builds.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService plateFilterExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1, 1,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("plate-filter-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
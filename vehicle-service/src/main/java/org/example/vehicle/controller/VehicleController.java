@@ -1,38 +1,103 @@
 package org.example.vehicle.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.example.vehicle.dto.ChangeSet;
+import org.example.vehicle.dto.CursorPage;
+import org.example.vehicle.dto.PlateMatch;
 import org.example.vehicle.entity.Vehicle;
+import org.example.vehicle.service.IndexNotLoadedException;
+import org.example.vehicle.service.InvalidRequestException;
 import org.example.vehicle.service.VehicleService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/vehicles")
 @RequiredArgsConstructor
 public class VehicleController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_BATCH_SIZE = 200;
+
     private final VehicleService vehicleService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<Vehicle> getAllVehicles() {
-        return vehicleService.getAllVehicles();
+    public ResponseEntity<List<Vehicle>> getAllVehicles(@RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) Integer limit) {
+        return page(vehicleService.getAllVehicles(after, limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllVehicles() {
+        return ndjson(vehicleService::streamAllVehicles);
+    }
+
+    // Capped like the reservation details batch; larger batches are split by the caller
+    @GetMapping("/batch")
+    public List<Vehicle> getVehiclesByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new InvalidRequestException("At most " + MAX_BATCH_SIZE + " ids per request");
+        }
+        return vehicleService.getVehiclesByIds(ids);
+    }
+
+    // Delta sync: pass the returned version as since on the next call
+    @GetMapping("/changes")
+    public ChangeSet<Vehicle> getChanges(@RequestParam(required = false) Long since,
+                                         @RequestParam(defaultValue = "1000") int limit) {
+        return vehicleService.getChanges(since, limit);
     }
 
+    // A matching If-None-Match is answered from the version alone
     @GetMapping("/{id}")
-    public ResponseEntity<Vehicle> getVehicleById(@PathVariable Long id) {
+    public ResponseEntity<Vehicle> getVehicleById(@PathVariable Long id, WebRequest request) {
+        Optional<Long> version = vehicleService.getVehicleVersion(id);
+        if (version.isPresent() && request.checkNotModified(etag(version.get()))) {
+            return null;
+        }
         return vehicleService.getVehicleById(id)
-                .map(ResponseEntity::ok)
+                .map(vehicle -> ResponseEntity.ok().eTag(etag(vehicle.getChangeVersion())).body(vehicle))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Tolerant of misread plates: case, separators and look-alike characters
+    // such as O/0 and B/8 never count as edits.
+    @GetMapping("/plate/search")
+    public List<PlateMatch> searchByPlate(@RequestParam String q,
+                                          @RequestParam(defaultValue = "0") int maxDistance,
+                                          @RequestParam(defaultValue = "false") boolean prefix,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        return vehicleService.searchByPlate(q, maxDistance, prefix, limit);
+    }
+
+    // Batch check for gate systems: plate -> registered
+    @PostMapping("/plate/exists")
+    public Map<String, Boolean> checkPlates(@RequestBody List<String> plates) {
+        return vehicleService.checkPlates(plates);
+    }
+
     @GetMapping("/plate/{licensePlate}")
     public ResponseEntity<Vehicle> getVehicleByLicensePlate(@PathVariable String licensePlate) {
         return vehicleService.getVehicleByLicensePlate(licensePlate)
@@ -40,9 +105,25 @@ public class VehicleController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Case- and accent-insensitive, every word may be cut short as typed;
+    // pass the X-Next-Cursor header back as offset for the next page
+    @GetMapping("/owner/search")
+    public ResponseEntity<List<Vehicle>> searchByOwner(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "0") int offset,
+                                                       @RequestParam(defaultValue = "20") int limit) {
+        return page(vehicleService.searchByOwner(q, offset, limit));
+    }
+
     @GetMapping("/owner/{ownerName}")
-    public List<Vehicle> getVehiclesByOwnerName(@PathVariable String ownerName) {
-        return vehicleService.getVehiclesByOwnerName(ownerName);
+    public ResponseEntity<List<Vehicle>> getVehiclesByOwnerName(@PathVariable String ownerName,
+                                                                @RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) Integer limit) {
+        return page(vehicleService.getVehiclesByOwnerName(ownerName, after, limit));
+    }
+
+    @GetMapping(value = "/owner/{ownerName}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVehiclesByOwnerName(@PathVariable String ownerName) {
+        return ndjson(consumer -> vehicleService.streamVehiclesByOwnerName(ownerName, consumer));
     }
 
     @PostMapping
@@ -60,8 +141,41 @@ public class VehicleController {
         vehicleService.deleteVehicle(id);
         return ResponseEntity.noContent().build();
     }
-}
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<String> handleBadRequest(InvalidRequestException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    // An in-memory index has not finished loading yet
+    @ExceptionHandler(IndexNotLoadedException.class)
+    public ResponseEntity<String> handleUnavailable(IndexNotLoadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
 
+    private ResponseEntity<List<Vehicle>> page(CursorPage<Vehicle> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext().toString());
+        }
+        return response.body(page.getItems());
+    }
 
+    private static String etag(long changeVersion) {
+        return "\"" + changeVersion + "\"";
+    }
 
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<Vehicle>> source) {
+        StreamingResponseBody body = out -> source.accept(vehicle -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(vehicle));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.APPLICATION_NDJSON, StandardCharsets.UTF_8))
+                .body(body);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Rows changed and ids deleted after a change version. version is what the
+// client passes as since next time; more means another call is needed.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeSet<T> {
+    private List<T> changed;
+    private List<Long> deleted;
+    private long version;
+    private boolean more;
+
+    // Both lists are ordered by change version and hold up to limit + 1 rows.
+    // They are merged and cut at limit, so a page never skips a version.
+    public static <T, D> ChangeSet<T> of(List<T> rows, ToLongFunction<T> rowVersion,
+                                         List<D> tombstones, ToLongFunction<D> tombstoneVersion,
+                                         Function<D, Long> idOf, int limit, long since) {
+        List<T> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long version = since;
+        int r = 0;
+        int t = 0;
+        while (changed.size() + deleted.size() < limit && (r < rows.size() || t < tombstones.size())) {
+            if (t == tombstones.size() || (r < rows.size()
+                    && rowVersion.applyAsLong(rows.get(r)) < tombstoneVersion.applyAsLong(tombstones.get(t)))) {
+                version = rowVersion.applyAsLong(rows.get(r));
+                changed.add(rows.get(r++));
+            } else {
+                version = tombstoneVersion.applyAsLong(tombstones.get(t));
+                deleted.add(idOf.apply(tombstones.get(t++)));
+            }
+        }
+        return new ChangeSet<>(changed, deleted, version, r < rows.size() || t < tombstones.size());
+    }
+}
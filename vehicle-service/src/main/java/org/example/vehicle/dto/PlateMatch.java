@@ -0,0 +1,16 @@
+package org.example.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.vehicle.entity.Vehicle;
+
+// A plate search hit; distance counts the edits between the normalized
+// query and the normalized plate.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlateMatch {
+    private Vehicle vehicle;
+    private int distance;
+}
@@ -1,16 +1,22 @@
 package org.example.vehicle.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
-@Table(name = "vehicles")
+@Table(name = "vehicles", indexes = {
+        @Index(name = "idx_vehicles_change_version", columnList = "changeVersion"),
+        @Index(name = "idx_vehicles_license_plate", columnList = "licensePlate")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,6 +29,15 @@ public class Vehicle {
     private String model;
     private String color;
     private String ownerName;
+
+    // Position in the delta-sync change log; rows that predate it start at 0.
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long changeVersion;
+
+    public Vehicle(Long id, String licensePlate, String model, String color, String ownerName) {
+        this(id, licensePlate, model, color, ownerName, 0L);
+    }
 }
 
 
@@ -0,0 +1,24 @@
+package org.example.vehicle.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Records a deleted vehicle so delta-sync clients learn about the delete.
+@Entity
+@Table(name = "vehicle_tombstones", indexes = {
+        @Index(name = "idx_vehicle_tombstones_change_version", columnList = "changeVersion")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleTombstone {
+    @Id
+    private Long vehicleId;
+
+    private long changeVersion;
+}
@@ -0,0 +1,24 @@
+package org.example.vehicle.repository;
+
+import org.example.vehicle.entity.ChangeLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ChangeLeaseRepository extends JpaRepository<ChangeLease, Long> {
+    @Query("select min(l.firstVersion) from ChangeLease l where l.sequenceName = :sequenceName and l.expiresAt > :now")
+    Optional<Long> findOldestOpenVersion(String sequenceName, LocalDateTime now);
+
+    @Modifying
+    @Query("delete from ChangeLease l where l.id = :id")
+    int release(Long id);
+
+    @Modifying
+    @Query("delete from ChangeLease l where l.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
@@ -1,18 +1,62 @@
 package org.example.vehicle.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.vehicle.entity.Vehicle;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     Optional<Vehicle> findByLicensePlate(String licensePlate);
+
+    @Query("select v.licensePlate from Vehicle v where v.licensePlate in :plates")
+    List<String> findLicensePlatesIn(Collection<String> plates);
+
     List<Vehicle> findByOwnerName(String ownerName);
-}
 
+    List<Vehicle> findByIdGreaterThan(Long after, Pageable pageable);
+    List<Vehicle> findByOwnerNameAndIdGreaterThan(String ownerName, Long after, Pageable pageable);
+    List<Vehicle> findByChangeVersionBetween(long from, long to, Pageable pageable);
+
+    // Enough for a conditional GET, without loading the entity
+    @Query("select v.changeVersion from Vehicle v where v.id = :id")
+    Optional<Long> findChangeVersionById(Long id);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Vehicle> streamAllByOrderByIdAsc();
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Vehicle> streamByOwnerNameOrderByIdAsc(String ownerName);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select v.licensePlate from Vehicle v")
+    Stream<String> streamAllLicensePlates();
+
+    // Rows that still carry the given change version, for the backfill
+    @Query("select v.id from Vehicle v where v.changeVersion = :changeVersion order by v.id")
+    List<Long> findIdsByChangeVersion(long changeVersion, Pageable pageable);
+
+    // Only rows still without a version, so a concurrent backfill is not undone
+    @Modifying
+    @Query("update Vehicle v set v.changeVersion = :changeVersion where v.id = :id and v.changeVersion = 0")
+    int updateChangeVersion(Long id, long changeVersion);
+}
@@ -0,0 +1,13 @@
+package org.example.vehicle.repository;
+
+import org.example.vehicle.entity.VehicleTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface VehicleTombstoneRepository extends JpaRepository<VehicleTombstone, Long> {
+    List<VehicleTombstone> findByChangeVersionBetween(long from, long to, Pageable pageable);
+}
@@ -0,0 +1,181 @@
+package org.example.vehicle.service;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.vehicle.entity.ChangeSequence;
+import org.example.vehicle.repository.ChangeLeaseRepository;
+import org.example.vehicle.repository.ChangeSequenceRepository;
+import org.example.vehicle.repository.VehicleRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Hands out change versions for delta sync. Versions are taken in a short
+// transaction of their own, so writers only hold the sequence row while
+// stepping it, not until they commit. Each block taken is leased: the
+// lease commits with the step and is deleted in the writer's transaction,
+// so it disappears exactly when the writer's changes become visible (or
+// when they roll back). Readers only go up to the version below the oldest
+// lease, so a reader that has seen version N will not find a change at or
+// below N committing later.
+@Component
+public class ChangeLog implements SmartInitializingSingleton, DisposableBean {
+    static final String SEQUENCE = "vehicles";
+
+    private static final int BACKFILL_CHUNK = 1000;
+    // Longer than any writing transaction; a lease left behind by a crashed
+    // instance stops holding readers back after this
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final int LEASE_CONNECTIONS = 2;
+
+    private final ChangeSequenceRepository changeSequenceRepository;
+    private final ChangeLeaseRepository changeLeaseRepository;
+    private final VehicleRepository vehicleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource leaseDataSource;
+    private final JdbcTemplate leaseJdbcTemplate;
+    private final TransactionTemplate leaseTransaction;
+
+    public ChangeLog(ChangeSequenceRepository changeSequenceRepository, ChangeLeaseRepository changeLeaseRepository,
+                     VehicleRepository vehicleRepository, PlatformTransactionManager transactionManager,
+                     DataSource dataSource) {
+        this.changeSequenceRepository = changeSequenceRepository;
+        this.changeLeaseRepository = changeLeaseRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseDataSource = leaseDataSource(dataSource);
+        this.leaseJdbcTemplate = new JdbcTemplate(leaseDataSource);
+        this.leaseTransaction = new TransactionTemplate(new DataSourceTransactionManager(leaseDataSource));
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // A writer takes its lease while holding a pooled connection. Taken
+    // from the same pool, writers holding every connection would wait on
+    // each other for a second one, so leases get a small pool of their own.
+    private static DataSource leaseDataSource(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return dataSource;
+        }
+        HikariConfig config = new HikariConfig();
+        hikari.copyStateTo(config);
+        config.setPoolName(hikari.getPoolName() + "-change-leases");
+        config.setMaximumPoolSize(LEASE_CONNECTIONS);
+        config.setMinimumIdle(1);
+        return new HikariDataSource(config);
+    }
+
+    @Override
+    public void destroy() {
+        if (leaseDataSource instanceof HikariDataSource hikari) {
+            hikari.close();
+        }
+    }
+
+    // Creates the sequence row up front, so the first writers do not race
+    // to create it.
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!changeSequenceRepository.existsById(SEQUENCE)) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        changeSequenceRepository.saveAndFlush(new ChangeSequence(SEQUENCE, 0)));
+            } catch (DataIntegrityViolationException e) {
+                // another instance created it first
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> changeLeaseRepository.deleteExpired(LocalDateTime.now()));
+        backfill();
+    }
+
+    // Rows written before change versions existed all carry version 0, and
+    // a page of changes is cut by version: a run of equal versions longer
+    // than a page would be skipped. Each such row gets a version of its own,
+    // a chunk per transaction. An instance backfilling at the same time
+    // only versions the rows still at 0; the versions it took for the
+    // others are left unused, which readers do not notice.
+    void backfill() {
+        Integer versioned;
+        do {
+            versioned = transactionTemplate.execute(status -> {
+                List<Long> ids = vehicleRepository.findIdsByChangeVersion(0, PageRequest.of(0, BACKFILL_CHUNK));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                long version = reserve(ids.size());
+                for (Long id : ids) {
+                    vehicleRepository.updateChangeVersion(id, version++);
+                }
+                return ids.size();
+            });
+        } while (versioned != null && versioned == BACKFILL_CHUNK);
+    }
+
+    // Returns the first of count consecutive versions, leased until the
+    // surrounding transaction ends.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long reserve(int count) {
+        long[] lease = leaseTransaction.execute(status -> {
+            leaseJdbcTemplate.update("update change_sequences set last_version = last_version + ? where name = ?",
+                    count, SEQUENCE);
+            Long last = leaseJdbcTemplate.queryForObject("select last_version from change_sequences where name = ?",
+                    Long.class, SEQUENCE);
+            if (last == null) {
+                throw new IllegalStateException("Change sequence " + SEQUENCE + " missing");
+            }
+            long first = last - count + 1;
+            KeyHolder keys = new GeneratedKeyHolder();
+            leaseJdbcTemplate.update(connection -> {
+                PreparedStatement insert = connection.prepareStatement(
+                        "insert into change_leases (sequence_name, first_version, expires_at) values (?, ?, ?)",
+                        new String[] {"id"});
+                insert.setString(1, SEQUENCE);
+                insert.setLong(2, first);
+                insert.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now().plus(LEASE)));
+                return insert;
+            }, keys);
+            return new long[] {keys.getKey().longValue(), first};
+        });
+        long leaseId = lease[0];
+        changeLeaseRepository.release(leaseId);
+        // the release above rolls back with the writer
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    leaseTransaction.executeWithoutResult(release ->
+                            leaseJdbcTemplate.update("delete from change_leases where id = ?", leaseId));
+                }
+            }
+        });
+        return lease[1];
+    }
+
+    // Every version up to this one is committed or rolled back. The sequence
+    // is read before the leases, so a block taken in between is above it.
+    public long committedVersion() {
+        long last = changeSequenceRepository.findLastVersionByName(SEQUENCE).orElse(0L);
+        return changeLeaseRepository.findOldestOpenVersion(SEQUENCE, LocalDateTime.now())
+                .map(oldest -> Math.min(last, oldest - 1))
+                .orElse(last);
+    }
+}
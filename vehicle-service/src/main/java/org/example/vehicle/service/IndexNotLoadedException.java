@@ -0,0 +1,9 @@
+package org.example.vehicle.service;
+
+// An in-memory view is still loading and cannot answer yet
+public class IndexNotLoadedException extends RuntimeException {
+
+    public IndexNotLoadedException(String message) {
+        super(message);
+    }
+}
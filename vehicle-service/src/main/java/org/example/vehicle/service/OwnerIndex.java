@@ -0,0 +1,399 @@
+package org.example.vehicle.service;
+
+import org.example.vehicle.entity.Vehicle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Inverted index from owner name tokens to vehicle ids for search as you
+// type. Tokens are folded to lower case without diacritics and kept once
+// in a sorted dictionary, which also serves prefix lookups; each points to
+// a sorted array of vehicle ids, so a million vehicles cost a few longs
+// each rather than a boxed entry per posting. One read-write lock guards
+// the whole index; a newer change version is never replaced by an older one.
+@Component
+public class OwnerIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String[] NO_TOKENS = new String[0];
+    private static final long[] NO_IDS = new long[0];
+    // A map lookup per candidate costs about as much as merging this many
+    // postings
+    private static final int PROBE_RATIO = 8;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> dictionary = new TreeMap<>();
+    private final Map<Long, Entry> vehicles = new HashMap<>();
+    // Deleted ids, so a late update cannot bring a vehicle back; cleared by
+    // each load, as in PlateIndex
+    private final Set<Long> deleted = new HashSet<>();
+    private volatile boolean loaded;
+
+    public static String[] tokenize(String text) {
+        if (text == null) {
+            return NO_TOKENS;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(NO_TOKENS);
+    }
+
+    // Vehicles whose owner name has every query token as a word or the start
+    // of one. A whole word scores 2 and a prefix 1; ties go by id. Terms are
+    // taken most selective first. A term matching far more vehicles than
+    // are left is checked against the candidates' own tokens instead of
+    // reading its postings.
+    public Hits search(String query, int offset, int limit) {
+        if (!loaded) {
+            throw new IndexNotLoadedException("Owner index is still loading");
+        }
+        String[] terms = tokenize(query);
+        if (terms.length == 0) {
+            return new Hits(NO_IDS, 0);
+        }
+        lock.readLock().lock();
+        try {
+            long[] counts = new long[terms.length];
+            Integer[] order = new Integer[terms.length];
+            for (int t = 0; t < terms.length; t++) {
+                for (Postings postings : prefixed(terms[t]).values()) {
+                    counts[t] += postings.size;
+                }
+                order[t] = t;
+            }
+            Arrays.sort(order, (left, right) -> Long.compare(counts[left], counts[right]));
+            long[] matches = matches(terms[order[0]]);
+            long[] ids = new long[matches.length];
+            int[] scores = new int[matches.length];
+            for (int i = 0; i < matches.length; i++) {
+                ids[i] = matches[i] >>> 1;
+                scores[i] = 1 + (int) (matches[i] & 1);
+            }
+            int size = ids.length;
+            for (int t = 1; t < terms.length && size > 0; t++) {
+                String term = terms[order[t]];
+                size = counts[order[t]] > (long) size * PROBE_RATIO
+                        ? probe(term, ids, scores, size)
+                        : intersect(matches(term), ids, scores, size);
+            }
+            return rank(ids, scores, size, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vehicles.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Applied once the surrounding transaction commits
+    public void apply(Vehicle vehicle) {
+        Long id = vehicle.getId();
+        String[] tokens = tokenize(vehicle.getOwnerName());
+        long changeVersion = vehicle.getChangeVersion();
+        afterCommit(() -> put(id, tokens, changeVersion));
+    }
+
+    public void remove(Long vehicleId) {
+        afterCommit(() -> evict(vehicleId));
+    }
+
+    public int load(Stream<Vehicle> rows) {
+        try (rows) {
+            rows.forEach(this::loadRow);
+        }
+        return finishLoad();
+    }
+
+    public void loadRow(Vehicle row) {
+        put(row.getId(), tokenize(row.getOwnerName()), row.getChangeVersion());
+    }
+
+    public int finishLoad() {
+        lock.writeLock().lock();
+        try {
+            deleted.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        return size();
+    }
+
+    // Ids of the vehicles with a token starting with term, sorted, each
+    // shifted left with the low bit set where the token is term itself
+    private long[] matches(String term) {
+        NavigableMap<String, Postings> tokens = prefixed(term);
+        int total = 0;
+        long maxId = 0;
+        for (Postings postings : tokens.values()) {
+            total += postings.size;
+            maxId = Math.max(maxId, postings.ids[postings.size - 1]);
+        }
+        if (tokens.size() == 1) {
+            Postings postings = tokens.firstEntry().getValue();
+            long exact = tokens.firstKey().equals(term) ? 1 : 0;
+            long[] matches = new long[total];
+            for (int i = 0; i < total; i++) {
+                matches[i] = postings.ids[i] << 1 | exact;
+            }
+            return matches;
+        }
+        return maxId / 64 < total ? union(term, tokens, maxId) : unionBySort(term, tokens, total);
+    }
+
+    // Dense ids: one bit per id, so the union comes out sorted without a sort
+    private static long[] union(String term, NavigableMap<String, Postings> tokens, long maxId) {
+        int words = Math.toIntExact(maxId / 64 + 1);
+        long[] any = new long[words];
+        long[] exact = new long[words];
+        for (Map.Entry<String, Postings> token : tokens.entrySet()) {
+            long[] bits = token.getKey().equals(term) ? exact : any;
+            Postings postings = token.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                long id = postings.ids[i];
+                bits[(int) (id >>> 6)] |= 1L << id;
+            }
+        }
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(any[w] | exact[w]);
+        }
+        long[] matches = new long[count];
+        int size = 0;
+        for (int w = 0; w < words; w++) {
+            for (long word = any[w] | exact[w]; word != 0; word &= word - 1) {
+                long id = (long) w << 6 | Long.numberOfTrailingZeros(word);
+                matches[size++] = id << 1 | (exact[w] >>> id & 1);
+            }
+        }
+        return matches;
+    }
+
+    private static long[] unionBySort(String term, NavigableMap<String, Postings> tokens, int total) {
+        long[] matches = new long[total];
+        int size = 0;
+        for (Map.Entry<String, Postings> token : tokens.entrySet()) {
+            long exact = token.getKey().equals(term) ? 1 : 0;
+            Postings postings = token.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                matches[size++] = postings.ids[i] << 1 | exact;
+            }
+        }
+        Arrays.sort(matches);
+        // one entry per vehicle, keeping the exact bit, which sorts last
+        int kept = 0;
+        for (int i = 0; i < matches.length; i++) {
+            if (kept > 0 && matches[kept - 1] >>> 1 == matches[i] >>> 1) {
+                matches[kept - 1] = matches[i];
+            } else {
+                matches[kept++] = matches[i];
+            }
+        }
+        return Arrays.copyOf(matches, kept);
+    }
+
+    // Both keep the surviving candidates at the front and return their count
+    private static int intersect(long[] matches, long[] ids, int[] scores, int size) {
+        int kept = 0;
+        for (int i = 0, j = 0; i < size && j < matches.length; ) {
+            long id = matches[j] >>> 1;
+            if (ids[i] < id) {
+                i++;
+            } else if (ids[i] > id) {
+                j++;
+            } else {
+                ids[kept] = ids[i];
+                scores[kept++] = scores[i++] + 1 + (int) (matches[j++] & 1);
+            }
+        }
+        return kept;
+    }
+
+    private int probe(String term, long[] ids, int[] scores, int size) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int score = score(term, vehicles.get(ids[i]).tokens());
+            if (score > 0) {
+                ids[kept] = ids[i];
+                scores[kept++] = scores[i] + score;
+            }
+        }
+        return kept;
+    }
+
+    private NavigableMap<String, Postings> prefixed(String term) {
+        return dictionary.subMap(term, true, term + Character.MAX_VALUE, false);
+    }
+
+    private static int score(String term, String[] tokens) {
+        int best = 0;
+        for (String token : tokens) {
+            if (token.equals(term)) {
+                return 2;
+            }
+            if (token.startsWith(term)) {
+                best = 1;
+            }
+        }
+        return best;
+    }
+
+    // Scores are small, so ranking is a counting sort of the first count
+    // entries; ids stay ascending within a score.
+    private static Hits rank(long[] ids, int[] scores, int count, int offset, int limit) {
+        int top = 0;
+        for (int i = 0; i < count; i++) {
+            top = Math.max(top, scores[i]);
+        }
+        int[] counts = new int[top + 2];
+        for (int i = 0; i < count; i++) {
+            counts[top - scores[i] + 1]++;
+        }
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+        int end = (int) Math.min(count, (long) offset + limit);
+        long[] page = new long[Math.max(0, end - offset)];
+        for (int i = 0; i < count; i++) {
+            int position = counts[top - scores[i]]++;
+            if (position >= offset && position < end) {
+                page[position - offset] = ids[i];
+            }
+        }
+        return new Hits(page, count);
+    }
+
+    private void put(Long id, String[] tokens, long changeVersion) {
+        lock.writeLock().lock();
+        try {
+            Entry current = vehicles.get(id);
+            if (deleted.contains(id) || (current != null && current.changeVersion() > changeVersion)) {
+                return;
+            }
+            if (current != null) {
+                unlink(id, current.tokens());
+            }
+            String[] interned = new String[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                Postings postings = dictionary.computeIfAbsent(tokens[i], Postings::new);
+                postings.add(id);
+                interned[i] = postings.token;
+            }
+            vehicles.put(id, new Entry(interned, changeVersion));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void evict(Long id) {
+        lock.writeLock().lock();
+        try {
+            deleted.add(id);
+            Entry current = vehicles.remove(id);
+            if (current != null) {
+                unlink(id, current.tokens());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unlink(long id, String[] tokens) {
+        for (String token : tokens) {
+            Postings postings = dictionary.get(token);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                dictionary.remove(token);
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // One page of ranked vehicle ids and how many matched in all
+    public record Hits(long[] vehicleIds, int total) {
+    }
+
+    private record Entry(String[] tokens, long changeVersion) {
+    }
+
+    // Sorted vehicle ids of one token. New vehicles have the highest ids,
+    // so adding is almost always an append.
+    private static final class Postings {
+        private final String token;
+        private long[] ids = NO_IDS;
+        private int size;
+
+        Postings(String token) {
+            this.token = token;
+        }
+
+        void add(long id) {
+            int position = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insert = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(2, size + (size >> 1) + 1));
+            }
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            ids[insert] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            if (size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, Math.max(size, 2));
+            }
+            return true;
+        }
+    }
+}
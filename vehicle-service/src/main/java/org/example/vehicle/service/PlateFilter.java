@@ -0,0 +1,243 @@
+package org.example.vehicle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.vehicle.repository.VehicleRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// Bloom filter over the normalized plates of all registered vehicles, so a
+// gate read of an unregistered plate is turned away without a query. A
+// "might contain" still has to be checked against the table. Until the
+// first build finishes, every plate might exist. The first build is fed by
+// the startup scan in VehicleService, later ones read the plates alone.
+// Plates registered through other instances arrive with the index
+// catch-up, so a "no" only counts while the filter covers the latest
+// committed change version; otherwise the table is asked.
+// A Bloom filter cannot forget a plate: deleted and replaced plates keep
+// answering "might contain". Gate lookups report the false positives they
+// run into, and once their share of the misses in a window exceeds the
+// target while such plates are left, the filter is rebuilt from the table
+// in the background. Plates added during a build go into both filters.
+@Slf4j
+@Component
+public class PlateFilter {
+    private final VehicleRepository vehicleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final int expectedPlates;
+    private final double falsePositiveRate;
+    private final int checkWindow;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile ScalableBloomFilter filter;
+    // Change version the filter holds every plate up to; null before the
+    // first catch-up
+    private volatile Long caughtUpVersion;
+    // The filter being built; guarded by this like the counters below
+    private ScalableBloomFilter building;
+    // Deleted or replaced plates the filter still holds
+    private long stale;
+    private long misses;
+    private long falsePositives;
+
+    public PlateFilter(VehicleRepository vehicleRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Qualifier("plateFilterExecutor") Executor executor,
+                       @Value("${vehicles.plate-filter.expected-plates:100000}") int expectedPlates,
+                       @Value("${vehicles.plate-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                       @Value("${vehicles.plate-filter.check-window:10000}") int checkWindow) {
+        this.vehicleRepository = vehicleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.executor = executor;
+        this.expectedPlates = expectedPlates;
+        this.falsePositiveRate = falsePositiveRate;
+        this.checkWindow = checkWindow;
+    }
+
+    public boolean mightContain(String plate) {
+        ScalableBloomFilter current = filter;
+        return current == null || current.mightContain(PlateIndex.normalize(plate));
+    }
+
+    public boolean isLoaded() {
+        return filter != null;
+    }
+
+    // Whether a plate ruled out is really not registered as of version
+    public boolean covers(long version) {
+        Long since = caughtUpVersion;
+        return filter != null && since != null && since >= version;
+    }
+
+    // Every change up to version has been added
+    public void caughtUp(long version) {
+        caughtUpVersion = version;
+    }
+
+    // Added once the surrounding transaction commits
+    public void add(String plate) {
+        String key = PlateIndex.normalize(plate);
+        afterCommit(() -> put(key));
+    }
+
+    // A plate deleted or replaced in the surrounding transaction
+    public void retire() {
+        afterCommit(this::retired);
+    }
+
+    // Outcome of gate lookups that were not a hit: misses answered by the
+    // filter and possible hits the table did not have.
+    public void recordMisses(int definiteMisses, int falsePositives) {
+        if (filter == null) {
+            return;
+        }
+        boolean rebuild;
+        synchronized (this) {
+            this.misses += definiteMisses + falsePositives;
+            this.falsePositives += falsePositives;
+            if (misses < checkWindow) {
+                return;
+            }
+            rebuild = stale > 0 && (double) this.falsePositives / misses > falsePositiveRate;
+            misses = 0;
+            this.falsePositives = 0;
+        }
+        if (rebuild) {
+            rebuild();
+        }
+    }
+
+    // Starts a build unless one is already running
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(this::build);
+        } catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    // Starts a build fed by the caller's scan, so the table is read once at
+    // startup for every in-memory view. When a build is already running,
+    // the loader drops what it is fed.
+    public Loader startLoad(long plates) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return new Loader(null, 0);
+        }
+        return begin(plates);
+    }
+
+    private void build() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Loader loader = begin(vehicleRepository.count());
+                try (Stream<String> plates = vehicleRepository.streamAllLicensePlates()) {
+                    plates.forEach(loader::add);
+                } catch (RuntimeException e) {
+                    loader.abort();
+                    throw e;
+                }
+                loader.finish();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Building the plate filter failed", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // From here on, committed plates reach the new filter either way:
+    // through put() or through the scan feeding the loader
+    private Loader begin(long plates) {
+        ScalableBloomFilter fresh = new ScalableBloomFilter(
+                Math.toIntExact(Math.max(expectedPlates, plates)), falsePositiveRate);
+        synchronized (this) {
+            long staleBefore = stale;
+            building = fresh;
+            stale -= staleBefore;
+            return new Loader(fresh, staleBefore);
+        }
+    }
+
+    private synchronized void put(String key) {
+        if (filter != null) {
+            filter.add(key);
+        }
+        if (building != null) {
+            building.add(key);
+        }
+    }
+
+    private synchronized void retired() {
+        stale++;
+    }
+
+    public final class Loader {
+        private final ScalableBloomFilter fresh;
+        private final long staleBefore;
+        private final long started = System.nanoTime();
+
+        private Loader(ScalableBloomFilter fresh, long staleBefore) {
+            this.fresh = fresh;
+            this.staleBefore = staleBefore;
+        }
+
+        public void add(String plate) {
+            if (fresh != null) {
+                fresh.add(PlateIndex.normalize(plate));
+            }
+        }
+
+        public void finish() {
+            if (fresh == null) {
+                return;
+            }
+            synchronized (PlateFilter.this) {
+                filter = fresh;
+                building = null;
+            }
+            rebuilding.set(false);
+            log.info("Built plate filter of {} plates in {} ms", fresh.size(), (System.nanoTime() - started) / 1_000_000);
+        }
+
+        public void abort() {
+            if (fresh == null) {
+                return;
+            }
+            synchronized (PlateFilter.this) {
+                if (building == fresh) {
+                    building = null;
+                    stale += staleBefore;
+                }
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
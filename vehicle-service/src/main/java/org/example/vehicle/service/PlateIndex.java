@@ -0,0 +1,342 @@
+package org.example.vehicle.service;
+
+import org.example.vehicle.entity.Vehicle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// In-memory trie of normalized licence plates for prefix and fuzzy search.
+// Plates are normalized so that what gate cameras confuse compares equal:
+// case, separators, Cyrillic look-alikes and O/0, I/1, Z/2, S/5, G/6, B/8.
+// A fuzzy search walks the trie with one row of the edit-distance table per
+// node and leaves a branch as soon as no plate below it can be close enough,
+// so it only visits the plates near the query. Writes are rare next to
+// camera lookups, so one read-write lock guards the whole trie; a newer
+// change version is never replaced by an older one.
+@Component
+public class PlateIndex {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final long[] NO_IDS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node(null, '\0');
+    private final Map<Long, Entry> vehicles = new HashMap<>();
+    // Deleted ids, so an update committed just before the delete cannot
+    // bring the vehicle back when its after-commit runs late. Ids are never
+    // reused; the set is cleared by each load.
+    private final Set<Long> deleted = new HashSet<>();
+    private volatile boolean loaded;
+
+    // Letters and digits only, upper case, with look-alikes folded together;
+    // letters without a Latin twin are kept as they are
+    public static String normalize(String plate) {
+        if (plate == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(plate.length());
+        for (char c : plate.toUpperCase(Locale.ROOT).toCharArray()) {
+            char folded = fold(c);
+            if (folded != 0) {
+                key.append(folded);
+            }
+        }
+        return key.toString();
+    }
+
+    // Vehicles whose plate is within maxDistance edits of the query, or, with
+    // prefix, starts with something within maxDistance edits of it. Closest
+    // first, at most limit.
+    public List<Match> search(String query, int maxDistance, boolean prefix, int limit) {
+        if (!loaded) {
+            throw new IndexNotLoadedException("Plate index is still loading");
+        }
+        char[] key = normalize(query).toCharArray();
+        List<Match> matches = new ArrayList<>();
+        if (key.length == 0 && !prefix) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            int[] first = new int[key.length + 1];
+            for (int i = 0; i <= key.length; i++) {
+                first[i] = i;
+            }
+            // one pass per distance, so matches come out closest first
+            for (int distance = 0; distance <= maxDistance && matches.size() < limit; distance++) {
+                new Search(key, distance, prefix, limit, matches).visit(root, first, 0, key.length);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vehicles.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Applied once the surrounding transaction commits, so a rollback
+    // changes nothing.
+    public void apply(Vehicle vehicle) {
+        Long id = vehicle.getId();
+        String key = normalize(vehicle.getLicensePlate());
+        long changeVersion = vehicle.getChangeVersion();
+        afterCommit(() -> put(id, key, changeVersion));
+    }
+
+    public void remove(Long vehicleId) {
+        afterCommit(() -> evict(vehicleId));
+    }
+
+    // Changes committed while rows are loading are kept: a row read before
+    // them carries an older change version and does not replace them.
+    public int load(Stream<Vehicle> rows) {
+        try (rows) {
+            rows.forEach(this::loadRow);
+        }
+        return finishLoad();
+    }
+
+    // load() one row at a time, for a scan that feeds several views
+    public void loadRow(Vehicle row) {
+        put(row.getId(), normalize(row.getLicensePlate()), row.getChangeVersion());
+    }
+
+    public int finishLoad() {
+        lock.writeLock().lock();
+        try {
+            deleted.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        return size();
+    }
+
+    private void put(Long id, String key, long changeVersion) {
+        lock.writeLock().lock();
+        try {
+            Entry current = vehicles.get(id);
+            if (deleted.contains(id) || (current != null && current.changeVersion() > changeVersion)) {
+                return;
+            }
+            if (current != null) {
+                unlink(current.node(), id);
+            }
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+            }
+            node.ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+            node.ids[node.ids.length - 1] = id;
+            vehicles.put(id, new Entry(node, changeVersion));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void evict(Long id) {
+        lock.writeLock().lock();
+        try {
+            deleted.add(id);
+            Entry current = vehicles.remove(id);
+            if (current != null) {
+                unlink(current.node(), id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops the id from its node and prunes the branch it leaves empty
+    private static void unlink(Node node, long id) {
+        long[] ids = node.ids;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                long[] rest = new long[ids.length - 1];
+                System.arraycopy(ids, 0, rest, 0, i);
+                System.arraycopy(ids, i + 1, rest, i, ids.length - i - 1);
+                node.ids = rest.length == 0 ? NO_IDS : rest;
+                break;
+            }
+        }
+        while (node.parent != null && node.ids.length == 0 && node.keys.length == 0) {
+            node.parent.removeChild(node.key);
+            node = node.parent;
+        }
+    }
+
+    private static char fold(char c) {
+        return switch (c) {
+            case 'O', 'Q', 'О' -> '0';
+            case 'I' -> '1';
+            case 'Z' -> '2';
+            case 'S' -> '5';
+            case 'G' -> '6';
+            case 'B', 'В' -> '8';
+            case 'А' -> 'A';
+            case 'Е' -> 'E';
+            case 'К' -> 'K';
+            case 'М' -> 'M';
+            case 'Н' -> 'H';
+            case 'Р' -> 'P';
+            case 'С' -> 'C';
+            case 'Т' -> 'T';
+            case 'У' -> 'Y';
+            case 'Х' -> 'X';
+            default -> Character.isLetterOrDigit(c) ? c : 0;
+        };
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public record Match(long vehicleId, int distance) {
+    }
+
+    private record Entry(Node node, long changeVersion) {
+    }
+
+    // One pass of the search, collecting the vehicles at exactly distance
+    private static final class Search {
+        private final char[] key;
+        private final int distance;
+        private final boolean prefix;
+        private final int limit;
+        private final List<Match> matches;
+
+        Search(char[] key, int distance, boolean prefix, int limit, List<Match> matches) {
+            this.key = key;
+            this.distance = distance;
+            this.prefix = prefix;
+            this.limit = limit;
+            this.matches = matches;
+        }
+
+        // row holds the edit distances between the node's path and every
+        // prefix of the key, min its smallest entry; best is the smallest
+        // distance of the whole key to any prefix of the path, which is what
+        // a prefix search ranks by. No row below can drop under min.
+        void visit(Node node, int[] row, int min, int best) {
+            if (prefix && min >= best) {
+                // best is final for the whole subtree
+                if (best == distance) {
+                    collect(node);
+                }
+                return;
+            }
+            if ((prefix ? best : row[key.length]) == distance) {
+                emit(node);
+            }
+            for (int c = 0; c < node.keys.length && matches.size() < limit; c++) {
+                int[] next = new int[key.length + 1];
+                next[0] = row[0] + 1;
+                int nextMin = next[0];
+                for (int i = 1; i <= key.length; i++) {
+                    int substitution = row[i - 1] + (key[i - 1] == node.keys[c] ? 0 : 1);
+                    next[i] = Math.min(substitution, Math.min(row[i], next[i - 1]) + 1);
+                    nextMin = Math.min(nextMin, next[i]);
+                }
+                int nextBest = Math.min(best, next[key.length]);
+                if (nextMin <= distance || (prefix && nextBest <= distance)) {
+                    visit(node.children[c], next, nextMin, nextBest);
+                }
+            }
+        }
+
+        private void collect(Node node) {
+            emit(node);
+            for (int c = 0; c < node.children.length && matches.size() < limit; c++) {
+                collect(node.children[c]);
+            }
+        }
+
+        private void emit(Node node) {
+            for (int i = 0; i < node.ids.length && matches.size() < limit; i++) {
+                matches.add(new Match(node.ids[i], distance));
+            }
+        }
+    }
+
+    // Children are kept in small sorted arrays; plates branch little past
+    // their first characters, so this is far smaller than a map per node.
+    private static final class Node {
+        private final Node parent;
+        private final char key;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private long[] ids = NO_IDS;
+
+        Node(Node parent, char key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        Node childOrCreate(char c) {
+            int position = Arrays.binarySearch(keys, c);
+            if (position >= 0) {
+                return children[position];
+            }
+            int insert = -position - 1;
+            Node child = new Node(this, c);
+            char[] grownKeys = new char[keys.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, grownKeys, 0, insert);
+            System.arraycopy(children, 0, grownChildren, 0, insert);
+            grownKeys[insert] = c;
+            grownChildren[insert] = child;
+            System.arraycopy(keys, insert, grownKeys, insert + 1, keys.length - insert);
+            System.arraycopy(children, insert, grownChildren, insert + 1, children.length - insert);
+            keys = grownKeys;
+            children = grownChildren;
+            return child;
+        }
+
+        void removeChild(char c) {
+            int position = Arrays.binarySearch(keys, c);
+            if (position < 0) {
+                return;
+            }
+            char[] keptKeys = new char[keys.length - 1];
+            Node[] keptChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, keptKeys, 0, position);
+            System.arraycopy(children, 0, keptChildren, 0, position);
+            System.arraycopy(keys, position + 1, keptKeys, position, keys.length - position - 1);
+            System.arraycopy(children, position + 1, keptChildren, position, children.length - position - 1);
+            keys = keptKeys.length == 0 ? NO_KEYS : keptKeys;
+            children = keptChildren.length == 0 ? NO_CHILDREN : keptChildren;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.vehicle.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter that grows instead of degrading: once a stage holds what it
+// was sized for, a stage twice as large with half the false-positive rate
+// is added, so the rates of all stages together stay under the target
+// however many keys arrive. Reads never lock; add() is serialized.
+final class ScalableBloomFilter {
+    private static final double TIGHTENING = 0.5;
+    private static final double LN2 = Math.log(2);
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+    private int size;
+
+    ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        stages.add(new Stage(Math.max(1, initialCapacity), falsePositiveRate * (1 - TIGHTENING)));
+    }
+
+    synchronized void add(String key) {
+        Stage stage = stages.get(stages.size() - 1);
+        if (stage.count >= stage.capacity) {
+            stage = new Stage(stage.capacity * 2L, stage.falsePositiveRate * TIGHTENING);
+            stages.add(stage);
+        }
+        long hash = hash(key);
+        stage.add(mix(hash), mix(hash ^ 0x9e3779b97f4a7c15L) | 1);
+        size++;
+    }
+
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9e3779b97f4a7c15L) | 1;
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    // Probes are spread by double hashing: h1 + i * h2
+    private static final class Stage {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray bits;
+        private long count;
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long words = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2) / 64);
+            this.bits = new AtomicLongArray(Math.toIntExact(Math.max(1, words)));
+            this.bitCount = bits.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * LN2));
+        }
+
+        void add(long h1, long h2) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                bits.getAndAccumulate(word, mask, (current, set) -> current | set);
+            }
+            count++;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
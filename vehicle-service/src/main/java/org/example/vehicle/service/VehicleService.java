@@ -1,53 +1,325 @@
 package org.example.vehicle.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.example.vehicle.dto.ChangeSet;
+import org.example.vehicle.dto.CursorPage;
+import org.example.vehicle.dto.PlateMatch;
 import org.example.vehicle.entity.Vehicle;
+import org.example.vehicle.entity.VehicleTombstone;
 import org.example.vehicle.repository.VehicleRepository;
+import org.example.vehicle.repository.VehicleTombstoneRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class VehicleService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_PLATE_DISTANCE = 2;
+    private static final int MAX_PLATE_MATCHES = 100;
+
     private final VehicleRepository vehicleRepository;
+    private final EntityManager entityManager;
+    private final VehicleTombstoneRepository vehicleTombstoneRepository;
+    private final ChangeLog changeLog;
+    private final PlateIndex plateIndex;
+    private final PlateFilter plateFilter;
+    private final OwnerIndex ownerIndex;
+
+    // Change version the in-memory views have caught up to; null until the
+    // first load is done
+    private volatile Long indexedVersion;
+
+    // One scan of the table loads every in-memory view. The version is read
+    // first, so whatever commits during the scan is applied again by the
+    // catch-up; the views keep the newer of two versions of a row.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadIndexes() {
+        long version = changeLog.committedVersion();
+        PlateFilter.Loader filterLoader = plateFilter.startLoad(vehicleRepository.count());
+        try {
+            stream(vehicleRepository.streamAllByOrderByIdAsc(), row -> {
+                plateIndex.loadRow(row);
+                ownerIndex.loadRow(row);
+                filterLoader.add(row.getLicensePlate());
+            });
+        } catch (RuntimeException e) {
+            filterLoader.abort();
+            throw e;
+        }
+        plateIndex.finishLoad();
+        ownerIndex.finishLoad();
+        filterLoader.finish();
+        indexedVersion = version;
+    }
+
+    // This instance's own writes reach the views after commit; what other
+    // instances commit is read back from the change feed here. A changed
+    // row the filter does not hold yet may have replaced a plate, so it
+    // counts as a stale plate like a delete; rows the filter already has,
+    // such as this instance's own writes, do not. The false-positive check
+    // still decides whether to rebuild.
+    @Scheduled(fixedDelayString = "${vehicles.index.catch-up-interval-ms:1000}")
+    public void catchUpIndexes() {
+        Long since = indexedVersion;
+        if (since == null) {
+            return;
+        }
+        ChangeSet<Vehicle> changes;
+        do {
+            changes = getChanges(since, MAX_PAGE_SIZE);
+            for (Vehicle vehicle : changes.getChanged()) {
+                plateIndex.apply(vehicle);
+                ownerIndex.apply(vehicle);
+                if (!plateFilter.mightContain(vehicle.getLicensePlate())) {
+                    plateFilter.retire();
+                }
+                plateFilter.add(vehicle.getLicensePlate());
+            }
+            for (Long id : changes.getDeleted()) {
+                plateIndex.remove(id);
+                ownerIndex.remove(id);
+                plateFilter.retire();
+            }
+            since = changes.getVersion();
+        } while (changes.isMore());
+        indexedVersion = since;
+        plateFilter.caughtUp(since);
+    }
+
+    // Without a cursor or a limit the lists answer with every row, as they
+    // did before paging; existing callers rely on it
+    public CursorPage<Vehicle> getAllVehicles(Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(vehicleRepository.findAll(), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(vehicleRepository.findByIdGreaterThan(cursor(after), keyset(size)),
+                size, Vehicle::getId);
+    }
 
-    public List<Vehicle> getAllVehicles() {
-        return vehicleRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllVehicles(Consumer<Vehicle> consumer) {
+        stream(vehicleRepository.streamAllByOrderByIdAsc(), consumer);
     }
 
     public Optional<Vehicle> getVehicleById(Long id) {
         return vehicleRepository.findById(id);
     }
 
+    // ETag source for a single vehicle
+    public Optional<Long> getVehicleVersion(Long id) {
+        return vehicleRepository.findChangeVersionById(id);
+    }
+
+    public List<Vehicle> getVehiclesByIds(Collection<Long> ids) {
+        return vehicleRepository.findAllById(ids);
+    }
+
+    // A plate the filter has never seen is answered without a query
     public Optional<Vehicle> getVehicleByLicensePlate(String licensePlate) {
-        return vehicleRepository.findByLicensePlate(licensePlate);
+        if (candidates(List.of(licensePlate)).isEmpty()) {
+            plateFilter.recordMisses(1, 0);
+            return Optional.empty();
+        }
+        Optional<Vehicle> vehicle = vehicleRepository.findByLicensePlate(licensePlate);
+        if (vehicle.isEmpty()) {
+            recordMisses(List.of(licensePlate));
+        }
+        return vehicle;
+    }
+
+    // Whether each plate is registered, in request order. Only the plates
+    // the filter cannot rule out are looked up, all in one query.
+    public Map<String, Boolean> checkPlates(List<String> plates) {
+        if (plates.size() > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("At most " + MAX_PAGE_SIZE + " plates per request");
+        }
+        if (plates.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Plates must not be null");
+        }
+        Set<String> distinct = new LinkedHashSet<>(plates);
+        List<String> candidates = candidates(distinct);
+        Set<String> registered = candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(vehicleRepository.findLicensePlatesIn(candidates));
+        recordMisses(distinct.stream().filter(plate -> !registered.contains(plate)).toList());
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        distinct.forEach(plate -> result.put(plate, registered.contains(plate)));
+        return result;
+    }
+
+    // Plates the filter cannot rule out. A "no" only counts once the filter
+    // covers the latest committed version: until then a plate another
+    // instance just registered may be missing, so every plate is looked up.
+    // The filter is asked again after the version is read, as it may have
+    // caught up in between.
+    private List<String> candidates(Collection<String> plates) {
+        List<String> candidates = plates.stream().filter(plateFilter::mightContain).toList();
+        if (candidates.size() == plates.size()) {
+            return candidates;
+        }
+        if (!plateFilter.covers(changeLog.committedVersion())) {
+            return List.copyOf(plates);
+        }
+        return plates.stream().filter(plateFilter::mightContain).toList();
     }
 
-    public List<Vehicle> getVehiclesByOwnerName(String ownerName) {
-        return vehicleRepository.findByOwnerName(ownerName);
+    // Unregistered plates the filter let through were false positives
+    private void recordMisses(List<String> unregistered) {
+        int falsePositives = (int) unregistered.stream().filter(plateFilter::mightContain).count();
+        plateFilter.recordMisses(unregistered.size() - falsePositives, falsePositives);
     }
 
+    // Closest plates first. More than two edits matches too much of the
+    // fleet to be useful, so maxDistance is capped there.
+    public List<PlateMatch> searchByPlate(String query, int maxDistance, boolean prefix, int limit) {
+        List<PlateIndex.Match> matches = plateIndex.search(query,
+                Math.max(0, Math.min(maxDistance, MAX_PLATE_DISTANCE)), prefix,
+                Math.max(1, Math.min(limit, MAX_PLATE_MATCHES)));
+        Map<Long, Vehicle> vehicles = vehicleRepository.findAllById(
+                        matches.stream().map(PlateIndex.Match::vehicleId).toList()).stream()
+                .collect(Collectors.toMap(Vehicle::getId, Function.identity()));
+        // a vehicle deleted since the search is left out
+        return matches.stream()
+                .filter(match -> vehicles.containsKey(match.vehicleId()))
+                .map(match -> new PlateMatch(vehicles.get(match.vehicleId()), match.distance()))
+                .toList();
+    }
+
+    public CursorPage<Vehicle> getVehiclesByOwnerName(String ownerName, Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return new CursorPage<>(vehicleRepository.findByOwnerName(ownerName), null);
+        }
+        int size = pageSize(limit);
+        return CursorPage.of(vehicleRepository.findByOwnerNameAndIdGreaterThan(ownerName, cursor(after), keyset(size)),
+                size, Vehicle::getId);
+    }
+
+    // Best matches first; the next offset is returned as the cursor
+    public CursorPage<Vehicle> searchByOwner(String query, int offset, int limit) {
+        if (offset < 0) {
+            throw new InvalidRequestException("Offset must not be negative");
+        }
+        OwnerIndex.Hits hits = ownerIndex.search(query, offset, pageSize(limit));
+        Map<Long, Vehicle> vehicles = vehicleRepository.findAllById(
+                        Arrays.stream(hits.vehicleIds()).boxed().toList()).stream()
+                .collect(Collectors.toMap(Vehicle::getId, Function.identity()));
+        int next = offset + hits.vehicleIds().length;
+        // a vehicle deleted since the search is left out
+        return new CursorPage<>(Arrays.stream(hits.vehicleIds())
+                .filter(vehicles::containsKey)
+                .mapToObj(vehicles::get)
+                .toList(), next < hits.total() ? Long.valueOf(next) : null);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamVehiclesByOwnerName(String ownerName, Consumer<Vehicle> consumer) {
+        stream(vehicleRepository.streamByOwnerNameOrderByIdAsc(ownerName), consumer);
+    }
+
+    // Only versions every writer has committed are read, so no change below
+    // the returned version can still appear later. Without since, the sync
+    // starts from the beginning.
+    @Transactional(readOnly = true)
+    public ChangeSet<Vehicle> getChanges(Long since, int limit) {
+        int size = pageSize(limit);
+        long from = since != null ? since : -1L;
+        long to = changeLog.committedVersion();
+        Pageable page = PageRequest.of(0, size + 1, Sort.by("changeVersion"));
+        return ChangeSet.of(vehicleRepository.findByChangeVersionBetween(from + 1, to, page),
+                Vehicle::getChangeVersion,
+                vehicleTombstoneRepository.findByChangeVersionBetween(from + 1, to, page),
+                VehicleTombstone::getChangeVersion, VehicleTombstone::getVehicleId,
+                size, from);
+    }
+
+    @Transactional
     public Vehicle createVehicle(Vehicle vehicle) {
-        return vehicleRepository.save(vehicle);
+        vehicle.setChangeVersion(changeLog.reserve(1));
+        Vehicle created = vehicleRepository.save(vehicle);
+        plateIndex.apply(created);
+        ownerIndex.apply(created);
+        plateFilter.add(created.getLicensePlate());
+        return created;
     }
 
+    @Transactional
     public Vehicle updateVehicle(Long id, Vehicle vehicleDetails) {
         Vehicle vehicle = vehicleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vehicle not found"));
+        String previousPlate = vehicle.getLicensePlate();
         vehicle.setLicensePlate(vehicleDetails.getLicensePlate());
         vehicle.setModel(vehicleDetails.getModel());
         vehicle.setColor(vehicleDetails.getColor());
         vehicle.setOwnerName(vehicleDetails.getOwnerName());
-        return vehicleRepository.save(vehicle);
+        vehicle.setChangeVersion(changeLog.reserve(1));
+        Vehicle updated = vehicleRepository.save(vehicle);
+        plateIndex.apply(updated);
+        ownerIndex.apply(updated);
+        if (!PlateIndex.normalize(previousPlate).equals(PlateIndex.normalize(updated.getLicensePlate()))) {
+            plateFilter.add(updated.getLicensePlate());
+            plateFilter.retire();
+        }
+        return updated;
     }
 
+    @Transactional
     public void deleteVehicle(Long id) {
+        if (vehicleRepository.existsById(id)) {
+            vehicleTombstoneRepository.save(new VehicleTombstone(id, changeLog.reserve(1)));
+            plateFilter.retire();
+        }
         vehicleRepository.deleteById(id);
+        plateIndex.remove(id);
+        ownerIndex.remove(id);
     }
-}
 
+    private static int pageSize(Integer limit) {
+        return limit != null ? Math.max(1, Math.min(limit, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+    }
 
+    private static Long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
 
+    // One extra row tells CursorPage whether a next page exists.
+    private static Pageable keyset(int size) {
+        return PageRequest.of(0, size + 1, Sort.by("id"));
+    }
 
+    // Detach each row once written so the persistence context stays empty
+    // and memory does not grow with the result size.
+    private void stream(Stream<Vehicle> vehicles, Consumer<Vehicle> consumer) {
+        try (vehicles) {
+            vehicles.forEach(vehicle -> {
+                consumer.accept(vehicle);
+                entityManager.detach(vehicle);
+            });
+        }
+    }
+}
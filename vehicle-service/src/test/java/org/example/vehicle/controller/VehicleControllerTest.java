@@ -1,7 +1,12 @@
 package org.example.vehicle.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.vehicle.dto.ChangeSet;
+import org.example.vehicle.dto.CursorPage;
+import org.example.vehicle.dto.PlateMatch;
 import org.example.vehicle.entity.Vehicle;
+import org.example.vehicle.service.IndexNotLoadedException;
+import org.example.vehicle.service.InvalidRequestException;
 import org.example.vehicle.service.VehicleService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,13 +17,20 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -51,16 +63,16 @@ class VehicleControllerTest {
     @WithMockUser
     void getAllVehicles_ShouldReturnListOfVehicles() throws Exception {
         List<Vehicle> vehicles = Arrays.asList(vehicle1, vehicle2);
-        when(vehicleService.getAllVehicles()).thenReturn(vehicles);
+        when(vehicleService.getAllVehicles(null, null)).thenReturn(new CursorPage<>(vehicles, null));
 
-        mockMvc.perform(get("/vehicles"))
+        mockMvc.perform(get("/vehicles").accept(MediaType.ALL))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].licensePlate").value("А123БВ"))
                 .andExpect(jsonPath("$[1].licensePlate").value("В456ГД"));
 
-        verify(vehicleService, times(1)).getAllVehicles();
+        verify(vehicleService, times(1)).getAllVehicles(null, null);
     }
 
     @Test
@@ -105,14 +117,14 @@ class VehicleControllerTest {
     @WithMockUser
     void getVehiclesByOwnerName_ShouldReturnOwnerVehicles() throws Exception {
         List<Vehicle> ownerVehicles = Arrays.asList(vehicle1);
-        when(vehicleService.getVehiclesByOwnerName("Иван Иванов")).thenReturn(ownerVehicles);
+        when(vehicleService.getVehiclesByOwnerName("Иван Иванов", null, null)).thenReturn(new CursorPage<>(ownerVehicles, null));
 
         mockMvc.perform(get("/vehicles/owner/Иван Иванов"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].ownerName").value("Иван Иванов"));
 
-        verify(vehicleService, times(1)).getVehiclesByOwnerName("Иван Иванов");
+        verify(vehicleService, times(1)).getVehiclesByOwnerName("Иван Иванов", null, null);
     }
 
     @Test
@@ -162,5 +174,170 @@ class VehicleControllerTest {
 
         verify(vehicleService, times(1)).deleteVehicle(1L);
     }
-}
 
+    @Test
+    @WithMockUser
+    void getVehiclesByIds_ShouldReturnRequestedVehicles() throws Exception {
+        when(vehicleService.getVehiclesByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(vehicle1, vehicle2));
+
+        mockMvc.perform(get("/vehicles/batch").param("ids", "1", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].licensePlate").value("А123БВ"));
+
+        verify(vehicleService, times(1)).getVehiclesByIds(Arrays.asList(1L, 2L));
+        verify(vehicleService, never()).getVehicleById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getVehiclesByIds_WithMoreThan200Ids_ShouldReturnBadRequest() throws Exception {
+        String ids = LongStream.rangeClosed(1, 201).mapToObj(Long::toString).collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/vehicles/batch").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        verify(vehicleService, never()).getVehiclesByIds(anyList());
+    }
+
+    @Test
+    @WithMockUser
+    void getAllVehicles_WhenMorePagesExist_ShouldReturnNextCursorHeader() throws Exception {
+        when(vehicleService.getAllVehicles(null, 1)).thenReturn(new CursorPage<>(List.of(vehicle1), 1L));
+
+        mockMvc.perform(get("/vehicles").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    void streamAllVehicles_ShouldWriteNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Vehicle> consumer = invocation.getArgument(0);
+            consumer.accept(vehicle1);
+            consumer.accept(vehicle2);
+            return null;
+        }).when(vehicleService).streamAllVehicles(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/vehicles").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        objectMapper.writeValueAsString(vehicle1) + "\n"
+                                + objectMapper.writeValueAsString(vehicle2) + "\n"));
+    }
+
+    @Test
+    @WithMockUser
+    void getChanges_ShouldReturnChangedAndDeletedSinceVersion() throws Exception {
+        when(vehicleService.getChanges(null, 50))
+                .thenReturn(new ChangeSet<>(List.of(vehicle1), List.of(), 7L, true));
+
+        mockMvc.perform(get("/vehicles/changes").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed", hasSize(1)))
+                .andExpect(jsonPath("$.deleted", hasSize(0)))
+                .andExpect(jsonPath("$.version").value(7))
+                .andExpect(jsonPath("$.more").value(true));
+    }
+
+    @Test
+    @WithMockUser
+    void getVehicleById_WhenETagMatches_ShouldReturn304WithoutLoadingTheVehicle() throws Exception {
+        when(vehicleService.getVehicleVersion(1L)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(get("/vehicles/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""));
+
+        verify(vehicleService, never()).getVehicleById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getVehicleById_WhenETagIsStale_ShouldReturnVehicleWithNewETag() throws Exception {
+        vehicle1.setChangeVersion(4L);
+        when(vehicleService.getVehicleVersion(1L)).thenReturn(Optional.of(4L));
+        when(vehicleService.getVehicleById(1L)).thenReturn(Optional.of(vehicle1));
+
+        mockMvc.perform(get("/vehicles/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.model").value("Toyota Camry"));
+    }
+
+    @Test
+    @WithMockUser
+    void searchByPlate_ShouldReturnMatchesWithDistance() throws Exception {
+        when(vehicleService.searchByPlate("A123BV", 1, true, 20)).thenReturn(List.of(new PlateMatch(vehicle1, 1)));
+
+        mockMvc.perform(get("/vehicles/plate/search").param("q", "A123BV").param("maxDistance", "1")
+                        .param("prefix", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].vehicle.licensePlate").value("А123БВ"))
+                .andExpect(jsonPath("$[0].distance").value(1));
+
+        verify(vehicleService, never()).getVehicleByLicensePlate(any());
+    }
+
+    @Test
+    @WithMockUser
+    void searchByPlate_WhenIndexIsLoading_ShouldReturnServiceUnavailable() throws Exception {
+        when(vehicleService.searchByPlate("A123BV", 0, false, 20))
+                .thenThrow(new IndexNotLoadedException("Plate index is still loading"));
+
+        mockMvc.perform(get("/vehicles/plate/search").param("q", "A123BV"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @WithMockUser
+    void checkPlates_ShouldReturnRegistrationPerPlate() throws Exception {
+        when(vehicleService.checkPlates(List.of("А123БВ", "Х999ХХ"))).thenReturn(Map.of("А123БВ", true, "Х999ХХ", false));
+
+        mockMvc.perform(post("/vehicles/plate/exists").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of("А123БВ", "Х999ХХ"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.А123БВ").value(true))
+                .andExpect(jsonPath("$.Х999ХХ").value(false));
+    }
+
+    @Test
+    @WithMockUser
+    void searchByOwner_ShouldReturnPageWithNextOffset() throws Exception {
+        when(vehicleService.searchByOwner("иван", 0, 20)).thenReturn(new CursorPage<>(List.of(vehicle1), 20L));
+
+        mockMvc.perform(get("/vehicles/owner/search").param("q", "иван"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "20"))
+                .andExpect(jsonPath("$[0].ownerName").value("Иван Иванов"));
+
+        verify(vehicleService, never()).getVehiclesByOwnerName(any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void searchByOwner_WhenOffsetIsNegative_ShouldReturnBadRequest() throws Exception {
+        when(vehicleService.searchByOwner("иван", -1, 20)).thenThrow(new InvalidRequestException("Offset must not be negative"));
+
+        mockMvc.perform(get("/vehicles/owner/search").param("q", "иван").param("offset", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void getAllVehicles_WhenArgumentIsBroken_ShouldNotReportBadRequest() {
+        when(vehicleService.getAllVehicles(null, null)).thenThrow(new IllegalArgumentException("The given id must not be null"));
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/vehicles")))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -5,10 +5,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -147,5 +150,29 @@ class VehicleRepositoryTest {
         assertThat(vehicleRepository.findById(vehicleId)).isEmpty();
         assertThat(vehicleRepository.findAll()).hasSize(2);
     }
-}
 
+    @Test
+    void findByOwnerNameAndIdGreaterThan_ShouldReturnRowsAfterCursorInIdOrder() {
+        // When
+        List<Vehicle> firstPage = vehicleRepository.findByOwnerNameAndIdGreaterThan(
+                "Иван Иванов", 0L, PageRequest.of(0, 1, Sort.by("id")));
+        List<Vehicle> secondPage = vehicleRepository.findByOwnerNameAndIdGreaterThan(
+                "Иван Иванов", firstPage.get(0).getId(), PageRequest.of(0, 1, Sort.by("id")));
+
+        // Then
+        assertThat(firstPage).extracting(Vehicle::getLicensePlate).containsExactly("А123БВ");
+        assertThat(secondPage).extracting(Vehicle::getLicensePlate).containsExactly("С789ЕЖ");
+    }
+
+    @Test
+    void streamAllByOrderByIdAsc_ShouldStreamAllRowsInIdOrder() {
+        // When
+        List<String> plates;
+        try (Stream<Vehicle> vehicles = vehicleRepository.streamAllByOrderByIdAsc()) {
+            plates = vehicles.map(Vehicle::getLicensePlate).toList();
+        }
+
+        // Then
+        assertThat(plates).containsExactly("А123БВ", "В456ГД", "С789ЕЖ");
+    }
+}
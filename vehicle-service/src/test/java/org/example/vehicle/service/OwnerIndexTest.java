@@ -0,0 +1,147 @@
+package org.example.vehicle.service;
+
+import org.example.vehicle.entity.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OwnerIndexTest {
+    private static final String[] FIRST_NAMES = {"Иван", "Пётр", "Сергей", "Анна", "Мария", "José", "Zoë", "Øyvind"};
+    private static final String[] LAST_NAMES = {"Иванов", "Петров", "Сидоров", "Смирнова", "Кузнецова", "Muñoz", "Brontë"};
+    private static final String[] QUERIES = {"иван", "ив ив", "zoe bron", "muno", "петр 12", "анна смирнова 1999"};
+
+    private OwnerIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OwnerIndex();
+    }
+
+    @Test
+    void tokenize_ShouldFoldCaseAndDiacritics() {
+        assertThat(OwnerIndex.tokenize("José  MUÑOZ-Pérez")).containsExactly("jose", "munoz", "perez");
+        assertThat(OwnerIndex.tokenize("Пётр Петров")).containsExactly("петр", "петров");
+    }
+
+    @Test
+    void search_ShouldMatchEveryTermAndRankWholeWordsFirst() {
+        // Given
+        index.load(Stream.of(owner(1L, "Иван Иванов"), owner(2L, "Иванна Петрова"), owner(3L, "Пётр Иванов"),
+                owner(4L, "Иван Петров")));
+
+        // When
+        OwnerIndex.Hits ivan = index.search("иван", 0, 10);
+        OwnerIndex.Hits ivanPetr = index.search("ИВАН пет", 0, 10);
+        OwnerIndex.Hits petr = index.search("петр", 0, 10);
+
+        // Then
+        assertThat(ivan.vehicleIds()).containsExactly(1L, 4L, 2L, 3L);
+        assertThat(ivanPetr.vehicleIds()).containsExactly(4L, 2L, 3L);
+        assertThat(petr.vehicleIds()).containsExactly(3L, 2L, 4L);
+    }
+
+    @Test
+    void search_ShouldPageThroughRankedResults() {
+        // Given
+        index.load(LongStream.rangeClosed(1, 5).mapToObj(id -> owner(id, id % 2 == 0 ? "Anna" : "Annabel")));
+
+        // When
+        OwnerIndex.Hits first = index.search("anna", 0, 3);
+        OwnerIndex.Hits second = index.search("anna", 3, 3);
+
+        // Then
+        assertThat(first.vehicleIds()).containsExactly(2L, 4L, 1L);
+        assertThat(second.vehicleIds()).containsExactly(3L, 5L);
+        assertThat(second.total()).isEqualTo(5);
+        assertThat(index.search("anna", 10, 3).vehicleIds()).isEmpty();
+    }
+
+    @Test
+    void apply_ShouldFollowRenamesAndDeletesAndIgnoreStaleVersions() {
+        // Given
+        index.load(Stream.of(owner(1L, "Иван Иванов", 5L), owner(2L, "Пётр Петров", 1L)));
+
+        // When
+        index.apply(owner(1L, "Анна Смирнова", 6L));
+        index.apply(owner(1L, "Иван Иванов", 4L));
+        index.remove(2L);
+        index.apply(owner(2L, "Пётр Петров", 2L));
+
+        // Then
+        assertThat(index.search("иван", 0, 10).vehicleIds()).isEmpty();
+        assertThat(index.search("смирн", 0, 10).vehicleIds()).containsExactly(1L);
+        assertThat(index.search("петр", 0, 10).vehicleIds()).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void search_BeforeLoad_ShouldFail() {
+        assertThatThrownBy(() -> index.search("иван", 0, 10)).isInstanceOf(IndexNotLoadedException.class);
+    }
+
+    @Test
+    void search_ShouldCountEveryVehicleMatchingAllTerms() {
+        // Given
+        Random random = new Random(42);
+        List<Vehicle> vehicles = fleet(20_000, random).toList();
+        index.load(vehicles.stream());
+
+        for (String query : QUERIES) {
+            // When
+            OwnerIndex.Hits hits = index.search(query, 0, 20);
+
+            // Then
+            String[] terms = OwnerIndex.tokenize(query);
+            long expected = vehicles.stream()
+                    .map(vehicle -> OwnerIndex.tokenize(vehicle.getOwnerName()))
+                    .filter(tokens -> Arrays.stream(terms)
+                            .allMatch(term -> Arrays.stream(tokens).anyMatch(token -> token.startsWith(term))))
+                    .count();
+            assertThat(hits.total()).as("hits for %s", query).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void search_ShouldAnswerQuicklyAtAMillionVehicles() {
+        // Given
+        index.load(fleet(1_000_000, new Random(42)));
+
+        // When
+        long startedAt = System.nanoTime();
+        int rounds = 20;
+        for (int round = 0; round < rounds; round++) {
+            for (String query : QUERIES) {
+                index.search(query, 0, 20);
+            }
+        }
+        double millis = (System.nanoTime() - startedAt) / 1e6 / (rounds * QUERIES.length);
+
+        // Then
+        System.out.printf("Owner search: %.2f ms per query at %d vehicles%n", millis, index.size());
+        assertThat(millis).isLessThan(100);
+    }
+
+    private static Stream<Vehicle> fleet(int size, Random random) {
+        return LongStream.rangeClosed(1, size).mapToObj(id -> owner(id,
+                FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                        + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + random.nextInt(20_000)));
+    }
+
+    private static Vehicle owner(Long id, String ownerName) {
+        return owner(id, ownerName, 0L);
+    }
+
+    private static Vehicle owner(Long id, String ownerName, long changeVersion) {
+        return new Vehicle(id, "A" + id, "Lada", "White", ownerName, changeVersion);
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.vehicle.service;
+
+import org.example.vehicle.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlateFilterTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlateFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        // builds run inline
+        filter = new PlateFilter(vehicleRepository, transactionManager, Runnable::run, 1000, 0.01, 100);
+    }
+
+    @Test
+    void mightContain_BeforeLoad_ShouldLetEveryPlateThrough() {
+        assertThat(filter.isLoaded()).isFalse();
+        assertThat(filter.mightContain("A123BC77")).isTrue();
+    }
+
+    @Test
+    void covers_ShouldOnlyHoldUpToTheVersionCaughtUpTo() {
+        // Given
+        PlateFilter fresh = new PlateFilter(vehicleRepository, transactionManager, Runnable::run, 1000, 0.01, 100);
+        when(vehicleRepository.streamAllLicensePlates()).thenReturn(Stream.of("A123BC77"));
+        fresh.caughtUp(5);
+        assertThat(fresh.covers(5)).isFalse();
+        fresh.rebuild();
+
+        // When
+        fresh.caughtUp(7);
+
+        // Then
+        assertThat(fresh.covers(7)).isTrue();
+        assertThat(fresh.covers(8)).isFalse();
+        assertThat(fresh.mightContain("K456MO99")).isFalse();
+    }
+
+    @Test
+    void mightContain_ShouldMatchNormalizedPlatesAndRejectMostOthers() {
+        // Given
+        when(vehicleRepository.count()).thenReturn(100_000L);
+        when(vehicleRepository.streamAllLicensePlates())
+                .thenReturn(IntStream.range(0, 100_000).mapToObj(i -> "R" + i));
+        filter.rebuild();
+
+        // When
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("U" + i)).count();
+
+        // Then
+        assertThat(IntStream.range(0, 100_000).allMatch(i -> filter.mightContain("r-" + i))).isTrue();
+        assertThat(falsePositives / 100_000.0).isLessThan(0.01);
+    }
+
+    @Test
+    void add_BeyondExpectedPlates_ShouldGrowWithoutLosingPlatesOrAccuracy() {
+        // Given
+        when(vehicleRepository.streamAllLicensePlates()).thenReturn(Stream.empty());
+        filter.rebuild();
+
+        // When
+        IntStream.range(0, 50_000).forEach(i -> filter.add("R" + i));
+        long falsePositives = IntStream.range(0, 1_000_000).filter(i -> filter.mightContain("U" + i)).count();
+
+        // Then
+        assertThat(IntStream.range(0, 50_000).allMatch(i -> filter.mightContain("R" + i))).isTrue();
+        assertThat(falsePositives / 1_000_000.0).isLessThan(0.01);
+    }
+
+    @Test
+    void recordMisses_WhenDeletedPlatesCauseFalsePositives_ShouldRebuild() {
+        // Given
+        when(vehicleRepository.streamAllLicensePlates())
+                .thenReturn(Stream.of("A123BC77", "K456MO99"), Stream.of("A123BC77"));
+        filter.rebuild();
+
+        // When
+        filter.retire();
+        filter.recordMisses(0, 100);
+
+        // Then
+        assertThat(filter.mightContain("K456MO99")).isFalse();
+        assertThat(filter.mightContain("A123BC77")).isTrue();
+        verify(vehicleRepository, times(2)).streamAllLicensePlates();
+    }
+
+    @Test
+    void recordMisses_WithoutDeletedPlates_ShouldNotRebuild() {
+        // Given
+        when(vehicleRepository.streamAllLicensePlates()).thenReturn(Stream.of("A123BC77"));
+        filter.rebuild();
+
+        // When
+        filter.recordMisses(0, 100);
+
+        // Then
+        verify(vehicleRepository, times(1)).streamAllLicensePlates();
+    }
+}
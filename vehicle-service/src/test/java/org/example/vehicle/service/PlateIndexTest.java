@@ -0,0 +1,170 @@
+package org.example.vehicle.service;
+
+import org.example.vehicle.entity.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PlateIndexTest {
+    private static final String LETTERS = "ABEKMHOPCTYX";
+
+    private PlateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PlateIndex();
+    }
+
+    @Test
+    void normalize_ShouldFoldCaseSeparatorsAndLookAlikes() {
+        // Given
+        String cyrillic = "а 123 вс 77";
+        String latin = "A-123-BC-77";
+        String misread = "a1z3 8c 7t";
+
+        // Then
+        assertThat(PlateIndex.normalize(cyrillic)).isEqualTo("A1238C77");
+        assertThat(PlateIndex.normalize(latin)).isEqualTo("A1238C77");
+        assertThat(PlateIndex.normalize("SO8")).isEqualTo(PlateIndex.normalize("508"));
+        assertThat(PlateIndex.normalize(misread)).isEqualTo("A1238C7T");
+    }
+
+    @Test
+    void search_ShouldMatchMisreadPlatesClosestFirst() {
+        // Given
+        index.load(Stream.of(vehicle(1L, "A123BC77"), vehicle(2L, "A123BC78"), vehicle(3L, "K456MO99")));
+
+        // When
+        List<PlateIndex.Match> exact = index.search("a 123 8c 77", 0, false, 20);
+        List<PlateIndex.Match> fuzzy = index.search("A123BC7", 1, false, 20);
+
+        // Then
+        assertThat(exact).containsExactly(new PlateIndex.Match(1L, 0));
+        assertThat(fuzzy).extracting(PlateIndex.Match::distance).containsExactly(1, 1);
+        assertThat(fuzzy).extracting(PlateIndex.Match::vehicleId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("A1238C77", 2, false, 1)).containsExactly(new PlateIndex.Match(1L, 0));
+    }
+
+    @Test
+    void search_WithPrefix_ShouldMatchPlatesStartingWithTheQuery() {
+        // Given
+        index.load(Stream.of(vehicle(1L, "A123BC77"), vehicle(2L, "A124BC77"), vehicle(3L, "K456MO99")));
+
+        // When
+        List<PlateIndex.Match> prefix = index.search("A123", 0, true, 20);
+        List<PlateIndex.Match> fuzzyPrefix = index.search("A123", 1, true, 20);
+
+        // Then
+        assertThat(prefix).containsExactly(new PlateIndex.Match(1L, 0));
+        assertThat(fuzzyPrefix).containsExactly(new PlateIndex.Match(1L, 0), new PlateIndex.Match(2L, 1));
+    }
+
+    @Test
+    void apply_ShouldMoveUpdatedPlatesAndIgnoreStaleVersions() {
+        // Given
+        index.load(Stream.of(vehicle(1L, "A123BC77", 5L), vehicle(2L, "K456MO99", 1L)));
+
+        // When
+        index.apply(vehicle(1L, "E777KX77", 6L));
+        index.apply(vehicle(1L, "A123BC77", 4L));
+        index.remove(2L);
+        index.apply(vehicle(2L, "K456MO99", 2L));
+
+        // Then
+        assertThat(index.search("A123BC77", 0, false, 20)).isEmpty();
+        assertThat(index.search("E777KX77", 0, false, 20)).containsExactly(new PlateIndex.Match(1L, 0));
+        assertThat(index.search("K456MO99", 0, false, 20)).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void search_BeforeLoad_ShouldFail() {
+        assertThatThrownBy(() -> index.search("A123BC77", 0, false, 20))
+                .isInstanceOf(IndexNotLoadedException.class);
+    }
+
+    @Test
+    void search_WithOneCharacterMissing_ShouldFindTheOriginalPlate() {
+        // Given
+        Random random = new Random(42);
+        String[] plates = plates(20_000, random);
+        index.load(LongStream.range(0, plates.length).mapToObj(id -> vehicle(id, plates[(int) id])));
+
+        for (int i = 0; i < 500; i++) {
+            int original = random.nextInt(plates.length);
+            String query = dropOne(plates[original], random);
+
+            // When
+            List<PlateIndex.Match> matches = index.search(query, 1, false, 20);
+
+            // Then
+            assertThat(matches).as("matches for %s", query)
+                    .contains(new PlateIndex.Match(original, 1));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void search_ShouldAnswerWithinAMillisecondAtAMillionPlates() {
+        // Given
+        Random random = new Random(42);
+        String[] plates = plates(1_000_000, random);
+        index.load(LongStream.range(0, plates.length).mapToObj(id -> vehicle(id, plates[(int) id])));
+        String[] queries = new String[5_000];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = dropOne(plates[random.nextInt(plates.length)], random);
+        }
+
+        // When
+        long startedAt = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            found += index.search(query, 1, false, 20).isEmpty() ? 0 : 1;
+        }
+        double micros = (System.nanoTime() - startedAt) / 1e3 / queries.length;
+
+        // Then
+        System.out.printf("Plate search: %.1f µs per query at %d plates%n", micros, index.size());
+        assertThat(found).isEqualTo(queries.length);
+        assertThat(micros).isLessThan(1000);
+    }
+
+    private static String[] plates(int count, Random random) {
+        String[] plates = new String[count];
+        for (int i = 0; i < plates.length; i++) {
+            plates[i] = plate(random);
+        }
+        return plates;
+    }
+
+    // One character dropped, as a camera misses it
+    private static String dropOne(String plate, Random random) {
+        int missing = random.nextInt(plate.length());
+        return plate.substring(0, missing) + plate.substring(missing + 1);
+    }
+
+    private static String plate(Random random) {
+        return "" + letter(random) + random.nextInt(10) + random.nextInt(10) + random.nextInt(10)
+                + letter(random) + letter(random) + (random.nextInt(199) + 1);
+    }
+
+    private static char letter(Random random) {
+        return LETTERS.charAt(random.nextInt(LETTERS.length()));
+    }
+
+    private static Vehicle vehicle(Long id, String plate) {
+        return vehicle(id, plate, 0L);
+    }
+
+    private static Vehicle vehicle(Long id, String plate, long changeVersion) {
+        return new Vehicle(id, plate, "Lada", "White", "Ivanov", changeVersion);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.vehicle.service;
+
+import org.example.vehicle.config.PlateFilterConfig;
+import org.example.vehicle.dto.ChangeSet;
+import org.example.vehicle.entity.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({VehicleService.class, ChangeLog.class, PlateIndex.class, PlateFilter.class, PlateFilterConfig.class,
+        OwnerIndex.class})
+class VehicleChangesTest {
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Test
+    void getChanges_ShouldReturnOnlyChangesAfterSince() {
+        // Given
+        Vehicle first = vehicleService.createVehicle(new Vehicle(null, "A111AA", "Lada", "White", "Ivanov"));
+        Vehicle second = vehicleService.createVehicle(new Vehicle(null, "B222BB", "Kia", "Black", "Petrov"));
+        long since = vehicleService.getChanges(null, 100).getVersion();
+
+        // When
+        vehicleService.updateVehicle(second.getId(), new Vehicle(null, "B222BB", "Kia", "Red", "Petrov"));
+        vehicleService.deleteVehicle(first.getId());
+        vehicleService.deleteVehicle(999_999L);
+        ChangeSet<Vehicle> changes = vehicleService.getChanges(since, 100);
+
+        // Then
+        assertThat(changes.getChanged()).extracting(Vehicle::getColor).containsExactly("Red");
+        assertThat(changes.getDeleted()).containsExactly(first.getId());
+        assertThat(changes.getVersion()).isEqualTo(since + 2);
+        assertThat(vehicleService.getChanges(changes.getVersion(), 100).getChanged()).isEmpty();
+    }
+
+    @Test
+    void getVehicleVersion_ShouldFollowEveryWrite() {
+        // Given
+        Vehicle vehicle = vehicleService.createVehicle(new Vehicle(null, "C333CC", "Lada", "White", "Sidorov"));
+        long vehicleVersion = vehicle.getChangeVersion();
+        long created = vehicleService.getVehicleVersion(vehicle.getId()).orElseThrow();
+
+        // When
+        vehicleService.updateVehicle(vehicle.getId(), new Vehicle(null, "C333CC", "Lada", "Blue", "Sidorov"));
+
+        // Then
+        assertThat(created).isEqualTo(vehicleVersion);
+        assertThat(vehicleService.getVehicleVersion(vehicle.getId())).hasValue(created + 1);
+        assertThat(vehicleService.getVehicleVersion(999_999L)).isEmpty();
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.vehicle.service;
+
+import org.example.vehicle.config.PlateFilterConfig;
+import org.example.vehicle.entity.Vehicle;
+import org.example.vehicle.entity.VehicleTombstone;
+import org.example.vehicle.repository.VehicleRepository;
+import org.example.vehicle.repository.VehicleTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:catchup")
+@Import({VehicleService.class, ChangeLog.class, PlateIndex.class, PlateFilter.class, PlateFilterConfig.class,
+        OwnerIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VehicleIndexCatchUpTest {
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleTombstoneRepository vehicleTombstoneRepository;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private PlateIndex plateIndex;
+
+    @Autowired
+    private OwnerIndex ownerIndex;
+
+    @Autowired
+    private PlateFilter plateFilter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        // through the service, so the views of this shared context forget
+        // the vehicles of earlier tests too
+        vehicleRepository.findAll().forEach(vehicle -> vehicleService.deleteVehicle(vehicle.getId()));
+        vehicleService.createVehicle(new Vehicle(null, "A111AA77", "Lada", "White", "Иван Иванов"));
+        vehicleService.loadIndexes();
+    }
+
+    @Test
+    void catchUpIndexes_ShouldApplyChangesCommittedByAnotherInstance() {
+        // Given
+        // written the way another instance would, so no after-commit hook
+        // of this one sees it
+        Vehicle remote = new TransactionTemplate(transactionManager).execute(status -> {
+            Vehicle vehicle = new Vehicle(null, "K456MO99", "Kia", "Black", "Пётр Петров");
+            vehicle.setChangeVersion(changeLog.reserve(1));
+            return vehicleRepository.save(vehicle);
+        });
+        Long local = plateIndex.search("A111AA77", 0, false, 10).get(0).vehicleId();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            vehicleTombstoneRepository.save(new VehicleTombstone(local, changeLog.reserve(1)));
+            vehicleRepository.deleteById(local);
+        });
+        assertThat(plateIndex.search("K456MO99", 0, false, 10)).isEmpty();
+
+        // When
+        vehicleService.catchUpIndexes();
+
+        // Then
+        assertThat(plateIndex.search("K456MO99", 0, false, 10))
+                .extracting(PlateIndex.Match::vehicleId).containsExactly(remote.getId());
+        assertThat(ownerIndex.search("петров", 0, 10).vehicleIds()).containsExactly(remote.getId());
+        assertThat(plateIndex.search("A111AA77", 0, false, 10)).isEmpty();
+        assertThat(ownerIndex.search("иванов", 0, 10).vehicleIds()).isEmpty();
+    }
+
+    @Test
+    void catchUpIndexes_ShouldLetThePlateFilterAnswer() {
+        // Given
+        Vehicle remote = new TransactionTemplate(transactionManager).execute(status -> {
+            Vehicle vehicle = new Vehicle(null, "K456MO99", "Kia", "Black", "Пётр Петров");
+            vehicle.setChangeVersion(changeLog.reserve(1));
+            return vehicleRepository.save(vehicle);
+        });
+
+        // When
+        vehicleService.catchUpIndexes();
+
+        // Then
+        assertThat(plateFilter.covers(changeLog.committedVersion())).isTrue();
+        assertThat(plateFilter.mightContain(remote.getLicensePlate())).isTrue();
+        assertThat(plateFilter.mightContain("X999XX199")).isFalse();
+        assertThat(vehicleService.getVehicleByLicensePlate("K456MO99")).isPresent();
+    }
+
+    @Test
+    void getVehicleByLicensePlate_WhenFilterIsBehind_ShouldAskTheTable() {
+        // Given
+        vehicleService.catchUpIndexes();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Vehicle vehicle = new Vehicle(null, "M777MM77", "Skoda", "Grey", "Анна Смирнова");
+            vehicle.setChangeVersion(changeLog.reserve(1));
+            vehicleRepository.save(vehicle);
+        });
+
+        // When
+        Optional<Vehicle> vehicle = vehicleService.getVehicleByLicensePlate("M777MM77");
+
+        // Then
+        assertThat(plateFilter.mightContain("M777MM77")).isFalse();
+        assertThat(vehicle).isPresent();
+    }
+}
@@ -1,21 +1,32 @@
 package org.example.vehicle.service;
 
+import jakarta.persistence.EntityManager;
+import org.example.vehicle.dto.CursorPage;
+import org.example.vehicle.dto.PlateMatch;
 import org.example.vehicle.entity.Vehicle;
 import org.example.vehicle.repository.VehicleRepository;
+import org.example.vehicle.repository.VehicleTombstoneRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +35,24 @@ class VehicleServiceTest {
     @Mock
     private VehicleRepository vehicleRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private VehicleTombstoneRepository vehicleTombstoneRepository;
+
+    @Mock
+    private ChangeLog changeLog;
+
+    @Mock
+    private PlateIndex plateIndex;
+
+    @Mock
+    private PlateFilter plateFilter;
+
+    @Mock
+    private OwnerIndex ownerIndex;
+
     @InjectMocks
     private VehicleService vehicleService;
 
@@ -36,19 +65,35 @@ class VehicleServiceTest {
         vehicle2 = new Vehicle(2L, "В456ГД", "BMW X5", "White", "Петр Петров");
     }
 
+    @Test
+    void getAllVehicles_WithoutCursorOrLimit_ShouldReturnEveryVehicle() {
+        // Given
+        when(vehicleRepository.findAll()).thenReturn(Arrays.asList(vehicle1, vehicle2));
+
+        // When
+        CursorPage<Vehicle> result = vehicleService.getAllVehicles(null, null);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(vehicle1, vehicle2);
+        assertThat(result.getNext()).isNull();
+        verify(vehicleRepository, never()).findByIdGreaterThan(any(), any());
+    }
+
     @Test
     void getAllVehicles_ShouldReturnAllVehicles() {
         // Given
         List<Vehicle> vehicles = Arrays.asList(vehicle1, vehicle2);
-        when(vehicleRepository.findAll()).thenReturn(vehicles);
+        when(vehicleRepository.findByIdGreaterThan(0L, PageRequest.of(0, 101, Sort.by("id")))).thenReturn(vehicles);
 
         // When
-        List<Vehicle> result = vehicleService.getAllVehicles();
+        CursorPage<Vehicle> result = vehicleService.getAllVehicles(null, 100);
 
         // Then
-        assertThat(result).hasSize(2);
-        assertThat(result).containsExactly(vehicle1, vehicle2);
-        verify(vehicleRepository, times(1)).findAll();
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getItems()).containsExactly(vehicle1, vehicle2);
+        assertThat(result.getNext()).isNull();
+        verify(vehicleRepository, times(1)).findByIdGreaterThan(0L, PageRequest.of(0, 101, Sort.by("id")));
+        verify(vehicleRepository, never()).findAll();
     }
 
     @Test
@@ -81,6 +126,7 @@ class VehicleServiceTest {
     @Test
     void getVehicleByLicensePlate_WhenExists_ShouldReturnVehicle() {
         // Given
+        when(plateFilter.mightContain("А123БВ")).thenReturn(true);
         when(vehicleRepository.findByLicensePlate("А123БВ")).thenReturn(Optional.of(vehicle1));
 
         // When
@@ -96,15 +142,16 @@ class VehicleServiceTest {
     void getVehiclesByOwnerName_ShouldReturnOwnerVehicles() {
         // Given
         List<Vehicle> ownerVehicles = Arrays.asList(vehicle1);
-        when(vehicleRepository.findByOwnerName("Иван Иванов")).thenReturn(ownerVehicles);
+        when(vehicleRepository.findByOwnerNameAndIdGreaterThan(eq("Иван Иванов"), eq(0L), any(Pageable.class)))
+                .thenReturn(ownerVehicles);
 
         // When
-        List<Vehicle> result = vehicleService.getVehiclesByOwnerName("Иван Иванов");
+        CursorPage<Vehicle> result = vehicleService.getVehiclesByOwnerName("Иван Иванов", null, 100);
 
         // Then
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0).getOwnerName()).isEqualTo("Иван Иванов");
-        verify(vehicleRepository, times(1)).findByOwnerName("Иван Иванов");
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getItems().get(0).getOwnerName()).isEqualTo("Иван Иванов");
+        verify(vehicleRepository, times(1)).findByOwnerNameAndIdGreaterThan(eq("Иван Иванов"), eq(0L), any(Pageable.class));
     }
 
     @Test
@@ -165,5 +212,147 @@ class VehicleServiceTest {
         // Then
         verify(vehicleRepository, times(1)).deleteById(1L);
     }
-}
 
+    @Test
+    void getVehiclesByIds_ShouldUseSingleBatchLookup() {
+        // Given
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(vehicleRepository.findAllById(ids)).thenReturn(Arrays.asList(vehicle1, vehicle2));
+
+        // When
+        List<Vehicle> result = vehicleService.getVehiclesByIds(ids);
+
+        // Then
+        assertThat(result).containsExactly(vehicle1, vehicle2);
+        verify(vehicleRepository, times(1)).findAllById(ids);
+        verify(vehicleRepository, never()).findById(any());
+    }
+
+    @Test
+    void getAllVehicles_WhenMoreRowsThanLimit_ShouldReturnNextCursor() {
+        // Given
+        when(vehicleRepository.findByIdGreaterThan(0L, PageRequest.of(0, 2, Sort.by("id"))))
+                .thenReturn(Arrays.asList(vehicle1, vehicle2));
+
+        // When
+        CursorPage<Vehicle> result = vehicleService.getAllVehicles(null, 1);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(vehicle1);
+        assertThat(result.getNext()).isEqualTo(1L);
+    }
+
+    @Test
+    void streamAllVehicles_ShouldPassEachRowAndDetachIt() {
+        // Given
+        when(vehicleRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(vehicle1, vehicle2));
+        List<Vehicle> written = new ArrayList<>();
+
+        // When
+        vehicleService.streamAllVehicles(written::add);
+
+        // Then
+        assertThat(written).containsExactly(vehicle1, vehicle2);
+        verify(entityManager).detach(vehicle1);
+        verify(entityManager).detach(vehicle2);
+    }
+
+    @Test
+    void searchByPlate_ShouldReturnVehiclesInMatchOrderAndSkipDeletedOnes() {
+        // Given
+        when(plateIndex.search("A123BV", 2, false, 100)).thenReturn(List.of(
+                new PlateIndex.Match(2L, 0), new PlateIndex.Match(1L, 1), new PlateIndex.Match(3L, 2)));
+        when(vehicleRepository.findAllById(List.of(2L, 1L, 3L))).thenReturn(Arrays.asList(vehicle1, vehicle2));
+
+        // When
+        List<PlateMatch> result = vehicleService.searchByPlate("A123BV", 5, false, 500);
+
+        // Then
+        assertThat(result).extracting(PlateMatch::getVehicle).containsExactly(vehicle2, vehicle1);
+        assertThat(result).extracting(PlateMatch::getDistance).containsExactly(0, 1);
+    }
+
+    @Test
+    void createUpdateDelete_ShouldKeepPlateIndexInStep() {
+        // Given
+        when(vehicleRepository.save(any(Vehicle.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle1));
+        when(vehicleRepository.existsById(2L)).thenReturn(true);
+
+        // When
+        vehicleService.createVehicle(vehicle2);
+        vehicleService.updateVehicle(1L, new Vehicle(null, "Е777КХ", "Toyota Camry", "Black", "Иван Иванов"));
+        vehicleService.deleteVehicle(2L);
+
+        // Then
+        verify(plateIndex).apply(vehicle2);
+        verify(plateIndex).apply(argThat(vehicle -> "Е777КХ".equals(vehicle.getLicensePlate())));
+        verify(plateIndex).remove(2L);
+        verify(ownerIndex).apply(vehicle2);
+        verify(ownerIndex).remove(2L);
+        verify(plateFilter).add("В456ГД");
+        verify(plateFilter).add("Е777КХ");
+        verify(plateFilter, times(2)).retire();
+    }
+
+    @Test
+    void getVehicleByLicensePlate_WhenFilterRulesItOut_ShouldNotQuery() {
+        // Given
+        when(plateFilter.mightContain("Х999ХХ")).thenReturn(false);
+        when(plateFilter.covers(anyLong())).thenReturn(true);
+
+        // When
+        Optional<Vehicle> result = vehicleService.getVehicleByLicensePlate("Х999ХХ");
+
+        // Then
+        assertThat(result).isEmpty();
+        verify(vehicleRepository, never()).findByLicensePlate(any());
+        verify(plateFilter).recordMisses(1, 0);
+    }
+
+    @Test
+    void checkPlates_ShouldQueryOnlyPlatesTheFilterCannotRuleOut() {
+        // Given
+        when(plateFilter.mightContain(any())).thenAnswer(invocation -> !"Х999ХХ".equals(invocation.getArgument(0)));
+        when(plateFilter.covers(anyLong())).thenReturn(true);
+        when(vehicleRepository.findLicensePlatesIn(List.of("А123БВ", "Е777КХ"))).thenReturn(List.of("А123БВ"));
+
+        // When
+        Map<String, Boolean> result = vehicleService.checkPlates(List.of("А123БВ", "Х999ХХ", "Е777КХ", "А123БВ"));
+
+        // Then
+        assertThat(result).containsExactly(Map.entry("А123БВ", true), Map.entry("Х999ХХ", false),
+                Map.entry("Е777КХ", false));
+        verify(plateFilter).recordMisses(1, 1);
+    }
+
+    @Test
+    void checkPlates_WhenFilterIsBehindTheLatestChange_ShouldQueryEveryPlate() {
+        // Given
+        when(plateFilter.mightContain(any())).thenAnswer(invocation -> !"Х999ХХ".equals(invocation.getArgument(0)));
+        when(changeLog.committedVersion()).thenReturn(42L);
+        when(plateFilter.covers(42L)).thenReturn(false);
+        when(vehicleRepository.findLicensePlatesIn(List.of("А123БВ", "Х999ХХ"))).thenReturn(List.of("А123БВ", "Х999ХХ"));
+
+        // When
+        Map<String, Boolean> result = vehicleService.checkPlates(List.of("А123БВ", "Х999ХХ"));
+
+        // Then
+        assertThat(result).containsExactly(Map.entry("А123БВ", true), Map.entry("Х999ХХ", true));
+        verify(plateFilter).recordMisses(0, 0);
+    }
+
+    @Test
+    void searchByOwner_ShouldReturnRankedVehiclesAndNextOffset() {
+        // Given
+        when(ownerIndex.search("иван", 0, 2)).thenReturn(new OwnerIndex.Hits(new long[]{2L, 1L}, 3));
+        when(vehicleRepository.findAllById(List.of(2L, 1L))).thenReturn(Arrays.asList(vehicle1, vehicle2));
+
+        // When
+        CursorPage<Vehicle> result = vehicleService.searchByOwner("иван", 0, 2);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(vehicle2, vehicle1);
+        assertThat(result.getNext()).isEqualTo(2L);
+    }
+}